@@ -0,0 +1,63 @@
+package geoindex.api;
+
+import java.util.Arrays;
+
+/**
+ * delta rebuild 입력 — 레코드 1건의 변경 (추가 / 삭제 / 이동 / 내용만 변경)
+ *
+ * 레코드는 값(병원 코드 등) 자체로 식별 → 삭제·이동은 같은 값을 옛 위치의 체인에서 제거
+ * 위치를 알아야 영향받는 primaryPage를 찾을 수 있음 → 삭제·이동은 옛 좌표 필수
+ */
+public class RecordChange {
+    private final byte[] value;
+    private final double[] oldLocation;     // null → 새 레코드
+    private final double[] newLocation;     // null → 삭제
+
+    private RecordChange(byte[] value, double[] oldLocation, double[] newLocation) {
+        if (value == null) throw new IllegalArgumentException("value must not be null");
+        this.value = value;
+        this.oldLocation = oldLocation;
+        this.newLocation = newLocation;
+    }
+
+    public static RecordChange insert(byte[] value, double lat, double lng) {
+        return new RecordChange(value, null, new double[]{lat, lng});
+    }
+
+    public static RecordChange delete(byte[] value, double lat, double lng) {
+        return new RecordChange(value, new double[]{lat, lng}, null);
+    }
+
+    public static RecordChange move(byte[] value, double oldLat, double oldLng, double newLat, double newLng) {
+        return new RecordChange(value, new double[]{oldLat, oldLng}, new double[]{newLat, newLng});
+    }
+
+    /**
+     * 위치는 그대로, 외부 데이터만 변경 → 파일 내용은 같고 그 페이지의 JVM 캐시만 무효화
+     */
+    public static RecordChange update(byte[] value, double lat, double lng) {
+        double[] location = {lat, lng};
+        return new RecordChange(value, location, location);
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    /** @return {lat, lng}, 새 레코드면 null */
+    public double[] getOldLocation() {
+        return oldLocation;
+    }
+
+    /** @return {lat, lng}, 삭제면 null */
+    public double[] getNewLocation() {
+        return newLocation;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordChange{value=" + new String(value)
+                + ", old=" + Arrays.toString(oldLocation)
+                + ", new=" + Arrays.toString(newLocation) + "}";
+    }
+}
@@ -21,16 +21,20 @@ public class RecordManager {
     }
 
     public void put(String key, byte[] value) {
+        cacheManager.throttleWrites();
         int pageId = Math.abs(key.hashCode() % MAX_PAGES);
-        Page page = cacheManager.getPage(pageId);
+        Page page = cacheManager.pinPage(pageId);
+        try {
+            if (!PageLayout.isInitialized(page)) {
+                PageLayout.initializePage(page);
+            }
 
-        if (!PageLayout.isInitialized(page)) {
-            PageLayout.initializePage(page);
+            int slotId = writeWithOverflow(pageId, page, value);
+            cacheManager.putPage(page);
+            index.put(key, new RecordId(pageId, slotId));
+        } finally {
+            cacheManager.unpinPage(page);
         }
-
-        int slotId = writeWithOverflow(pageId, page, value);
-        cacheManager.putPage(page);
-        index.put(key, new RecordId(pageId, slotId));
     }
 
     private int writeWithOverflow(int pageId, Page page, byte[] value) {
@@ -42,11 +46,17 @@ public class RecordManager {
                 overflowPageId = allocateNewPage();
                 PageLayout.setOverflowPageId(page, overflowPageId);
             }
-            Page overflowPage = cacheManager.getPage(overflowPageId);
-            if (!PageLayout.isInitialized(overflowPage)) {
-                PageLayout.initializePage(overflowPage);
+            Page overflowPage = cacheManager.pinPage(overflowPageId);
+            try {
+                if (!PageLayout.isInitialized(overflowPage)) {
+                    PageLayout.initializePage(overflowPage);
+                }
+                int overflowSlotId = writeWithOverflow(overflowPageId, overflowPage, value);
+                cacheManager.putPage(overflowPage);
+                return overflowSlotId;
+            } finally {
+                cacheManager.unpinPage(overflowPage);
             }
-            return writeWithOverflow(overflowPageId, overflowPage, value);
         }
 
         return slotId;
@@ -56,8 +66,12 @@ public class RecordManager {
         RecordId rid = index.get(key);
         if (rid == null) return null;
 
-        Page page = cacheManager.getPage(rid.getPageId());
-        return PageLayout.readRecord(page, rid.getSlotId());
+        Page page = cacheManager.pinPage(rid.getPageId());
+        try {
+            return PageLayout.readRecord(page, rid.getSlotId());
+        } finally {
+            cacheManager.unpinPage(page);
+        }
     }
 
     public List<byte[]> getAllValues() {
@@ -71,8 +85,12 @@ public class RecordManager {
 
     private int allocateNewPage() {
         for (int pageId = 0; pageId < MAX_PAGES; pageId++) {
-            Page page = cacheManager.getPage(pageId);
-            if (!PageLayout.isInitialized(page)) return pageId;
+            Page page = cacheManager.pinPage(pageId);
+            try {
+                if (!PageLayout.isInitialized(page)) return pageId;
+            } finally {
+                cacheManager.unpinPage(page);
+            }
         }
         throw new IllegalStateException("no available pages");
     }
@@ -164,6 +164,16 @@ public class SpatialCacheEngine<T> {
         pageCacheStore.clearCache();      // JVM 캐시 초기화
     }
 
+    /**
+     * 바뀐 레코드의 체인만 교체 + 그 pageId만 JVM 캐시에서 제거 → 나머지 페이지는 계속 HIT
+     * @return 무효화한 pageId
+     */
+    public Set<Integer> rebuildDelta(Collection<RecordChange> changes) {
+        Set<Integer> affected = spatialRecordManager.rebuildDelta(changes);
+        affected.forEach(pageCacheStore::invalidate);
+        return affected;
+    }
+
     public CachePolicy getPolicy() {
         return pageCacheStore.getPolicy();
     }
@@ -5,8 +5,11 @@ import geoindex.index.SpatialIndex;
 import geoindex.metric.EngineMetrics;
 import geoindex.storage.Page;
 import geoindex.storage.PageLayout;
+import geoindex.storage.WriteAheadLog;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -17,10 +20,12 @@ public class SpatialRecordManager {
     private static final int PRIMARY_PAGES  = 32_768;
     private static final int OVERFLOW_PAGES = 40_960;
     private static final int TOTAL_PAGES    = PRIMARY_PAGES + OVERFLOW_PAGES;
+    private static final int NO_PAGE        = -1;
 
     private final CacheManager cacheManager;
     private final SpatialIndex spatialIndex;
     private final EngineMetrics engineMetrics;
+    private final WriteAheadLog writeAheadLog;     // CacheManager에 붙은 WAL (없으면 null)
     private ConcurrentLinkedDeque<Integer> overflowFreeList;
     private final ConcurrentHashMap<Integer, ReentrantReadWriteLock> pageLocks;
 
@@ -30,9 +35,47 @@ public class SpatialRecordManager {
         this.overflowFreeList = buildFreeList();
         this.pageLocks = new ConcurrentHashMap<>();
         this.engineMetrics = engineMetrics;
+        this.writeAheadLog = cacheManager.getWriteAheadLog();
+        if (writeAheadLog != null) recover();
     }
 
+    // -------------------------------------------------------------------------
+    // WAL 복구
+    // -------------------------------------------------------------------------
 
+    /**
+     * 마지막 checkpoint 이후 로그를 페이지에 다시 적용 → flush(checkpoint)로 로그 비움
+     *
+     * 멱등성:
+     *   INSERT → 페이지 recordCount가 이미 slotId보다 크면 flush 때 반영된 레코드 → skip
+     *   LINK   → 같은 overflow 포인터를 다시 설정할 뿐
+     */
+    private void recover() {
+        writeAheadLog.replay((lsn, type, pageId, arg, value) -> {
+            Page page = cacheManager.pinPage(pageId);
+            try {
+                if (type == WriteAheadLog.TYPE_LINK) {
+                    if (!PageLayout.isInitialized(page)) PageLayout.initializePage(page);
+                    PageLayout.setOverflowPageId(page, arg);
+                    overflowFreeList.remove(arg);
+                } else if (type == WriteAheadLog.TYPE_INSERT) {
+                    if (!PageLayout.isInitialized(page)) PageLayout.initializePage(page);
+                    int recordCount = PageLayout.getRecordCount(page);
+                    if (recordCount > arg) return;
+                    if (recordCount < arg || PageLayout.writeRecord(page, value) != arg) {
+                        throw new IllegalStateException("WAL replay gap: pageId=" + pageId
+                                + ", slotId=" + arg + ", recordCount=" + recordCount + ", lsn=" + lsn);
+                    }
+                } else {
+                    throw new IllegalStateException("unknown WAL record type: " + type + ", lsn=" + lsn);
+                }
+                cacheManager.putPage(page);
+            } finally {
+                cacheManager.unpinPage(page);
+            }
+        });
+        cacheManager.flush();
+    }
 
     // -------------------------------------------------------------------------
     // 락 관리
@@ -46,38 +89,57 @@ public class SpatialRecordManager {
     // put()
     // -------------------------------------------------------------------------
 
+    /**
+     * WAL이 있으면 redo 레코드 append 후 fsync까지 대기
+     * 페이지 락은 append까지만 잡음 → fsync 대기는 락 밖에서 (group commit으로 여러 put이 공유)
+     */
     public void put(double lat, double lng, byte[] value) {
+        cacheManager.throttleWrites();      // 락 밖에서 — 버퍼 풀 dirty가 high watermark 이상이면 대기 (PageWriter)
         int pageId = spatialIndex.toPageId(lat, lng);
-        Page page = cacheManager.getPage(pageId);
-        writeWithOverflow(page, value);
+        long lsn = writeWithOverflow(pageId, value);
+        if (writeAheadLog != null) writeAheadLog.awaitDurable(lsn);
     }
 
-    private void writeWithOverflow(Page page, byte[] value) {
+    /**
+     * @return 마지막 WAL 레코드 LSN (WAL 없으면 NO_LSN)
+     */
+    private long writeWithOverflow(int primaryPageId, byte[] value) {
         // primaryPage 락 하나로 전체 체인 보호
-        int primaryPageId = page.getPageId();
         ReentrantReadWriteLock.WriteLock writeLock = getLock(primaryPageId).writeLock();
         writeLock.lock();
         try {
-            Page current = page;
-            while (true) {
-                if (!PageLayout.isInitialized(current)) {
-                    PageLayout.initializePage(current);
-                }
-
-                int slotId = PageLayout.writeRecord(current, value);
-
-                if (slotId != -1) {
+            // 락 안에서 조회 — 락을 기다리는 동안 rebuildDelta가 캐시의 Page 객체를 교체했을 수 있음
+            // 수정하는 동안 pin → 버퍼 풀이 교체하지 않음
+            Page current = cacheManager.pinPage(primaryPageId);
+            try {
+                while (true) {
+                    if (!PageLayout.isInitialized(current)) {
+                        PageLayout.initializePage(current);
+                    }
+
+                    int slotId = PageLayout.writeRecord(current, value);
+
+                    if (slotId != -1) {
+                        cacheManager.putPage(current);
+                        // 같은 체인의 레코드는 primaryPage 락 안에서 append → 로그 순서 = 슬롯 순서
+                        return writeAheadLog != null
+                                ? writeAheadLog.appendInsert(current.getPageId(), slotId, value)
+                                : WriteAheadLog.NO_LSN;
+                    }
+
+                    int overflowPageId = PageLayout.getOverflowPageId(current);
+                    if (overflowPageId == PageLayout.NO_OVERFLOW) {
+                        overflowPageId = allocateOverflowPage();
+                        PageLayout.setOverflowPageId(current, overflowPageId);
+                        if (writeAheadLog != null) writeAheadLog.appendLink(current.getPageId(), overflowPageId);
+                    }
                     cacheManager.putPage(current);
-                    return;
-                }
-
-                int overflowPageId = PageLayout.getOverflowPageId(current);
-                if (overflowPageId == PageLayout.NO_OVERFLOW) {
-                    overflowPageId = allocateOverflowPage();
-                    PageLayout.setOverflowPageId(current, overflowPageId);
+                    Page next = cacheManager.pinPage(overflowPageId);
+                    cacheManager.unpinPage(current);
+                    current = next;
                 }
-                cacheManager.putPage(current);
-                current = cacheManager.getPage(overflowPageId);
+            } finally {
+                cacheManager.unpinPage(current);
             }
         } finally {
             writeLock.unlock();
@@ -91,6 +153,7 @@ public class SpatialRecordManager {
     public Map<Integer, List<String>> searchRadiusCodesByPageId(double lat, double lng, double radiusKm) {
         engineMetrics.incrementQueryCount();
         List<Integer> pageIds = spatialIndex.getPageIds(lat, lng, radiusKm);
+        prefetch(pageIds);
         Map<Integer, List<String>> result = new LinkedHashMap<>();
 
         for (int pageId : pageIds) {
@@ -107,25 +170,25 @@ public class SpatialRecordManager {
 
     public List<byte[]> searchRadius(double lat, double lng, double radiusKm) {
         List<Integer> pageIds = spatialIndex.getPageIds(lat, lng, radiusKm);
+        prefetch(pageIds);
         List<byte[]> results = new ArrayList<>();
 
         for (int pageId : pageIds) {
             ReentrantReadWriteLock.ReadLock readLock = getLock(pageId).readLock();
             readLock.lock();
             try {
-                Page page = cacheManager.getPage(pageId);
-                if (!PageLayout.isInitialized(page)) continue;
-
-                results.addAll(PageLayout.readAllRecords(page));
-
-                int overflowPageId = PageLayout.getOverflowPageId(page);
-                while (overflowPageId != PageLayout.NO_OVERFLOW) {
+                int current = pageId;
+                while (current != PageLayout.NO_OVERFLOW) {
                     // overflow 페이지는 별도 락 없이 읽음
                     // primaryPage 락이 전체 체인을 보호
-                    Page overflowPage = cacheManager.getPage(overflowPageId);
-                    if (!PageLayout.isInitialized(overflowPage)) break;
-                    results.addAll(PageLayout.readAllRecords(overflowPage));
-                    overflowPageId = PageLayout.getOverflowPageId(overflowPage);
+                    Page page = cacheManager.pinPage(current);
+                    try {
+                        if (!PageLayout.isInitialized(page)) break;
+                        results.addAll(PageLayout.readAllRecords(page));
+                        current = PageLayout.getOverflowPageId(page);
+                    } finally {
+                        cacheManager.unpinPage(page);
+                    }
                 }
             } finally {
                 readLock.unlock();
@@ -142,6 +205,61 @@ public class SpatialRecordManager {
         return codes;
     }
 
+    // -------------------------------------------------------------------------
+    // read-ahead
+    // -------------------------------------------------------------------------
+
+    /**
+     * 쿼리의 모든 미스를 한꺼번에 비동기로 적재 — 연속 구간은 getPagesAsync 1회
+     *
+     * Why?
+     *   HilbertIndex는 [120, 121, 122, 123]처럼 연속 구간을 돌려줌 (SeekCountBenchmark)
+     *   → 구간 단위로 먼저 올려두면 물리적으로 인접한 페이지는 read 1회
+     *   구간끼리도 하나씩 기다리면 지연 = 구간 수 × read 지연
+     *   → 모든 구간(단일 페이지 포함)의 read를 먼저 내고 마지막에 한 번만 기다림
+     *
+     * overflow 체인: 적재된 페이지의 overflow 포인터를 모아 다음 단계에서 다시 한꺼번에 적재
+     *   (체인 길이만큼의 단계, 단계마다 그 깊이의 모든 체인을 동시에 읽음)
+     *   락 밖에서 읽은 포인터는 힌트일 뿐 — 이후 체인 순회는 기존처럼 primaryPage 락 안에서 캐시 조회
+     */
+    private void prefetch(List<Integer> pageIds) {
+        Set<Integer> wave = new TreeSet<>(pageIds);
+        Set<Integer> seen = new HashSet<>();
+        while (!wave.isEmpty()) {
+            seen.addAll(wave);
+            List<CompletableFuture<List<Page>>> loads = new ArrayList<>();
+            int[] sorted = wave.stream().mapToInt(Integer::intValue).toArray();
+            int start = 0;
+            for (int i = 1; i <= sorted.length; i++) {
+                if (i < sorted.length && sorted[i] == sorted[i - 1] + 1) continue;
+                loads.add(cacheManager.getPagesAsync(sorted[start], sorted[i - 1]));
+                start = i;
+            }
+
+            Set<Integer> next = new TreeSet<>();
+            for (CompletableFuture<List<Page>> load : loads) {
+                for (Page page : join(load)) {
+                    if (!PageLayout.isInitialized(page)) continue;
+                    int overflowPageId = PageLayout.getOverflowPageId(page);
+                    if (overflowPageId >= PRIMARY_PAGES && overflowPageId < TOTAL_PAGES
+                            && !seen.contains(overflowPageId)) {
+                        next.add(overflowPageId);
+                    }
+                }
+            }
+            wave = next;
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
     // -------------------------------------------------------------------------
     // overflow 체인 순회 (내부 공통 로직)
     // -------------------------------------------------------------------------
@@ -151,20 +269,19 @@ public class SpatialRecordManager {
         ReentrantReadWriteLock.ReadLock readLock = getLock(pageId).readLock();
         readLock.lock();
         try {
-            Page page = cacheManager.getPage(pageId);
-            if (!PageLayout.isInitialized(page)) return Collections.emptyList();
-
             List<String> codes = new ArrayList<>();
-            collectCodes(page, codes);
-
-            int overflowPageId = PageLayout.getOverflowPageId(page);
-            while (overflowPageId != PageLayout.NO_OVERFLOW) {
+            int current = pageId;
+            while (current != PageLayout.NO_OVERFLOW) {
                 // overflow 페이지는 별도 락 없이 읽음
                 // primaryPage 락이 전체 체인을 보호
-                Page overflowPage = cacheManager.getPage(overflowPageId);
-                if (!PageLayout.isInitialized(overflowPage)) break;
-                collectCodes(overflowPage, codes);
-                overflowPageId = PageLayout.getOverflowPageId(overflowPage);
+                Page page = cacheManager.pinPage(current);
+                try {
+                    if (!PageLayout.isInitialized(page)) break;
+                    collectCodes(page, codes);
+                    current = PageLayout.getOverflowPageId(page);
+                } finally {
+                    cacheManager.unpinPage(page);
+                }
             }
 
             return codes;
@@ -192,6 +309,141 @@ public class SpatialRecordManager {
         this.pageLocks.clear();
     }
 
+    /**
+     * 변경된 레코드가 속한 체인만 다시 씀 — 나머지 페이지, 캐시, 락은 그대로
+     *
+     * Why?
+     *   rebuild(loader)는 전체 레코드를 임시 파일에 다시 적재 + 캐시 전체 초기화
+     *   야간 동기화는 수백 건만 바뀜 → 영향받는 primaryPage 체인 몇 개만 교체하면 충분
+     *
+     * 흐름:
+     *   1. 변경마다 옛 위치 / 새 위치의 primaryPage 계산 → pageId 오름차순으로 쓰기 락 (교착 방지)
+     *   2. 체인마다 현재 레코드(캐시 내용, dirty 포함)에서 삭제·이동한 값을 빼고 새 값을 추가
+     *      → 새 Page 객체에 다시 배치 (기존 overflow pageId 재사용, 모자라면 할당)
+     *      남는 overflow 페이지는 빈 페이지로 덮어쓰고 free list로 반납
+     *      레코드가 그대로인 체인 (update, 이미 반영된 변경)은 기록하지 않음
+     *   3. CacheManager.replacePages → shadow extent + 디렉토리 배치 1개로 원자적 전환
+     *
+     * 멱등: 이미 있는 값의 insert, 없는 값의 delete는 무시 → 같은 변경 목록을 다시 돌려도 안전
+     *
+     * @return 영향받은 primaryPage id — 상위 캐시(PageCacheStore)는 이 pageId만 무효화
+     */
+    public Set<Integer> rebuildDelta(Collection<RecordChange> changes) {
+        long start = System.nanoTime();
+        Map<Integer, List<RecordChange>> changesByPage = new TreeMap<>();
+        for (RecordChange change : changes) {
+            int oldPageId = pageIdOf(change.getOldLocation());
+            int newPageId = pageIdOf(change.getNewLocation());
+            if (oldPageId != NO_PAGE) changesByPage.computeIfAbsent(oldPageId, k -> new ArrayList<>()).add(change);
+            if (newPageId != NO_PAGE && newPageId != oldPageId) {
+                changesByPage.computeIfAbsent(newPageId, k -> new ArrayList<>()).add(change);
+            }
+        }
+
+        List<ReentrantReadWriteLock.WriteLock> locked = new ArrayList<>(changesByPage.size());
+        int written = 0;
+        try {
+            for (int pageId : changesByPage.keySet()) {
+                ReentrantReadWriteLock.WriteLock writeLock = getLock(pageId).writeLock();
+                writeLock.lock();
+                locked.add(writeLock);
+            }
+
+            List<Page> images = new ArrayList<>();
+            List<Integer> released = new ArrayList<>();
+            List<Integer> allocated = new ArrayList<>();
+            try {
+                for (Map.Entry<Integer, List<RecordChange>> entry : changesByPage.entrySet()) {
+                    rewriteChain(entry.getKey(), entry.getValue(), images, released, allocated);
+                }
+                if (!images.isEmpty()) cacheManager.replacePages(images);
+            } catch (RuntimeException e) {
+                allocated.forEach(overflowFreeList::push);     // 전환 전 실패 → 새로 할당한 overflow 반납
+                throw e;
+            }
+            released.forEach(overflowFreeList::push);
+            written = images.size();
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) locked.get(i).unlock();
+        }
+
+        engineMetrics.recordDeltaRebuild(written, (System.nanoTime() - start) / 1_000_000);
+        return Collections.unmodifiableSet(changesByPage.keySet());
+    }
+
+    /**
+     * primaryPageId 체인의 새 이미지를 images에 추가 — 호출자가 primaryPage 쓰기 락 보유
+     */
+    private void rewriteChain(int primaryPageId, List<RecordChange> changes,
+                              List<Page> images, List<Integer> released, List<Integer> allocated) {
+        List<Integer> chain = new ArrayList<>();
+        List<byte[]> records = new ArrayList<>();
+        int pageId = primaryPageId;
+        while (pageId != PageLayout.NO_OVERFLOW) {
+            Page page = cacheManager.pinPage(pageId);
+            try {
+                if (!PageLayout.isInitialized(page)) break;
+                chain.add(pageId);
+                records.addAll(PageLayout.readAllRecords(page));
+                pageId = PageLayout.getOverflowPageId(page);
+            } finally {
+                cacheManager.unpinPage(page);
+            }
+        }
+
+        boolean changed = false;
+        for (RecordChange change : changes) {
+            boolean leaves = pageIdOf(change.getOldLocation()) == primaryPageId
+                    && pageIdOf(change.getNewLocation()) != primaryPageId;
+            boolean arrives = pageIdOf(change.getNewLocation()) == primaryPageId;
+            if (leaves) {
+                changed |= records.removeIf(record -> Arrays.equals(record, change.getValue()));
+            } else if (arrives && records.stream().noneMatch(record -> Arrays.equals(record, change.getValue()))) {
+                records.add(change.getValue());
+                changed = true;
+            }
+        }
+        if (!changed) return;
+
+        if (chain.isEmpty()) chain.add(primaryPageId);
+        int used = 0;
+        Page current = newChainPage(chain.get(used++));
+        for (byte[] record : records) {
+            if (PageLayout.writeRecord(current, record) != -1) continue;
+            if (PageLayout.getRecordCount(current) == 0) {
+                throw new IllegalArgumentException("record larger than a page: " + record.length + " bytes");
+            }
+            int nextPageId;
+            if (used < chain.size()) {
+                nextPageId = chain.get(used++);
+            } else {
+                nextPageId = allocateOverflowPage();
+                allocated.add(nextPageId);
+            }
+            PageLayout.setOverflowPageId(current, nextPageId);
+            images.add(current);
+            current = newChainPage(nextPageId);
+            PageLayout.writeRecord(current, record);
+        }
+        images.add(current);
+
+        // 줄어든 체인의 남는 overflow → 빈 페이지로 덮어씀 (다시 할당될 때 옛 레코드가 남아있지 않게)
+        for (int i = used; i < chain.size(); i++) {
+            images.add(new Page(chain.get(i), cacheManager.getPageSize()));
+            released.add(chain.get(i));
+        }
+    }
+
+    private Page newChainPage(int pageId) {
+        Page page = new Page(pageId, cacheManager.getPageSize());
+        PageLayout.initializePage(page);
+        return page;
+    }
+
+    private int pageIdOf(double[] location) {
+        return location == null ? NO_PAGE : spatialIndex.toPageId(location[0], location[1]);
+    }
+
     // -------------------------------------------------------------------------
     // 유틸
     // -------------------------------------------------------------------------
@@ -0,0 +1,83 @@
+package geoindex.benchmark;
+
+import geoindex.buffer.CacheManager;
+import geoindex.metric.EngineMetrics;
+import geoindex.storage.DiskManager;
+import geoindex.storage.Page;
+import geoindex.storage.PageLayout;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 버퍼 풀 frame 메모리 HEAP vs OFF_HEAP — 풀 크기별 힙 사용량 / GC 시간
+ *
+ * 측정 대상:
+ *   capacity개 페이지를 pin → 레코드 기록 → putPage → unpin으로 풀을 가득 채운 뒤
+ *   full GC 후 힙 사용량 (풀을 만들기 전 대비), 채우는 동안 누적 GC 시간
+ *
+ * 기대 결과:
+ *   HEAP:     capacity × (페이지 크기 + α) — 풀 크기에 비례
+ *   OFF_HEAP: capacity × handle 몇십 바이트 — 페이지 내용은 direct 메모리 (-XX:MaxDirectMemorySize 안)
+ */
+public class BufferPoolHeapBenchmark {
+
+    private static final String TEST_DB = "bufferPoolHeapDb";
+    private static final int[] CAPACITIES = {4_096, 16_384, 65_536};
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== 버퍼 풀 힙 사용량 (페이지 " + Page.PAGE_SIZE + " bytes) ===");
+        System.out.println();
+        System.out.printf("%-10s %-10s %-14s %-12s%n", "frame", "capacity", "힙 증가(MB)", "GC 시간(ms)");
+        System.out.println("-".repeat(50));
+        for (CacheManager.FrameMemory memory : CacheManager.FrameMemory.values()) {
+            for (int capacity : CAPACITIES) measure(memory, capacity);
+        }
+    }
+
+    private static void measure(CacheManager.FrameMemory memory, int capacity) throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        long heapBefore = usedHeapAfterGc();
+        long gcBefore = totalGcMillis();
+        CacheManager cacheManager = new CacheManager(new DiskManager(TEST_DB, metrics), null, metrics, capacity, memory);
+        try {
+            for (int pageId = 0; pageId < capacity; pageId++) {
+                Page page = cacheManager.pinPage(pageId);
+                try {
+                    PageLayout.initializePage(page);
+                    PageLayout.writeRecord(page, ("p" + pageId).getBytes());
+                    cacheManager.putPage(page);
+                } finally {
+                    cacheManager.unpinPage(page);
+                }
+            }
+            long gcMillis = totalGcMillis() - gcBefore;
+            long heapGrowth = usedHeapAfterGc() - heapBefore;
+
+            System.out.printf("%-10s %-10d %-14.1f %-12d%n",
+                    memory, capacity, heapGrowth / (1024.0 * 1024.0), gcMillis);
+        } finally {
+            cacheManager.close();
+            Files.deleteIfExists(Path.of(TEST_DB));
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
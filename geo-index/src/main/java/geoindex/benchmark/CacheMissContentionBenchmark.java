@@ -0,0 +1,172 @@
+package geoindex.benchmark;
+
+import geoindex.buffer.CacheManager;
+import geoindex.metric.EngineMetrics;
+import geoindex.storage.DiskManager;
+import geoindex.storage.Page;
+import geoindex.storage.PageSnapshot;
+import geoindex.storage.PageStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * cold 캐시 burst — 미스 I/O를 map 락 안에서 할 때 vs placeholder 밖에서 할 때
+ *
+ * 측정 대상:
+ *   THREADS개 스레드가 동시에 출발해서 각자 PAGES_PER_THREAD개의 서로 다른 cold 페이지 조회
+ *   readPage마다 READ_LATENCY_MICROS 지연 (디스크 read 흉내) → 전체 시간, 조회 p99, 실제 read 수
+ *   같은 페이지 burst: 모든 스레드가 같은 페이지들을 조회 → 중복 read가 없는지
+ *
+ * 비교:
+ *   computeIfAbsent: 이전 CacheManager.getPage — ConcurrentHashMap.computeIfAbsent(pageId, readPage)
+ *                    read 동안 bin 락 → 같은 bin에 걸린 다른 pageId의 미스가 줄을 섬
+ *   placeholder:     현재 CacheManager.getPage — 적재 중 frame 등록 후 락 밖에서 read
+ *
+ * 기대 결과:
+ *   서로 다른 페이지 burst: computeIfAbsent는 bin 충돌만큼 직렬화 → placeholder가 전체 시간 / p99 모두 짧음
+ *   같은 페이지 burst: 둘 다 페이지당 read 1회, 전체 시간도 같은 수준
+ *                      (placeholder 대기자는 frame 모니터에서 하나씩 깨어남 — bin 락 대기와 같은 흐름)
+ *
+ * 라운드: WARMUP_ROUNDS는 JIT 예열용으로 버리고, ROUNDS번의 중앙값을 출력
+ */
+public class CacheMissContentionBenchmark {
+
+    private static final String TEST_DB             = "missContentionDb";
+    private static final int    THREADS             = 32;
+    private static final int    PAGES_PER_THREAD    = 64;
+    private static final long   READ_LATENCY_MICROS = 200;
+    private static final int    WARMUP_ROUNDS       = 3;
+    private static final int    ROUNDS              = 9;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== cold 캐시 burst (" + THREADS + "스레드 × " + PAGES_PER_THREAD
+                + "페이지, read 지연 " + READ_LATENCY_MICROS + "us) ===");
+        System.out.println();
+        System.out.printf("%-18s %-10s %-12s %-12s %-10s%n", "방식", "burst", "전체(ms)", "p99(us)", "read 수");
+        System.out.println("(" + ROUNDS + "회 중앙값, 예열 " + WARMUP_ROUNDS + "회 제외)");
+        System.out.println("-".repeat(66));
+        for (boolean samePages : new boolean[]{false, true}) {
+            report("computeIfAbsent", samePages, store -> {
+                ConcurrentHashMap<Integer, Page> cache = new ConcurrentHashMap<>();
+                return pageId -> cache.computeIfAbsent(pageId, store::readPage);
+            });
+            report("placeholder", samePages, store -> {
+                CacheManager cacheManager = new CacheManager(store, null, new EngineMetrics(),
+                        THREADS * PAGES_PER_THREAD);
+                return cacheManager::getPage;
+            });
+        }
+    }
+
+    private static void report(String name, boolean samePages,
+                               Function<PageStore, IntFunction<Page>> cacheFactory) throws Exception {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) measure(samePages, cacheFactory);
+        long[] elapsed = new long[ROUNDS];
+        long[] p99 = new long[ROUNDS];
+        long reads = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] result = measure(samePages, cacheFactory);
+            elapsed[round] = result[0];
+            p99[round] = result[1];
+            reads = Math.max(reads, result[2]);
+        }
+        Arrays.sort(elapsed);
+        Arrays.sort(p99);
+        System.out.printf("%-18s %-10s %-12d %-12d %-10d%n",
+                name, samePages ? "같은 페이지" : "다른 페이지", elapsed[ROUNDS / 2], p99[ROUNDS / 2], reads);
+    }
+
+    /**
+     * @return {전체 ms, 조회 p99 us, read 수}
+     */
+    private static long[] measure(boolean samePages,
+                                  Function<PageStore, IntFunction<Page>> cacheFactory) throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager diskManager = new DiskManager(TEST_DB, metrics);
+        SlowPageStore store = new SlowPageStore(diskManager);
+        try {
+            IntFunction<Page> cache = cacheFactory.apply(store);
+            long[] latencies = new long[THREADS * PAGES_PER_THREAD];
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                threads[t] = new Thread(() -> {
+                    awaitQuietly(start);
+                    for (int i = 0; i < PAGES_PER_THREAD; i++) {
+                        int pageId = samePages ? i : i * THREADS + thread;
+                        long begin = System.nanoTime();
+                        cache.apply(pageId);
+                        latencies[thread * PAGES_PER_THREAD + i] = System.nanoTime() - begin;
+                    }
+                });
+                threads[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread thread : threads) thread.join();
+            long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+            Arrays.sort(latencies);
+            long p99Micros = latencies[(int) (latencies.length * 0.99)] / 1_000;
+            return new long[]{elapsedMs, p99Micros, store.reads.get()};
+        } finally {
+            diskManager.close();
+            Files.deleteIfExists(Path.of(TEST_DB));
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * readPage마다 고정 지연 — 빈 파일이라 실제 I/O가 없으므로 디스크 read 시간을 흉내
+     */
+    private static class SlowPageStore implements PageStore {
+
+        private final PageStore delegate;
+        private final AtomicLong reads = new AtomicLong();
+
+        SlowPageStore(PageStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Page readPage(int pageId) {
+            reads.incrementAndGet();
+            LockSupport.parkNanos(READ_LATENCY_MICROS * 1_000);
+            return delegate.readPage(pageId);
+        }
+
+        @Override public List<Page> readPages(int startPageId, int endPageId) { return delegate.readPages(startPageId, endPageId); }
+        @Override public void writePage(Page page) { delegate.writePage(page); }
+        @Override public CompletableFuture<Page> readPageAsync(int pageId) { return delegate.readPageAsync(pageId); }
+        @Override public CompletableFuture<List<Page>> readPagesAsync(int startPageId, int endPageId) { return delegate.readPagesAsync(startPageId, endPageId); }
+        @Override public CompletableFuture<Void> writePageAsync(Page page) { return delegate.writePageAsync(page); }
+        @Override public void writePages(Collection<Page> pages) { delegate.writePages(pages); }
+        @Override public void writePagesAtomically(Collection<Page> pages) { delegate.writePagesAtomically(pages); }
+        @Override public void sync() { delegate.sync(); }
+        @Override public void rebuild(PageStoreLoader loader) { delegate.rebuild(loader); }
+        @Override public int[] getPageIds() { return delegate.getPageIds(); }
+        @Override public int getUsedPageCount() { return delegate.getUsedPageCount(); }
+        @Override public PageSnapshot openSnapshot() { return delegate.openSnapshot(); }
+        @Override public int getPageSize() { return delegate.getPageSize(); }
+        @Override public void close() { delegate.close(); }
+    }
+}
@@ -0,0 +1,121 @@
+package geoindex.benchmark;
+
+import geoindex.api.SpatialRecordManager;
+import geoindex.buffer.CacheManager;
+import geoindex.index.HilbertIndex;
+import geoindex.metric.EngineMetrics;
+import geoindex.metric.MetricsSnapshot;
+import geoindex.storage.DiskManager;
+import geoindex.storage.StorageOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static geoindex.benchmark.DummyDataGenerator.generateDummyList;
+
+/**
+ * 페이지 압축 NONE vs DEFLATE — 파일 크기 / 읽은 바이트 vs CPU 시간
+ *
+ * 측정 대상:
+ *   1. 병원 79,081건 put + flush 시간 (쓰기 경로 압축 비용 포함)
+ *   2. 파일 크기
+ *   3. 전체 페이지를 pageId 순으로 cold read (연속 구간마다 readPages)
+ *      → 읽기 시간, 디스크에서 읽은 바이트 (EngineMetrics.readBytes)
+ *
+ * cold read:
+ *   root 권한이면 읽기 전에 /proc/sys/vm/drop_caches로 OS 캐시를 비움
+ *   권한이 없으면 OS 캐시 히트 → 압축의 CPU 비용만 보임 (출력에 표시)
+ *
+ * 기대 결과:
+ *   DEFLATE → 파일 크기 / 읽은 바이트 수 배 감소, 쓰기 시간 증가
+ *             읽기 시간은 디스크 대역폭이 병목이면 감소, 빠른 NVMe / OS 캐시 히트면 압축 해제만큼 증가
+ */
+public class CompressionBenchmark {
+
+    private static final String TEST_DB      = "compressionDb";
+    private static final int    RECORD_COUNT = 79_081;
+    private static final int    RANGE_PAGES  = 64;       // readPages 1회 구간 크기
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== 페이지 압축 (병원 " + RECORD_COUNT + "건) ===");
+        System.out.println();
+        System.out.printf("%-10s %-12s %-12s %-8s %-14s %-14s%n",
+                "압축", "쓰기(ms)", "파일(KB)", "cold", "읽기(ms)", "읽은 바이트(KB)");
+        System.out.println("-".repeat(76));
+
+        for (StorageOptions.Compression compression : StorageOptions.Compression.values()) {
+            measure(compression);
+        }
+        System.out.println("-".repeat(76));
+        System.out.println("cold=no → drop_caches 권한 없음, OS 캐시에 남은 페이지를 읽음");
+    }
+
+    private static void measure(StorageOptions.Compression compression) throws IOException {
+        StorageOptions options = StorageOptions.builder().compression(compression).build();
+        try {
+            long writeMs = build(options);
+            long fileKb = Files.size(Path.of(TEST_DB)) >> 10;
+            boolean cold = dropCaches();
+
+            EngineMetrics metrics = new EngineMetrics();
+            DiskManager diskManager = new DiskManager(TEST_DB, options, metrics);
+            try {
+                int[] pageIds = diskManager.getPageIds();
+                Arrays.sort(pageIds);
+
+                long start = System.nanoTime();
+                for (int i = 0; i < pageIds.length; ) {
+                    // 연속 pageId 구간을 최대 RANGE_PAGES씩 묶어서 읽음
+                    int end = i;
+                    while (end + 1 < pageIds.length && end + 1 - i < RANGE_PAGES
+                            && pageIds[end + 1] == pageIds[end] + 1) {
+                        end++;
+                    }
+                    diskManager.readPages(pageIds[i], pageIds[end]);
+                    i = end + 1;
+                }
+                long readMs = (System.nanoTime() - start) / 1_000_000;
+
+                MetricsSnapshot snapshot = metrics.snapshot(0, 0, 0, 0);
+                System.out.printf("%-10s %-12d %-12d %-8s %-14d %-14d%n",
+                        compression, writeMs, fileKb, cold ? "yes" : "no", readMs, snapshot.readBytes >> 10);
+            } finally {
+                diskManager.close();
+            }
+        } finally {
+            Files.deleteIfExists(Path.of(TEST_DB));
+        }
+    }
+
+    /**
+     * @return put + flush 시간 (ms)
+     */
+    private static long build(StorageOptions options) {
+        List<Hospital> hospitals = generateDummyList(RECORD_COUNT);
+        EngineMetrics metrics = new EngineMetrics();
+        CacheManager cacheManager = new CacheManager(new DiskManager(TEST_DB, options, metrics), metrics);
+        try {
+            SpatialRecordManager recordManager = new SpatialRecordManager(cacheManager, new HilbertIndex(), metrics);
+            long start = System.nanoTime();
+            for (Hospital hospital : hospitals) {
+                recordManager.put(hospital.coordinateY, hospital.coordinateX, Hospital.toBytes(hospital));
+            }
+            cacheManager.flush();
+            return (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            cacheManager.close();
+        }
+    }
+
+    private static boolean dropCaches() {
+        try {
+            Files.writeString(Path.of("/proc/sys/vm/drop_caches"), "3");
+            return true;
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package geoindex.benchmark;
+
+import geoindex.metric.EngineMetrics;
+import geoindex.storage.DiskManager;
+import geoindex.storage.Page;
+import geoindex.storage.StorageOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * DiskManager 동시 읽기 처리량 측정
+ *
+ * 측정 대상:
+ *   CacheManager를 거치지 않고 DiskManager.readPage()를 직접 호출
+ *   → cache miss 경로만 분리해서 스레드 수 대비 처리량 확인
+ *
+ * 기대 결과:
+ *   synchronized readPage   → 스레드를 늘려도 처리량 고정 (모니터 하나에 직렬화)
+ *   FileChannel 위치 지정 읽기 → 스레드 수에 비례해서 처리량 증가
+ *   MMAP                    → syscall 없는 메모리 복사 → 같은 스레드 수에서 CHANNEL보다 높음
+ */
+public class DiskReadBenchmark {
+
+    private static final String TEST_DB      = "diskReadDb";
+    private static final int    PAGE_COUNT   = 20_000;
+    private static final int    TOTAL_READS  = 400_000;
+    private static final int[]  THREADS      = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) throws Exception {
+        StorageOptions.IoMode[] modes = StorageOptions.IoMode.values();
+        long[][] readsPerSec = new long[modes.length][THREADS.length];
+
+        for (int m = 0; m < modes.length; m++) {
+            readsPerSec[m] = measure(modes[m]);
+        }
+
+        System.out.println("=== DiskManager 동시 읽기 처리량 (reads/sec) ===");
+        System.out.println("페이지 수: " + PAGE_COUNT + " / 총 읽기: " + TOTAL_READS);
+        System.out.println();
+        System.out.printf("%-10s", "스레드");
+        for (StorageOptions.IoMode mode : modes) System.out.printf(" %-15s", mode);
+        System.out.println();
+        System.out.println("-".repeat(10 + 16 * modes.length));
+
+        for (int t = 0; t < THREADS.length; t++) {
+            System.out.printf("%-10d", THREADS[t]);
+            for (int m = 0; m < modes.length; m++) System.out.printf(" %-15d", readsPerSec[m][t]);
+            System.out.println();
+        }
+        System.out.println("-".repeat(10 + 16 * modes.length));
+    }
+
+    /**
+     * 한 가지 I/O 모드로 파일 구축 → 스레드 수별 처리량 측정
+     */
+    private static long[] measure(StorageOptions.IoMode mode) throws Exception {
+        DiskManager diskManager = null;
+        long[] result = new long[THREADS.length];
+
+        try {
+            EngineMetrics metrics = new EngineMetrics();
+            StorageOptions options = StorageOptions.builder().ioMode(mode).build();
+            diskManager = new DiskManager(TEST_DB, options, metrics);
+
+            for (int pageId = 0; pageId < PAGE_COUNT; pageId++) {
+                Page page = new Page(pageId);
+                page.buffer().putInt(0, pageId);
+                diskManager.writePage(page);
+            }
+
+            // warm-up: JIT + OS 페이지 캐시 적재 (MMAP은 매핑 생성 포함)
+            run(diskManager, 4, TOTAL_READS / 4);
+
+            for (int t = 0; t < THREADS.length; t++) {
+                long elapsedNs = run(diskManager, THREADS[t], TOTAL_READS);
+                result[t] = (long) (TOTAL_READS / (elapsedNs / 1e9));
+            }
+            return result;
+        } finally {
+            if (diskManager != null) diskManager.close();
+            Files.deleteIfExists(Path.of(TEST_DB));
+        }
+    }
+
+    /**
+     * totalReads를 threads개 스레드가 나눠서 랜덤 pageId 읽기
+     * @return 전체 소요 시간 (ns)
+     */
+    public static long run(DiskManager diskManager, int threads, int totalReads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        int perThread = totalReads / threads;
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    startLatch.await();
+                    for (int i = 0; i < perThread; i++) {
+                        int pageId = random.nextInt(PAGE_COUNT);
+                        Page page = diskManager.readPage(pageId);
+                        if (page.buffer().getInt(0) != pageId) {
+                            throw new IllegalStateException("잘못된 페이지: " + pageId);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            long start = System.nanoTime();
+            startLatch.countDown();
+            for (Future<?> future : futures) future.get();
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package geoindex.benchmark;
+
+import geoindex.api.SpatialRecordManager;
+import geoindex.buffer.CacheManager;
+import geoindex.index.HilbertIndex;
+import geoindex.metric.EngineMetrics;
+import geoindex.metric.MetricsSnapshot;
+import geoindex.storage.DiskManager;
+import geoindex.storage.Page;
+import geoindex.storage.PageLayout;
+import geoindex.storage.StorageOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static geoindex.benchmark.DummyDataGenerator.generateDummyList;
+
+/**
+ * 페이지 크기 4KB / 8KB / 16KB / 64KB — overflow 체인 길이 vs 읽는 바이트
+ *
+ * 측정 대상:
+ *   1. 병원 79,081건 put + flush → 파일 크기, 사용 페이지 수
+ *   2. overflow 체인 — 평균 / 최대 길이 (primary 1 + overflow 수)
+ *   3. cold 캐시에서 밀집 지역 반경 검색 → 검색 시간, 읽은 페이지 수 / 바이트
+ *
+ * 기대 결과:
+ *   강남처럼 밀집된 primaryPage는 페이지가 클수록 체인이 짧아짐 → 검색당 read 호출 감소
+ *   한산한 페이지는 레코드 몇 건에 페이지 전체를 씀 → 파일 크기 / 읽은 바이트는 증가
+ *   → 데이터 분포에 따라 교차점이 다름 (우리 데이터로 직접 비교)
+ */
+public class PageSizeBenchmark {
+
+    private static final String TEST_DB      = "pageSizeDb";
+    private static final int    RECORD_COUNT = 79_081;
+    private static final int[]  PAGE_SIZES   = {4 * 1024, 8 * 1024, 16 * 1024, 64 * 1024};
+    private static final double RADIUS_KM    = 5.0;
+    private static final double[][] QUERIES  = {
+            {37.4979, 127.0276},   // 강남
+            {37.5704, 126.9921},   // 종로
+            {35.1796, 129.0756},   // 부산
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== 페이지 크기 (병원 " + RECORD_COUNT + "건, 반경 " + RADIUS_KM + "km 검색 "
+                + QUERIES.length + "곳) ===");
+        System.out.println();
+        System.out.printf("%-8s %-10s %-10s %-10s %-12s %-12s %-10s %-12s%n",
+                "페이지", "파일(KB)", "페이지 수", "체인 평균", "체인 최대", "검색(ms)", "read 수", "읽은(KB)");
+        System.out.println("-".repeat(92));
+        for (int pageSize : PAGE_SIZES) {
+            measure(pageSize);
+        }
+    }
+
+    private static void measure(int pageSize) throws IOException {
+        StorageOptions options = StorageOptions.builder().pageSize(pageSize).build();
+        try {
+            build(options);
+            long fileKb = Files.size(Path.of(TEST_DB)) >> 10;
+
+            EngineMetrics metrics = new EngineMetrics();
+            DiskManager diskManager = new DiskManager(TEST_DB, metrics);   // 헤더의 페이지 크기로 열림
+            CacheManager cacheManager = new CacheManager(diskManager, metrics);
+            try {
+                int[] pageIds = diskManager.getPageIds();
+                double[] chain = chainLengths(diskManager, pageIds);
+
+                SpatialRecordManager recordManager = new SpatialRecordManager(cacheManager, new HilbertIndex(), metrics);
+                MetricsSnapshot before = metrics.snapshot(0, 0, 0, 0);
+                long start = System.nanoTime();
+                for (double[] query : QUERIES) {
+                    cacheManager.clearCache();
+                    recordManager.searchRadiusCodes(query[0], query[1], RADIUS_KM);
+                }
+                long searchMs = (System.nanoTime() - start) / 1_000_000;
+                MetricsSnapshot after = metrics.snapshot(0, 0, 0, 0);
+
+                System.out.printf("%-8s %-10d %-10d %-10.2f %-12d %-12d %-10d %-12d%n",
+                        (pageSize >> 10) + "KB", fileKb, pageIds.length, chain[0], (long) chain[1], searchMs,
+                        after.readCallCount - before.readCallCount,
+                        (after.readBytes - before.readBytes) >> 10);
+            } finally {
+                cacheManager.close();
+            }
+        } finally {
+            Files.deleteIfExists(Path.of(TEST_DB));
+        }
+    }
+
+    private static void build(StorageOptions options) {
+        List<Hospital> hospitals = generateDummyList(RECORD_COUNT);
+        EngineMetrics metrics = new EngineMetrics();
+        CacheManager cacheManager = new CacheManager(new DiskManager(TEST_DB, options, metrics), metrics);
+        try {
+            SpatialRecordManager recordManager = new SpatialRecordManager(cacheManager, new HilbertIndex(), metrics);
+            for (Hospital hospital : hospitals) {
+                recordManager.put(hospital.coordinateY, hospital.coordinateX, Hospital.toBytes(hospital));
+            }
+            cacheManager.flush();
+        } finally {
+            cacheManager.close();
+        }
+    }
+
+    /**
+     * @return {평균 체인 길이, 최대 체인 길이} — 다른 페이지의 overflow가 아닌 페이지 = 체인 시작
+     */
+    private static double[] chainLengths(DiskManager diskManager, int[] pageIds) {
+        Set<Integer> overflowTargets = new HashSet<>();
+        for (int pageId : pageIds) {
+            Page page = diskManager.readPage(pageId);
+            if (!PageLayout.isInitialized(page)) continue;
+            int next = PageLayout.getOverflowPageId(page);
+            if (next != PageLayout.NO_OVERFLOW) overflowTargets.add(next);
+        }
+        int chains = 0;
+        long total = 0;
+        int longest = 0;
+        for (int pageId : pageIds) {
+            if (overflowTargets.contains(pageId) || !PageLayout.isInitialized(diskManager.readPage(pageId))) continue;
+            int length = 0;
+            int current = pageId;
+            while (current != PageLayout.NO_OVERFLOW) {
+                Page page = diskManager.readPage(current);
+                if (!PageLayout.isInitialized(page)) break;
+                length++;
+                current = PageLayout.getOverflowPageId(page);
+            }
+            chains++;
+            total += length;
+            longest = Math.max(longest, length);
+        }
+        return new double[]{chains == 0 ? 0 : (double) total / chains, longest};
+    }
+}
@@ -2,9 +2,17 @@ package geoindex.benchmark;
 
 import geoindex.index.GeoHashIndex;
 import geoindex.index.HilbertIndex;
+import geoindex.metric.EngineMetrics;
+import geoindex.storage.DiskManager;
+import geoindex.storage.Page;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Page Seek Count 비교
@@ -19,14 +27,19 @@ import java.util.List;
  * 예시:
  *   GeoHash: [5 → 402 → 11 → 390] → |5-402|+|402-11|+|11-390| = 1,165
  *   Hilbert: [120 → 121 → 122 → 123] → 1+1+1 = 3
+ *
+ * 물리 seek 거리:
+ *   pageId가 연속이어도 파일 안 배치가 첫 쓰기 순서면 디스크에서는 점프
+ *   → 같은 pageId 목록을 첫 쓰기 순서 파일 / rebuild(pageId 순 배치) 파일에서 각각 측정
  */
 public class SeekCountBenchmark {
 
     private static final double SEARCH_LAT   = 37.4979;
     private static final double SEARCH_LNG   = 127.0276;
     private static final double RADIUS_KM    = 5.0;
+    private static final String TEST_DB      = "seekCountDb";
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("=== Page Seek Count 비교 ===");
         System.out.println("기준: 강남 좌표 반경 5km");
         System.out.println();
@@ -57,6 +70,39 @@ public class SeekCountBenchmark {
 
         System.out.printf("GeoHash 대비 Hilbert Seek Count: %.1fx 적음%n",
                 (double) geoSeek / Math.max(hilSeek, 1));
+        System.out.println();
+
+        long[] physical = physicalSeek(hilPageIds);
+        System.out.println("[Hilbert 물리 seek 거리 (페이지 단위)]");
+        System.out.println("  첫 쓰기 순서 배치: " + physical[0]);
+        System.out.println("  rebuild 후 배치:   " + physical[1]);
+    }
+
+    /**
+     * pageIds를 무작위 순서로 처음 기록한 파일 → rebuild로 다시 배치한 파일
+     * @return {첫 쓰기 순서 거리, rebuild 후 거리}
+     */
+    public static long[] physicalSeek(List<Integer> pageIds) throws IOException {
+        List<Integer> shuffled = new ArrayList<>(pageIds);
+        Collections.shuffle(shuffled, new Random(42));
+        int[] ordered = pageIds.stream().mapToInt(Integer::intValue).sorted().toArray();
+
+        DiskManager diskManager = new DiskManager(TEST_DB, new EngineMetrics());
+        try {
+            for (int pageId : shuffled) diskManager.writePage(new Page(pageId));
+            long before = diskManager.physicalSeekDistance(ordered);
+
+            diskManager.rebuild(tempDm -> {
+                List<Page> pages = new ArrayList<>();
+                for (int pageId : shuffled) pages.add(new Page(pageId));
+                tempDm.writePages(pages);
+            });
+            long after = diskManager.physicalSeekDistance(ordered);
+            return new long[]{before, after};
+        } finally {
+            diskManager.close();
+            Files.deleteIfExists(Path.of(TEST_DB));
+        }
     }
 
     /**
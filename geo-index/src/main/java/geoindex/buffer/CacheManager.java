@@ -1,66 +1,831 @@
 package geoindex.buffer;
 
 import geoindex.metric.EngineMetrics;
-import geoindex.storage.DiskManager;
 import geoindex.storage.Page;
+import geoindex.storage.PageSnapshot;
+import geoindex.storage.PageStore;
+import geoindex.storage.WriteAheadLog;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * 고정 크기 버퍼 풀 — frame capacity개, CLOCK 교체, pin count, Write-Back
+ *
+ * Why 고정 크기?
+ *   지금까지는 한 번 읽은 페이지를 전부 ConcurrentHashMap에 보관 → PRIMARY + OVERFLOW 73k 페이지면 ~300MB 힙
+ *   → frame 수(capacity)만큼만 보관, 넘치면 CLOCK으로 교체 → 힙 상한 = capacity × 페이지 크기
+ *
+ * 구조:
+ *   pageTable : pageId → Frame (적재된 페이지)
+ *   frames    : CLOCK 원형 배열 (slot → Frame), null = 빈 slot 또는 적재 중으로 예약된 slot
+ *   Frame.pins: 사용 중인 reader / writer 수 — pin > 0이면 교체 안 됨
+ *   dirtyPageIds: dirty 페이지의 pageId — flush / PageWriter는 이것만 훑음, getDirtyPageCount는 size()
+ *
+ * dirtyPageIds 규칙:
+ *   putPage: synchronized(page) 안에서 markDirty → 그 뒤 add
+ *   기록: synchronized(page) 안에서 clearDirty와 remove를 함께 → 실패하면 markDirty + add로 되돌림
+ *   → 적재된 dirty 페이지의 pageId는 항상 집합에 있음 (clearDirty 이후의 수정은 putPage가 다시 add)
+ *     반대로 잠깐 clean 페이지의 pageId가 남을 수 있음 → 다음 기록 때 정리
+ *
+ * CLOCK (second chance) — reserveSlot:
+ *   pin할 때 referenced = true
+ *   clockHand가 돌면서 pin된 frame은 건너뜀, referenced면 false로 바꾸고 건너뜀 → 한 바퀴 동안 안 쓰인 frame 선택
+ *   선택한 frame이 dirty → pin한 채로 clockLock 밖에서 기록(writeBack) 후 다시 탐색 (이제 clean)
+ *   두 바퀴 돌아도 없으면 (전부 pin) IllegalStateException
+ *
+ * pin 규칙:
+ *   pinPage → 읽기 / 수정 (수정했으면 putPage) → unpinPage
+ *   pin 중에는 같은 pageId의 Page 객체가 바뀌지 않음 (교체 후 재적재로 다른 객체가 생기지 않음)
+ *   getPage / getPages / getPageAsync는 pin 없이 돌려줌 → 교체될 수 있으므로 읽고 버리는 용도 (prefetch, 테스트)
+ *   (OFF_HEAP은 힙 복사본 — 수정해도 캐시에 반영되지 않음, 수정은 pinPage로)
+ *
+ * 적재 (miss):
+ *   적재 중 frame(placeholder)을 putIfAbsent → 등록한 스레드만 slot 예약 (필요하면 교체) + map 밖에서 readPage
+ *   → 완료하면 placeholder에 페이지를 채우고 slot에 배치, 같은 pageId를 요청한 스레드는 placeholder를 pin하고 대기
+ *     (getPage는 pin 없이 대기 — 돌려주자마자 풀 pin이므로)
+ *   (같은 페이지 burst에서 진 스레드들이 slot을 예약했다 돌려주느라 clockLock을 다투지 않음)
+ *   → 적재된 페이지 수는 어느 순간에도 capacity 이하
+ *
+ *   Why placeholder?
+ *     computeIfAbsent 안에서 읽으면 I/O 동안 bin 락을 잡음
+ *     → 같은 bin의 다른 pageId 조회 / 적재, map resize가 그 read가 끝날 때까지 막힘 (cold 캐시 burst에서 직렬화)
+ *     placeholder 등록만 원자적으로 하고 읽기는 락 밖 → 서로 다른 페이지의 미스는 동시에 진행
+ *
+ *   교체는 write-back이 끝난 clean frame만 pageTable에서 뺌 → 그 뒤의 placeholder 적재는 옛 이미지를 읽지 않음
+ *   map 밖에서 읽는 묶음 / 비동기 적재(publish)는 읽는 동안 그 pageId가 교체됐으면 버리고 다시 읽음 (evictionStamps)
+ *
+ * 기록 (flush / 교체 write-back)은 모두 flushLock 안에서 → 같은 페이지의 두 기록이 엇갈려 옛 내용이 마지막에 남지 않음
+ *
+ * FrameMemory.OFF_HEAP:
+ *   frame 내용 = direct ByteBuffer 하나(arena, capacity × 페이지 크기)의 slot 구간
+ *   Page는 그 구간을 감싼 handle (byte[] 없음) → 힙에 남는 건 frame당 작은 객체 몇 개, 풀 크기와 무관
+ *   적재 / 등록 시 PageStore가 돌려준 힙 페이지를 slot 구간으로 복사 (adopt) → 원본은 바로 버려짐 (young GC)
+ *   slot 구간은 교체 후 다른 페이지가 재사용 → pin 없이 돌려주는 getPage / getPages / getPageAsync / getPagesAsync는
+ *   handle 대신 힙 복사본 (pin한 채 복사)
+ */
 public class CacheManager {
-    private final ConcurrentHashMap<Integer, Page> cache;
-    private final DiskManager diskManager;
+
+    public static final int DEFAULT_CAPACITY = 16_384;         // 4KB 페이지면 64MB
+
+    /**
+     * frame 내용을 둘 메모리
+     *
+     * Why OFF_HEAP?
+     *   HEAP은 페이지마다 byte[] + ByteBuffer → 풀이 크면 old gen이 페이지로 가득 차 GC pause / card marking 비용
+     *   OFF_HEAP은 풀 전체가 direct 메모리 한 덩어리 → GC가 훑을 페이지 내용이 힙에 없음
+     */
+    public enum FrameMemory {
+        HEAP,       // 페이지마다 힙 byte[] (기본값)
+        OFF_HEAP    // direct ByteBuffer arena 하나를 slot 단위로 나눠 씀
+    }
+
+    private static final int EVICTION_STRIPES = 1024;          // 교체 기록 — pageId 하위 비트로 나눔
+
+    private final ConcurrentHashMap<Integer, Frame> pageTable;
+    private final Set<Integer> dirtyPageIds = ConcurrentHashMap.newKeySet();
+    private final Frame[] frames;
+    private final ArrayDeque<Integer> freeSlots;                // clockLock
+    private int clockHand;                                      // clockLock
+    private final Object clockLock = new Object();
+    private final AtomicLongArray evictionStamps = new AtomicLongArray(EVICTION_STRIPES);
+    private final int capacity;
+    private final FrameMemory frameMemory;
+    private final ByteBuffer arena;                             // OFF_HEAP만, 아니면 null
+    private final int pageSize;
+
+    private final PageStore pageStore;
     private final EngineMetrics engineMetrics;
-    public CacheManager(DiskManager diskManager, EngineMetrics engineMetrics) {
-        this.diskManager = diskManager;
-        this.cache = new ConcurrentHashMap<>();
+    private final WriteAheadLog writeAheadLog;          // null → WAL 없음 (flush 전까지 내구성 없음)
+    private final Object flushLock = new Object();     // checkpoint 순서 보장 — flush / write-back 직렬화
+
+    private static final long MAX_THROTTLE_NANOS = 1_000_000_000L;   // writer가 멈춰도 put이 무한정 막히지 않게
+    private static final long THROTTLE_RECHECK_MILLIS = 10;          // flush / clearCache로 줄어든 dirty도 놓치지 않게
+    private static final int NO_THROTTLE = Integer.MAX_VALUE;
+    private volatile int throttleDirtyPages = NO_THROTTLE;  // PageWriter 실행 중에만 high watermark 페이지 수
+    private final Object throttleLock = new Object();
+
+    public CacheManager(PageStore pageStore, EngineMetrics engineMetrics) {
+        this(pageStore, null, engineMetrics);
+    }
+
+    public CacheManager(PageStore pageStore, WriteAheadLog writeAheadLog, EngineMetrics engineMetrics) {
+        this(pageStore, writeAheadLog, engineMetrics, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity frame 수 — 동시에 메모리에 둘 수 있는 페이지 수의 상한
+     */
+    public CacheManager(PageStore pageStore, WriteAheadLog writeAheadLog, EngineMetrics engineMetrics, int capacity) {
+        this(pageStore, writeAheadLog, engineMetrics, capacity, FrameMemory.HEAP);
+    }
+
+    /**
+     * @param frameMemory OFF_HEAP이면 capacity × 페이지 크기의 direct 메모리를 한 번에 할당 (2GB 미만)
+     */
+    public CacheManager(PageStore pageStore, WriteAheadLog writeAheadLog, EngineMetrics engineMetrics,
+                        int capacity, FrameMemory frameMemory) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1: " + capacity);
+        if (frameMemory == null) throw new IllegalArgumentException("frameMemory is null");
+        this.pageSize = pageStore.getPageSize();
+        if (frameMemory == FrameMemory.OFF_HEAP && (long) capacity * pageSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("off-heap arena too large: capacity=" + capacity + ", pageSize=" + pageSize);
+        }
+        this.frameMemory = frameMemory;
+        this.arena = frameMemory == FrameMemory.OFF_HEAP ? ByteBuffer.allocateDirect(capacity * pageSize) : null;
+        this.pageStore = pageStore;
+        this.pageTable = new ConcurrentHashMap<>();
+        this.frames = new Frame[capacity];
+        this.freeSlots = new ArrayDeque<>(capacity);
+        for (int slot = 0; slot < capacity; slot++) freeSlots.add(slot);
+        this.capacity = capacity;
         this.engineMetrics = engineMetrics;
+        this.writeAheadLog = writeAheadLog;
     }
 
+    // -------------------------------------------------------------------------
+    // 조회 / pin
+    // -------------------------------------------------------------------------
 
+    /**
+     * 페이지를 pin해서 돌려줌 — unpinPage 전까지 교체되지 않음
+     */
+    public Page pinPage(int pageId) {
+        while (true) {
+            Frame frame = pageTable.get(pageId);
+            if (frame != null) {
+                Page page = pin(frame, true);
+                if (page != null) {
+                    engineMetrics.incrementBufferHit();
+                    return page;
+                }
+                Thread.onSpinWait();            // 교체 중 → pageTable에서 빠질 때까지
+                continue;
+            }
+
+            Frame loading = new Frame(pageId);
+            if (pageTable.putIfAbsent(pageId, loading) == null) return load(loading);
+            // 다른 스레드가 먼저 등록 → 다시 조회해서 그 frame을 pin
+        }
+    }
 
+    /**
+     * placeholder를 채움 — slot 예약 + bin 락 밖에서 읽기, 만든 스레드의 pin은 그대로 (호출자에게 pin된 페이지로 반환)
+     * 실패하면 (풀 고갈 포함) placeholder를 빼고 slot 반납, 기다리던 스레드에도 같은 예외
+     */
+    private Page load(Frame frame) {
+        int slot = Frame.NO_SLOT;
+        Page page;
+        try {
+            slot = reserveSlot();
+            page = adopt(pageStore.readPage(frame.pageId), slot);
+        } catch (RuntimeException e) {
+            pageTable.remove(frame.pageId, frame);
+            if (slot != Frame.NO_SLOT) releaseSlot(slot);
+            Page orphan = frame.failLoad(e);
+            if (orphan != null) {
+                try {
+                    install(orphan);            // 적재 중 맡겨진 새 내용은 버리지 않음
+                } catch (RuntimeException installFailure) {
+                    e.addSuppressed(installFailure);
+                }
+            }
+            throw e;
+        }
+        frame.slot = slot;
+        page = frame.completeLoad(page);
+        place(frame);
+        engineMetrics.incrementBufferMiss();
+        return page;
+    }
+
+    /**
+     * frame을 pin하고 페이지를 돌려줌 — 적재 중이면 완료까지 대기
+     * @return null = 이미 교체됨 (다시 조회)
+     */
+    private Page pin(Frame frame, boolean touch) {
+        if (!frame.tryPin(touch)) return null;
+        try {
+            return frame.awaitPage();
+        } catch (RuntimeException e) {
+            frame.unpin();
+            throw e;
+        }
+    }
+
+    public void unpinPage(Page page) {
+        Frame frame = pageTable.get(page.getPageId());
+        if (frame == null) throw new IllegalStateException("page not resident: pageId=" + page.getPageId());
+        frame.unpin();
+    }
+
+    /**
+     * pin 없이 조회 — 반환 후 교체될 수 있음 (수정하려면 pinPage)
+     * 적중이면 pin / unpin 없이 (돌려주자마자 풀 pin이라 보장이 같음) → 같은 페이지에 몰린 조회의 CAS 2번을 줄임
+     * OFF_HEAP은 힙 복사본 — slot 구간 handle은 교체 후 다른 페이지의 내용이 됨
+     */
     public Page getPage(int pageId) {
-        return cache.computeIfAbsent(pageId, diskManager::readPage);
+        Page page = residentPage(pageId);
+        if (page != null) return page;
+        page = pinPage(pageId);
+        try {
+            return arena == null ? page : heapCopy(page);
+        } finally {
+            unpinPage(page);
+        }
+    }
+
+    /**
+     * [startPageId, endPageId] 구간 조회 — 캐시에 없는 연속 구간은 DiskManager.readPages로 한 번에 읽기
+     *
+     * 읽은 페이지는 publish로 등록 → 그 사이 다른 스레드가 getPage로 올린 페이지가 있으면 그쪽을 사용
+     * (같은 pageId에 Page 객체가 둘 생기지 않음 — pinPage의 placeholder putIfAbsent와 같은 보장:
+     *  pageId마다 pageTable 항목 하나를 먼저 등록한 쪽의 페이지만 쓰임)
+     * pin 없이 돌려줌
+     *
+     * @return pageId 오름차순, 구간 길이만큼
+     */
+    public List<Page> getPages(int startPageId, int endPageId) {
+        List<Page> pages = new ArrayList<>(endPageId - startPageId + 1);
+        int pageId = startPageId;
+        while (pageId <= endPageId) {
+            Page cached = residentPage(pageId);
+            if (cached != null) {
+                pages.add(cached);
+                pageId++;
+                continue;
+            }
+
+            int missEnd = pageId;
+            while (missEnd < endPageId && !pageTable.containsKey(missEnd + 1)) missEnd++;
+            long[] stamps = evictionStamps(pageId, missEnd);
+            List<Page> loaded = pageStore.readPages(pageId, missEnd);
+            for (int i = 0; i < loaded.size(); i++) pages.add(publish(loaded.get(i), stamps[i]));
+            pageId = missEnd + 1;
+        }
+        return pages;
+    }
+
+    /**
+     * getPage의 비동기판 — 캐시 적중이면 완료된 future, 미스면 PageStore.readPageAsync
+     * 읽은 페이지는 publish로 등록 (getPages와 같은 보장)
+     */
+    public CompletableFuture<Page> getPageAsync(int pageId) {
+        Page cached = residentPage(pageId);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        long stamp = evictionStamp(pageId);
+        return pageStore.readPageAsync(pageId).thenApply(loaded -> publish(loaded, stamp));
+    }
+
+    /**
+     * getPages의 비동기판 — 미스 구간마다 readPagesAsync를 모두 낸 뒤 한꺼번에 기다림
+     *
+     * Why?
+     *   getPages는 미스 구간을 하나씩 동기로 읽음 → 구간 k개 = read 지연 k번
+     *   여러 구간의 read를 디스크 큐에 함께 올리면 지연이 겹침
+     *
+     * @return pageId 오름차순, 구간 길이만큼
+     */
+    public CompletableFuture<List<Page>> getPagesAsync(int startPageId, int endPageId) {
+        List<CompletableFuture<List<Page>>> parts = new ArrayList<>();
+        int pageId = startPageId;
+        while (pageId <= endPageId) {
+            Page cached = residentPage(pageId);
+            if (cached != null) {
+                parts.add(CompletableFuture.completedFuture(List.of(cached)));
+                pageId++;
+                continue;
+            }
+
+            int missEnd = pageId;
+            while (missEnd < endPageId && !pageTable.containsKey(missEnd + 1)) missEnd++;
+            long[] stamps = evictionStamps(pageId, missEnd);
+            parts.add(pageStore.readPagesAsync(pageId, missEnd).thenApply(loaded -> {
+                List<Page> published = new ArrayList<>(loaded.size());
+                for (int i = 0; i < loaded.size(); i++) published.add(publish(loaded.get(i), stamps[i]));
+                return published;
+            }));
+            pageId = missEnd + 1;
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Page> pages = new ArrayList<>(endPageId - startPageId + 1);
+            for (CompletableFuture<List<Page>> part : parts) pages.addAll(part.join());
+            return pages;
+        });
+    }
+
+    /**
+     * 적재돼 있으면 그 페이지 (pin 없이), 아니면 null — 적재 중이면 완료까지 대기
+     * OFF_HEAP은 pin한 채 힙으로 복사해서 돌려줌 (handle을 그대로 주면 slot 재사용 후 다른 페이지의 바이트가 보임)
+     */
+    private Page residentPage(int pageId) {
+        while (true) {
+            Frame frame = pageTable.get(pageId);
+            if (frame == null) return null;
+            Page page;
+            if (arena == null) {
+                page = frame.awaitPage();
+                if (frame.isResident()) frame.referenced = true;
+                else page = null;
+            } else {
+                page = pin(frame, true);
+                if (page != null) {
+                    try {
+                        page = heapCopy(page);
+                    } finally {
+                        frame.unpin();
+                    }
+                }
+            }
+            if (page != null) {
+                engineMetrics.incrementBufferHit();
+                return page;
+            }
+            Thread.onSpinWait();            // 교체 중 → pageTable에서 빠질 때까지
+        }
+    }
+
+    private static Page heapCopy(Page page) {
+        Page copy = new Page(page.getPageId(), page.getPageSize());
+        copy.copyFrom(page);
+        return copy;
+    }
+
+    /**
+     * map 밖에서 읽은 페이지를 등록 — 이미 적재돼 있으면 그쪽, 읽는 동안 교체가 있었으면 다시 읽음
+     *
+     * stamp = 읽기 전에 본 evictionStamp
+     *   교체는 stamp 증가 → pageTable.remove 순서 → 같은 bin 락의 computeIfAbsent 안에서 비교하면 (I/O 없는 짧은 람다)
+     *   "이미 빠진 pageId인데 stamp는 그대로"인 순간이 없음
+     *   다르면 loaded는 교체 전 write-back보다 옛 이미지일 수 있음 → 버리고 getPage로 다시 읽음
+     */
+    private Page publish(Page loaded, long stamp) {
+        int pageId = loaded.getPageId();
+        while (true) {
+            Page resident = residentPage(pageId);
+            if (resident != null) return resident;
+
+            int slot = reserveSlot();
+            Frame created = new Frame(adopt(loaded, slot), slot, 0);
+            Frame frame = pageTable.computeIfAbsent(pageId, id -> evictionStamp(id) == stamp ? created : null);
+            if (frame == created) {
+                place(created);
+                engineMetrics.incrementBufferMiss();
+                return arena == null ? created.page : loaded;     // OFF_HEAP: handle 대신 방금 읽은 힙 페이지 (같은 내용)
+            }
+            releaseSlot(slot);
+            if (frame == null) return getPage(pageId);
+        }
     }
 
+    private long evictionStamp(int pageId) {
+        return evictionStamps.get(pageId & (EVICTION_STRIPES - 1));
+    }
+
+    private long[] evictionStamps(int startPageId, int endPageId) {
+        long[] stamps = new long[endPageId - startPageId + 1];
+        for (int i = 0; i < stamps.length; i++) stamps[i] = evictionStamp(startPageId + i);
+        return stamps;
+    }
+
+    // -------------------------------------------------------------------------
+    // frame 할당 / CLOCK 교체
+    // -------------------------------------------------------------------------
+
+    /**
+     * 빈 slot 하나를 예약 — 없으면 CLOCK으로 교체 대상을 골라 비움
+     * 반환한 slot은 place()로 채우거나 releaseSlot()으로 돌려줘야 함
+     */
+    private int reserveSlot() {
+        while (true) {
+            Frame dirtyVictim = null;
+            synchronized (clockLock) {
+                Integer free = freeSlots.poll();
+                if (free != null) return free;
+
+                for (int scanned = 0; scanned < 2 * capacity; scanned++) {
+                    int slot = clockHand;
+                    clockHand = (clockHand + 1) % capacity;
+                    Frame frame = frames[slot];
+                    if (frame == null || frame.isPinned()) continue;     // null = 적재 중으로 예약된 slot
+                    if (frame.referenced) {
+                        frame.referenced = false;
+                        continue;
+                    }
+                    if (!frame.page.isDirty() && frame.tryEvict()) {
+                        // tryEvict 전에 pin → markDirty → unpin이 끼어들었으면 되돌림
+                        if (!frame.page.isDirty()) {
+                            evict(frame);
+                            return slot;
+                        }
+                        frame.cancelEvict();
+                    }
+                    if (frame.page.isDirty() && frame.tryPin(false)) {
+                        dirtyVictim = frame;
+                        break;
+                    }
+                }
+                if (dirtyVictim == null) {
+                    throw new IllegalStateException("buffer pool exhausted: all " + capacity + " frames pinned");
+                }
+            }
+            writeBack(dirtyVictim);
+        }
+    }
+
+    /**
+     * 교체 확정된 frame(EVICTED)을 풀에서 뺌 — clockLock 보유
+     * stamp를 먼저 올린 뒤 remove (publish의 비교 순서 참고)
+     */
+    private void evict(Frame frame) {
+        int pageId = frame.pageId;
+        evictionStamps.incrementAndGet(pageId & (EVICTION_STRIPES - 1));
+        pageTable.remove(pageId, frame);
+        dirtyPageIds.remove(pageId);           // clean frame만 교체 — clearCache는 dirty 내용을 버림
+        frames[frame.slot] = null;
+        engineMetrics.incrementBufferEvictCount();
+    }
+
+    /**
+     * 교체 대상 dirty 페이지 기록 — 호출자가 pin한 frame, 끝나면 unpin
+     * referenced를 내려둠 → 다음 탐색에서 바로 교체 대상
+     */
+    private void writeBack(Frame frame) {
+        try {
+            synchronized (flushLock) {
+                Page page = frame.page;
+                synchronized (page) {
+                    if (!page.isDirty()) return;
+                    clean(page);
+                }
+                try {
+                    pageStore.writePage(page);
+                } catch (RuntimeException e) {
+                    redirty(page);
+                    throw e;
+                }
+                engineMetrics.incrementBufferWriteBackCount();
+            }
+        } finally {
+            frame.referenced = false;
+            frame.unpin();
+        }
+    }
+
+    private void place(Frame frame) {
+        synchronized (clockLock) {
+            frames[frame.slot] = frame;
+        }
+    }
+
+    private void releaseSlot(int slot) {
+        synchronized (clockLock) {
+            freeSlots.push(slot);
+        }
+    }
+
+    /**
+     * slot에 둘 페이지 — HEAP은 page 그대로, OFF_HEAP은 slot 구간 handle에 내용과 dirty 상태를 복사
+     * 호출자가 slot을 예약한 상태 (다른 frame이 그 구간을 쓰지 않음)
+     */
+    private Page adopt(Page page, int slot) {
+        if (arena == null) return page;
+        Page handle = new Page(page.getPageId(), arena.slice(slot * pageSize, pageSize));
+        handle.copyFrom(page);
+        if (page.isDirty()) handle.markDirty();
+        return handle;
+    }
+
+    /**
+     * page를 pageId의 현재 내용으로 등록 — 적재돼 있으면 frame의 객체를 바꾸고 (OFF_HEAP은 handle에 복사), 아니면 새 frame
+     * 적재 중이면 기다리지 않고 placeholder에 맡김 — replacePages는 flushLock 안에서 호출하는데,
+     * 적재 스레드는 dirty 교체 대상을 write-back하려면 flushLock이 필요 → 기다리면 교착
+     */
+    private void install(Page page) {
+        int pageId = page.getPageId();
+        while (true) {
+            Frame frame = pageTable.get(pageId);
+            if (frame != null) {
+                if (frame.offerWhileLoading(page)) return;
+                try {
+                    if (pin(frame, true) == null) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                } catch (RuntimeException e) {
+                    continue;                   // 적재 실패한 placeholder는 이미 빠짐 → 새 frame으로 등록
+                }
+                if (arena == null) {
+                    frame.page = page;
+                } else if (frame.page != page) {
+                    Page handle = frame.page;
+                    synchronized (handle) {
+                        handle.copyFrom(page);
+                        if (page.isDirty()) handle.markDirty();
+                    }
+                }
+                frame.unpin();
+                return;
+            }
+            int slot = reserveSlot();
+            Frame created = new Frame(adopt(page, slot), slot, 0);
+            if (pageTable.putIfAbsent(pageId, created) == null) {
+                place(created);
+                return;
+            }
+            releaseSlot(slot);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // 쓰기
+    // -------------------------------------------------------------------------
+
+    /**
+     * 쓰기 전에 호출 — PageWriter 실행 중 dirty 페이지 수가 high watermark 이상이면 그 아래로 내려갈 때까지 대기
+     *
+     * 판단은 매번 현재 dirty 수로 — writer 주기 사이에 high를 넘어도, writer가 pin된 페이지 때문에 일찍 멈춰도 억제
+     * 페이지 락 / pin을 잡기 전에 호출 (SpatialRecordManager.put) → 기다리는 동안 검색을 막지 않음
+     * 최대 MAX_THROTTLE_NANOS — writer가 기록에 실패하거나 멈춰도 put이 영구히 막히지 않음
+     */
+    public void throttleWrites() {
+        if (!isWritesThrottled()) return;
+        long start = System.nanoTime();
+        synchronized (throttleLock) {
+            while (isWritesThrottled()) {
+                long remaining = MAX_THROTTLE_NANOS - (System.nanoTime() - start);
+                if (remaining <= 0) break;
+                try {
+                    throttleLock.wait(Math.max(1, Math.min(THROTTLE_RECHECK_MILLIS, remaining / 1_000_000)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        engineMetrics.recordWriteThrottle(System.nanoTime() - start);
+    }
+
+    /**
+     * PageWriter.start — dirty 페이지 수가 highPages 이상이면 쓰기 억제
+     */
+    void enableWriteThrottle(int highPages) {
+        throttleDirtyPages = highPages;
+    }
+
+    /**
+     * PageWriter.stop — 내려줄 writer가 없으니 억제 해제, 기다리던 put도 깨움
+     */
+    void disableWriteThrottle() {
+        throttleDirtyPages = NO_THROTTLE;
+        wakeThrottledWrites();
+    }
+
+    /**
+     * PageWriter가 한 묶음을 기록한 뒤 — 기다리던 put이 다음 재확인을 기다리지 않고 dirty 수를 다시 봄
+     */
+    void wakeThrottledWrites() {
+        synchronized (throttleLock) {
+            throttleLock.notifyAll();
+        }
+    }
+
+    public boolean isWritesThrottled() {
+        return getDirtyPageCount() >= throttleDirtyPages;
+    }
 
     public void putPage(Page page) {
         synchronized (page) {
             page.markDirty();
         }
-        cache.put(page.getPageId(), page);
+        Frame frame = pageTable.get(page.getPageId());
+        if (frame == null || frame.page != page) install(page);     // 보통은 pin한 페이지를 수정한 경우 → 그대로
+        dirtyPageIds.add(page.getPageId());
+    }
+
+    /** 기록 직전 — synchronized(page) 안에서 호출 */
+    private void clean(Page page) {
+        page.clearDirty();
+        dirtyPageIds.remove(page.getPageId());
     }
 
+    /** 기록 실패 — 다음 flush에서 다시 */
+    private void redirty(Page page) {
+        synchronized (page) {
+            page.markDirty();
+        }
+        dirtyPageIds.add(page.getPageId());
+    }
+
+    /**
+     * dirty 페이지 일괄 기록
+     *
+     * 1. 페이지마다 synchronized(page) 안에서 dirty 확인 + clearDirty
+     *    → clearDirty 이후의 변경은 markDirty로 다시 dirty → 다음 flush에서 기록 (유실 없음)
+     * 2. 모은 페이지를 DiskManager.writePages()로 넘김
+     *    → 파일 offset 순 정렬 + 인접 페이지 gathering write
+     * 3. 기록 실패 시 다시 dirty 표시 → 다음 flush에서 재시도
+     * 4. WAL이 있으면 데이터 파일 sync 후 checkpoint
+     *    → 수집 전에 잡은 LSN 이하 레코드는 모두 페이지에 반영된 상태 (put은 페이지 수정 후 로그 append)
+     *
+     * flushLock: 동시 flush끼리 checkpoint가 엇갈리면
+     *   다른 flush가 아직 쓰는 중인 페이지의 레코드까지 checkpoint될 수 있음 → 직렬화
+     */
     public void flush() {
-        engineMetrics.incrementFlushCount();
-        for (Page page : cache.values()) {
-            synchronized (page) {
-                if (page.isDirty()) {
-                    diskManager.writePage(page);
-                    page.clearDirty();
-                    engineMetrics.incrementFlushedPages();
+        synchronized (flushLock) {
+            engineMetrics.incrementFlushCount();
+            long checkpointLsn = writeAheadLog != null ? writeAheadLog.getAppendedLsn() : WriteAheadLog.NO_LSN;
+
+            writeDirtyPages();
+
+            if (writeAheadLog != null) {
+                pageStore.sync();
+                writeAheadLog.checkpoint(checkpointLsn);
+            }
+        }
+    }
+
+    /**
+     * dirtyPageIds만 훑음 → 비용은 풀 크기가 아니라 dirty 페이지 수에 비례
+     * 기록하는 동안 dirty frame을 pin → 교체되지 않음 (기록 실패 시 markDirty할 객체가 풀에 남아 있음)
+     */
+    private void writeDirtyPages() {
+        List<Frame> candidates = new ArrayList<>(dirtyPageIds.size());
+        for (int pageId : dirtyPageIds) {
+            Frame frame = pageTable.get(pageId);
+            if (frame != null) candidates.add(frame);
+        }
+        writeDirtyPages(candidates);
+    }
+
+    /**
+     * dirty 페이지를 최대 maxPages개 기록 — 백그라운드 writer(PageWriter)의 한 묶음
+     *
+     * CLOCK 참조 비트가 내려간 (한동안 안 쓰인) 페이지부터 → 곧 다시 dirty가 될 hot 페이지의 중복 기록을 줄임
+     * checkpoint는 하지 않음 — WAL은 flush가 비움, 먼저 기록된 페이지의 replay는 멱등 (recover 참고)
+     *
+     * @return 기록한 페이지 수
+     */
+    public int writeDirtyPages(int maxPages) {
+        if (maxPages < 1) throw new IllegalArgumentException("maxPages must be >= 1: " + maxPages);
+        List<Frame> cold = new ArrayList<>();
+        List<Frame> hot = new ArrayList<>();
+        for (int pageId : dirtyPageIds) {
+            Frame frame = pageTable.get(pageId);
+            if (frame == null) continue;
+            if (frame.referenced) {
+                if (hot.size() < maxPages) hot.add(frame);
+            } else {
+                cold.add(frame);
+                if (cold.size() == maxPages) break;
+            }
+        }
+        for (int i = 0; cold.size() < maxPages && i < hot.size(); i++) cold.add(hot.get(i));
+        synchronized (flushLock) {
+            return writeDirtyPages(cold);
+        }
+    }
+
+    /**
+     * @return 기록한 페이지 수
+     */
+    private int writeDirtyPages(Collection<Frame> candidates) {
+        List<Frame> pinned = new ArrayList<>();
+        List<Page> dirtyPages = new ArrayList<>();
+        try {
+            for (Frame frame : candidates) {
+                if (!frame.tryPin(false)) continue;
+                pinned.add(frame);
+                Page page = frame.page;
+                if (page == null) continue;     // 적재 중 — 아직 dirty일 수 없음
+                synchronized (page) {
+                    if (page.isDirty()) dirtyPages.add(page);
+                    clean(page);                // clean 페이지의 남은 pageId도 여기서 정리
+                }
+            }
+            if (dirtyPages.isEmpty()) return 0;
+
+            try {
+                pageStore.writePages(dirtyPages);
+            } catch (RuntimeException e) {
+                dirtyPages.forEach(this::redirty);
+                throw e;
+            }
+            engineMetrics.addFlushedPages(dirtyPages.size());
+            return dirtyPages.size();
+        } finally {
+            for (Frame frame : pinned) frame.unpin();
+        }
+    }
+
+    /**
+     * 페이지 여러 개를 새 버전으로 원자적 교체 — delta rebuild 전용
+     *
+     * 호출자(SpatialRecordManager)가 교체 대상 체인의 primaryPage 쓰기 락을 잡은 상태
+     * → pages는 캐시의 현재 내용(dirty 포함)으로 만든 새 이미지, 그 사이 다른 put 없음
+     *
+     * flushLock 안에서:
+     *   1. 기존 캐시 페이지의 dirty 해제 → flush가 옛 Page 객체로 새 extent를 덮어쓰지 않음
+     *   2. DiskManager.writePagesAtomically — shadow extent 기록 + 디렉토리 배치 전환
+     *   3. 캐시에 새 Page 객체를 clean으로 등록 → 나머지 캐시는 그대로 (cold 전환 없음)
+     *   4. WAL이 있으면 flush와 같은 checkpoint
+     *      교체된 페이지의 로그 레코드는 옛 슬롯 배치 기준 → replay되면 안 됨
+     *      (락을 잡은 뒤 읽은 LSN이라 교체 대상 페이지의 레코드는 모두 포함)
+     */
+    public void replacePages(Collection<Page> pages) {
+        synchronized (flushLock) {
+            long checkpointLsn = writeAheadLog != null ? writeAheadLog.getAppendedLsn() : WriteAheadLog.NO_LSN;
+
+            // 옛 페이지를 pin → 기록 실패 시 markDirty할 객체가 교체되지 않고 남음
+            List<Frame> pinned = new ArrayList<>();
+            List<Page> cleaned = new ArrayList<>();
+            try {
+                for (Page page : pages) {
+                    Frame frame = pageTable.get(page.getPageId());
+                    if (frame == null || !frame.tryPin(false)) continue;
+                    pinned.add(frame);
+                    Page old = frame.page;
+                    if (old == null) continue;          // 적재 중 — dirty 없음, 아래 install이 placeholder에 맡김
+                    synchronized (old) {
+                        if (old.isDirty()) cleaned.add(old);
+                        clean(old);
+                    }
+                }
+                try {
+                    pageStore.writePagesAtomically(pages);
+                } catch (RuntimeException e) {
+                    cleaned.forEach(this::redirty);
+                    throw e;
                 }
+                for (Page page : pages) {
+                    synchronized (page) {
+                        page.clearDirty();
+                    }
+                    install(page);
+                }
+            } finally {
+                for (Frame frame : pinned) frame.unpin();
+            }
+
+            if (writeAheadLog != null) {
+                writeDirtyPages();
+                pageStore.sync();
+                writeAheadLog.checkpoint(checkpointLsn);
             }
         }
     }
 
+    /**
+     * 지금까지 캐시에 반영된 내용의 스냅샷 — 온라인 백업
+     *
+     * flushLock 안에서 flush 직후 저장소 스냅샷을 엶 → 캐시에만 있던 dirty 페이지도 스냅샷에 포함
+     * put / 검색은 계속 진행 — 이후 변경은 다음 flush에서 기록되고, 덮어쓴 페이지는 copy-on-write로 스냅샷에서 안 보임
+     */
+    public PageSnapshot openSnapshot() {
+        synchronized (flushLock) {
+            flush();
+            return pageStore.openSnapshot();
+        }
+    }
+
+    /**
+     * pin되지 않은 frame을 모두 비움 — dirty 내용은 버려짐 (기록이 필요하면 먼저 flush)
+     */
     public void clearCache() {
-        cache.clear();
+        synchronized (clockLock) {
+            for (Frame frame : frames) {
+                if (frame == null || !frame.tryEvict()) continue;
+                evict(frame);
+                freeSlots.push(frame.slot);
+            }
+        }
     }
 
     public void close() {
         flush();
-        diskManager.close();
+        pageStore.close();
+        if (writeAheadLog != null) writeAheadLog.close();
     }
     public void rebuild(CacheManagerLoader loader) {
         // 임시 CacheManager에 데이터 구축 (기존 파일 살아있음)
-        diskManager.rebuild(tempDm -> {
-            CacheManager tempCm = new CacheManager(tempDm, engineMetrics);
+        pageStore.rebuild(tempStore -> {
+            CacheManager tempCm = new CacheManager(tempStore, null, engineMetrics, capacity, frameMemory);
             loader.load(tempCm);
             tempCm.flush();   // 임시 파일에 기록
         });
 
         // rename 완료 후 버퍼 초기화 → 새 파일 기반으로 전환
-        cache.clear();
+        clearCache();
+
+        // 로그 레코드는 옛 파일의 페이지 기준 → 새 파일에 replay하면 안 됨
+        if (writeAheadLog != null) writeAheadLog.checkpoint(writeAheadLog.getAppendedLsn());
     }
 
     @FunctionalInterface
@@ -68,11 +833,39 @@ public class CacheManager {
         void load(CacheManager cm);
     }
 
+    public WriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    /**
+     * O(1) — 메트릭 수집(SpatialCacheEngine.getMetrics)마다 호출됨
+     * 기록 중에는 잠깐 실제보다 작거나 (수집 후 기록 전) 클 수 있음 (clean 페이지의 남은 pageId)
+     */
     public int getDirtyPageCount() {
-        return (int) cache.values().stream().filter(Page::isDirty).count();
+        return dirtyPageIds.size();
+    }
+
+    /** 지금 적재된 페이지 수 — capacity 이하 */
+    public int getResidentPageCount() {
+        return pageTable.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public FrameMemory getFrameMemory() {
+        return frameMemory;
     }
 
     public int getUsedPageCount() {
-        return diskManager.getUsedPageCount();
+        return pageStore.getUsedPageCount();
+    }
+
+    /**
+     * 저장소 파일의 페이지 크기 — 캐시 밖에서 새 Page를 만들 때 (delta rebuild의 새 체인 이미지)
+     */
+    public int getPageSize() {
+        return pageStore.getPageSize();
     }
 }
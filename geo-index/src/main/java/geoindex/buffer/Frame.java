@@ -0,0 +1,167 @@
+package geoindex.buffer;
+
+import geoindex.storage.Page;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 버퍼 풀 frame 1개 — CLOCK 원형 배열의 slot에 놓인 적재 페이지
+ *
+ * pins:
+ *   0 이상 = 이 페이지를 쓰는 reader / writer 수 (pin > 0이면 교체 대상 아님)
+ *   EVICTED = 교체됨 → 다시 pin 불가, pageTable에서 곧 빠짐 (조회한 쪽은 다시 조회)
+ *   교체는 CAS(0 → EVICTED) 한 번 → pin과 교체가 동시에 성공하지 않음
+ *
+ * frame 객체는 적재마다 새로 만듦 (slot만 재사용) → EVICTED가 된 frame은 다시 살아나지 않음
+ *
+ * 적재 중 frame (placeholder):
+ *   page == null → 같은 pageId를 요청한 스레드는 pin 후 (getPage는 pin 없이) awaitPage()로 frame 모니터에서 대기
+ *   디스크 읽기는 pageTable 밖에서 → ConcurrentHashMap bin 락을 잡은 채 I/O하지 않음
+ *   적재 실패 → pageTable에서 빠지고 기다리던 스레드에 같은 예외
+ *   적재 중에 들어온 새 내용 (replacePages / putPage의 install) → 기다리지 않고 replacement로 맡김,
+ *   적재한 스레드가 완료할 때 읽은 이미지 대신 씀
+ *   (replacePages는 flushLock을 쥔 채 install → 기다리면 교체 write-back에 flushLock이 필요한 적재 스레드와 교착)
+ *
+ * Why CompletableFuture가 아니라 모니터?
+ *   future 완료는 적재한 스레드가 대기자 전부를 한꺼번에 깨움 → 같은 페이지 burst에서 스케줄러 경합
+ *   모니터 wait / notifyAll은 대기자가 모니터를 하나씩 넘겨받음 (computeIfAbsent의 bin 락과 같은 흐름)
+ *   적재마다 future 객체도 만들지 않음
+ */
+final class Frame {
+
+    static final int EVICTED = -1;
+    static final int NO_SLOT = -1;
+
+    final int pageId;
+    int slot;                         // placeholder는 적재한 스레드가 place() 전에 설정 (clockLock으로 공개)
+    volatile Page page;               // replacePages / putPage가 같은 pageId의 새 객체로 바꿀 수 있음, 적재 중이면 null
+    volatile boolean referenced = true;
+    private final AtomicInteger pins;
+    private RuntimeException loadFailure;              // this 모니터 — 적재 실패 원인
+    private Page replacement;                          // this 모니터 — 적재 중에 맡겨진 새 내용
+
+    Frame(Page page, int slot, int pins) {
+        this.pageId = page.getPageId();
+        this.page = page;
+        this.slot = slot;
+        this.pins = new AtomicInteger(pins);
+    }
+
+    /**
+     * 적재 중 placeholder — 만든 스레드가 pin 1개를 가진 채 slot 예약 + 읽기 후 completeLoad / failLoad
+     */
+    Frame(int pageId) {
+        this.pageId = pageId;
+        this.page = null;
+        this.slot = NO_SLOT;
+        this.pins = new AtomicInteger(1);
+    }
+
+    /**
+     * @return 공개한 페이지 — 적재 중 맡겨진 replacement가 있으면 그 내용
+     *         (힙 frame은 replacement 객체 그대로, OFF_HEAP handle은 내용을 복사)
+     */
+    synchronized Page completeLoad(Page loaded) {
+        if (replacement != null) {
+            if (loaded.hasArray()) {
+                loaded = replacement;
+            } else {
+                loaded.copyFrom(replacement);
+                if (replacement.isDirty()) loaded.markDirty();
+            }
+            replacement = null;
+        }
+        page = loaded;
+        notifyAll();
+        return loaded;
+    }
+
+    /**
+     * 적재 중이면 replacement로 맡기고 true — 기다리지 않음
+     * @return false면 이미 적재됨 / 실패함 → 호출자가 평소처럼 교체
+     */
+    synchronized boolean offerWhileLoading(Page newer) {
+        if (page != null || loadFailure != null) return false;
+        replacement = newer;
+        return true;
+    }
+
+    /**
+     * @return 적재 중 맡겨진 replacement (없으면 null) — putPage의 dirty 내용일 수 있으므로 호출자가 다시 등록
+     */
+    synchronized Page failLoad(RuntimeException cause) {
+        loadFailure = cause;
+        notifyAll();
+        Page orphan = replacement;
+        replacement = null;
+        return orphan;
+    }
+
+    /**
+     * pin한 frame의 페이지 — 적재 중이면 완료까지 대기, 실패면 적재한 스레드와 같은 예외
+     * interrupt로 끊지 않음 (pin을 쥔 채 빠져나가지 않게) — interrupt 상태는 돌려놓음
+     */
+    Page awaitPage() {
+        Page loaded = page;
+        if (loaded != null) return loaded;
+        boolean interrupted = false;
+        try {
+            synchronized (this) {
+                while ((loaded = page) == null && loadFailure == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (loaded == null) throw loadFailure;
+                return loaded;
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param touch CLOCK 참조 비트를 세울지 — flush처럼 페이지를 "사용"하지 않는 pin은 false
+     * @return false면 이미 교체됨
+     */
+    boolean tryPin(boolean touch) {
+        while (true) {
+            int current = pins.get();
+            if (current == EVICTED) return false;
+            if (pins.compareAndSet(current, current + 1)) {
+                if (touch) referenced = true;
+                return true;
+            }
+        }
+    }
+
+    void unpin() {
+        while (true) {
+            int current = pins.get();
+            if (current <= 0) {
+                throw new IllegalStateException("page not pinned: pageId=" + pageId);
+            }
+            if (pins.compareAndSet(current, current - 1)) return;
+        }
+    }
+
+    /** 교체되지 않았는지 — pin 없이 읽은 쪽의 확인용 (확인 직후에 교체될 수 있음) */
+    boolean isResident() {
+        return pins.get() != EVICTED;
+    }
+
+    boolean isPinned() {
+        return pins.get() != 0;
+    }
+
+    boolean tryEvict() {
+        return pins.compareAndSet(0, EVICTED);
+    }
+
+    /** tryEvict 직후 dirty를 발견했을 때 되돌림 — 아직 pageTable에서 빼기 전 */
+    void cancelEvict() {
+        pins.set(0);
+    }
+}
@@ -0,0 +1,150 @@
+package geoindex.buffer;
+
+import geoindex.metric.EngineMetrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 백그라운드 page writer — dirty 비율을 watermark 사이로 유지
+ *
+ * Why?
+ *   지금까지 기록은 flush() 호출뿐 → 호출 사이에 dirty가 쌓이면
+ *   close / rebuild / snapshot의 flush 한 번이 수만 페이지를 한꺼번에 기록 (flush storm)
+ *   버퍼 풀이 dirty로 차면 교체마다 write-back → put / 검색 지연이 튐
+ *
+ * watermark (dirty 페이지 수 / CacheManager capacity):
+ *   > low  → 주기마다 low 아래로 내려갈 때까지 batchPages씩 기록 (CLOCK 참조 비트가 내려간 페이지부터)
+ *   ≥ high → 쓰기 억제 — start ~ stop 동안 CacheManager.throttleWrites()가 현재 dirty 수로 판단,
+ *            high 아래로 내려갈 때까지 put이 대기 (주기 사이에도, 주기가 일찍 끝나도 유지)
+ *
+ * stop은 interrupt하지 않음 — 기록 중인 스레드가 interrupt되면 데이터 FileChannel이 닫혀
+ *   (ClosedByInterruptException) 종료할 때마다 채널을 다시 열게 됨 → volatile 플래그로 묶음 사이에서 멈춤
+ *
+ * checkpoint는 하지 않음 → WAL은 지금처럼 flush가 비움 (먼저 기록된 페이지의 replay는 멱등)
+ *
+ * 주기가 예외로 끝나면 (rebuild 중 파일 교체, close 이후, I/O 오류) 다음 주기에 다시 시도
+ *   → 횟수는 EngineMetrics.pageWriterFailures, 마지막 원인은 getLastFailure()
+ *
+ * 결과: EngineMetrics.pageWriterPages / pageWriterRounds / pageWriterFailures / throttledWrites
+ */
+public class PageWriter {
+
+    public static final int DEFAULT_BATCH_PAGES = 256;
+
+    private final CacheManager cacheManager;
+    private final double lowWatermark;
+    private final double highWatermark;
+    private final int batchPages;
+    private final EngineMetrics engineMetrics;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean stopping;
+    private volatile RuntimeException lastFailure;
+
+    public PageWriter(CacheManager cacheManager, double lowWatermark, double highWatermark, EngineMetrics engineMetrics) {
+        this(cacheManager, lowWatermark, highWatermark, DEFAULT_BATCH_PAGES, engineMetrics);
+    }
+
+    /**
+     * @param lowWatermark  0 이상, 이 비율 아래까지 기록
+     * @param highWatermark lowWatermark 초과 1 이하, 이 비율 이상이면 쓰기 억제
+     * @param batchPages    writePages 1회 분량 — 사이사이 flushLock을 놓아 flush / 교체 write-back이 끼어들 수 있음
+     */
+    public PageWriter(CacheManager cacheManager, double lowWatermark, double highWatermark,
+                      int batchPages, EngineMetrics engineMetrics) {
+        if (lowWatermark < 0 || lowWatermark >= highWatermark || highWatermark > 1) {
+            throw new IllegalArgumentException("watermarks must satisfy 0 <= low < high <= 1: low="
+                    + lowWatermark + ", high=" + highWatermark);
+        }
+        if (batchPages < 1) throw new IllegalArgumentException("batchPages must be >= 1: " + batchPages);
+        this.cacheManager = cacheManager;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.batchPages = batchPages;
+        this.engineMetrics = engineMetrics;
+    }
+
+    /**
+     * 한 주기 — dirty가 low watermark 초과면 그 아래까지 기록
+     * 묶음마다 억제 중인 put을 깨움 (억제 여부는 CacheManager가 dirty 수로 판단)
+     *
+     * @return 기록한 페이지 수
+     */
+    public int writeOnce() {
+        int lowPages = (int) (lowWatermark * cacheManager.getCapacity());
+
+        int written = 0;
+        try {
+            int dirty = cacheManager.getDirtyPageCount();
+            while (dirty > lowPages && !stopping) {
+                int count = cacheManager.writeDirtyPages(Math.min(batchPages, dirty - lowPages));
+                if (count == 0) break;      // 남은 dirty는 모두 pin 중이거나 그 사이 기록됨
+                written += count;
+                cacheManager.wakeThrottledWrites();
+                dirty = cacheManager.getDirtyPageCount();
+            }
+        } finally {
+            if (written > 0) engineMetrics.recordPageWriterRound(written);
+        }
+        return written;
+    }
+
+    /**
+     * intervalMs마다 writeOnce + 쓰기 억제 시작
+     */
+    public synchronized void start(long intervalMs) {
+        if (scheduler != null) return;
+        stopping = false;
+        cacheManager.enableWriteThrottle((int) Math.ceil(highWatermark * cacheManager.getCapacity()));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "page-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * CacheManager.close() 전에 호출 — 남은 dirty는 close의 flush가 기록
+     * 진행 중인 주기는 지금 묶음까지만 기록하고 끝남 (interrupt 없음 → 데이터 채널을 닫지 않음)
+     *
+     * @throws IllegalStateException 5초 안에 주기가 끝나지 않음 (묶음 기록이 막힘) — 아직 실행 중이므로
+     *                               scheduler를 그대로 두고, 다시 stop을 호출해 기다릴 수 있음
+     */
+    public synchronized void stop() {
+        if (scheduler == null) return;
+        stopping = true;
+        cacheManager.disableWriteThrottle();
+        scheduler.shutdown();
+        boolean terminated;
+        try {
+            terminated = scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while stopping page writer", e);
+        }
+        if (!terminated) throw new IllegalStateException("page writer did not stop within 5s");
+        scheduler = null;
+    }
+
+    /**
+     * 마지막으로 예외로 끝난 주기의 원인 — 없으면 null
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * 예외가 나가면 scheduleWithFixedDelay가 이후 실행을 멈춤 → 기록해 두고 다음 주기에 다시 시도
+     */
+    private void writeQuietly() {
+        try {
+            writeOnce();
+        } catch (RuntimeException e) {
+            lastFailure = e;
+            engineMetrics.incrementPageWriterFailure();
+        }
+    }
+}
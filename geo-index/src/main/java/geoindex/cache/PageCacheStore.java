@@ -73,6 +73,13 @@ public class PageCacheStore<T> {
         pageCache.clear();
     }
 
+    /**
+     * pageId 하나만 제거 — delta rebuild로 내용이 바뀐 페이지 (나머지는 HIT 유지)
+     */
+    public synchronized void invalidate(int pageId) {
+        pageCache.remove(pageId);
+    }
+
     // -------------------------------------------------------------------------
     // 유틸
     // -------------------------------------------------------------------------
@@ -16,15 +16,52 @@ public class EngineMetrics {
     private final AtomicLong pageMiss   = new AtomicLong();
     private final AtomicLong evictCount = new AtomicLong();
 
+    // Buffer — CacheManager 버퍼 풀
+    private final AtomicLong bufferHit       = new AtomicLong(); // 디스크 읽기 없이 돌려준 페이지 요청
+    private final AtomicLong bufferMiss      = new AtomicLong(); // 디스크에서 적재한 페이지
+    private final AtomicLong bufferEvictCount = new AtomicLong(); // CLOCK이 비운 frame
+    private final AtomicLong bufferWriteBackCount = new AtomicLong(); // 교체 전에 기록한 dirty 페이지
+    private final AtomicLong pageWriterPages  = new AtomicLong(); // 백그라운드 writer가 기록한 페이지
+    private final AtomicLong pageWriterRounds = new AtomicLong(); // 기록이 있었던 writer 주기
+    private final AtomicLong pageWriterFailures = new AtomicLong(); // 예외로 끝난 writer 주기
+    private final AtomicLong throttledWrites  = new AtomicLong(); // high watermark로 대기한 put
+    private final AtomicLong throttleWaitMicros = new AtomicLong();
+
     // Disk
     private final AtomicLong pageReadCount  = new AtomicLong();
+    private final AtomicLong readCallCount  = new AtomicLong(); // 실제 read 호출 수 (read-ahead run 단위)
+    private final AtomicLong readBytes      = new AtomicLong(); // 디스크에서 읽은 바이트 (압축 시 extent 크기)
+    private final AtomicLong physicalSeekDistance = new AtomicLong(); // readPages 구간의 물리 점프 합 (페이지 단위)
     private final AtomicLong pageWriteCount = new AtomicLong();
+    private final AtomicLong writeCallCount = new AtomicLong(); // 실제 write 호출 수 (run 단위)
+    private final AtomicLong checksumFailureCount = new AtomicLong();
+    private final AtomicLong scrubbedPages  = new AtomicLong();
+    private final AtomicLong tornPagesRepaired = new AtomicLong(); // 열 때 double-write 영역으로 복구한 페이지
 
     // Storage
     private final AtomicLong flushCount    = new AtomicLong();
     private final AtomicLong flushedPages  = new AtomicLong();
     private final AtomicLong rebuildCount  = new AtomicLong();
     private final AtomicLong totalRebuildMs = new AtomicLong();
+    private final AtomicLong compactedPages = new AtomicLong(); // compaction으로 앞쪽으로 옮긴 페이지
+    private final AtomicLong truncatedBytes = new AtomicLong(); // 파일 끝 truncate로 줄어든 크기
+    private final AtomicLong zeroedBytes    = new AtomicLong(); // 빈 구간을 0으로 채워 파일시스템에 돌려준 크기 (누적)
+    private final AtomicLong dataFileBytes     = new AtomicLong(); // 열린 데이터 파일 크기 합 (gauge)
+    private final AtomicLong releasedFreeBytes = new AtomicLong(); // 그중 돌려준 빈 구간 합 (gauge)
+    private final AtomicLong deltaRebuildCount = new AtomicLong();
+    private final AtomicLong deltaRebuildPages = new AtomicLong(); // delta rebuild가 다시 쓴 페이지 (overflow 포함)
+    private final AtomicLong totalDeltaRebuildMs = new AtomicLong();
+    private final AtomicLong fsyncCount       = new AtomicLong(); // DiskManager의 데이터 파일 force 수
+    private final AtomicLong totalFsyncMicros = new AtomicLong();
+    private final AtomicLong maxFsyncMicros   = new AtomicLong();
+
+    // WAL
+    private final AtomicLong walAppendCount = new AtomicLong();
+    private final AtomicLong walSyncCount   = new AtomicLong(); // group commit fsync 수
+
+    // Startup — 마지막 디렉토리 로드 (누적 아님)
+    private final AtomicLong directoryLoadMs    = new AtomicLong();
+    private final AtomicLong directoryLoadReads = new AtomicLong();
 
     // increment
     public void incrementQueryCount()      { queryCount.incrementAndGet(); }
@@ -32,20 +69,75 @@ public class EngineMetrics {
     public void incrementPageHit()         { pageHit.incrementAndGet(); }
     public void incrementPageMiss()        { pageMiss.incrementAndGet(); }
     public void incrementEvictCount()      { evictCount.incrementAndGet(); }
+    public void incrementBufferHit()       { bufferHit.incrementAndGet(); }
+    public void incrementBufferMiss()      { bufferMiss.incrementAndGet(); }
+    public void incrementBufferEvictCount() { bufferEvictCount.incrementAndGet(); }
+    public void incrementBufferWriteBackCount() { bufferWriteBackCount.incrementAndGet(); }
+    public void recordPageWriterRound(int pages) {
+        pageWriterRounds.incrementAndGet();
+        pageWriterPages.addAndGet(pages);
+    }
+    public void incrementPageWriterFailure() { pageWriterFailures.incrementAndGet(); }
+    public void recordWriteThrottle(long nanos) {
+        throttledWrites.incrementAndGet();
+        throttleWaitMicros.addAndGet(nanos / 1_000);
+    }
     public void incrementPageReadCount()   { pageReadCount.incrementAndGet(); }
+    public void addPageReadCount(int count) { pageReadCount.addAndGet(count); }
+    public void incrementReadCallCount()   { readCallCount.incrementAndGet(); }
+    public void addReadBytes(long bytes)   { readBytes.addAndGet(bytes); }
+    public void addPhysicalSeekDistance(long pages) { physicalSeekDistance.addAndGet(pages); }
     public void incrementPageWriteCount()  { pageWriteCount.incrementAndGet(); }
+    public void addPageWriteCount(int count) { pageWriteCount.addAndGet(count); }
+    public void incrementWriteCallCount()  { writeCallCount.incrementAndGet(); }
+    public void incrementChecksumFailureCount() { checksumFailureCount.incrementAndGet(); }
+    public void incrementScrubbedPages()   { scrubbedPages.incrementAndGet(); }
+    public void addTornPagesRepaired(int count) { tornPagesRepaired.addAndGet(count); }
     public void incrementFlushedPages() { flushedPages.incrementAndGet(); }
+    public void addFlushedPages(int count) { flushedPages.addAndGet(count); }
     public void incrementFlushCount()      { flushCount.incrementAndGet(); }
     public void incrementRebuildCount()    { rebuildCount.incrementAndGet(); }
     public void addRebuildMs(long ms)      { totalRebuildMs.addAndGet(ms); }
+    public void addCompactedPages(int count) { compactedPages.addAndGet(count); }
+    public void addTruncatedBytes(long bytes) { truncatedBytes.addAndGet(bytes); }
+    public void addZeroedBytes(long bytes) { zeroedBytes.addAndGet(bytes); }
+    /** DiskManager마다 지난 보고값과의 차이 — 세그먼트 여러 개가 같은 EngineMetrics를 공유 */
+    public void adjustFileUsage(long fileDelta, long releasedDelta) {
+        dataFileBytes.addAndGet(fileDelta);
+        releasedFreeBytes.addAndGet(releasedDelta);
+    }
+    public void recordDeltaRebuild(int pages, long ms) {
+        deltaRebuildCount.incrementAndGet();
+        deltaRebuildPages.addAndGet(pages);
+        totalDeltaRebuildMs.addAndGet(ms);
+    }
+    public void recordFsync(long nanos) {
+        long micros = nanos / 1_000;
+        fsyncCount.incrementAndGet();
+        totalFsyncMicros.addAndGet(micros);
+        maxFsyncMicros.accumulateAndGet(micros, Math::max);
+    }
     public void addIntervals(int count)    { totalIntervals.addAndGet(count); }
+    public void incrementWalAppendCount()  { walAppendCount.incrementAndGet(); }
+    public void incrementWalSyncCount()    { walSyncCount.incrementAndGet(); }
+    public void recordDirectoryLoad(long ms, int reads) {
+        directoryLoadMs.set(ms);
+        directoryLoadReads.set(reads);
+    }
 
     public MetricsSnapshot snapshot(int cacheSize, int dirtyPages, int overflowPageUsed, int usedPageCount) {
         long qCount    = queryCount.get();
         long hitCount  = pageHit.get();
         long missCount = pageMiss.get();
+        long bHit      = bufferHit.get();
+        long bMiss     = bufferMiss.get();
+        long throttled = throttledWrites.get();
         long reads     = pageReadCount.get();
         long rCount    = rebuildCount.get();
+        long dCount    = deltaRebuildCount.get();
+        long fCount    = fsyncCount.get();
+        long fileBytes = dataFileBytes.get();
+        long released  = releasedFreeBytes.get();
 
         return new MetricsSnapshot(
                 // Index
@@ -58,17 +150,53 @@ public class EngineMetrics {
                 (hitCount + missCount) > 0 ? (double) hitCount / (hitCount + missCount) : 0.0,
                 cacheSize,
                 evictCount.get(),
+                // Buffer
+                bHit,
+                bMiss,
+                (bHit + bMiss) > 0 ? (double) bHit / (bHit + bMiss) : 0.0,
+                bufferEvictCount.get(),
+                bufferWriteBackCount.get(),
+                pageWriterPages.get(),
+                pageWriterRounds.get(),
+                pageWriterFailures.get(),
+                throttled,
+                throttled > 0 ? throttleWaitMicros.get() / throttled : 0,
                 // Disk
                 reads,
+                readCallCount.get(),
+                readBytes.get(),
+                physicalSeekDistance.get(),
                 pageWriteCount.get(),
+                writeCallCount.get(),
+                checksumFailureCount.get(),
+                scrubbedPages.get(),
+                tornPagesRepaired.get(),
                 // Storage
                 flushCount.get(),
                 flushedPages.get(),
                 rCount,
                 rCount > 0 ? totalRebuildMs.get() / rCount : 0,
+                compactedPages.get(),
+                truncatedBytes.get(),
+                zeroedBytes.get(),
+                fileBytes,
+                released,
+                fileBytes - released,
+                dCount,
+                deltaRebuildPages.get(),
+                dCount > 0 ? totalDeltaRebuildMs.get() / dCount : 0,
+                fCount,
+                fCount > 0 ? totalFsyncMicros.get() / fCount : 0,
+                maxFsyncMicros.get(),
                 dirtyPages,
                 overflowPageUsed,
-                usedPageCount
+                usedPageCount,
+                // WAL
+                walAppendCount.get(),
+                walSyncCount.get(),
+                // Startup
+                directoryLoadMs.get(),
+                directoryLoadReads.get()
         );
     }
 }
\ No newline at end of file
@@ -14,9 +14,28 @@ public class MetricsSnapshot {
     public final int    cacheSize;
     public final long   evictCount;
 
+    // Buffer
+    public final long   bufferHit;
+    public final long   bufferMiss;
+    public final double bufferHitRate;
+    public final long   bufferEvictCount;
+    public final long   bufferWriteBackCount;  // 교체 대상이 dirty여서 먼저 기록한 페이지
+    public final long   pageWriterPages;       // 백그라운드 writer(PageWriter)가 기록한 페이지
+    public final long   pageWriterRounds;
+    public final long   pageWriterFailures;    // 예외로 끝난 주기 — 마지막 원인은 PageWriter.getLastFailure()
+    public final long   throttledWrites;       // dirty 비율 ≥ high watermark로 대기한 put
+    public final long   avgThrottleWaitMicros;
+
     // Disk
     public final long   pageReadCount;
+    public final long   readCallCount;
+    public final long   readBytes;
+    public final long   physicalSeekDistance;
     public final long   pageWriteCount;
+    public final long   writeCallCount;
+    public final long   checksumFailureCount;
+    public final long   scrubbedPages;
+    public final long   tornPagesRepaired;  // double-write 영역으로 복구한 찢어진 페이지
     public final int    usedPageCount;
 
     // Storage
@@ -24,15 +43,44 @@ public class MetricsSnapshot {
     public final long   flushedPages;
     public final long   rebuildCount;
     public final long   avgRebuildMs;
+    public final long   compactedPages;
+    public final long   truncatedBytes;
+    public final long   zeroedBytes;       // 빈 구간을 0으로 채운 누적 바이트 (StorageOptions.releaseFreeSpace)
+    public final long   dataFileBytes;     // 열린 데이터 파일 크기 합
+    public final long   releasedFreeBytes; // 그중 파일시스템에 돌려준 빈 구간
+    public final long   physicalFileBytes; // dataFileBytes − releasedFreeBytes — 실제 점유 추정치
+    public final long   deltaRebuildCount;
+    public final long   deltaRebuildPages;
+    public final long   avgDeltaRebuildMs;
+    public final long   fsyncCount;        // 데이터 파일 force 수 (StorageOptions.Durability에 따라 달라짐)
+    public final long   avgFsyncMicros;
+    public final long   maxFsyncMicros;
     public final int    dirtyPages;
     public final int    overflowPageUsed;
 
+    // WAL
+    public final long   walAppendCount;
+    public final long   walSyncCount;      // walAppendCount / walSyncCount = group commit 평균 폭
+
+    // Startup
+    public final long   directoryLoadMs;
+    public final long   directoryLoadReads;
+
     public MetricsSnapshot(
             long queryCount, double avgPageIds, double avgIntervals,
             long pageHit, long pageMiss, double pageHitRate, int cacheSize, long evictCount,
-            long pageReadCount, long pageWriteCount,
-            long flushCount, long flushedPages, long rebuildCount, long avgRebuildMs, int dirtyPages,
-            int overflowPageUsed, int usedPageCount
+            long bufferHit, long bufferMiss, double bufferHitRate, long bufferEvictCount, long bufferWriteBackCount,
+            long pageWriterPages, long pageWriterRounds, long pageWriterFailures, long throttledWrites, long avgThrottleWaitMicros,
+            long pageReadCount, long readCallCount, long readBytes, long physicalSeekDistance, long pageWriteCount, long writeCallCount,
+            long checksumFailureCount, long scrubbedPages, long tornPagesRepaired,
+            long flushCount, long flushedPages, long rebuildCount, long avgRebuildMs,
+            long compactedPages, long truncatedBytes, long zeroedBytes,
+            long dataFileBytes, long releasedFreeBytes, long physicalFileBytes,
+            long deltaRebuildCount, long deltaRebuildPages, long avgDeltaRebuildMs,
+            long fsyncCount, long avgFsyncMicros, long maxFsyncMicros, int dirtyPages,
+            int overflowPageUsed, int usedPageCount,
+            long walAppendCount, long walSyncCount,
+            long directoryLoadMs, long directoryLoadReads
     ) {
         this.queryCount       = queryCount;
         this.avgPageIds       = avgPageIds;
@@ -42,14 +90,47 @@ public class MetricsSnapshot {
         this.pageHitRate      = pageHitRate;
         this.cacheSize        = cacheSize;
         this.evictCount       = evictCount;
+        this.bufferHit        = bufferHit;
+        this.bufferMiss       = bufferMiss;
+        this.bufferHitRate    = bufferHitRate;
+        this.bufferEvictCount = bufferEvictCount;
+        this.bufferWriteBackCount = bufferWriteBackCount;
+        this.pageWriterPages  = pageWriterPages;
+        this.pageWriterRounds = pageWriterRounds;
+        this.pageWriterFailures = pageWriterFailures;
+        this.throttledWrites  = throttledWrites;
+        this.avgThrottleWaitMicros = avgThrottleWaitMicros;
         this.pageReadCount    = pageReadCount;
+        this.readCallCount    = readCallCount;
+        this.readBytes        = readBytes;
+        this.physicalSeekDistance = physicalSeekDistance;
         this.pageWriteCount   = pageWriteCount;
+        this.writeCallCount   = writeCallCount;
+        this.checksumFailureCount = checksumFailureCount;
+        this.scrubbedPages    = scrubbedPages;
+        this.tornPagesRepaired = tornPagesRepaired;
         this.flushCount       = flushCount;
         this.flushedPages     = flushedPages;
         this.rebuildCount     = rebuildCount;
         this.avgRebuildMs     = avgRebuildMs;
+        this.compactedPages   = compactedPages;
+        this.truncatedBytes   = truncatedBytes;
+        this.zeroedBytes      = zeroedBytes;
+        this.dataFileBytes    = dataFileBytes;
+        this.releasedFreeBytes = releasedFreeBytes;
+        this.physicalFileBytes = physicalFileBytes;
+        this.deltaRebuildCount = deltaRebuildCount;
+        this.deltaRebuildPages = deltaRebuildPages;
+        this.avgDeltaRebuildMs = avgDeltaRebuildMs;
+        this.fsyncCount       = fsyncCount;
+        this.avgFsyncMicros   = avgFsyncMicros;
+        this.maxFsyncMicros   = maxFsyncMicros;
         this.dirtyPages       = dirtyPages;
         this.overflowPageUsed = overflowPageUsed;
         this.usedPageCount = usedPageCount;
+        this.walAppendCount   = walAppendCount;
+        this.walSyncCount     = walSyncCount;
+        this.directoryLoadMs    = directoryLoadMs;
+        this.directoryLoadReads = directoryLoadReads;
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package geoindex.storage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * O_DIRECT용 블록 정렬 direct ByteBuffer 풀 — 페이지 크기 버퍼를 재사용
+ *
+ * Why 풀?
+ *   O_DIRECT는 메모리 주소 / 길이 / 파일 offset이 모두 블록 크기 정렬이어야 함
+ *   → allocateDirect + alignedSlice는 비싸고 GC가 늦게 회수 → 요청마다 할당하면 native 메모리가 들쭉날쭉
+ *   → capacity개까지만 만들고 돌려 씀, 모자라면 반납될 때까지 대기
+ *   엔진이 쓰는 I/O 메모리 = capacity × bufferSize(페이지 크기) 로 고정
+ *
+ * acquire(n)은 Semaphore 허가 n개를 한 번에 얻음
+ *   → 여러 개를 나눠 잡다가 서로 기다리는 교착 없음
+ */
+class AlignedBufferPool {
+
+    private final int capacity;
+    private final int alignment;
+    private final int bufferSize;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    AlignedBufferPool(int capacity, int alignment, int bufferSize) {
+        this.capacity = capacity;
+        this.alignment = alignment;
+        this.bufferSize = bufferSize;
+        this.permits = new Semaphore(capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    ByteBuffer[] acquire(int count) {
+        if (count > capacity) throw new IllegalArgumentException("count > capacity: " + count);
+        permits.acquireUninterruptibly(count);
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            ByteBuffer buffer = free.poll();
+            buffers[i] = buffer != null ? buffer.clear() : allocate();
+        }
+        return buffers;
+    }
+
+    void release(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) free.offer(buffer);
+        permits.release(buffers.length);
+    }
+
+    private ByteBuffer allocate() {
+        return ByteBuffer.allocateDirect(bufferSize + alignment)
+                .alignedSlice(alignment)
+                .limit(bufferSize);
+    }
+}
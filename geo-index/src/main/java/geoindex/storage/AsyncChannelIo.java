@@ -0,0 +1,94 @@
+package geoindex.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AsynchronousFileChannel 위치 지정 I/O 헬퍼 — ChannelIo의 비동기판
+ *
+ * AsynchronousFileChannel.read/write도 요청보다 적게 처리할 수 있다.
+ * → 완료 핸들러에서 남은 부분을 다시 요청, 버퍼가 빌 때 future 완료
+ *
+ * EXECUTOR:
+ *   모든 DiskManager의 비동기 채널이 공유하는 완료 핸들러 스레드 풀 (데몬)
+ *   Linux의 AsynchronousFileChannel은 이 풀의 스레드에서 pread/pwrite를 실행
+ *   → 풀 크기 = 동시에 진행되는 디스크 요청 수 상한
+ *   비동기 채널이 없는 경로(MMAP / DIRECT / 압축 쓰기)의 대체 실행도 같은 풀
+ */
+final class AsyncChannelIo {
+
+    static final ExecutorService EXECUTOR;
+
+    static {
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger threadId = new AtomicInteger();
+        EXECUTOR = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "page-async-io-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private AsyncChannelIo() {}
+
+    static AsynchronousFileChannel open(Path path) throws IOException {
+        return AsynchronousFileChannel.open(path,
+                Set.of(StandardOpenOption.READ, StandardOpenOption.WRITE), EXECUTOR);
+    }
+
+    /**
+     * 파일 끝 이후는 0으로 남김 (ChannelIo.readFully와 같은 동작)
+     */
+    static CompletableFuture<Void> readFully(AsynchronousFileChannel ch, ByteBuffer dst, long position) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ch.read(dst, position, position, new CompletionHandler<>() {
+            @Override
+            public void completed(Integer n, Long at) {
+                if (n < 0 || !dst.hasRemaining()) {
+                    future.complete(null);
+                    return;
+                }
+                ch.read(dst, at + n, at + n, this);
+            }
+
+            @Override
+            public void failed(Throwable e, Long at) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    static CompletableFuture<Void> writeFully(AsynchronousFileChannel ch, ByteBuffer src, long position) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ch.write(src, position, position, new CompletionHandler<>() {
+            @Override
+            public void completed(Integer n, Long at) {
+                if (!src.hasRemaining()) {
+                    future.complete(null);
+                    return;
+                }
+                if (n <= 0) {
+                    future.completeExceptionally(new IOException("no progress writing at " + at));
+                    return;
+                }
+                ch.write(src, at + n, at + n, this);
+            }
+
+            @Override
+            public void failed(Throwable e, Long at) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,32 @@
+package geoindex.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * FileChannel 위치 지정 I/O 헬퍼
+ *
+ * FileChannel.read/write(buf, position)은 요청한 바이트보다 적게 처리할 수 있다.
+ * → 버퍼가 빌 때까지 반복
+ */
+final class ChannelIo {
+
+    private ChannelIo() {}
+
+    static void readFully(FileChannel ch, ByteBuffer dst, long position) throws IOException {
+        long read = 0;
+        while (dst.hasRemaining()) {
+            int n = ch.read(dst, position + read);
+            if (n < 0) break; // 파일 끝 이후 → 나머지는 0으로 남김
+            read += n;
+        }
+    }
+
+    static void writeFully(FileChannel ch, ByteBuffer src, long position) throws IOException {
+        long written = 0;
+        while (src.hasRemaining()) {
+            written += ch.write(src, position + written);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package geoindex.storage;
+
+import com.sun.nio.file.ExtendedOpenOption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * O_DIRECT 데이터 페이지 I/O — OS 페이지 캐시를 거치지 않음
+ *
+ * Why?
+ *   CacheManager / PageCacheStore가 이미 페이지를 캐시함
+ *   → OS 페이지 캐시에도 같은 4KB가 한 벌 더 (이중 버퍼링) + JVM 힙과 메모리 경쟁
+ *   → 데이터 페이지는 O_DIRECT로 직접 읽고 쓰고, 메모리는 AlignedBufferPool로 한정
+ *
+ * 범위:
+ *   데이터 페이지만 (4KB 정렬 offset — 헤더 / 디렉토리 / 데이터 페이지 크기가 모두 4KB의 배수)
+ *   파일 헤더 / 디렉토리 갱신은 int 단위 부분 쓰기 → 기존 buffered 채널 사용
+ *   정렬되지 않은 offset(버전 1에서 변환된 파일)은 호출자가 buffered 경로로 처리
+ *
+ * Linux 전용 (ExtendedOpenOption.DIRECT), 파일시스템 블록이 4KB보다 크면 사용 불가
+ */
+class DirectFile {
+
+    private final FileChannel channel;
+    private final AlignedBufferPool pool;
+    private final int pageSize;
+
+    DirectFile(Path path, AlignedBufferPool pool, int pageSize) throws IOException {
+        int blockSize = (int) Files.getFileStore(path).getBlockSize();
+        if (blockSize > Page.PAGE_SIZE || Page.PAGE_SIZE % blockSize != 0) {
+            throw new IOException("O_DIRECT block size " + blockSize + " incompatible with page size " + Page.PAGE_SIZE);
+        }
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, ExtendedOpenOption.DIRECT);
+        this.pool = pool;
+        this.pageSize = pageSize;
+    }
+
+    static boolean isAligned(long offset) {
+        return offset % Page.PAGE_SIZE == 0;
+    }
+
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    void read(long offset, byte[] dst) throws IOException {
+        ByteBuffer[] buffers = pool.acquire(1);
+        try {
+            ByteBuffer buffer = buffers[0];
+            ChannelIo.readFully(channel, buffer, offset);
+            buffer.flip();
+            buffer.get(dst, 0, buffer.remaining());
+            // 파일 끝에 걸린 짧은 읽기 → 나머지는 0
+            for (int i = buffer.limit(); i < dst.length; i++) dst[i] = 0;
+        } finally {
+            pool.release(buffers);
+        }
+    }
+
+    void write(long offset, byte[] image) throws IOException {
+        ByteBuffer[] buffers = pool.acquire(1);
+        try {
+            buffers[0].put(image).flip();
+            ChannelIo.writeFully(channel, buffers[0], offset);
+        } finally {
+            pool.release(buffers);
+        }
+    }
+
+    /**
+     * 연속 페이지 → 풀 크기 단위로 나눠 gathering write
+     * channel position을 쓰므로 호출자가 직렬화 (DiskManager.directoryLock)
+     */
+    void writeRun(long offset, List<byte[]> images) throws IOException {
+        int batch = Math.min(images.size(), pool.capacity());
+        for (int from = 0; from < images.size(); from += batch) {
+            int count = Math.min(batch, images.size() - from);
+            ByteBuffer[] buffers = pool.acquire(count);
+            try {
+                for (int i = 0; i < count; i++) buffers[i].put(images.get(from + i)).flip();
+                long remaining = (long) count * pageSize;
+                channel.position(offset + (long) from * pageSize);
+                while (remaining > 0) remaining -= channel.write(buffers);
+            } finally {
+                pool.release(buffers);
+            }
+        }
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+}
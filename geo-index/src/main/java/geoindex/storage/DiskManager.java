@@ -3,155 +3,1284 @@ package geoindex.storage;
 import geoindex.metric.EngineMetrics;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
 
-public class DiskManager {
+/**
+ * 물리적 디스크 I/O + sparse 매핑 테이블 (PageDirectory)
+ *
+ * Why FileChannel 위치 지정 I/O?
+ *   RandomAccessFile.seek + readFully는 파일 포인터를 공유 → synchronized 필수
+ *   → 서로 다른 페이지의 cache miss까지 모니터 하나에 직렬화됨
+ *   FileChannel.read(ByteBuffer, position)은 파일 포인터를 건드리지 않음
+ *   → 서로 다른 페이지 읽기가 병렬로 진행
+ *
+ * 락 범위:
+ *   readPage           → 락 없음 (rebuild 파일 교체만 StampedLock 낙관적 읽기로 검증)
+ *   writePage (기존)   → 락 없음 (같은 페이지 동시 쓰기는 CacheManager의 synchronized(page)가 막음)
+ *   writePage (새)     → directoryLock (offset 할당 + 디렉토리 엔트리 추가)
+ *   rebuild / 채널 복구 → swapLock 쓰기 락
+ *   compaction 이동     → directoryLock + 페이지 stripe (락 없는 제자리 writePage와 배타)
+ *   락 순서: directoryLock → stripe → swapLock
+ *
+ * I/O 모드 (StorageOptions.IoMode):
+ *   CHANNEL → readPage = FileChannel 위치 지정 read (syscall 1회)
+ *   MMAP    → readPage = 매핑 구간에서 메모리 복사 (syscall 없음)
+ *             쓰기는 FileChannel — OS 페이지 캐시를 공유하므로 매핑에 바로 반영
+ *   DIRECT  → 데이터 페이지 읽기/쓰기 모두 O_DIRECT (DirectFile), 디렉토리 갱신만 buffered 채널
+ *
+ * 체크섬:
+ *   쓰기 → PageLayout.imageForWrite()로 복사본에 CRC32C 기록 후 그 복사본을 기록
+ *   읽기 → StorageOptions.verifyChecksums면 검증, 불일치 시 IllegalStateException
+ *
+ * 압축 (StorageOptions.Compression.DEFLATE):
+ *   쓰기 → 체크섬을 기록한 이미지를 PageCodec으로 압축, 가변 크기 extent로 저장
+ *          디렉토리 엔트리가 (offset, extent 크기)를 가짐 → 읽기 1회로 정확한 바이트만 가져옴
+ *   덮어쓰기 → 새 이미지가 기존 extent에 들어가면 제자리, 커졌으면 파일 끝에 재배치 + 엔트리 재등록
+ *             (버려진 extent는 rebuild 때 회수)
+ *   읽기 → extent 크기로 압축 여부 판단 → 압축 해제 후 체크섬 검증 (모드와 무관하게 섞인 파일도 읽음)
+ *
+ * 내구성 (StorageOptions.Durability):
+ *   쓰기(writePage / writePages / writePageAsync / compaction 이동)가 끝날 때 afterWrite()
+ *     SYNC_ON_FLUSH → 그 자리에서 force
+ *     PERIODIC      → unsynced 표시만, 공유 스케줄러가 syncIntervalMillis마다 표시가 있으면 force 1회
+ *     NONE / FLUSH_ON_CLOSE → 표시만 (close / rebuild 교체 때 force, NONE은 그마저 생략)
+ *   rebuild → 임시 파일을 close하며 force → rename → 상위 디렉토리 force (rename 자체를 디스크에 반영)
+ *   모든 force는 force() 헬퍼를 거쳐 EngineMetrics에 지연 시간 기록
+ *
+ * 찢어진 페이지 방지 (StorageOptions.doubleWrite → DoubleWriteBuffer):
+ *   writePage / writePages → 제자리 / 새 extent에 쓰기 전에 같은 이미지를 scratch 파일에 배치 1개로 기록 + fsync
+ *   데이터 파일 force() 후 scratch를 비움, 열 때 scratch에 남은 이미지로 검증 실패 페이지 복구
+ *
+ * 빈 공간 반환 (StorageOptions.releaseFreeSpace):
+ *   releaseFreedExtents로 빈 공간이 재사용 가능해질 때마다 파일 끝 빈 공간은 truncate,
+ *   RELEASE_MIN_BYTES 이상인 중간 빈 구간은 4KB block 정렬 안쪽을 0으로 채움 (한 번 채운 곳은 재할당 전까지 다시 안 채움)
+ *   파일 크기 / 돌려준 빈 구간은 reportFileUsage()로 EngineMetrics gauge에 반영
+ *
+ * 스냅샷 (openSnapshot → DiskSnapshot):
+ *   열 때 디렉토리 사본만 만듦 → 이후 제자리 덮어쓰기 직전에 copyOnWrite()가 옛 이미지를 보관
+ *   열려 있는 동안 releaseFreedExtents는 보류 (재배치된 페이지의 옛 extent를 스냅샷이 읽음)
+ */
+public class DiskManager implements PageStore {
 
-    private static final int MAX_ENTRIES  = 100_000;       // 최대 페이지 수
-    private static final int ENTRY_SIZE   = 12;            // pageId(4) + offset(8)
-    private static final int COUNT_OFFSET = 0;             // 엔트리 수 위치
-    private static final int MAP_OFFSET   = 4;             // 매핑 테이블 시작
-    private static final long DATA_OFFSET =                // 데이터 시작
-            MAP_OFFSET + (long) MAX_ENTRIES * ENTRY_SIZE;
+    private static final int MAX_RUN_BYTES = 1 << 20;   // run(gathering write / 묶음 read) 1회 최대 1MB
+    private static final long MAX_DOUBLE_WRITE_BYTES = 64L << 20; // scratch 파일이 이만큼 쌓이면 데이터 파일 force로 비움
+    private static final int  FS_BLOCK_SIZE = 4096;                // 파일시스템 할당 단위 — 0으로 채우는 구간 정렬
+    private static final long RELEASE_MIN_BYTES = 64L * 1024;      // 이보다 작은 빈 구간은 곧 재사용될 가능성이 커서 그대로 둠
+    private static final byte[] ZEROS = new byte[MAX_RUN_BYTES];
+
+    /**
+     * PERIODIC 모드 fsync 스케줄러 — 모든 DiskManager가 공유하는 데몬 스레드 1개
+     * (세그먼트마다 스레드를 두지 않음, fsync끼리는 어차피 디스크에서 직렬화됨)
+     */
+    private static final ScheduledExecutorService SYNC_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "page-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     private RandomAccessFile dbFile;
+    private volatile FileChannel channel;
+    private volatile MappedFile mappedFile;             // MMAP 모드에서만 사용
+    private volatile DirectFile directFile;             // DIRECT 모드에서만 사용
+    private volatile AsynchronousFileChannel asyncChannel; // CHANNEL 모드에서만 사용 (readPageAsync / writePageAsync)
+    private final AlignedBufferPool bufferPool;         // DIRECT 모드 I/O 버퍼 (파일 재오픈에도 유지)
+    private volatile PageDirectory directory;           // pageId → offset (rebuild 시 교체)
     private final String filePath;
-    private final Map<Integer, Long> pageMap  = new HashMap<>();
-    private final Map<Integer, Integer> entryIndex = new HashMap<>(); // pageId → 헤더 내 인덱스
-    private int entryCount = 0;
-    private long nextDataOffset = DATA_OFFSET;
+    private final StorageOptions options;
+    private final boolean compressed;                   // 새로 쓰는 페이지를 압축 extent로 저장
+    private final int pageSize;                         // 파일 헤더의 데이터 페이지 크기 (rebuild해도 유지)
+    private final int maxRunPages;                      // MAX_RUN_BYTES / pageSize — 4KB면 256페이지
+
+    private final Object directoryLock = new Object();   // 페이지 디렉토리 변경 보호
+    private final Object[] writeStripes = new Object[64]; // 제자리 writePage vs compaction 이동
+    private final StampedLock swapLock = new StampedLock(); // 파일/채널 교체 보호
+
+    private volatile boolean closed = false;
+
+    private final StorageOptions.Durability durability;
+    private final AtomicBoolean unsynced = new AtomicBoolean(); // 마지막 force 이후 쓰기가 있었는지
+    private final ScheduledFuture<?> periodicSync;              // PERIODIC 모드에서만
+
+    private final DoubleWriteBuffer doubleWrite;        // StorageOptions.doubleWrite일 때만 (null = 끔)
+
+    private volatile DiskSnapshot snapshot;             // 열린 스냅샷 (최대 1개) — directoryLock 안에서 교체
+
+    private long reportedFileBytes;                     // EngineMetrics에 마지막으로 보고한 값 — directoryLock
+    private long reportedReleasedBytes;
 
     private final EngineMetrics  engineMetrics;
 
     public DiskManager(String filePath, EngineMetrics engineMetrics) {
+        this(filePath, StorageOptions.DEFAULT, engineMetrics);
+    }
+
+    public DiskManager(String filePath, StorageOptions options, EngineMetrics engineMetrics) {
         this.engineMetrics = engineMetrics;
         this.filePath = filePath;
+        this.options = options;
+        this.compressed = options.getCompression() == StorageOptions.Compression.DEFLATE;
+        this.durability = options.getDurability();
+        for (int i = 0; i < writeStripes.length; i++) writeStripes[i] = new Object();
         try {
-            this.dbFile = new RandomAccessFile(filePath, "rw");
-            loadPageMap();
+            // 페이지 크기는 기존 파일이면 헤더 값 → 버퍼 풀 / 매핑 크기를 정하기 전에 먼저 확인
+            this.pageSize = PageDirectory.readPageSize(Path.of(filePath), options.getPageSize());
+            this.bufferPool = options.getIoMode() == StorageOptions.IoMode.DIRECT
+                    ? new AlignedBufferPool(options.getDirectBufferPoolSize(), Page.PAGE_SIZE, pageSize)
+                    : null;
+            this.maxRunPages = MAX_RUN_BYTES / pageSize;
+            openFile();
+            this.doubleWrite = options.isDoubleWrite()
+                    ? new DoubleWriteBuffer(DoubleWriteBuffer.pathFor(filePath), engineMetrics)
+                    : null;
+            if (doubleWrite != null) repairTornPages();
+            loadDirectory();
         } catch (IOException e) {
             throw new RuntimeException("DiskManager init failed", e);
         }
+        long interval = options.getSyncIntervalMillis();
+        this.periodicSync = durability == StorageOptions.Durability.PERIODIC
+                ? SYNC_SCHEDULER.scheduleWithFixedDelay(this::periodicSync, interval, interval, TimeUnit.MILLISECONDS)
+                : null;
     }
 
 
-    private void loadPageMap() throws IOException {
-        if (dbFile.length() < MAP_OFFSET) {
-            // 새 파일 → 엔트리 수 0으로 초기화
-            dbFile.seek(COUNT_OFFSET);
-            dbFile.writeInt(0);
-            return;
+    private void openFile() throws IOException {
+        dbFile = new RandomAccessFile(filePath, "rw");
+        channel = dbFile.getChannel();
+        mappedFile = options.getIoMode() == StorageOptions.IoMode.MMAP
+                ? new MappedFile(channel, options.getMapChunkSize(), pageSize)
+                : null;
+        directFile = bufferPool != null
+                ? new DirectFile(Path.of(filePath), bufferPool, pageSize)
+                : null;
+        asyncChannel = options.getIoMode() == StorageOptions.IoMode.CHANNEL
+                ? AsyncChannelIo.open(Path.of(filePath))
+                : null;
+    }
+
+    private void closeFiles() throws IOException {
+        DirectFile direct = directFile;
+        if (direct != null) direct.close();
+        AsynchronousFileChannel async = asyncChannel;
+        if (async != null) async.close();
+        dbFile.close();
+    }
+
+    private void loadDirectory() throws IOException {
+        long start = System.nanoTime();
+        directory = new PageDirectory(channel, pageSize);
+        if (compressed) directory.enableExtents(channel);
+        engineMetrics.recordDirectoryLoad(
+                (System.nanoTime() - start) / 1_000_000,
+                directory.getLoadReadCount());
+        reportFileUsage(directory);
+    }
+
+    @Override
+    public Page readPage(int pageId) {
+        engineMetrics.incrementPageReadCount();
+        Page page = new Page(pageId, pageSize);
+        boolean decoded = readInto(pageId, page.getData());
+        verifyOnRead(page, decoded);
+        return page;
+    }
+
+    /**
+     * [startPageId, endPageId] 구간 일괄 읽기 — read-ahead
+     *
+     * Why?
+     *   HilbertIndex는 연속된 pageId 구간을 돌려줌 → 물리적으로도 인접하면 한 번에 읽을 수 있음
+     *   → 디렉토리 offset이 페이지 크기 간격으로 이어지는 구간마다 위치 지정 read 1회 (최대 MAX_RUN_BYTES)
+     *   인접하지 않은 페이지 / 디렉토리에 없는 페이지는 개별 처리 (없는 페이지 = 빈 페이지)
+     *   MMAP / DIRECT 모드는 페이지 단위 (MMAP은 syscall이 없고, DIRECT 버퍼 풀은 페이지 크기)
+     *   압축 extent도 "앞 extent 끝 == 다음 extent 시작"이면 같은 run → 읽은 뒤 페이지별 압축 해제
+     *
+     * @return pageId 오름차순, 구간 길이만큼
+     */
+    @Override
+    public List<Page> readPages(int startPageId, int endPageId) {
+        if (endPageId < startPageId) {
+            throw new IllegalArgumentException("invalid range: " + startPageId + ".." + endPageId);
+        }
+        int count = endPageId - startPageId + 1;
+        engineMetrics.addPageReadCount(count);
+
+        List<Page> pages = new ArrayList<>(count);
+        int[] pageIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            pages.add(new Page(startPageId + i, pageSize));
+            pageIds[i] = startPageId + i;
         }
+        engineMetrics.addPhysicalSeekDistance(physicalSeekDistance(pageIds));
+        boolean[] decoded = new boolean[count];
+        readRangeInto(startPageId, pages, decoded);
+        for (int i = 0; i < count; i++) verifyOnRead(pages.get(i), decoded[i]);
+        return pages;
+    }
 
-        dbFile.seek(COUNT_OFFSET);
-        entryCount = dbFile.readInt();
+    /**
+     * 물리 seek 거리 — pageIds 순서대로 읽을 때 "바로 다음 페이지"에서 벗어난 거리 합 (페이지 단위)
+     *
+     * 논리 seek count(SeekCountBenchmark)는 pageId 간격만 봄
+     * → 파일 안 배치가 pageId 순이 아니면 연속 pageId도 디스크에서는 점프
+     * 0 = 전 구간이 바이트 단위로 연속, 디렉토리에 없는 pageId는 건너뜀
+     */
+    public long physicalSeekDistance(int[] pageIds) {
+        PageDirectory dir = directory;
+        long distance = 0;
+        long previousEnd = PageDirectory.NO_OFFSET;
+        for (int pageId : pageIds) {
+            long extent = dir.extentOf(pageId);
+            if (extent == PageDirectory.NO_OFFSET) continue;
+            long offset = PageDirectory.offset(extent);
+            if (previousEnd != PageDirectory.NO_OFFSET) {
+                distance += Math.abs(offset - previousEnd) / pageSize;
+            }
+            previousEnd = offset + PageDirectory.storedSize(extent, pageSize);
+        }
+        return distance;
+    }
 
-        for (int i = 0; i < entryCount; i++) {
-            dbFile.seek(MAP_OFFSET + (long) i * ENTRY_SIZE);
-            int pageId = dbFile.readInt();
-            long offset = dbFile.readLong();
-            pageMap.put(pageId, offset);
-            entryIndex.put(pageId, i);
+    /**
+     * @param decoded false = 압축 해제 실패 → 체크섬 설정과 무관하게 손상으로 처리
+     */
+    private void verifyOnRead(Page page, boolean decoded) {
+        if (!decoded) {
+            engineMetrics.incrementChecksumFailureCount();
+            throw new IllegalStateException("page decompression failed: pageId=" + page.getPageId());
         }
+        if (options.isVerifyChecksums() && !PageLayout.verifyChecksum(page.getData())) {
+            engineMetrics.incrementChecksumFailureCount();
+            throw new IllegalStateException("page checksum mismatch: pageId=" + page.getPageId());
+        }
+    }
 
-        nextDataOffset = Math.max(DATA_OFFSET, dbFile.length());
+    /**
+     * 디스크 이미지 검증 — 손상이면 false (PageScrubber용, 예외 없음)
+     * 디렉토리에 없는 페이지는 빈 페이지로 간주 → true
+     */
+    public boolean verifyPage(int pageId) {
+        byte[] data = new byte[pageSize];
+        if (readInto(pageId, data) && PageLayout.verifyChecksum(data)) return true;
+        engineMetrics.incrementChecksumFailureCount();
+        return false;
     }
 
-    public synchronized Page readPage(int pageId) {
-        engineMetrics.incrementPageReadCount();
-        Long offset = pageMap.get(pageId);
-        if (offset == null) return new Page(pageId);
+    // -------------------------------------------------------------------------
+    // 비동기 I/O — AsynchronousFileChannel (CHANNEL 모드)
+    // -------------------------------------------------------------------------
+
+    /**
+     * readPage의 비동기판 — 호출 스레드는 요청만 내고 바로 반환
+     */
+    @Override
+    public CompletableFuture<Page> readPageAsync(int pageId) {
+        return readPagesAsync(pageId, pageId).thenApply(pages -> pages.get(0));
+    }
+
+    /**
+     * readPages의 비동기판 — run마다 비동기 read 1회, 모든 run이 끝나면 완료
+     *
+     * Why?
+     *   반경 검색은 cold 페이지 수십 개를 pageId 순서대로 하나씩 읽음 → 지연 = read 지연 × 페이지 수
+     *   요청을 한꺼번에 내면 디스크 큐에서 겹쳐 진행 → 지연 ≈ 가장 느린 read 1회
+     *
+     * 일관성 (readRangeInto와 같은 규칙):
+     *   요청 전에 swapLock 낙관적 읽기 stamp + extent 스냅샷
+     *   완료 후 검증 실패 (rebuild 교체, 빈 공간 재사용 배리어) → 처음부터 다시 요청
+     *
+     * MMAP / DIRECT 모드는 비동기 채널이 없음 → 동기 readPages 결과를 담은 future
+     *   (MMAP은 메모리 복사라 기다릴 I/O가 없고, DIRECT는 정렬 버퍼 풀 경로를 그대로 사용)
+     */
+    @Override
+    public CompletableFuture<List<Page>> readPagesAsync(int startPageId, int endPageId) {
+        if (endPageId < startPageId) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("invalid range: " + startPageId + ".." + endPageId));
+        }
+        if (asyncChannel == null) {
+            try {
+                return CompletableFuture.completedFuture(readPages(startPageId, endPageId));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        int count = endPageId - startPageId + 1;
+        engineMetrics.addPageReadCount(count);
+        int[] pageIds = new int[count];
+        for (int i = 0; i < count; i++) pageIds[i] = startPageId + i;
+        engineMetrics.addPhysicalSeekDistance(physicalSeekDistance(pageIds));
+        return readRangeAsync(startPageId, count);
+    }
 
+    private CompletableFuture<List<Page>> readRangeAsync(int startPageId, int count) {
+        long stamp = swapLock.tryOptimisticRead();
+        AsynchronousFileChannel ch = asyncChannel;
+        PageDirectory dir = directory;
+        if (ch == null) {
+            // rebuild 교체 중 (채널이 잠깐 null) → 다른 스레드에서 다시 시도
+            return CompletableFuture.supplyAsync(() -> readRangeAsync(startPageId, count), AsyncChannelIo.EXECUTOR)
+                    .thenCompose(retry -> retry);
+        }
+
+        List<Page> pages = new ArrayList<>(count);
+        long[] extents = new long[count];
+        for (int i = 0; i < count; i++) {
+            pages.add(new Page(startPageId + i, pageSize));
+            extents[i] = dir.extentOf(startPageId + i);
+        }
+        boolean[] decoded = new boolean[count];
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        int i = 0;
+        while (i < count) {
+            if (extents[i] == PageDirectory.NO_OFFSET) {
+                decoded[i++] = true;
+                continue;
+            }
+            int from = i;
+            int to = runEnd(extents, from);
+            byte[] buffer = new byte[runLength(extents, from, to)];
+            runs.add(AsyncChannelIo.readFully(ch, ByteBuffer.wrap(buffer), PageDirectory.offset(extents[from]))
+                    .thenRun(() -> decodeRun(buffer, extents, pages, from, to, decoded)));
+            i = to;
+        }
+
+        return CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, error) -> {
+                    if (!swapLock.validate(stamp)) return readRangeAsync(startPageId, count);
+                    if (error != null) {
+                        return CompletableFuture.<List<Page>>failedFuture(new RuntimeException(
+                                "readPagesAsync failed: startPageId=" + startPageId, unwrap(error)));
+                    }
+                    for (int k = 0; k < count; k++) verifyOnRead(pages.get(k), decoded[k]);
+                    return CompletableFuture.completedFuture(pages);
+                })
+                .thenCompose(result -> result);
+    }
+
+    /**
+     * writePage의 비동기판
+     *
+     * 비동기 경로: CHANNEL 모드 + 이미 디스크에 있는 비압축 페이지 → 그 자리에 비동기 write
+     *   swapLock 읽기 락을 write 완료까지 유지 (StampedLock은 스레드 소유가 아님 → 완료 스레드에서 해제)
+     *     → rebuild 교체 / 빈 공간 재사용 배리어는 진행 중인 write가 끝날 때까지 대기
+     *   compaction은 stripe만 잡고 옮김 → 완료 후 extent가 바뀌었으면 새 자리에 동기 writePage로 다시 기록
+     *   (읽기 락을 놓은 뒤 다시 씀 — 락 순서 directoryLock → stripe → swapLock을 거스르지 않게)
+     * 나머지 (새 페이지, 압축 모드, MMAP / DIRECT) → 공유 I/O 풀에서 동기 writePage
+     * SYNC_ON_FLUSH → write 완료 후 공유 I/O 풀에서 force까지 마쳐야 future 완료
+     * 스냅샷이 열려 있거나 double-write를 쓰면 → 동기 writePage (덮어쓰기 전에 할 일이 있음)
+     */
+    @Override
+    public CompletableFuture<Void> writePageAsync(Page page) {
+        checkPageSize(page);
+        int pageId = page.getPageId();
+        AsynchronousFileChannel ch = asyncChannel;
+        if (ch == null || compressed) {
+            return CompletableFuture.runAsync(() -> writePage(page), AsyncChannelIo.EXECUTOR);
+        }
+
+        long stamp = swapLock.readLock();
+        long extent;
         try {
-            dbFile.seek(offset);
-            Page page = new Page(pageId);
-            dbFile.readFully(page.getData());
-            return page;
-        } catch (IOException e) {
-            throw new RuntimeException("readPage failed: pageId=" + pageId, e);
+            ch = asyncChannel;
+            extent = directory.extentOf(pageId);
+        } catch (RuntimeException e) {
+            swapLock.unlockRead(stamp);
+            throw e;
         }
+        if (extent == PageDirectory.NO_OFFSET || PageDirectory.compressedLength(extent) != 0
+                || snapshot != null || doubleWrite != null) {
+            // 스냅샷이 열려 있으면 copy-on-write가 stripe를 잡는 동기 경로로 (double-write도 scratch 기록이 먼저)
+            swapLock.unlockRead(stamp);
+            return CompletableFuture.runAsync(() -> writePage(page), AsyncChannelIo.EXECUTOR);
+        }
+
+        byte[] image = PageLayout.imageForWrite(page);
+        engineMetrics.incrementPageWriteCount();
+        engineMetrics.incrementWriteCallCount();
+        return AsyncChannelIo.writeFully(ch, ByteBuffer.wrap(image), extent)
+                .handle((ignored, error) -> {
+                    swapLock.unlockRead(stamp);
+                    if (error != null) {
+                        throw new CompletionException(new RuntimeException(
+                                "writePageAsync failed: pageId=" + pageId, unwrap(error)));
+                    }
+                    return directory.extentOf(pageId) != extent;
+                })
+                .thenCompose(moved -> {
+                    if (moved) return CompletableFuture.runAsync(() -> writePage(page), AsyncChannelIo.EXECUTOR);
+                    if (durability != StorageOptions.Durability.SYNC_ON_FLUSH) {
+                        unsynced.set(true);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // force는 완료 핸들러 스레드를 막지 않게 공유 I/O 풀에서
+                    return CompletableFuture.runAsync(() -> syncAfterAsyncWrite(pageId), AsyncChannelIo.EXECUTOR);
+                });
     }
 
-    public synchronized void writePage(Page page) {
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * @return 압축 해제 성공 여부 (비압축 / 없는 페이지는 항상 true)
+     */
+    private boolean readInto(int pageId, byte[] data) {
+        while (true) {
+            long stamp = swapLock.tryOptimisticRead();
+            FileChannel ch = channel;
+            MappedFile mapped = mappedFile;
+            DirectFile direct = directFile;
+            try {
+                long extent = directory.extentOf(pageId);
+                boolean decoded = true;
+                if (extent == PageDirectory.NO_OFFSET) {
+                    Arrays.fill(data, (byte) 0);
+                } else {
+                    decoded = readExtent(ch, mapped, direct, extent, data);
+                }
+                if (swapLock.validate(stamp)) return decoded;
+            } catch (ClosedChannelException e) {
+                // rebuild로 채널이 교체됐으면 그대로 재시도
+                if (!swapLock.validate(stamp)) continue;
+                // 다른 스레드의 interrupt로 닫힌 채널 → 복구 후 재시도
+                reopenIfClosed(ch);
+                if (closed || e instanceof ClosedByInterruptException) {
+                    throw new RuntimeException("readPage failed: pageId=" + pageId, e);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("readPage failed: pageId=" + pageId, e);
+            }
+        }
+    }
+
+    private void readRangeInto(int startPageId, List<Page> pages, boolean[] decoded) {
+        int count = pages.size();
+        long[] extents = new long[count];
+        while (true) {
+            long stamp = swapLock.tryOptimisticRead();
+            FileChannel ch = channel;
+            MappedFile mapped = mappedFile;
+            DirectFile direct = directFile;
+            PageDirectory dir = directory;
+            try {
+                for (int i = 0; i < count; i++) extents[i] = dir.extentOf(startPageId + i);
+
+                int i = 0;
+                while (i < count) {
+                    byte[] data = pages.get(i).getData();
+                    if (extents[i] == PageDirectory.NO_OFFSET) {
+                        Arrays.fill(data, (byte) 0);
+                        decoded[i] = true;
+                        i++;
+                        continue;
+                    }
+
+                    int runEnd = mapped == null && direct == null ? runEnd(extents, i) : i + 1;
+                    if (runEnd - i == 1) {
+                        decoded[i] = readExtent(ch, mapped, direct, extents[i], data);
+                    } else {
+                        readRun(ch, extents, pages, i, runEnd, decoded);
+                    }
+                    i = runEnd;
+                }
+                if (swapLock.validate(stamp)) return;
+            } catch (ClosedChannelException e) {
+                if (!swapLock.validate(stamp)) continue;
+                reopenIfClosed(ch);
+                if (closed || e instanceof ClosedByInterruptException) {
+                    throw new RuntimeException("readPages failed: startPageId=" + startPageId, e);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("readPages failed: startPageId=" + startPageId, e);
+            }
+        }
+    }
+
+    /**
+     * extent 1개 읽기 — 압축 extent는 저장 크기만큼 읽고 data로 압축 해제
+     * (압축 extent는 정렬·크기가 O_DIRECT 조건에 맞지 않음 → buffered 경로)
+     */
+    private boolean readExtent(FileChannel ch, MappedFile mapped, DirectFile direct, long extent, byte[] data) throws IOException {
+        long offset = PageDirectory.offset(extent);
+        int length = PageDirectory.compressedLength(extent);
+        if (length == 0) {
+            readOne(ch, mapped, direct, offset, data);
+            return true;
+        }
+        byte[] stored = new byte[length];
+        readOne(ch, mapped, null, offset, stored);
+        return PageCodec.decompress(stored, 0, length, data);
+    }
+
+    private void readOne(FileChannel ch, MappedFile mapped, DirectFile direct, long offset, byte[] data) throws IOException {
+        if (direct != null && DirectFile.isAligned(offset)) {
+            direct.read(offset, data);
+        } else if (mapped != null) {
+            mapped.read(offset, data);
+        } else {
+            ChannelIo.readFully(ch, ByteBuffer.wrap(data), offset);
+        }
+        engineMetrics.incrementReadCallCount();
+        engineMetrics.addReadBytes(data.length);
+    }
+
+    /**
+     * extents[from]부터 끝과 시작이 이어지는 extent 구간의 끝 (exclusive, 최대 maxRunPages)
+     */
+    private int runEnd(long[] extents, int from) {
+        long end = PageDirectory.offset(extents[from]) + PageDirectory.storedSize(extents[from], pageSize);
+        int runEnd = from + 1;
+        while (runEnd < extents.length && runEnd - from < maxRunPages
+                && extents[runEnd] != PageDirectory.NO_OFFSET
+                && PageDirectory.offset(extents[runEnd]) == end) {
+            end += PageDirectory.storedSize(extents[runEnd], pageSize);
+            runEnd++;
+        }
+        return runEnd;
+    }
+
+    private int runLength(long[] extents, int from, int to) {
+        long end = PageDirectory.offset(extents[to - 1]) + PageDirectory.storedSize(extents[to - 1], pageSize);
+        return (int) (end - PageDirectory.offset(extents[from]));
+    }
+
+    /**
+     * 물리적으로 인접한 extent들 [from, to) → 위치 지정 read 1회 후 페이지별 복사 / 압축 해제
+     * (scattering read는 채널 position을 써서 락이 필요 → 큰 버퍼 하나로 읽음)
+     */
+    private void readRun(FileChannel ch, long[] extents,
+                         List<Page> pages, int from, int to, boolean[] decoded) throws IOException {
+        byte[] buffer = new byte[runLength(extents, from, to)];
+        ChannelIo.readFully(ch, ByteBuffer.wrap(buffer), PageDirectory.offset(extents[from]));
+        decodeRun(buffer, extents, pages, from, to, decoded);
+    }
+
+    /**
+     * run 버퍼 → 페이지별 복사 / 압축 해제 + 읽기 메트릭
+     */
+    private void decodeRun(byte[] buffer, long[] extents, List<Page> pages, int from, int to, boolean[] decoded) {
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            byte[] data = pages.get(i).getData();
+            int compressedLength = PageDirectory.compressedLength(extents[i]);
+            if (compressedLength == 0) {
+                System.arraycopy(buffer, position, data, 0, pageSize);
+                decoded[i] = true;
+            } else {
+                decoded[i] = PageCodec.decompress(buffer, position, compressedLength, data);
+            }
+            position += PageDirectory.storedSize(extents[i], pageSize);
+        }
+        engineMetrics.incrementReadCallCount();
+        engineMetrics.addReadBytes(buffer.length);
+    }
+
+    /**
+     * 디렉토리에 등록된 pageId 전체 (순서 없음) — PageScrubber 순회용
+     */
+    @Override
+    public int[] getPageIds() {
+        return directory.pageIds();
+    }
+
+    /**
+     * 파일 헤더에 기록된 데이터 페이지 크기 — CacheManager / SpatialRecordManager가 새 페이지를 만들 때 사용
+     */
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    private void checkPageSize(Page page) {
+        if (page.getPageSize() != pageSize) {
+            throw new IllegalArgumentException("page size mismatch: pageId=" + page.getPageId()
+                    + ", page=" + page.getPageSize() + ", file=" + pageSize);
+        }
+    }
+
+    @Override
+    public void writePage(Page page) {
+        checkPageSize(page);
+        if (compressed) {
+            // 압축 크기에 따라 재배치 + 디렉토리 재등록이 필요할 수 있음 → 일괄 경로(directoryLock)로 처리
+            writePages(List.of(page));
+            return;
+        }
         engineMetrics.incrementPageWriteCount();
+        engineMetrics.incrementWriteCallCount();
+        int pageId = page.getPageId();
+        byte[] image = PageLayout.imageForWrite(page);
+        FileChannel ch = channel;
         try {
-            int pageId = page.getPageId();
-            Long offset = pageMap.get(pageId);
+            // 기존 비압축 페이지 → 디렉토리 변경 없이 데이터만 덮어쓰기 (extent 값 == offset)
+            // stripe: 조회와 쓰기 사이에 compaction이 페이지를 옮기면 옛 자리에 쓴 내용이 사라짐
+            synchronized (stripeOf(pageId)) {
+                long extent = directory.extentOf(pageId);
+                if (extent != PageDirectory.NO_OFFSET && PageDirectory.compressedLength(extent) == 0) {
+                    copyOnWrite(ch, pageId, extent);
+                    boolean guarded = doubleWrite(List.of(new PendingWrite(pageId, extent, image)));
+                    try {
+                        writeImage(ch, directFile, extent, image);
+                    } finally {
+                        if (guarded) doubleWrite.complete();
+                    }
+                    afterWrite(ch);
+                    return;
+                }
+            }
+            placePage(pageId, image);
+            afterWrite(ch);
+
+        } catch (ClosedByInterruptException e) {
+            reopenIfClosed(ch);
+            throw new RuntimeException("writePage interrupted: pageId=" + pageId, e);
+        } catch (IOException e) {
+            throw new RuntimeException("writePage failed: pageId=" + pageId, e);
+        }
+    }
 
-            if (offset == null) {
-                // 새 페이지 → 데이터 끝에 추가
-                if (entryCount >= MAX_ENTRIES) {
-                    throw new IllegalStateException("pageMap full: MAX_ENTRIES=" + MAX_ENTRIES);
+    /**
+     * 새 페이지 → 데이터 끝에 추가 / 압축 extent였던 페이지 → 그 자리 또는 끝에 비압축으로 기록
+     * 데이터 기록까지 마친 뒤 디렉토리에 공개 → 락 없는 readPage가 빈 영역을 읽지 않음
+     */
+    private void placePage(int pageId, byte[] image) throws IOException {
+        synchronized (directoryLock) {
+            FileChannel ch = channel;
+            long extent = directory.extentOf(pageId);
+            long reused = reuseExtent(extent, image);
+            if (reused != PageDirectory.NO_OFFSET) {
+                // 다른 스레드가 먼저 할당함 / 기존 extent에 들어감 → 덮어쓰기
+                synchronized (stripeOf(pageId)) {
+                    copyOnWrite(ch, pageId, PageDirectory.offset(reused));
                 }
-                offset = nextDataOffset;
-                pageMap.put(pageId, offset);
-                entryIndex.put(pageId, entryCount);
+                writeGuarded(ch, new PendingWrite(pageId, reused, image));
+                if (reused != extent) directory.register(ch, pageId, reused);
+                return;
+            }
+
+            long offset = directory.allocate(pageSize);
+            writeGuarded(ch, new PendingWrite(pageId, offset, image));
+            directory.register(ch, pageId, offset);
+            reportFileUsage(directory);
+        }
+    }
+
+    /**
+     * 디스크에 기록할 이미지 — 체크섬 기록 후, 압축 모드면 압축 (이득 없으면 원본 페이지 크기)
+     */
+    private byte[] encode(Page page) {
+        byte[] image = PageLayout.imageForWrite(page);
+        if (!compressed) return image;
+        byte[] packed = PageCodec.compress(image);
+        return packed != null ? packed : image;
+    }
+
+    /**
+     * image를 기존 extent 자리에 쓸 수 있으면 그 자리의 새 extent 값, 없으면 NO_OFFSET
+     *   비압축 이미지 → 자리가 페이지 크기일 때만
+     *   압축 이미지   → 자리 크기 이하면 (자리 크기를 유지 → 다음에 조금 커져도 제자리)
+     */
+    private long reuseExtent(long extent, byte[] image) {
+        if (extent == PageDirectory.NO_OFFSET) return PageDirectory.NO_OFFSET;
+        int capacity = PageDirectory.storedSize(extent, pageSize);
+        if (image.length > capacity) return PageDirectory.NO_OFFSET;
+        int compressedLength = image.length == pageSize ? 0 : capacity;
+        return PageDirectory.extent(PageDirectory.offset(extent), compressedLength);
+    }
+
+    /**
+     * 여러 페이지 일괄 기록 — CacheManager.flush() 전용
+     *
+     * Why?
+     *   페이지마다 writePage → 해시 순서의 랜덤 write가 페이지 수만큼 발생
+     *   → 파일 offset 순으로 정렬 후 인접 페이지를 run으로 묶어 gathering write 1회
+     *
+     * 흐름 (directoryLock 보유 — 채널 position을 쓰는 gathering write도 이 락으로 보호):
+     *   1. 페이지마다 이미지 생성 (체크섬 + 압축 모드면 압축)
+     *      기존 extent에 들어가면 제자리, 아니면 (새 페이지 / 압축 크기 증가) 재배치 대상
+     *   2. 재배치 대상 → clusteredOrder 순서로 파일 끝에 연속 할당
+     *      (rebuild는 임시 파일에 전체를 한 번에 flush → 파일 전체가 pageId 순 + 체인 인접 배치)
+     *   3. 전체를 offset 순 정렬 → 끝과 시작이 이어지는 extent끼리 run (최대 MAX_RUN_BYTES)
+     *   4. run마다 FileChannel.write(ByteBuffer[]) 1회 — 버퍼는 체크섬을 기록한 페이지 복사본
+     *   5. 바뀐 extent 디렉토리 등록 (디렉토리 페이지당 write 2회) → 락 없는 readPage에 공개
+     */
+    @Override
+    public void writePages(Collection<Page> pages) {
+        if (pages.isEmpty()) return;
+        for (Page page : pages) checkPageSize(page);
+
+        synchronized (directoryLock) {
+            FileChannel ch = channel;
+            PageDirectory dir = directory;
+            try {
+                List<Page> newPages = new ArrayList<>();
+                Map<Integer, byte[]> newImages = new HashMap<>();
+                List<PendingWrite> writes = new ArrayList<>(pages.size());
+                int[] changedIds = new int[pages.size()];
+                long[] changedExtents = new long[pages.size()];
+                int changed = 0;
+                for (Page page : pages) {
+                    byte[] image = encode(page);
+                    long extent = dir.extentOf(page.getPageId());
+                    long reused = reuseExtent(extent, image);
+                    if (reused == PageDirectory.NO_OFFSET) {
+                        newPages.add(page);
+                        newImages.put(page.getPageId(), image);
+                        continue;
+                    }
+                    synchronized (stripeOf(page.getPageId())) {
+                        copyOnWrite(ch, page.getPageId(), PageDirectory.offset(reused));
+                    }
+                    // 압축 이미지는 자리 크기만큼 0으로 채움 → 인접 extent와 run이 끊기지 않음
+                    int size = PageDirectory.storedSize(reused, pageSize);
+                    byte[] padded = image.length == size ? image : Arrays.copyOf(image, size);
+                    writes.add(new PendingWrite(page.getPageId(), reused, padded));
+                    if (reused != extent) {
+                        changedIds[changed] = page.getPageId();
+                        changedExtents[changed++] = reused;
+                    }
+                }
+
+                for (Page page : clusteredOrder(newPages)) {
+                    byte[] image = newImages.get(page.getPageId());
+                    long offset = dir.allocate(image.length);
+                    long extent = PageDirectory.extent(offset, image.length == pageSize ? 0 : image.length);
+                    changedIds[changed] = page.getPageId();
+                    changedExtents[changed++] = extent;
+                    writes.add(new PendingWrite(page.getPageId(), extent, image));
+                }
+
+                boolean guarded = doubleWrite(writes);
+                try {
+                    writeRuns(ch, writes);
+                } finally {
+                    if (guarded) doubleWrite.complete();
+                }
+
+                dir.registerAll(ch, changedIds, changedExtents, changed);
+                engineMetrics.addPageWriteCount(pages.size());
+                reportFileUsage(dir);
+                afterWrite(ch);
+
+            } catch (ClosedByInterruptException e) {
+                reopenIfClosed(ch);
+                throw new RuntimeException("writePages interrupted", e);
+            } catch (IOException e) {
+                throw new RuntimeException("writePages failed", e);
+            }
+        }
+    }
+
+    /**
+     * 여러 페이지를 한 번에 교체 — 크래시가 나도 전부 옛 버전이거나 전부 새 버전 (delta rebuild 전용)
+     *
+     * Why shadow page?
+     *   writePages는 기존 extent를 제자리 덮어씀 → 중간에 크래시 나면 체인의 일부 페이지만 새 버전
+     *   → 새 이미지는 항상 빈 공간 / 파일 끝의 새 extent에 쓰고, 디렉토리 배치 1개로 한 번에 전환
+     *
+     * 흐름 (directoryLock 보유):
+     *   1. 페이지마다 이미지 생성 → clusteredOrder로 새 extent 할당 (옛 extent는 건드리지 않음)
+     *   2. run 단위 gathering write → force (배치 엔트리가 빈 extent를 가리키지 않게)
+     *   3. PageDirectory.registerBatch → force — 이 시점이 전환, 옛 extent는 pendingFree
+     *
+     * 전환 전의 옛 extent는 그대로 → 락 없는 readPage는 전환 전후 어느 쪽이든 온전한 페이지를 읽음
+     */
+    @Override
+    public void writePagesAtomically(Collection<Page> pages) {
+        if (pages.isEmpty()) return;
+        for (Page page : pages) checkPageSize(page);
+
+        synchronized (directoryLock) {
+            FileChannel ch = channel;
+            PageDirectory dir = directory;
+            try {
+                List<Page> ordered = clusteredOrder(new ArrayList<>(pages));
+                List<PendingWrite> writes = new ArrayList<>(ordered.size());
+                int[] ids = new int[ordered.size()];
+                long[] extents = new long[ordered.size()];
+                for (int i = 0; i < ordered.size(); i++) {
+                    byte[] image = encode(ordered.get(i));
+                    long offset = dir.allocate(image.length);
+                    ids[i] = ordered.get(i).getPageId();
+                    extents[i] = PageDirectory.extent(offset, image.length == pageSize ? 0 : image.length);
+                    writes.add(new PendingWrite(ids[i], extents[i], image));
+                }
+
+                writeRuns(ch, writes);
+                force(ch);
+
+                dir.registerBatch(ch, ids, extents, ids.length);
+                force(ch);
+                engineMetrics.addPageWriteCount(ids.length);
+                reportFileUsage(dir);
+
+            } catch (ClosedByInterruptException e) {
+                reopenIfClosed(ch);
+                throw new RuntimeException("writePagesAtomically interrupted", e);
+            } catch (IOException e) {
+                throw new RuntimeException("writePagesAtomically failed", e);
+            }
+        }
+    }
+
+    /**
+     * 새 페이지 배치 순서 — pageId 오름차순, overflow 체인은 primary 바로 뒤
+     *
+     * Why?
+     *   HilbertIndex가 연속 pageId를 돌려줘도 파일 안에서 흩어져 있으면 read-ahead가 run을 못 만듦
+     *   overflow 페이지(높은 pageId)를 pageId 순으로만 두면 체인 순회가 파일 끝까지 점프
+     *   → primary 다음에 그 체인을 이어 붙임
+     *
+     * 배치 안의 다른 페이지가 overflow로 가리키는 페이지는 체인 순회에서 배치
+     * 가리키는 쪽이 이미 디스크에 있던 페이지면 일반 페이지처럼 pageId 순
+     */
+    private static List<Page> clusteredOrder(List<Page> pages) {
+        Map<Integer, Page> byId = new HashMap<>();
+        for (Page page : pages) byId.put(page.getPageId(), page);
+
+        Set<Integer> chained = new HashSet<>();
+        for (Page page : pages) {
+            int next = overflowOf(page);
+            if (next != PageLayout.NO_OVERFLOW && next != page.getPageId() && byId.containsKey(next)) {
+                chained.add(next);
+            }
+        }
+
+        List<Page> sorted = new ArrayList<>(pages);
+        sorted.sort(Comparator.comparingInt(Page::getPageId));
+        List<Page> ordered = new ArrayList<>(pages.size());
+        Set<Integer> placed = new HashSet<>();
+        for (Page page : sorted) {
+            if (chained.contains(page.getPageId())) continue;
+            Page current = page;
+            while (current != null && placed.add(current.getPageId())) {
+                ordered.add(current);
+                int next = overflowOf(current);
+                current = next == PageLayout.NO_OVERFLOW ? null : byId.get(next);
+            }
+        }
+        // 체인 시작점이 배치 밖에 있는 경우 (순환 포함) → 남은 페이지 pageId 순
+        for (Page page : sorted) {
+            if (placed.add(page.getPageId())) ordered.add(page);
+        }
+        return ordered;
+    }
+
+    private static int overflowOf(Page page) {
+        return PageLayout.isInitialized(page) ? PageLayout.getOverflowPageId(page) : PageLayout.NO_OVERFLOW;
+    }
+
+    private static void writeImage(FileChannel ch, DirectFile direct, long offset, byte[] image) throws IOException {
+        if (direct != null && DirectFile.isAligned(offset)) {
+            direct.write(offset, image);
+        } else {
+            ChannelIo.writeFully(ch, ByteBuffer.wrap(image), offset);
+        }
+    }
+
+    /**
+     * offset 순 정렬 → 끝과 시작이 이어지는 extent끼리 run (최대 MAX_RUN_BYTES) → run마다 writeRun
+     */
+    private void writeRuns(FileChannel ch, List<PendingWrite> writes) throws IOException {
+        writes.sort(Comparator.comparingLong(w -> w.offset));
+        int runStart = 0;
+        for (int i = 1; i <= writes.size(); i++) {
+            PendingWrite previous = writes.get(i - 1);
+            boolean runEnds = i == writes.size()
+                    || writes.get(i).offset != previous.offset + previous.image.length
+                    || i - runStart == maxRunPages;
+            if (runEnds) {
+                writeRun(ch, writes.subList(runStart, i));
+                runStart = i;
+            }
+        }
+    }
+
+    /**
+     * 물리적으로 인접한 페이지들 → gathering write 1회
+     */
+    private void writeRun(FileChannel ch, List<PendingWrite> run) throws IOException {
+        DirectFile direct = directFile;
+        if (direct != null && DirectFile.isAligned(run.get(0).offset)) {
+            List<byte[]> images = new ArrayList<>(run.size());
+            for (PendingWrite write : run) images.add(write.image);
+            direct.writeRun(run.get(0).offset, images);
+            engineMetrics.incrementWriteCallCount();
+            return;
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[run.size()];
+        long remaining = 0;
+        for (int i = 0; i < run.size(); i++) {
+            buffers[i] = ByteBuffer.wrap(run.get(i).image);
+            remaining += run.get(i).image.length;
+        }
+
+        ch.position(run.get(0).offset);
+        while (remaining > 0) {
+            remaining -= ch.write(buffers);
+        }
+        engineMetrics.incrementWriteCallCount();
+    }
+
+    private static final class PendingWrite {
+        final int pageId;
+        final long extent;
+        final byte[] image;
+        final long offset;
+
+        PendingWrite(int pageId, long extent, byte[] image) {
+            this.pageId = pageId;
+            this.extent = extent;
+            this.image = image;
+            this.offset = PageDirectory.offset(extent);
+        }
+    }
+
+    private Object stripeOf(int pageId) {
+        return writeStripes[pageId & (writeStripes.length - 1)];
+    }
+
+    /**
+     * 지금까지 쓴 페이지와 디렉토리를 디스크에 강제 기록 — WAL checkpoint 전에 호출
+     * 재배치로 보류 중인 빈 공간도 이 시점에 재사용 가능해짐
+     */
+    @Override
+    public void sync() {
+        FileChannel ch = channel;
+        try {
+            unsynced.set(false);
+            force(ch);
+            synchronized (directoryLock) {
+                releaseFreedExtents(channel, directory);
+            }
+        } catch (ClosedByInterruptException e) {
+            reopenIfClosed(ch);
+            throw new RuntimeException("sync interrupted", e);
+        } catch (IOException e) {
+            throw new RuntimeException("sync failed", e);
+        }
+    }
 
-                // 헤더에 새 엔트리 추가
-                dbFile.seek(MAP_OFFSET + (long) entryCount * ENTRY_SIZE);
-                dbFile.writeInt(pageId);
-                dbFile.writeLong(offset);
+    // -------------------------------------------------------------------------
+    // 빈 공간 회수 / compaction — PageCompactor가 호출
+    // -------------------------------------------------------------------------
 
-                entryCount++;
-                nextDataOffset += Page.PAGE_SIZE;
+    /**
+     * 대체된 extent를 재사용 가능하게 — directoryLock 보유 필수
+     *   1. force → 대체를 기록한 디렉토리 엔트리가 디스크에 반영 (크래시 후 옛 자리를 가리키지 않음)
+     *   2. swapLock 쓰기 락을 잡았다 바로 놓음 → 옛 extent를 읽고 있던 낙관적 읽기는 검증 실패로 재시도
+     *      (그 자리에 다른 페이지가 써져도 잘못된 페이지를 돌려주지 않음)
+     * 스냅샷이 열려 있으면 보류 — 옛 extent가 스냅샷 시점의 페이지일 수 있음
+     */
+    private void releaseFreedExtents(FileChannel ch, PageDirectory dir) throws IOException {
+        if (!dir.hasPendingFree() || snapshot != null) return;
+        force(ch);
+        long stamp = swapLock.writeLock();
+        swapLock.unlockWrite(stamp);
+        dir.releasePending();
+        if (options.isReleaseFreeSpace()) releaseToFileSystem(ch, dir);
+        reportFileUsage(dir);
+    }
 
-                // 엔트리 수 갱신
-                dbFile.seek(COUNT_OFFSET);
-                dbFile.writeInt(entryCount);
+    /**
+     * 재사용 가능해진 빈 공간을 파일시스템에 돌려줌 — releaseFreedExtents 직후 (directoryLock 보유)
+     *   1. 파일 끝에 붙은 빈 공간 → truncate (MMAP 제외 — truncateFreeTail 참고)
+     *   2. RELEASE_MIN_BYTES 이상인 빈 구간 → FS_BLOCK_SIZE 정렬 안쪽을 0으로 채움
+     *
+     * Why 0으로 채우기? (fallocate PUNCH_HOLE이 아니라)
+     *   JDK에는 구멍 뚫기 API가 없음 (네이티브 호출 없이는 불가)
+     *   0 block은 압축 / 중복 제거 파일시스템(ZFS, btrfs 압축)과 thin 볼륨이 할당하지 않음,
+     *   ext4 / xfs는 그대로 점유 → 어느 파일시스템에서나 확실히 줄어드는 건 1번
+     *
+     * 안전성: barrier 이후라 옛 extent를 읽는 reader 없음, 할당은 directoryLock 안에서만 → 채우는 중 재사용 없음
+     */
+    private void releaseToFileSystem(FileChannel ch, PageDirectory dir) throws IOException {
+        if (options.getIoMode() != StorageOptions.IoMode.MMAP) {
+            engineMetrics.addTruncatedBytes(dir.truncateTail(ch));
+        }
+        for (long[] range : dir.unreleasedFreeRanges(RELEASE_MIN_BYTES, FS_BLOCK_SIZE)) {
+            for (long done = 0; done < range[1]; done += ZEROS.length) {
+                int length = (int) Math.min(ZEROS.length, range[1] - done);
+                ChannelIo.writeFully(ch, ByteBuffer.wrap(ZEROS, 0, length), range[0] + done);
             }
+            dir.markReleased(range[0], range[1]);
+            engineMetrics.addZeroedBytes(range[1]);
+        }
+    }
 
-            // 페이지 데이터 기록
-            dbFile.seek(offset);
-            dbFile.write(page.getData(), 0, Page.PAGE_SIZE);
+    /**
+     * 파일 크기 / 돌려준 빈 구간 gauge — 지난 보고값과의 차이만 EngineMetrics에 더함 (directoryLock 보유)
+     * 닫힌 DiskManager는 0으로 보고 → 세그먼트 / rebuild 임시 파일이 합계에 남지 않음
+     */
+    private void reportFileUsage(PageDirectory dir) {
+        long fileBytes = closed ? 0 : dir.fileEnd();
+        long released = closed ? 0 : dir.releasedBytes();
+        engineMetrics.adjustFileUsage(fileBytes - reportedFileBytes, released - reportedReleasedBytes);
+        reportedFileBytes = fileBytes;
+        reportedReleasedBytes = released;
+    }
 
+    /**
+     * 파일 끝쪽 페이지부터 앞쪽 빈 공간으로 이동 (최대 maxPages개)
+     *
+     * 이동 = extent 바이트 그대로 복사 (압축 해제 없음) → 디렉토리 재등록
+     * 읽기는 계속 진행 — 옛 자리는 다음 releaseFreedExtents() 전까지 재사용되지 않음
+     * 가장 뒤쪽 페이지가 들어갈 앞쪽 자리가 없으면 중단 (더 옮겨도 파일 끝은 줄지 않음)
+     *
+     * @return 이동한 페이지 수 — maxPages보다 작으면 더 옮길 페이지 없음
+     */
+    public int relocateTowardFront(int maxPages) {
+        synchronized (directoryLock) {
+            FileChannel ch = channel;
+            DirectFile direct = directFile;
+            PageDirectory dir = directory;
+            try {
+                releaseFreedExtents(ch, dir);
+                int moved = 0;
+                for (int pageId : dir.pageIdsByOffsetDescending()) {
+                    if (moved == maxPages) break;
+                    synchronized (stripeOf(pageId)) {
+                        long extent = dir.extentOf(pageId);
+                        long from = PageDirectory.offset(extent);
+                        int size = PageDirectory.storedSize(extent, pageSize);
+                        long to = dir.allocateBelow(size, from);
+                        if (to == PageDirectory.NO_OFFSET) break;
+
+                        byte[] bytes = new byte[size];
+                        boolean raw = PageDirectory.compressedLength(extent) == 0;
+                        if (raw && direct != null && DirectFile.isAligned(from)) {
+                            direct.read(from, bytes);
+                        } else {
+                            ChannelIo.readFully(ch, ByteBuffer.wrap(bytes), from);
+                        }
+                        writeImage(ch, raw ? direct : null, to, bytes);
+                        dir.register(ch, pageId, PageDirectory.extent(to, PageDirectory.compressedLength(extent)));
+                        moved++;
+                    }
+                }
+                engineMetrics.addCompactedPages(moved);
+                reportFileUsage(dir);
+                if (moved > 0) afterWrite(ch);
+                return moved;
+            } catch (ClosedByInterruptException e) {
+                reopenIfClosed(ch);
+                throw new RuntimeException("relocate interrupted", e);
+            } catch (IOException e) {
+                throw new RuntimeException("relocate failed", e);
+            }
+        }
+    }
+
+    /**
+     * 대체된 엔트리가 있으면 디렉토리 체인을 살아있는 엔트리 + 빈 구간 레코드로 재작성
+     * (체인 페이지도 앞쪽 빈 공간으로 옮겨짐 → 파일 끝 자르기를 막지 않음)
+     * @return 재작성 여부
+     */
+    public boolean compactDirectory() {
+        synchronized (directoryLock) {
+            FileChannel ch = channel;
+            PageDirectory dir = directory;
+            try {
+                releaseFreedExtents(ch, dir);
+                if (dir.staleEntryCount() == 0) return false;
+                dir.rewrite(ch);
+                reportFileUsage(dir);
+                return true;
+            } catch (ClosedByInterruptException e) {
+                reopenIfClosed(ch);
+                throw new RuntimeException("compactDirectory interrupted", e);
+            } catch (IOException e) {
+                throw new RuntimeException("compactDirectory failed", e);
+            }
+        }
+    }
+
+    /**
+     * 파일 끝에 붙은 빈 공간을 truncate
+     * MMAP 모드는 건너뜀 — 진행 중인 낙관적 읽기가 잘린 매핑 구간에 접근하면 SIGBUS
+     * (CHANNEL / DIRECT는 EOF 너머 읽기가 0으로 끝나고 검증 실패로 재시도)
+     * @return 줄어든 바이트 수
+     */
+    public long truncateFreeTail() {
+        if (options.getIoMode() == StorageOptions.IoMode.MMAP) return 0;
+        synchronized (directoryLock) {
+            FileChannel ch = channel;
+            PageDirectory dir = directory;
+            try {
+                releaseFreedExtents(ch, dir);
+                long reclaimed = dir.truncateTail(ch);
+                engineMetrics.addTruncatedBytes(reclaimed);
+                reportFileUsage(dir);
+                return reclaimed;
+            } catch (ClosedByInterruptException e) {
+                reopenIfClosed(ch);
+                throw new RuntimeException("truncate interrupted", e);
+            } catch (IOException e) {
+                throw new RuntimeException("truncate failed", e);
+            }
+        }
+    }
+
+    /**
+     * 재사용 대기 + 재사용 가능한 빈 공간 (bytes)
+     */
+    public long getFreeSpaceBytes() {
+        return directory.freeBytes();
+    }
+
+    /**
+     * FileChannel은 읽던 스레드가 interrupt되면 채널 자체가 닫힌다.
+     * 다른 스레드까지 실패하지 않도록 같은 파일로 채널을 다시 연다.
+     */
+    private void reopenIfClosed(FileChannel stale) {
+        long stamp = swapLock.writeLock();
+        try {
+            if (closed || channel != stale) return;
+            DirectFile direct = directFile;
+            if (stale.isOpen() && (direct == null || direct.isOpen())) return;
+            closeFiles();
+            openFile();
         } catch (IOException e) {
-            throw new RuntimeException("writePage failed: pageId=" + page.getPageId(), e);
+            throw new RuntimeException("reOpen failed", e);
+        } finally {
+            swapLock.unlockWrite(stamp);
         }
     }
 
+    @Override
     public void close() {
+        closed = true;
+        if (periodicSync != null) periodicSync.cancel(false);
+        synchronized (directoryLock) {
+            reportFileUsage(directory);
+        }
         try {
-            dbFile.close();
+            if (durability != StorageOptions.Durability.NONE && unsynced.getAndSet(false)) {
+                force(channel);
+            }
+            if (doubleWrite != null) {
+                // 정상 종료 → 데이터 파일에 다 있으므로 scratch는 비우고 삭제 (NONE이어도)
+                if (doubleWrite.size() > 0) force(channel);
+                doubleWrite.close();
+            }
+            closeFiles();
         } catch (IOException e) {
             throw new RuntimeException("close failed", e);
         }
     }
-    public void rebuild(DiskManagerLoader loader) {
-        String tempPath = filePath + ".new";
-        boolean dbFileClosed =  false;
+    /**
+     * 임시 파일(filePath + ".new")에 loader로 전체를 구축한 뒤 atomic rename으로 교체
+     * 구축 중에는 기존 파일로 계속 서비스
+     */
+    @Override
+    public void rebuild(PageStoreLoader loader) {
+        if (snapshot != null) throw new IllegalStateException("rebuild while a snapshot is open: " + filePath);
+        DiskManager tempDm = prepareRebuild();     // 1. 임시 파일에 새 DiskManager
         try {
-            // 1. 임시 파일에 새 DiskManager 생성
-            DiskManager tempDm = new DiskManager(tempPath, engineMetrics);
+            loader.load(tempDm);                    // 2. 데이터 구축 (기존 파일 살아있음)
+        } catch (RuntimeException e) {
+            abortRebuild(tempDm);
+            throw e;
+        }
+        commitRebuild(tempDm);
+    }
 
-            // 2. 임시 파일에 데이터 구축 (기존 파일 살아있음)
-            loader.load(tempDm);
+    /**
+     * rebuild 1단계 — 임시 파일에 새 DiskManager 생성
+     * 이전 크래시로 남은 임시 파일은 지우고 시작 (옛 내용이 새 파일에 섞이지 않게)
+     * SegmentedDiskManager는 세그먼트마다 이 단계만 먼저 열어두고 loader 하나로 채움
+     */
+    DiskManager prepareRebuild() {
+        try {
+            Files.deleteIfExists(Path.of(filePath + ".new"));
+        } catch (IOException e) {
+            throw new RuntimeException("DiskManager rebuild failed", e);
+        }
+        // 임시 파일은 double-write 없이 — 구축 중 크래시면 임시 파일째 버림
+        StorageOptions sameLayout = options.toBuilder().pageSize(pageSize).doubleWrite(false).build();
+        return new DiskManager(filePath + ".new", sameLayout, engineMetrics);
+    }
 
-            // 3. 임시 파일 닫기
+    /**
+     * 구축 실패 → 임시 파일 버림 (기존 파일은 그대로)
+     */
+    void abortRebuild(DiskManager tempDm) {
+        try {
             tempDm.close();
+        } catch (RuntimeException ignored) {
+        }
+        try {
+            Files.deleteIfExists(Path.of(tempDm.filePath));
+        } catch (IOException ignored) {
+        }
+    }
 
-            // 4. 기존 파일 닫기
-            dbFile.close();
-            dbFileClosed = true;
-
-            // 5. atomic rename
-            Files.move(
-                    Path.of(tempPath),
-                    Path.of(filePath),
-                    StandardCopyOption.ATOMIC_MOVE,
-                    StandardCopyOption.REPLACE_EXISTING
-            );
-
-            // 6. 새 파일 열기 + 내부 상태 교체
-            dbFile = new RandomAccessFile(filePath, "rw");
-            pageMap.clear();
-            entryIndex.clear();
-            entryCount     = 0;
-            nextDataOffset = DATA_OFFSET;
-            loadPageMap();
+    /**
+     * rebuild 2단계 — 임시 파일을 닫고 atomic rename으로 교체
+     */
+    void commitRebuild(DiskManager tempDm) {
+        String tempPath = tempDm.filePath;
+        boolean dbFileClosed =  false;
+        long stamp = 0L;
+        try {
+            // 3. 임시 파일 닫기 — NONE이 아니면 여기서 force (rename보다 데이터가 먼저 디스크에)
+            tempDm.close();
+
+            // 4~6은 directoryLock 안에서 (락 순서 directoryLock → swapLock)
+            synchronized (directoryLock) {
+                if (snapshot != null) {
+                    abortRebuild(tempDm);
+                    throw new IllegalStateException("rebuild while a snapshot is open: " + filePath);
+                }
+                // 4. 기존 파일 닫기 — 이 시점부터 readPage는 교체 완료까지 재시도
+                stamp = swapLock.writeLock();
+                closeFiles();
+                dbFileClosed = true;
+
+                // 5. atomic rename — 옛 파일 기준의 scratch 이미지는 새 파일에 복구되면 안 됨
+                if (doubleWrite != null) doubleWrite.reset();
+                Files.move(
+                        Path.of(tempPath),
+                        Path.of(filePath),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+
+                // 6. 새 파일 열기 + 내부 상태 교체
+                openFile();
+                loadDirectory();
+            }
+
+            // 7. rename을 디스크에 반영 — 안 하면 크래시 후 옛 파일이 다시 보일 수 있음
+            if (durability != StorageOptions.Durability.NONE) syncParentDirectory();
 
         } catch (IOException e) {
             try{
@@ -160,23 +1289,256 @@ public class DiskManager {
 
             if (dbFileClosed){
                 try{
-                dbFile = new RandomAccessFile(filePath, "rw");
+                openFile();
                 } catch (IOException reOpenEx) {
                     throw new RuntimeException("reOpen failed", reOpenEx);
                 }
             }
             throw new RuntimeException("DiskManager rebuild failed", e);
+        } finally {
+            if (stamp != 0L) swapLock.unlockWrite(stamp);
         }
     }
 
-    public int getUsedPageCount() {
-        return pageMap.size();
+    // -------------------------------------------------------------------------
+    // 찢어진 페이지 방지 — DoubleWriteBuffer
+    // -------------------------------------------------------------------------
+
+    /**
+     * double-write를 쓰면 writes를 scratch 파일에 배치 1개로 기록 + fsync
+     * @return true면 호출자가 제자리 쓰기를 마친 뒤 doubleWrite.complete() 호출
+     */
+    private boolean doubleWrite(List<PendingWrite> writes) throws IOException {
+        if (doubleWrite == null || writes.isEmpty()) return false;
+        if (doubleWrite.size() > MAX_DOUBLE_WRITE_BYTES) force(channel);
+        List<DoubleWriteBuffer.Record> records = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) records.add(new DoubleWriteBuffer.Record(write.pageId, write.extent, write.image));
+        doubleWrite.append(records);
+        return true;
     }
 
+    private void writeGuarded(FileChannel ch, PendingWrite write) throws IOException {
+        boolean guarded = doubleWrite(List.of(write));
+        try {
+            writeImage(ch, directFile, write.offset, write.image);
+        } finally {
+            if (guarded) doubleWrite.complete();
+        }
+    }
+
+    /**
+     * 열 때 — scratch에 남은 이미지의 자리를 검증해 찢어진 페이지를 복구
+     *   같은 자리에 여러 번 썼으면 마지막 이미지 기준 (scratch를 비우기 전에는 자리가 재사용되지 않음)
+     *   검증: 체크섬 있는 이미지 → 제자리 바이트가 압축 해제 + 체크섬 통과해야 정상
+     *         체크섬 없는 이미지 → 바이트가 같아야 정상
+     *   복구 후 force → scratch 비움
+     */
+    private void repairTornPages() throws IOException {
+        List<DoubleWriteBuffer.Record> records = doubleWrite.readRecords();
+        if (records.isEmpty()) return;
+        Map<Long, DoubleWriteBuffer.Record> latest = new HashMap<>();
+        for (DoubleWriteBuffer.Record record : records) latest.put(PageDirectory.offset(record.extent), record);
+
+        int repaired = 0;
+        for (DoubleWriteBuffer.Record record : latest.values()) {
+            long offset = PageDirectory.offset(record.extent);
+            byte[] onDisk = new byte[record.image.length];
+            ChannelIo.readFully(channel, ByteBuffer.wrap(onDisk), offset);
+            if (intact(onDisk, record)) continue;
+            ChannelIo.writeFully(channel, ByteBuffer.wrap(record.image), offset);
+            repaired++;
+        }
+        if (repaired > 0) force(channel);
+        doubleWrite.reset();
+        engineMetrics.addTornPagesRepaired(repaired);
+    }
+
+    private boolean intact(byte[] onDisk, DoubleWriteBuffer.Record record) {
+        byte[] expected = new byte[pageSize];
+        if (!decodeStored(record.image, record.extent, expected) || !PageLayout.hasChecksum(expected)) {
+            return Arrays.equals(onDisk, record.image);
+        }
+        byte[] data = new byte[pageSize];
+        return decodeStored(onDisk, record.extent, data)
+                && PageLayout.hasChecksum(data)
+                && PageLayout.verifyChecksum(data);
+    }
+
+    private boolean decodeStored(byte[] stored, long extent, byte[] data) {
+        int compressedLength = PageDirectory.compressedLength(extent);
+        if (compressedLength == 0) {
+            System.arraycopy(stored, 0, data, 0, pageSize);
+            return true;
+        }
+        return PageCodec.decompress(stored, 0, compressedLength, data);
+    }
 
-    @FunctionalInterface
-    public interface DiskManagerLoader {
-        void load(DiskManager dm);
+    // -------------------------------------------------------------------------
+    // 스냅샷 — DiskSnapshot
+    // -------------------------------------------------------------------------
+
+    /**
+     * 현재 시점의 읽기 전용 뷰 — 디렉토리 사본만 만들고 바로 반환 (페이지 복사 없음)
+     * directoryLock + swapLock 쓰기 락: 진행 중인 writePages / 비동기 제자리 write가 끝난 시점
+     * 한 번에 하나만 열 수 있음 (IllegalStateException)
+     */
+    @Override
+    public PageSnapshot openSnapshot() {
+        synchronized (directoryLock) {
+            if (closed) throw new IllegalStateException("DiskManager closed: " + filePath);
+            if (snapshot != null) throw new IllegalStateException("snapshot already open: " + filePath);
+            long stamp = swapLock.writeLock();
+            try {
+                PageDirectory dir = directory;
+                int[] pageIds = dir.pageIds();
+                Arrays.sort(pageIds);
+                long[] extents = new long[pageIds.length];
+                for (int i = 0; i < pageIds.length; i++) extents[i] = dir.extentOf(pageIds[i]);
+                DiskSnapshot opened = new DiskSnapshot(this, pageIds, extents);
+                snapshot = opened;
+                return opened;
+            } finally {
+                swapLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 스냅샷 종료 — 보류했던 빈 공간은 다음 sync() / compaction 때 재사용 가능해짐
+     */
+    void releaseSnapshot(DiskSnapshot closing) {
+        synchronized (directoryLock) {
+            if (snapshot == closing) snapshot = null;
+        }
+    }
+
+    /**
+     * offset 자리를 덮어쓰기 직전 — 스냅샷이 아직 그 자리의 옛 이미지를 읽어야 하면 먼저 보관
+     * 호출자가 pageId의 stripe 보유 (스냅샷 읽기와 배타)
+     */
+    private void copyOnWrite(FileChannel ch, int pageId, long offset) throws IOException {
+        DiskSnapshot snap = snapshot;
+        if (snap == null) return;
+        int index = snap.copyIndex(pageId, offset);
+        if (index < 0) return;
+        byte[] image = new byte[pageSize];
+        boolean decoded = readExtent(ch, mappedFile, directFile, snap.extentAt(index), image);
+        snap.preserve(pageId, decoded ? image : DiskSnapshot.UNDECODABLE);
+    }
+
+    /**
+     * 스냅샷 시점의 페이지 — 보관본이 있으면 보관본, 없으면 스냅샷 extent를 파일에서 읽음
+     * @param export true면 내보낸 것으로 표시 (이후 copy-on-write 생략, 보관본 해제)
+     */
+    Page readSnapshotPage(DiskSnapshot snap, int index, boolean export) {
+        int pageId = snap.pageIdAt(index);
+        Page page = new Page(pageId, pageSize);
+        engineMetrics.incrementPageReadCount();
+        boolean decoded;
+        while (true) {
+            FileChannel ch = channel;
+            try {
+                synchronized (stripeOf(pageId)) {
+                    if (snap.isExported(index)) {
+                        throw new IllegalStateException("page already exported from snapshot: pageId=" + pageId);
+                    }
+                    byte[] kept = snap.preservedImage(pageId);
+                    if (kept == null) {
+                        decoded = readExtent(ch, mappedFile, directFile, snap.extentAt(index), page.getData());
+                    } else {
+                        decoded = kept != DiskSnapshot.UNDECODABLE;
+                        if (decoded) System.arraycopy(kept, 0, page.getData(), 0, pageSize);
+                    }
+                    if (export) snap.markExported(index);
+                }
+                break;
+            } catch (ClosedChannelException e) {
+                // 다른 스레드의 interrupt로 닫힌 채널 → 복구 후 재시도 (rebuild 교체는 스냅샷이 막음)
+                reopenIfClosed(ch);
+                if (closed || e instanceof ClosedByInterruptException) {
+                    throw new RuntimeException("snapshot read failed: pageId=" + pageId, e);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("snapshot read failed: pageId=" + pageId, e);
+            }
+        }
+        verifyOnRead(page, decoded);
+        return page;
+    }
+
+    // -------------------------------------------------------------------------
+    // 내구성 — StorageOptions.Durability
+    // -------------------------------------------------------------------------
+
+    /**
+     * 데이터 파일 force + 지연 시간 기록 (메타데이터는 제외 — 파일 크기 변화는 디렉토리 엔트리가 기록)
+     * double-write: force 전까지 끝난 제자리 쓰기는 이제 디스크에 있음 → 그 사이 새로 끝난 배치가 없으면 scratch 비움
+     * → 데이터 파일 채널 전용 (다른 채널을 force해도 제자리 쓰기는 디스크에 없음, 디렉토리는 syncParentDirectory)
+     */
+    private void force(FileChannel ch) throws IOException {
+        long mark = doubleWrite != null ? doubleWrite.completedCount() : 0;
+        long start = System.nanoTime();
+        ch.force(false);
+        engineMetrics.recordFsync(System.nanoTime() - start);
+        if (doubleWrite != null) doubleWrite.resetIfIdle(mark);
+    }
+
+    /**
+     * 쓰기 1회(단일 페이지 / 배치)가 끝난 뒤 — SYNC_ON_FLUSH면 force, 나머지는 표시만
+     */
+    private void afterWrite(FileChannel ch) throws IOException {
+        if (durability == StorageOptions.Durability.SYNC_ON_FLUSH) {
+            force(ch);
+        } else {
+            unsynced.set(true);
+        }
+    }
+
+    private void syncAfterAsyncWrite(int pageId) {
+        FileChannel ch = channel;
+        try {
+            force(ch);
+        } catch (ClosedByInterruptException e) {
+            reopenIfClosed(ch);
+            throw new CompletionException(new RuntimeException("writePageAsync sync interrupted: pageId=" + pageId, e));
+        } catch (IOException e) {
+            throw new CompletionException(new RuntimeException("writePageAsync sync failed: pageId=" + pageId, e));
+        }
+    }
+
+    /**
+     * PERIODIC 스케줄러 작업 — 마지막 주기 이후 쓰기가 있었을 때만 force
+     * 실패(rebuild 교체 중 닫힌 채널 등)는 표시를 되돌려 다음 주기에 재시도
+     * (예외를 던지면 scheduleWithFixedDelay가 이후 실행을 취소함)
+     */
+    private void periodicSync() {
+        if (closed || !unsynced.getAndSet(false)) return;
+        try {
+            force(channel);
+        } catch (IOException | RuntimeException e) {
+            if (!closed) unsynced.set(true);
+        }
+    }
+
+    /**
+     * rename 결과(디렉토리 엔트리)를 디스크에 반영 — POSIX에서는 상위 디렉토리를 열어 fsync
+     * 디렉토리를 채널로 열 수 없는 플랫폼(Windows)은 건너뜀
+     * force() 헬퍼를 쓰지 않음 — 디렉토리 fsync는 데이터 파일의 제자리 쓰기를 디스크에 보내지 않으므로 scratch를 비우면 안 됨
+     */
+    private void syncParentDirectory() {
+        Path parent = Path.of(filePath).toAbsolutePath().getParent();
+        if (parent == null) return;
+        try (FileChannel dir = FileChannel.open(parent, StandardOpenOption.READ)) {
+            long start = System.nanoTime();
+            dir.force(true);
+            engineMetrics.recordFsync(System.nanoTime() - start);
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public int getUsedPageCount() {
+        return directory.size();
     }
 
 }
@@ -0,0 +1,136 @@
+package geoindex.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DiskManager 1개의 스냅샷 — 시점의 디렉토리 사본 + copy-on-write 보관본
+ *
+ * 페이지별 상태 (페이지 stripe 안에서만 바뀜 → 제자리 쓰기와 배타):
+ *   보관본 없음 → 스냅샷 extent가 아직 그대로 → 파일에서 읽음
+ *   보관본 있음 → 덮어쓰기 직전에 옮겨 둔 옛 이미지
+ *   exported    → copyTo가 내보냄 → 이후 덮어쓰기는 보관하지 않음, 보관본도 버림
+ *
+ * 재배치(압축 크기 증가 / compaction / writePagesAtomically)된 페이지는 보관하지 않음
+ *   → 옛 extent는 pendingFree에 남고, 스냅샷이 열려 있는 동안 DiskManager가 재사용하지 않음
+ */
+final class DiskSnapshot implements PageSnapshot {
+
+    static final byte[] UNDECODABLE = new byte[0];       // 보관 시점에 이미 압축 해제 불가였던 페이지
+
+    private final DiskManager owner;
+    private final int[] pageIds;                         // 오름차순
+    private final long[] extents;                        // pageIds[i]의 스냅샷 시점 extent
+    private final boolean[] exported;                    // stripe 안에서만 읽고 씀
+    private final ConcurrentHashMap<Integer, byte[]> preserved = new ConcurrentHashMap<>();
+    private boolean copied;
+    private volatile boolean closed;
+
+    DiskSnapshot(DiskManager owner, int[] pageIds, long[] extents) {
+        this.owner = owner;
+        this.pageIds = pageIds;
+        this.extents = extents;
+        this.exported = new boolean[pageIds.length];
+    }
+
+    @Override
+    public int[] getPageIds() {
+        return pageIds.clone();
+    }
+
+    @Override
+    public int getPageSize() {
+        return owner.getPageSize();
+    }
+
+    @Override
+    public Page readPage(int pageId) {
+        checkOpen();
+        int index = Arrays.binarySearch(pageIds, pageId);
+        if (index < 0) throw new IllegalArgumentException("page not in snapshot: pageId=" + pageId);
+        return owner.readSnapshotPage(this, index, false);
+    }
+
+    @Override
+    public void copyTo(PageStore target) {
+        checkOpen();
+        synchronized (this) {
+            if (copied) throw new IllegalStateException("snapshot already copied");
+            copied = true;
+        }
+        // 배치 = read-ahead run 크기 (4KB 페이지면 256개)
+        int batchSize = Math.max(1, (1 << 20) / owner.getPageSize());
+        List<Page> batch = new ArrayList<>(batchSize);
+        for (int index = 0; index < pageIds.length; index++) {
+            checkOpen();
+            batch.add(owner.readSnapshotPage(this, index, true));
+            if (batch.size() == batchSize) {
+                target.writePages(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) target.writePages(batch);
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        owner.releaseSnapshot(this);
+        preserved.clear();
+    }
+
+    @Override
+    public int getPreservedPageCount() {
+        return preserved.size();
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("snapshot closed");
+    }
+
+    // -------------------------------------------------------------------------
+    // DiskManager 전용 — 호출자가 pageId의 stripe 보유
+    // -------------------------------------------------------------------------
+
+    int pageIdAt(int index) {
+        return pageIds[index];
+    }
+
+    long extentAt(int index) {
+        return extents[index];
+    }
+
+    /**
+     * offset 자리를 덮어쓰기 전에 옛 이미지를 보관해야 하면 그 페이지의 index, 아니면 -1
+     * 스냅샷 extent가 다른 자리면 (스냅샷 이후 재배치됨) 그 자리는 재사용되지 않으므로 보관 불필요
+     */
+    int copyIndex(int pageId, long overwrittenOffset) {
+        if (closed) return -1;
+        int index = Arrays.binarySearch(pageIds, pageId);
+        boolean needed = index >= 0
+                && !exported[index]
+                && !preserved.containsKey(pageId)
+                && PageDirectory.offset(extents[index]) == overwrittenOffset;
+        return needed ? index : -1;
+    }
+
+    void preserve(int pageId, byte[] image) {
+        preserved.put(pageId, image);
+    }
+
+    byte[] preservedImage(int pageId) {
+        return preserved.get(pageId);
+    }
+
+    boolean isExported(int index) {
+        return exported[index];
+    }
+
+    void markExported(int index) {
+        exported[index] = true;
+        preserved.remove(pageIds[index]);
+    }
+}
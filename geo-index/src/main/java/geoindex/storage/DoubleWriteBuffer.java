@@ -0,0 +1,199 @@
+package geoindex.storage;
+
+import geoindex.metric.EngineMetrics;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * double-write 영역 — 데이터 파일 옆의 scratch 파일 (filePath + ".dwb")
+ *
+ * Why?
+ *   페이지 크기 write 도중 크래시 → 앞부분은 새 내용, 뒷부분은 옛 내용인 찢어진 페이지
+ *   체크섬은 찢어진 걸 알려줄 뿐 되살리지 못함 (옛 이미지도 새 이미지도 남아있지 않음)
+ *   → 제자리에 쓰기 전에 같은 이미지를 scratch 파일에 순차 기록 + fsync
+ *   → 크래시 후 열 때 제자리 이미지가 검증에 실패하면 scratch의 이미지로 복구
+ *
+ * 비용 (배치 단위):
+ *   writePages 1회 = scratch에 순차 write 1회 + fsync 1회 (페이지 수와 무관) → gathering write는 그대로
+ *   데이터 파일을 force할 때마다 scratch를 비움 — 그 시점까지의 제자리 쓰기는 이미 디스크에 있음
+ *
+ * 파일 구조 (배치를 이어 붙임, 비울 때 truncate):
+ *   [batch header 24B] magic(4) + generation(8) + recordCount(4) + payloadLength(4) + crc32c(4)
+ *   [record]           pageId(4) + extent(8) + length(4) + 기록한 바이트 (압축 extent는 자리 크기까지 채운 이미지)
+ *   crc 불일치 / 잘린 배치 = 제자리 쓰기가 시작되기 전에 죽은 배치 → 거기서 읽기 중단
+ *   generation: 비울 때마다 증가 → truncate가 디스크에 반영되기 전에 죽어서 남은 옛 꼬리는 무시
+ *
+ * 비우는 조건 (resetIfIdle):
+ *   force 시작 전에 읽은 completedCount == 지금 completedCount && 진행 중인 배치 없음
+ *   → force 이후에 끝난 제자리 쓰기가 있으면 그 배치가 필요하므로 비우지 않음 (다음 force 때)
+ *
+ * Why RandomAccessFile? (WriteAheadLog와 같은 이유) 쓰는 스레드가 interrupt돼도 파일이 닫히지 않음
+ */
+final class DoubleWriteBuffer {
+
+    static final int BATCH_MAGIC = 0x44574246;   // "DWBF"
+
+    private static final int BATCH_HEADER_SIZE  = 24;
+    private static final int RECORD_HEADER_SIZE = 16;
+
+    private final Path path;
+    private final RandomAccessFile file;
+    private final EngineMetrics engineMetrics;
+
+    // 모두 this 모니터
+    private long generation;
+    private long writePosition;
+    private int openBatches;          // scratch에는 기록했고 제자리 쓰기가 아직 진행 중인 배치
+    private long completedBatches;    // 제자리 쓰기까지 끝난 배치 수 (누적)
+
+    static final class Record {
+        final int pageId;
+        final long extent;            // 기록한 자리 (offset + 압축 길이)
+        final byte[] image;           // 제자리에 쓰는 바이트 그대로
+
+        Record(int pageId, long extent, byte[] image) {
+            this.pageId = pageId;
+            this.extent = extent;
+            this.image = image;
+        }
+    }
+
+    DoubleWriteBuffer(Path path, EngineMetrics engineMetrics) throws IOException {
+        this.path = path;
+        this.file = new RandomAccessFile(path.toFile(), "rw");
+        this.engineMetrics = engineMetrics;
+    }
+
+    static Path pathFor(String filePath) {
+        return Path.of(filePath + ".dwb");
+    }
+
+    /**
+     * 마지막으로 비운 뒤 기록된 배치의 레코드 — 기록 순서대로 (열 때 복구용)
+     * 읽은 뒤 append 위치는 마지막 정상 배치 뒤, generation은 그보다 큰 값
+     */
+    synchronized List<Record> readRecords() throws IOException {
+        List<Record> records = new ArrayList<>();
+        long length = file.length();
+        long position = 0;
+        long lastGeneration = -1;
+        while (position + BATCH_HEADER_SIZE <= length) {
+            byte[] header = new byte[BATCH_HEADER_SIZE];
+            file.seek(position);
+            file.readFully(header);
+            ByteBuffer h = ByteBuffer.wrap(header);
+            int magic = h.getInt();
+            long batchGeneration = h.getLong();
+            int count = h.getInt();
+            int payloadLength = h.getInt();
+            int crc = h.getInt();
+            if (magic != BATCH_MAGIC || batchGeneration < lastGeneration || count < 0 || payloadLength < 0
+                    || position + BATCH_HEADER_SIZE + payloadLength > length) {
+                break;
+            }
+            byte[] payload = new byte[payloadLength];
+            file.readFully(payload);
+            if (crc != crcOf(payload)) break;
+
+            ByteBuffer p = ByteBuffer.wrap(payload);
+            for (int i = 0; i < count; i++) {
+                int pageId = p.getInt();
+                long extent = p.getLong();
+                byte[] image = new byte[p.getInt()];
+                p.get(image);
+                records.add(new Record(pageId, extent, image));
+            }
+            lastGeneration = batchGeneration;
+            position += BATCH_HEADER_SIZE + payloadLength;
+        }
+        generation = lastGeneration + 1;
+        writePosition = position;
+        return records;
+    }
+
+    /**
+     * 배치 1개를 순차 write 1회 + fsync — 반환 후 호출자가 제자리 쓰기, 끝나면 complete()
+     */
+    synchronized void append(List<Record> records) throws IOException {
+        int payloadLength = 0;
+        for (Record record : records) payloadLength += RECORD_HEADER_SIZE + record.image.length;
+        ByteBuffer batch = ByteBuffer.allocate(BATCH_HEADER_SIZE + payloadLength);
+        batch.position(BATCH_HEADER_SIZE);
+        for (Record record : records) {
+            batch.putInt(record.pageId).putLong(record.extent).putInt(record.image.length).put(record.image);
+        }
+        byte[] bytes = batch.array();
+        int crc = crcOf(bytes, BATCH_HEADER_SIZE, payloadLength);
+        batch.clear();
+        batch.putInt(BATCH_MAGIC).putLong(generation).putInt(records.size()).putInt(payloadLength).putInt(crc);
+
+        file.seek(writePosition);
+        file.write(bytes);
+        long start = System.nanoTime();
+        file.getFD().sync();
+        engineMetrics.recordFsync(System.nanoTime() - start);
+        writePosition += bytes.length;
+        openBatches++;
+    }
+
+    synchronized void complete() {
+        openBatches--;
+        completedBatches++;
+    }
+
+    synchronized long completedCount() {
+        return completedBatches;
+    }
+
+    /**
+     * 데이터 파일 force 직후 — force 전에 읽은 mark 이후로 끝난 배치도, 진행 중인 배치도 없으면 비움
+     */
+    synchronized void resetIfIdle(long mark) throws IOException {
+        if (writePosition == 0 || openBatches > 0 || completedBatches != mark) return;
+        truncate();
+    }
+
+    /**
+     * 무조건 비움 — 복구를 마쳤거나 데이터 파일 자체가 교체될 때 (truncate까지 디스크에 반영)
+     */
+    synchronized void reset() throws IOException {
+        truncate();
+        file.getFD().sync();
+    }
+
+    synchronized long size() {
+        return writePosition;
+    }
+
+    /**
+     * 정상 종료 — 비어 있으면 파일도 삭제 (남은 배치가 있으면 다음 open에서 복구)
+     */
+    synchronized void close() throws IOException {
+        boolean empty = writePosition == 0;
+        file.close();
+        if (empty) Files.deleteIfExists(path);
+    }
+
+    private void truncate() throws IOException {
+        file.setLength(0);
+        writePosition = 0;
+        generation++;
+    }
+
+    private static int crcOf(byte[] bytes) {
+        return crcOf(bytes, 0, bytes.length);
+    }
+
+    private static int crcOf(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
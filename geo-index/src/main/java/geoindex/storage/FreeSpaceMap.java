@@ -0,0 +1,189 @@
+package geoindex.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 파일 안의 빈 구간 (offset → 길이) — 인접 구간은 항상 하나로 합쳐서 보관
+ *
+ * Why TreeMap?
+ *   할당은 "가장 앞쪽에 들어가는 구간" (first-fit) → 새 페이지와 compaction 이동이 파일 앞쪽을 채움
+ *   반납 시 앞뒤 구간과 합치려면 floor / ceiling 조회가 필요
+ *   빈 구간 수는 페이지 수보다 훨씬 적음 → 박싱 비용은 문제되지 않음
+ *
+ * released — 파일시스템에 돌려준(0으로 채운) 부분, 항상 빈 구간의 부분집합
+ *   할당 / 제외(remove)되면 그 부분도 released에서 빠짐 → 다시 채울 필요가 있는 곳만 남음
+ *
+ * 동시성:
+ *   변경은 PageDirectory 호출자(DiskManager)의 directoryLock 안에서만
+ *   totalBytes만 volatile → 메트릭 조회는 락 없음
+ */
+class FreeSpaceMap {
+
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+    private volatile long totalBytes;
+    private FreeSpaceMap released;     // 처음 markReleased 때 생성
+
+    /**
+     * [offset, offset + length) 반납 — 겹치거나 맞닿은 구간과 합침
+     */
+    void add(long offset, long length) {
+        if (length <= 0) return;
+        long start = offset;
+        long end = offset + length;
+
+        Map.Entry<Long, Long> floor = ranges.floorEntry(start);
+        if (floor != null && floor.getKey() + floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getKey() + floor.getValue());
+            removeRange(floor.getKey());
+        }
+        Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getKey() + next.getValue());
+            removeRange(next.getKey());
+            next = ranges.ceilingEntry(start);
+        }
+        putRange(start, end - start);
+    }
+
+    /**
+     * [offset, offset + length)를 빈 구간에서 제외 — 걸친 구간은 앞뒤로 잘라서 남김
+     */
+    void remove(long offset, long length) {
+        if (length <= 0) return;
+        if (released != null) released.remove(offset, length);
+        long end = offset + length;
+
+        Map.Entry<Long, Long> floor = ranges.floorEntry(offset);
+        Map.Entry<Long, Long> current = (floor != null && floor.getKey() + floor.getValue() > offset)
+                ? floor
+                : ranges.ceilingEntry(offset);
+        while (current != null && current.getKey() < end) {
+            long rangeStart = current.getKey();
+            long rangeEnd = rangeStart + current.getValue();
+            removeRange(rangeStart);
+            if (rangeStart < offset) putRange(rangeStart, offset - rangeStart);
+            if (rangeEnd > end) putRange(end, rangeEnd - end);
+            if (rangeEnd >= end) break;
+            current = ranges.ceilingEntry(rangeEnd);
+        }
+    }
+
+    /**
+     * first-fit — size 이상이고 limit 이전에 끝나는 가장 앞쪽 구간의 앞부분을 할당
+     * @return 할당한 offset, 없으면 PageTable.NO_VALUE
+     */
+    long allocate(long size, long limit) {
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            long offset = range.getKey();
+            if (offset + size > limit) break;
+            if (range.getValue() >= size) {
+                remove(offset, size);
+                return offset;
+            }
+        }
+        return PageTable.NO_VALUE;
+    }
+
+    /**
+     * 마지막 빈 구간 {offset, length}, 없으면 null
+     */
+    long[] last() {
+        Map.Entry<Long, Long> last = ranges.lastEntry();
+        return last == null ? null : new long[]{last.getKey(), last.getValue()};
+    }
+
+    /**
+     * 구간 목록 {offset, length} — offset 오름차순
+     */
+    List<long[]> ranges() {
+        List<long[]> result = new ArrayList<>(ranges.size());
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            result.add(new long[]{range.getKey(), range.getValue()});
+        }
+        return result;
+    }
+
+    /**
+     * 아직 파일시스템에 돌려주지 않은 부분 {offset, length} — minLength 이상인 빈 구간의 alignment 정렬 안쪽만
+     * (구간 양 끝의 정렬되지 않은 조각은 이웃 extent와 block을 공유하므로 제외)
+     */
+    List<long[]> unreleased(long minLength, int alignment) {
+        List<long[]> result = new ArrayList<>();
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            if (range.getValue() < minLength) continue;
+            long start = (range.getKey() + alignment - 1) / alignment * alignment;
+            long end = (range.getKey() + range.getValue()) / alignment * alignment;
+            if (released != null) {
+                Long from = released.ranges.floorKey(start);
+                for (Map.Entry<Long, Long> done : released.ranges.tailMap(from != null ? from : start).entrySet()) {
+                    if (done.getKey() >= end) break;
+                    if (done.getKey() > start) result.add(new long[]{start, done.getKey() - start});
+                    start = Math.max(start, done.getKey() + done.getValue());
+                }
+            }
+            if (end > start) result.add(new long[]{start, end - start});
+        }
+        return result;
+    }
+
+    /**
+     * [offset, offset + length) 중 빈 구간에 속한 부분을 released로 표시
+     */
+    void markReleased(long offset, long length) {
+        long end = offset + length;
+        Map.Entry<Long, Long> floor = ranges.floorEntry(offset);
+        Map.Entry<Long, Long> current = (floor != null && floor.getKey() + floor.getValue() > offset)
+                ? floor
+                : ranges.ceilingEntry(offset);
+        while (current != null && current.getKey() < end) {
+            long from = Math.max(offset, current.getKey());
+            long to = Math.min(end, current.getKey() + current.getValue());
+            if (released == null) released = new FreeSpaceMap();
+            released.add(from, to - from);
+            current = ranges.higherEntry(current.getKey());
+        }
+    }
+
+    /**
+     * released 구간 목록 {offset, length} — 빈 구간을 다시 계산할 때 옮겨 담기용
+     */
+    List<long[]> releasedRanges() {
+        return released == null ? List.of() : released.ranges();
+    }
+
+    long releasedBytes() {
+        return released == null ? 0 : released.totalBytes();
+    }
+
+    void addAll(FreeSpaceMap other) {
+        for (Map.Entry<Long, Long> range : other.ranges.entrySet()) add(range.getKey(), range.getValue());
+    }
+
+    void clear() {
+        ranges.clear();
+        totalBytes = 0;
+        released = null;
+    }
+
+    boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    long totalBytes() {
+        return totalBytes;
+    }
+
+    private void putRange(long offset, long length) {
+        ranges.put(offset, length);
+        totalBytes += length;
+    }
+
+    private void removeRange(long offset) {
+        Long length = ranges.remove(offset);
+        if (length != null) totalBytes -= length;
+    }
+}
@@ -0,0 +1,71 @@
+package geoindex.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 데이터 파일 읽기 전용 매핑 — chunk 단위로 나눠서 매핑
+ *
+ * Why chunk?
+ *   MappedByteBuffer 하나는 최대 2GB(int 인덱스)
+ *   파일이 커질 때마다 전체를 다시 매핑하면 비용이 파일 크기에 비례
+ *   → 고정 크기 chunk로 나누고, 커진 chunk만 다시 매핑
+ *
+ * chunk 겹침:
+ *   페이지 offset은 페이지 크기 정렬이 아님 (헤더 / 4KB 디렉토리 페이지 사이사이에 놓임)
+ *   → chunk i는 [i × chunkSize, (i+1) × chunkSize + pageSize) 구간을 매핑
+ *   → chunk 안에서 시작하는 페이지는 항상 chunk 하나에 통째로 들어감
+ *
+ * 쓰기는 FileChannel로 수행 → 같은 OS 페이지 캐시를 공유하므로 매핑에 바로 보임
+ */
+class MappedFile {
+
+    private final FileChannel channel;
+    private final long chunkSize;
+    private final int pageSize;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0]; // copy-on-write
+
+    MappedFile(FileChannel channel, long chunkSize, int pageSize) {
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * offset 위치의 페이지를 dst로 복사 — syscall 없이 메모리 복사
+     */
+    void read(long offset, byte[] dst) throws IOException {
+        int index = (int) (offset / chunkSize);
+        int local = (int) (offset - index * chunkSize);
+
+        MappedByteBuffer[] current = chunks;
+        MappedByteBuffer chunk = index < current.length ? current[index] : null;
+        if (chunk == null || chunk.limit() < local + dst.length) {
+            chunk = remap(index, local + dst.length);
+        }
+        chunk.get(local, dst, 0, dst.length);
+    }
+
+    /**
+     * 파일이 커져서 매핑 범위를 벗어남 → 해당 chunk만 현재 파일 크기 기준으로 다시 매핑
+     */
+    private synchronized MappedByteBuffer remap(int index, int required) throws IOException {
+        MappedByteBuffer[] current = chunks;
+        MappedByteBuffer chunk = index < current.length ? current[index] : null;
+        if (chunk != null && chunk.limit() >= required) return chunk; // 다른 스레드가 먼저 매핑
+
+        long base = index * chunkSize;
+        long size = Math.min(chunkSize + pageSize, channel.size() - base);
+        if (size < required) {
+            throw new IOException("mapped read beyond EOF: offset=" + (base + required));
+        }
+        chunk = channel.map(FileChannel.MapMode.READ_ONLY, base, size);
+
+        MappedByteBuffer[] next = Arrays.copyOf(current, Math.max(current.length, index + 1));
+        next[index] = chunk;
+        chunks = next;
+        return chunk;
+    }
+}
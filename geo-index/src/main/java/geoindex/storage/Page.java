@@ -2,28 +2,97 @@ package geoindex.storage;
 
 import java.nio.ByteBuffer;
 
+/**
+ * 페이지 크기는 데이터 파일마다 정해짐 (파일 헤더에 기록, StorageOptions.pageSize로 새 파일에 지정)
+ * PAGE_SIZE = 기본값이자 최소값 — 크기를 지정하지 않은 페이지 / 버전 2·3 파일
+ *
+ * 내용은 힙 byte[] 또는 외부 ByteBuffer 구간 (CacheManager OFF_HEAP frame)
+ *   PageLayout은 buffer()의 절대 위치 get / put만 사용 → 두 형태 모두 그대로 동작
+ *   getData()는 힙 페이지만 — 나머지는 copyData / copyFrom으로 복사
+ */
 public class Page {
     private final ByteBuffer buffer;
     public static final int PAGE_SIZE = 4096;
+    public static final int MAX_PAGE_SIZE = 64 * 1024;
     private final int pageId;
-    private final byte[] data;
+    private final byte[] data;        // 외부 구간 페이지면 null
     private volatile boolean dirty;
 
     public Page(int pageId) {
+        this(pageId, PAGE_SIZE);
+    }
+
+    public Page(int pageId, int pageSize) {
+        if (!isValidPageSize(pageSize)) {
+            throw new IllegalArgumentException("invalid page size: " + pageSize);
+        }
         this.pageId = pageId;
-        this.data = new byte[PAGE_SIZE];
+        this.data = new byte[pageSize];
         this.dirty = false;
         this.buffer = ByteBuffer.wrap(this.data);
     };
 
+    /**
+     * 외부 메모리 구간을 내용으로 쓰는 페이지 — 복사 없이 region을 그대로 읽고 씀
+     *
+     * @param region 위치 0부터 페이지 크기만큼 (capacity = 페이지 크기), 호출자가 수명 관리
+     */
+    public Page(int pageId, ByteBuffer region) {
+        if (!isValidPageSize(region.capacity())) {
+            throw new IllegalArgumentException("invalid page size: " + region.capacity());
+        }
+        this.pageId = pageId;
+        this.data = null;
+        this.dirty = false;
+        this.buffer = region;
+    }
+
+    /**
+     * 4KB ~ 64KB, 2의 거듭제곱 — 디렉토리 / 헤더 단위(4KB)의 배수라서 O_DIRECT 정렬이 유지됨
+     */
+    public static boolean isValidPageSize(int pageSize) {
+        return pageSize >= PAGE_SIZE && pageSize <= MAX_PAGE_SIZE && Integer.bitCount(pageSize) == 1;
+    }
+
     public int getPageId(){
         return pageId;
     }
 
+    public int getPageSize(){
+        return buffer.capacity();
+    }
+
     public byte[] getData(){
+        if (data == null) {
+            throw new UnsupportedOperationException("page has no heap array: pageId=" + pageId);
+        }
         return data;
     }
 
+    public boolean hasArray(){
+        return data != null;
+    }
+
+    /**
+     * 내용의 힙 복사본 — 디스크 기록용 이미지 (PageLayout.imageForWrite)
+     */
+    public byte[] copyData(){
+        byte[] copy = new byte[buffer.capacity()];
+        buffer.get(0, copy);
+        return copy;
+    }
+
+    /**
+     * source의 내용으로 덮어씀 — 크기가 같아야 함, dirty 상태는 그대로
+     */
+    public void copyFrom(Page source){
+        if (source.getPageSize() != getPageSize()) {
+            throw new IllegalArgumentException("page size mismatch: pageId=" + pageId
+                    + ", source=" + source.getPageSize() + ", target=" + getPageSize());
+        }
+        buffer.put(0, source.buffer, 0, getPageSize());
+    }
+
     public ByteBuffer buffer(){
         return buffer;
     }
@@ -0,0 +1,80 @@
+package geoindex.storage;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 페이지 압축 코덱 — StorageOptions.Compression.DEFLATE일 때 DiskManager가 사용
+ *
+ * Why Deflater?
+ *   병원 코드("H00001" ...)는 긴 공통 접두사, 슬롯 디렉토리는 규칙적인 8B 배열
+ *   빈 공간(freeSpaceStart 앞)은 0으로 채워져 있음 → 일반 LZ + 허프만으로 충분히 줄어듦
+ *   JDK 내장(zlib) → 의존성 추가 없음, BEST_SPEED로 읽기/쓰기 CPU 비용 최소화
+ *
+ * extent 크기:
+ *   압축 결과를 EXTENT_ALIGN(256B) 배수로 올림
+ *   → 다시 기록할 때 조금 커져도 같은 자리에 들어갈 여유 (재배치 + 디렉토리 엔트리 추가 감소)
+ *   남는 바이트는 0 — deflate 스트림은 끝을 스스로 표시하므로 뒤쪽은 무시됨
+ *   올림 후 페이지 크기 이상이면 압축 이득 없음 → 원본 페이지 그대로 저장
+ *
+ * Deflater / Inflater는 native 버퍼를 가짐 → 스레드마다 하나씩 재사용 (reset)
+ */
+final class PageCodec {
+
+    static final int EXTENT_ALIGN = 256;
+
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER =
+            ThreadLocal.withInitial(Inflater::new);
+
+    private PageCodec() {}
+
+    /**
+     * @return EXTENT_ALIGN 배수 길이의 압축 이미지, 압축해도 image 길이(페이지 크기) 미만이 안 되면 null
+     */
+    static byte[] compress(byte[] image) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(image);
+        deflater.finish();
+
+        byte[] out = new byte[image.length];
+        int length = 0;
+        while (!deflater.finished() && length < out.length) {
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        if (!deflater.finished()) return null;
+
+        int extentSize = (length + EXTENT_ALIGN - 1) / EXTENT_ALIGN * EXTENT_ALIGN;
+        return extentSize < image.length ? Arrays.copyOf(out, extentSize) : null;
+    }
+
+    /**
+     * src[offset, offset + length) → dst (페이지 크기)
+     * @return 스트림이 깨졌거나 길이가 dst 길이가 아니면 false (dst 내용은 의미 없음)
+     */
+    static boolean decompress(byte[] src, int offset, int length, byte[] dst) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(src, offset, length);
+        try {
+            byte[] probe = new byte[1];
+            int n = 0;
+            while (!inflater.finished()) {
+                // dst가 찼는데 스트림이 안 끝남 → trailer(adler32) 확인용 inflate, 출력이 더 나오면 길이 불일치
+                int inflated = n < dst.length
+                        ? inflater.inflate(dst, n, dst.length - n)
+                        : inflater.inflate(probe);
+                if (n == dst.length && inflated > 0) return false;
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) return false;
+                n += inflated;
+            }
+            return n == dst.length;
+        } catch (DataFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package geoindex.storage;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 백그라운드 compaction — 파일 끝쪽 페이지를 앞쪽 빈 공간으로 옮기고 파일 끝을 잘라냄
+ *
+ * Why?
+ *   빈 공간은 압축 페이지 재배치 등으로 파일 중간에 생기고, 새 페이지가 채우기 전까지는 낭비
+ *   지금까지는 rebuild()만 공간을 회수 → 전체 레코드를 loader로 다시 적재 + 캐시 전체가 cold
+ *   → 페이지 바이트만 옮기고 디렉토리를 다시 쓰면 캐시도 읽기도 그대로 유지
+ *
+ * 한 바퀴 (compactOnce):
+ *   1. relocateTowardFront — PAGES_PER_STEP씩 끊어서 이동 (단계마다 directoryLock을 놓음 → flush와 번갈아 진행)
+ *   2. compactDirectory    — 대체된 엔트리를 버리고 디렉토리 체인을 앞쪽으로 재작성
+ *   3. truncateFreeTail    — 파일 끝 빈 공간 truncate
+ *
+ * 부하 제한:
+ *   maxPagesPerSecond > 0이면 초당 이동 페이지 수 제한 (PageScrubber와 같은 방식)
+ *
+ * 결과: EngineMetrics.compactedPages / truncatedBytes, DiskManager.getFreeSpaceBytes()
+ */
+public class PageCompactor {
+
+    static final int PAGES_PER_STEP = 256;
+
+    private final DiskManager diskManager;
+    private final long maxPagesPerSecond;
+
+    private ScheduledExecutorService scheduler;
+
+    public PageCompactor(DiskManager diskManager, long maxPagesPerSecond) {
+        if (maxPagesPerSecond < 0) {
+            throw new IllegalArgumentException("maxPagesPerSecond must be >= 0: " + maxPagesPerSecond);
+        }
+        this.diskManager = diskManager;
+        this.maxPagesPerSecond = maxPagesPerSecond;
+    }
+
+    /**
+     * 한 바퀴 compaction
+     * @return 파일 끝에서 잘라낸 바이트 수
+     */
+    public long compactOnce() {
+        long start = System.nanoTime();
+        int moved = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int step = diskManager.relocateTowardFront(PAGES_PER_STEP);
+            moved += step;
+            if (step < PAGES_PER_STEP) break;
+            throttle(moved, start);
+        }
+        diskManager.compactDirectory();
+        return diskManager.truncateFreeTail();
+    }
+
+    /**
+     * 한 바퀴가 끝날 때마다 intervalMs 쉬고 다시 시작
+     */
+    public synchronized void start(long intervalMs) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "page-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    // -------------------------------------------------------------------------
+    // 내부
+    // -------------------------------------------------------------------------
+
+    /**
+     * 예외가 나가면 scheduleWithFixedDelay가 이후 실행을 멈춤 → 다음 주기에 다시 시도
+     * (rebuild 중 파일 교체, close 이후 등)
+     */
+    private void compactQuietly() {
+        try {
+            compactOnce();
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    private void throttle(int done, long startNanos) {
+        if (maxPagesPerSecond == 0) return;
+        long expectedNanos = done * 1_000_000_000L / maxPagesPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,724 @@
+package geoindex.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 페이지 디렉토리 — pageId → 파일 offset 매핑의 디스크 표현 + 메모리 인덱스
+ *
+ * Why 디렉토리 페이지 체인?
+ *   이전: 헤더에 MAX_ENTRIES(100,000) × 12 bytes 고정 예약
+ *     → 빈 파일도 1.2MB, 10만 페이지 넘으면 "pageMap full"
+ *   현재: 4KB 디렉토리 페이지를 데이터 영역에 필요할 때마다 할당하고 체인으로 연결
+ *     → 페이지 수 제한 없음, 헤더는 4KB 고정
+ *
+ * 파일 구조:
+ *   [0 ~ 4095]  파일 헤더
+ *                 0: magic (0x47454F44 "GEOD")
+ *                 4: format version
+ *                 8: 첫 디렉토리 페이지 offset
+ *                 16: 데이터 페이지 크기 (버전 4 — 이전 버전은 4KB)
+ *   [4096 ~ ]   데이터 페이지(pageSize) + 디렉토리 페이지(4KB) (할당 순서대로)
+ *
+ * 디렉토리 페이지 (4KB):
+ *   0:  다음 디렉토리 페이지 offset (-1 = 마지막)
+ *   8:  이 페이지의 엔트리 수
+ *   12: [pageId(4) + extent(8)] × DIR_CAPACITY(340)
+ *
+ * extent (8B):
+ *   하위 44bit = 파일 offset, 상위 20bit = 압축 extent 크기 (0 = 비압축 pageSize 페이지)
+ *   → 비압축 엔트리는 값이 offset 그대로 (버전 2 파일과 같은 표현)
+ *   같은 pageId의 엔트리가 다시 등록되면 (압축 크기 변화로 재배치) 나중 엔트리가 유효
+ *   압축 extent를 기록한 파일은 헤더 버전 3 — 버전 2만 아는 코드가 offset으로 오해하지 않게
+ *
+ * 페이지 크기 (헤더 버전 4):
+ *   데이터 페이지 크기는 파일마다 4KB ~ 64KB — 새 파일을 만들 때 정하고 헤더에 기록, 이후 바꾸지 않음
+ *   디렉토리 페이지 / 헤더는 항상 4KB → 디렉토리 포맷은 페이지 크기와 무관
+ *   버전 2·3 파일은 4KB 페이지로 읽음 (변환 없음)
+ *
+ * 디렉토리 extent:
+ *   디렉토리 페이지는 연속된 extent 단위로 예약 — 1, 2, 4, ... 64 페이지(256KB)로 두 배씩 증가
+ *   → 로드 시 물리적으로 이어진 디렉토리 페이지들을 한 번의 큰 read로 가져와서
+ *     ByteBuffer에서 바로 디코딩 (10만 페이지 ≈ 디렉토리 295페이지 ≈ read 10회)
+ *   예약했지만 쓰지 않은 디렉토리 공간은 재시작 시 버려짐 (최대 extent 1개)
+ *
+ * 빈 공간 (FreeSpaceMap):
+ *   같은 pageId가 다시 등록되면 이전 extent는 빈 공간 → 새 페이지 / compaction 이동에 재사용
+ *   바로 재사용하지 않고 pendingFree에 보류 → DiskManager가 force + 읽기 배리어 후 releasePending()
+ *   영속화: 로드 시 엔트리를 순서대로 재생하면서 "대체된 extent = 빈 공간"으로 다시 계산
+ *           rewrite()는 대체 이력을 버리므로 빈 구간을 FREE 레코드(pageId 자리에 FREE_ENTRY_ID)로 기록
+ *   파일 끝에 붙은 빈 구간은 truncateTail()로 잘라냄
+ *
+ * 원자적 배치 (registerBatch):
+ *   BATCH 레코드(pageId 자리에 BATCH_ENTRY_ID, extent 자리에 엔트리 수) + 엔트리 n개
+ *   로드 시 n개가 모두 있어야 적용 — 크래시로 체인 끝에서 잘린 배치는 통째로 버리고 그 extent는 빈 공간
+ *   → delta rebuild가 여러 페이지를 한 번에 교체 (일부만 새 버전인 체인이 보이지 않음)
+ *
+ * 메모리:
+ *   PageTable(pageId → extent) — primitive open addressing, 박싱 없음
+ *   로드 시 파일 크기로 엔트리 수 상한을 잡아 미리 할당 → 로드 중 resize 없음
+ *
+ * 동시성:
+ *   extentOf()  → 락 없음 (PageTable 낙관적 읽기)
+ *   allocate() / register() → 호출자(DiskManager)가 directoryLock을 잡고 호출
+ */
+class PageDirectory {
+
+    static final long NO_OFFSET = PageTable.NO_VALUE;
+
+    static final int  FILE_MAGIC      = 0x47454F44; // "GEOD"
+    static final int  FORMAT_VERSION  = 2;
+    static final int  FORMAT_VERSION_EXTENTS = 3;     // 압축 extent 엔트리 포함 가능
+    static final int  FORMAT_VERSION_PAGE_SIZE = 4;   // 헤더에 데이터 페이지 크기 기록 (압축 extent도 허용)
+    static final int  DIR_PAGE_SIZE   = Page.PAGE_SIZE; // 헤더 / 디렉토리 페이지 — 데이터 페이지 크기와 무관하게 4KB
+    static final long FILE_HEADER_SIZE = DIR_PAGE_SIZE;
+
+    private static final int HEADER_MAGIC     = 0;
+    private static final int HEADER_VERSION   = 4;
+    private static final int HEADER_FIRST_DIR = 8;
+    private static final int HEADER_PAGE_SIZE = 16;
+    private static final int HEADER_LENGTH    = 20;
+
+    private static final int DIR_NEXT    = 0;
+    private static final int DIR_COUNT   = 8;
+    private static final int DIR_ENTRIES = 12;
+    private static final int ENTRY_SIZE  = 12;                 // pageId(4) + offset(8)
+    static final int DIR_CAPACITY = (DIR_PAGE_SIZE - DIR_ENTRIES) / ENTRY_SIZE;
+
+    // 버전 1 포맷 (고정 헤더) — 열 때 버전 2로 변환
+    private static final int  LEGACY_MAX_ENTRIES = 100_000;
+    private static final long LEGACY_DATA_OFFSET = 4 + (long) LEGACY_MAX_ENTRIES * ENTRY_SIZE;
+
+    private static final int MAX_DIR_EXTENT_PAGES = 64;        // 256KB
+
+    static final int FREE_ENTRY_ID = Integer.MIN_VALUE + 1;   // 빈 구간 레코드 (페이지가 아님)
+    private static final int MAX_FREE_RECORD = 1 << 18;       // FREE 레코드 1개의 최대 길이 (256KB)
+    static final int BATCH_ENTRY_ID = Integer.MIN_VALUE + 2;  // 원자적 배치 시작 (extent 자리에 뒤따르는 엔트리 수)
+
+    private static final int  EXTENT_LENGTH_SHIFT = 44;
+    private static final long EXTENT_OFFSET_MASK  = (1L << EXTENT_LENGTH_SHIFT) - 1;
+
+    private final PageTable offsets;
+    private final int pageSize;     // 데이터 페이지 크기 (비압축 extent 크기)
+    private long firstDirOffset;
+    private int  version = FORMAT_VERSION;
+    private long tailDirOffset;     // 새 엔트리를 추가할 디렉토리 페이지
+    private int  tailDirCount;
+    private long nextDataOffset;
+
+    private long reservedDirOffset;  // 예약된 디렉토리 extent에서 다음에 쓸 위치
+    private int  reservedDirPages;   // 예약된 extent의 남은 페이지 수
+    private int  lastExtentPages;    // 마지막 extent 크기 → 다음 extent는 두 배
+
+    private int loadReadCount;       // 로드에 쓴 read 호출 수
+
+    private final FreeSpaceMap freeSpace = new FreeSpaceMap();    // 바로 할당 가능
+    private final FreeSpaceMap pendingFree = new FreeSpaceMap();  // 대체된 extent — releasePending() 전까지 보류
+    private final List<Long> dirPages = new ArrayList<>();        // 체인에 연결된 디렉토리 페이지
+    private int staleEntries;                                     // 다시 등록돼 무효가 된 엔트리 수
+
+    /**
+     * @param pageSize 데이터 페이지 크기 — 새 파일이면 헤더에 기록, 기존 파일이면 헤더 값과 같아야 함
+     *                 (readPageSize()로 먼저 확인)
+     */
+    PageDirectory(FileChannel ch, int pageSize) throws IOException {
+        this.pageSize = pageSize;
+        long fileSize = ch.size();
+        // 파일의 모든 4KB 블록이 페이지라고 가정한 상한 → 로드 중 resize 없음
+        this.offsets = new PageTable((int) Math.min(fileSize / DIR_PAGE_SIZE, 1 << 28));
+        if (fileSize == 0) {
+            version = FORMAT_VERSION_PAGE_SIZE;
+            initialize(ch);
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        ChannelIo.readFully(ch, header, 0);
+        if (header.getInt(HEADER_MAGIC) != FILE_MAGIC) {
+            requirePageSize(Page.PAGE_SIZE);
+            migrateLegacy(ch, header.getInt(0));
+            return;
+        }
+        version = header.getInt(HEADER_VERSION);
+        if (version < FORMAT_VERSION || version > FORMAT_VERSION_PAGE_SIZE) {
+            throw new IllegalStateException("unsupported format version: " + version);
+        }
+        requirePageSize(headerPageSize(header, version));
+        nextDataOffset = Math.max(FILE_HEADER_SIZE, fileSize);
+        firstDirOffset = header.getLong(HEADER_FIRST_DIR);
+        load(ch, firstDirOffset, fileSize);
+
+        // 디렉토리 페이지 / 잘린 파일 끝 너머는 빈 공간이 아님
+        for (long dirOffset : dirPages) freeSpace.remove(dirOffset, DIR_PAGE_SIZE);
+        freeSpace.remove(fileSize, Long.MAX_VALUE - fileSize);
+    }
+
+    /**
+     * 파일 헤더의 데이터 페이지 크기 — 디렉토리를 로드하기 전에 버퍼 풀 / 매핑 크기를 정할 때 사용
+     * 버전 1~3 파일은 4KB, 빈 파일 / 없는 파일은 newFilePageSize
+     */
+    static int readPageSize(Path path, int newFilePageSize) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) return newFilePageSize;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            ChannelIo.readFully(ch, header, 0);
+            if (header.getInt(HEADER_MAGIC) != FILE_MAGIC) return Page.PAGE_SIZE;
+            return headerPageSize(header, header.getInt(HEADER_VERSION));
+        }
+    }
+
+    private static int headerPageSize(ByteBuffer header, int version) {
+        if (version < FORMAT_VERSION_PAGE_SIZE) return Page.PAGE_SIZE;
+        int pageSize = header.getInt(HEADER_PAGE_SIZE);
+        if (!Page.isValidPageSize(pageSize)) {
+            throw new IllegalStateException("invalid page size in file header: " + pageSize);
+        }
+        return pageSize;
+    }
+
+    private void requirePageSize(int filePageSize) {
+        if (filePageSize != pageSize) {
+            throw new IllegalStateException("page size mismatch: file=" + filePageSize + ", expected=" + pageSize);
+        }
+    }
+
+    int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return extent 값 (offset(), compressedLength()로 해석), 없으면 NO_OFFSET
+     */
+    long extentOf(int pageId) {
+        return offsets.get(pageId);
+    }
+
+    /**
+     * 압축 extent를 기록하기 전 호출 — 헤더를 버전 3으로 올림 (한 번만 기록)
+     */
+    void enableExtents(FileChannel ch) throws IOException {
+        if (version >= FORMAT_VERSION_EXTENTS) return;
+        version = FORMAT_VERSION_EXTENTS;
+        writeHeader(ch, firstDirOffset, version);
+    }
+
+    // -------------------------------------------------------------------------
+    // extent 값 인코딩
+    // -------------------------------------------------------------------------
+
+    /**
+     * @param compressedLength 압축 extent 크기, 0 = 비압축 페이지
+     */
+    static long extent(long offset, int compressedLength) {
+        return ((long) compressedLength << EXTENT_LENGTH_SHIFT) | offset;
+    }
+
+    static long offset(long extent) {
+        return extent & EXTENT_OFFSET_MASK;
+    }
+
+    static int compressedLength(long extent) {
+        return (int) (extent >>> EXTENT_LENGTH_SHIFT);
+    }
+
+    /**
+     * 파일에서 차지하는 바이트 수 — 비압축 extent는 데이터 페이지 크기
+     */
+    static int storedSize(long extent, int pageSize) {
+        int length = compressedLength(extent);
+        return length == 0 ? pageSize : length;
+    }
+
+    int[] pageIds() {
+        return offsets.keys();
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    int getLoadReadCount() {
+        return loadReadCount;
+    }
+
+    /**
+     * size 바이트 예약 — 빈 공간 first-fit, 없으면 파일 끝 — directoryLock 보유 필수
+     * (압축 extent가 섞이면 이후 offset은 PAGE_SIZE 정렬이 아닐 수 있음)
+     */
+    long allocate(int size) {
+        long offset = freeSpace.allocate(size, Long.MAX_VALUE);
+        if (offset != NO_OFFSET) return offset;
+        offset = nextDataOffset;
+        nextDataOffset += size;
+        return offset;
+    }
+
+    /**
+     * limit 앞에서 끝나는 빈 공간에서만 할당 (compaction 이동용), 없으면 NO_OFFSET
+     */
+    long allocateBelow(int size, long limit) {
+        return freeSpace.allocate(size, limit);
+    }
+
+    boolean hasPendingFree() {
+        return !pendingFree.isEmpty();
+    }
+
+    /**
+     * 보류 중인 빈 공간을 할당 가능하게 — 호출자가 force + 읽기 배리어를 마친 뒤 호출
+     */
+    void releasePending() {
+        freeSpace.addAll(pendingFree);
+        pendingFree.clear();
+    }
+
+    long freeBytes() {
+        return freeSpace.totalBytes() + pendingFree.totalBytes();
+    }
+
+    /**
+     * 파일시스템에 돌려줄 빈 구간 — minLength 이상인 빈 구간의 blockSize 정렬 안쪽 중 아직 돌려주지 않은 부분
+     * (재사용 가능한 빈 공간만 — pendingFree는 아직 옛 디렉토리 엔트리가 가리킬 수 있음)
+     */
+    List<long[]> unreleasedFreeRanges(long minLength, int blockSize) {
+        return freeSpace.unreleased(minLength, blockSize);
+    }
+
+    void markReleased(long offset, long length) {
+        freeSpace.markReleased(offset, length);
+    }
+
+    /** 빈 공간 중 파일시스템에 돌려준 바이트 — 그 자리가 다시 할당되면 줄어듦 */
+    long releasedBytes() {
+        return freeSpace.releasedBytes();
+    }
+
+    /** 데이터 / 디렉토리가 차지하는 파일 끝 (예약 디렉토리 extent 포함) */
+    long fileEnd() {
+        return nextDataOffset;
+    }
+
+    int staleEntryCount() {
+        return staleEntries;
+    }
+
+    /**
+     * 데이터 페이지 pageId — 파일 offset 내림차순 (compaction은 파일 끝쪽 페이지부터 이동)
+     */
+    int[] pageIdsByOffsetDescending() {
+        int[] ids = offsets.keys();
+        long[] keyed = new long[ids.length];
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            keyed[i] = offset(offsets.get(ids[i]));
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> keyed[i]).reversed());
+        int[] sorted = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) sorted[i] = ids[order[i]];
+        return sorted;
+    }
+
+    /**
+     * 새 (pageId, extent) 엔트리를 디스크에 기록한 뒤 메모리에 공개 — directoryLock 보유 필수
+     */
+    void register(FileChannel ch, int pageId, long extent) throws IOException {
+        if (pageId == FREE_ENTRY_ID || pageId == BATCH_ENTRY_ID) {
+            throw new IllegalArgumentException("reserved pageId: " + pageId);
+        }
+        registerAll(ch, new int[]{pageId}, new long[]{extent}, 1);
+    }
+
+    /**
+     * 엔트리 여러 개를 한 번에 등록 — 디렉토리 페이지마다 엔트리 write 1회 + count write 1회
+     * 마지막 디렉토리 페이지가 꽉 차면 새 디렉토리 페이지를 할당해서 체인에 연결
+     */
+    void registerAll(FileChannel ch, int[] pageIds, long[] extents, int count) throws IOException {
+        appendEntries(ch, pageIds, extents, count);
+        publish(pageIds, extents, count);
+    }
+
+    /**
+     * 원자적 배치 등록 — BATCH 레코드 + 엔트리를 기록한 뒤 메모리에 공개
+     * 호출자는 앞서 extent 데이터를 force해 둬야 함 (엔트리가 먼저 디스크에 반영돼도 빈 extent를 가리키지 않게)
+     */
+    void registerBatch(FileChannel ch, int[] pageIds, long[] extents, int count) throws IOException {
+        if (count == 0) return;
+        for (int i = 0; i < count; i++) {
+            if (pageIds[i] == FREE_ENTRY_ID || pageIds[i] == BATCH_ENTRY_ID) {
+                throw new IllegalArgumentException("reserved pageId: " + pageIds[i]);
+            }
+        }
+        appendEntries(ch, new int[]{BATCH_ENTRY_ID}, new long[]{count}, 1);
+        appendEntries(ch, pageIds, extents, count);
+        publish(pageIds, extents, count);
+    }
+
+    /**
+     * 엔트리를 체인 끝 디렉토리 페이지에 기록 — 디렉토리 페이지마다 엔트리 write 1회 + count write 1회
+     */
+    private void appendEntries(FileChannel ch, int[] pageIds, long[] extents, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            if (tailDirCount == DIR_CAPACITY) {
+                long newDir = allocateDirPage();
+                writeEmptyDirPage(ch, newDir);
+                writeLong(ch, tailDirOffset + DIR_NEXT, newDir);
+                tailDirOffset = newDir;
+                tailDirCount = 0;
+            }
+
+            int n = Math.min(count - i, DIR_CAPACITY - tailDirCount);
+            ByteBuffer entries = ByteBuffer.allocate(n * ENTRY_SIZE);
+            for (int k = i; k < i + n; k++) {
+                entries.putInt(pageIds[k]).putLong(extents[k]);
+            }
+            entries.flip();
+            ChannelIo.writeFully(ch, entries, tailDirOffset + DIR_ENTRIES + (long) tailDirCount * ENTRY_SIZE);
+
+            tailDirCount += n;
+            writeInt(ch, tailDirOffset + DIR_COUNT, tailDirCount);
+            i += n;
+        }
+    }
+
+    private void publish(int[] pageIds, long[] extents, int count) {
+        for (int k = 0; k < count; k++) {
+            long previous = offsets.put(pageIds[k], extents[k]);
+            if (previous != NO_OFFSET) {
+                staleEntries++;
+                pendingFree.add(offset(previous), storedSize(previous, pageSize));
+            }
+            // 같은 자리 재등록 (압축 여부만 바뀜) → 방금 보류한 구간에서 다시 제외
+            pendingFree.remove(offset(extents[k]), storedSize(extents[k], pageSize));
+            freeSpace.remove(offset(extents[k]), storedSize(extents[k], pageSize));
+        }
+    }
+
+    /**
+     * 디렉토리 페이지 1개 할당 — 예약된 extent가 없으면 직전 extent의 두 배 크기로 새로 예약
+     */
+    private long allocateDirPage() {
+        if (reservedDirPages == 0) {
+            int extentPages = Math.min(Math.max(lastExtentPages * 2, 1), MAX_DIR_EXTENT_PAGES);
+            long extentBytes = (long) extentPages * DIR_PAGE_SIZE;
+            reservedDirOffset = freeSpace.allocate(extentBytes, Long.MAX_VALUE);
+            if (reservedDirOffset == NO_OFFSET) {
+                reservedDirOffset = nextDataOffset;
+                nextDataOffset += extentBytes;
+            }
+            reservedDirPages = extentPages;
+            lastExtentPages = extentPages;
+        }
+        long offset = reservedDirOffset;
+        reservedDirOffset += DIR_PAGE_SIZE;
+        reservedDirPages--;
+        dirPages.add(offset);
+        return offset;
+    }
+
+    // -------------------------------------------------------------------------
+    // compaction — 디렉토리 재작성 / 파일 끝 자르기 (directoryLock 보유 + releasePending() 후 호출)
+    // -------------------------------------------------------------------------
+
+    /**
+     * 디렉토리 체인 재작성 — 살아있는 엔트리 + FREE 레코드만 담은 새 체인으로 교체
+     *
+     * 순서:
+     *   1. 빈 공간 재계산 = [헤더 끝, 파일 끝) − 살아있는 extent − 기존 체인 / 예약 페이지
+     *      (재시작으로 버려진 예약 디렉토리 페이지 같은 누수도 여기서 회수)
+     *   2. 새 체인 페이지를 빈 공간 앞쪽부터 할당 → 엔트리 기록 → force
+     *   3. 파일 헤더의 첫 디렉토리 offset 교체 → force (이 쓰기가 전환 시점)
+     *   4. 기존 체인 페이지는 빈 공간으로 — 헤더가 디스크에 반영된 뒤라 덮어써도 안전
+     */
+    void rewrite(FileChannel ch) throws IOException {
+        int[] ids = offsets.keys();
+        long[] values = new long[ids.length];
+        List<long[]> used = new ArrayList<>(ids.length + dirPages.size() + 1);
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = offsets.get(ids[i]);
+            used.add(new long[]{offset(values[i]), storedSize(values[i], pageSize)});
+        }
+        FreeSpaceMap oldChain = new FreeSpaceMap();
+        for (long dirOffset : dirPages) oldChain.add(dirOffset, DIR_PAGE_SIZE);
+        if (reservedDirPages > 0) oldChain.add(reservedDirOffset, (long) reservedDirPages * DIR_PAGE_SIZE);
+        used.addAll(oldChain.ranges());
+        used.sort(Comparator.comparingLong(range -> range[0]));
+
+        FreeSpaceMap free = new FreeSpaceMap();
+        long cursor = FILE_HEADER_SIZE;
+        for (long[] range : used) {
+            if (range[0] > cursor) free.add(cursor, range[0] - cursor);
+            cursor = Math.max(cursor, range[0] + range[1]);
+        }
+        if (nextDataOffset > cursor) free.add(cursor, nextDataOffset - cursor);
+
+        // 새 체인 할당은 구간 앞부분을 떼어내므로 FREE 레코드 수가 늘지 않음 → 미리 계산한 값이 상한
+        int maxRecords = ids.length + freeRecordCount(free) + freeRecordCount(oldChain);
+        int chainPages = Math.max(1, (maxRecords + DIR_CAPACITY - 1) / DIR_CAPACITY);
+        long[] chain = new long[chainPages];
+        for (int p = 0; p < chainPages; p++) {
+            chain[p] = free.allocate(DIR_PAGE_SIZE, Long.MAX_VALUE);
+            if (chain[p] == NO_OFFSET) {
+                chain[p] = nextDataOffset;
+                nextDataOffset += DIR_PAGE_SIZE;
+            }
+        }
+        free.addAll(oldChain);
+
+        ByteBuffer entries = ByteBuffer.allocate(maxRecords * ENTRY_SIZE);
+        for (long[] range : free.ranges()) {
+            for (long start = range[0]; start < range[0] + range[1]; start += MAX_FREE_RECORD) {
+                int length = (int) Math.min(MAX_FREE_RECORD, range[0] + range[1] - start);
+                entries.putInt(FREE_ENTRY_ID).putLong(extent(start, length));
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            entries.putInt(ids[i]).putLong(values[i]);
+        }
+        int records = entries.position() / ENTRY_SIZE;
+
+        int lastCount = 0;
+        for (int p = 0; p < chainPages; p++) {
+            int from = p * DIR_CAPACITY;
+            int count = Math.max(0, Math.min(DIR_CAPACITY, records - from));
+            ByteBuffer dir = ByteBuffer.allocate(DIR_PAGE_SIZE);
+            dir.putLong(DIR_NEXT, p + 1 < chainPages ? chain[p + 1] : NO_OFFSET);
+            dir.putInt(DIR_COUNT, count);
+            dir.put(DIR_ENTRIES, entries.array(), from * ENTRY_SIZE, count * ENTRY_SIZE);
+            ChannelIo.writeFully(ch, dir, chain[p]);
+            lastCount = count;
+        }
+        ch.force(false);
+        writeHeader(ch, chain[0], version);
+        ch.force(false);
+
+        List<long[]> released = freeSpace.releasedRanges();
+        freeSpace.clear();
+        freeSpace.addAll(free);
+        for (long[] range : released) freeSpace.markReleased(range[0], range[1]);   // 새 체인 자리는 빠짐
+        dirPages.clear();
+        for (long dirOffset : chain) dirPages.add(dirOffset);
+        firstDirOffset = chain[0];
+        tailDirOffset = chain[chainPages - 1];
+        tailDirCount = lastCount;
+        reservedDirPages = 0;
+        lastExtentPages = Math.min(chainPages, MAX_DIR_EXTENT_PAGES);
+        staleEntries = 0;
+    }
+
+    /**
+     * 파일 끝에 붙은 빈 구간을 잘라냄
+     * @return 줄어든 바이트 수
+     */
+    long truncateTail(FileChannel ch) throws IOException {
+        long[] last = freeSpace.last();
+        if (last == null || last[0] + last[1] < nextDataOffset) return 0;
+
+        long newEnd = Math.max(last[0], FILE_HEADER_SIZE);
+        ch.truncate(newEnd);
+        freeSpace.remove(newEnd, nextDataOffset - newEnd);
+        long reclaimed = nextDataOffset - newEnd;
+        nextDataOffset = newEnd;
+        return reclaimed;
+    }
+
+    private static int freeRecordCount(FreeSpaceMap map) {
+        int count = 0;
+        for (long[] range : map.ranges()) count += (int) ((range[1] + MAX_FREE_RECORD - 1) / MAX_FREE_RECORD);
+        return count;
+    }
+
+    // -------------------------------------------------------------------------
+    // 로드 / 초기화
+    // -------------------------------------------------------------------------
+
+    private void initialize(FileChannel ch) throws IOException {
+        nextDataOffset = FILE_HEADER_SIZE;
+        long firstDir = allocateDirPage();
+        writeEmptyDirPage(ch, firstDir);
+        writeHeader(ch, firstDir, version);
+        firstDirOffset = firstDir;
+        tailDirOffset = firstDir;
+        tailDirCount = 0;
+    }
+
+    /**
+     * 디렉토리 체인 로드 — 물리적으로 이어진 디렉토리 페이지는 한 번의 read로 가져옴
+     *
+     * read 창 크기는 extent 성장 규칙(1, 2, 4, ... 64 페이지)을 따라감
+     * → 작은 extent를 읽을 때 뒤따르는 데이터 페이지까지 크게 읽어오지 않음
+     */
+    private void load(FileChannel ch, long firstDir, long fileSize) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(MAX_DIR_EXTENT_PAGES * DIR_PAGE_SIZE);
+        long windowStart = NO_OFFSET;
+        long windowEnd = NO_OFFSET;
+        long dirOffset = firstDir;
+        long prevDirOffset = NO_OFFSET;
+        int runPages = 0;
+        int batchRemaining = 0;                       // 진행 중인 배치에서 아직 못 읽은 엔트리 수
+        List<long[]> batch = new ArrayList<>();       // {pageId, extent} — 배치가 끝나야 적용
+        long batchDir = NO_OFFSET;                    // 진행 중인 배치의 BATCH 레코드 위치
+        int batchIndex = 0;
+        int batchDirPages = 0;                        // BATCH 레코드가 있는 페이지까지의 dirPages 수
+
+        while (true) {
+            if (dirOffset < windowStart || dirOffset + DIR_PAGE_SIZE > windowEnd) {
+                int windowPages = Math.min(1 << Math.min(loadReadCount, 6), MAX_DIR_EXTENT_PAGES);
+                long available = Math.max(DIR_PAGE_SIZE, fileSize - dirOffset);
+                window.clear();
+                window.limit((int) Math.min((long) windowPages * DIR_PAGE_SIZE, available));
+                ChannelIo.readFully(ch, window, dirOffset);
+                windowStart = dirOffset;
+                windowEnd = dirOffset + window.limit();
+                loadReadCount++;
+            }
+
+            int base = (int) (dirOffset - windowStart);
+            int count = window.getInt(base + DIR_COUNT);
+            dirPages.add(dirOffset);
+            for (int i = 0, p = base + DIR_ENTRIES; i < count; i++, p += ENTRY_SIZE) {
+                int pageId = window.getInt(p);
+                long extent = window.getLong(p + 4);
+                if (pageId == FREE_ENTRY_ID) {
+                    freeSpace.add(offset(extent), compressedLength(extent));
+                } else if (pageId == BATCH_ENTRY_ID) {
+                    batchRemaining = (int) extent;
+                    batch.clear();
+                    batchDir = dirOffset;
+                    batchIndex = i;
+                    batchDirPages = dirPages.size();
+                } else if (batchRemaining > 0) {
+                    batch.add(new long[]{pageId, extent});
+                    if (--batchRemaining == 0) {
+                        for (long[] entry : batch) replay((int) entry[0], entry[1]);
+                        batch.clear();
+                    }
+                } else {
+                    replay(pageId, extent);
+                }
+            }
+
+            runPages = (dirOffset == prevDirOffset + DIR_PAGE_SIZE) ? runPages + 1 : 1;
+            long next = window.getLong(base + DIR_NEXT);
+            if (next == NO_OFFSET) {
+                tailDirOffset = dirOffset;
+                tailDirCount = count;
+                if (batchRemaining > 0) discardTornBatch(ch, batch, batchDir, batchIndex, batchDirPages);
+                lastExtentPages = Math.min(runPages, MAX_DIR_EXTENT_PAGES);
+                return;
+            }
+            prevDirOffset = dirOffset;
+            dirOffset = next;
+        }
+    }
+
+    /**
+     * 크래시로 체인 끝에서 잘린 배치 → 적용하지 않고 체인을 BATCH 레코드 앞까지 되돌림
+     *
+     * 되돌리지 않으면 재시작 후 추가되는 일반 엔트리가 잘린 배치의 나머지로 읽힘
+     * 순서: next 포인터 끊기 → count 줄이기 → force
+     *   (count만 먼저 반영되고 크래시 나면 뒤 페이지의 배치 엔트리가 일반 엔트리로 적용됨)
+     * 배치의 새 extent와 BATCH 레코드 뒤에 이어 붙였던 디렉토리 페이지는 아무도 가리키지 않는 빈 공간
+     */
+    private void discardTornBatch(FileChannel ch, List<long[]> batch,
+                                  long batchDir, int batchIndex, int batchDirPages) throws IOException {
+        writeLong(ch, batchDir + DIR_NEXT, NO_OFFSET);
+        writeInt(ch, batchDir + DIR_COUNT, batchIndex);
+        ch.force(false);
+
+        for (long[] entry : batch) freeSpace.add(offset(entry[1]), storedSize(entry[1], pageSize));
+        while (dirPages.size() > batchDirPages) {
+            freeSpace.add(dirPages.remove(dirPages.size() - 1), DIR_PAGE_SIZE);
+        }
+        tailDirOffset = batchDir;
+        tailDirCount = batchIndex;
+    }
+
+    /**
+     * 엔트리는 기록 순서대로 재생 → 대체된 extent는 빈 공간, 새 extent는 사용 중
+     */
+    private void replay(int pageId, long extent) {
+        long previous = offsets.put(pageId, extent);
+        if (previous != NO_OFFSET) {
+            staleEntries++;
+            freeSpace.add(offset(previous), storedSize(previous, pageSize));
+        }
+        freeSpace.remove(offset(extent), storedSize(extent, pageSize));
+    }
+
+    /**
+     * 버전 1 파일 (엔트리 수 + 100,000 × 12 bytes 고정 헤더) → 버전 2로 변환
+     *   1. 기존 엔트리를 읽어서 새 디렉토리 페이지 체인을 파일 끝에 기록
+     *   2. 마지막에 파일 헤더(magic) 기록 → 이 쓰기가 변환 완료 시점
+     *   데이터 페이지는 기존 offset 그대로 유지 (1.2MB 헤더 영역은 사용 안 함)
+     */
+    private void migrateLegacy(FileChannel ch, int entryCount) throws IOException {
+        if (entryCount < 0 || entryCount > LEGACY_MAX_ENTRIES) {
+            throw new IllegalStateException("unknown file format: entryCount=" + entryCount);
+        }
+        if (entryCount == 0) {
+            // 페이지가 하나도 없던 파일 → 새 파일로 초기화
+            ch.truncate(0);
+            initialize(ch);
+            return;
+        }
+        ByteBuffer legacy = ByteBuffer.allocate(entryCount * ENTRY_SIZE);
+        ChannelIo.readFully(ch, legacy, 4);
+
+        nextDataOffset = Math.max(LEGACY_DATA_OFFSET, ch.size());
+        long firstDir = allocateDirPage();
+        writeEmptyDirPage(ch, firstDir);
+        tailDirOffset = firstDir;
+        tailDirCount = 0;
+        int[] pageIds = new int[entryCount];
+        long[] pageOffsets = new long[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            pageIds[i] = legacy.getInt(i * ENTRY_SIZE);
+            pageOffsets[i] = legacy.getLong(i * ENTRY_SIZE + 4);
+        }
+        registerAll(ch, pageIds, pageOffsets, entryCount);
+        writeHeader(ch, firstDir, version);
+        firstDirOffset = firstDir;
+    }
+
+    // -------------------------------------------------------------------------
+    // 저수준 기록
+    // -------------------------------------------------------------------------
+
+    private void writeHeader(FileChannel ch, long firstDir, int version) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(HEADER_MAGIC, FILE_MAGIC);
+        header.putInt(HEADER_VERSION, version);
+        header.putLong(HEADER_FIRST_DIR, firstDir);
+        header.putInt(HEADER_PAGE_SIZE, pageSize);
+        ChannelIo.writeFully(ch, header, 0);
+    }
+
+    private static void writeEmptyDirPage(FileChannel ch, long dirOffset) throws IOException {
+        ByteBuffer dir = ByteBuffer.allocate(DIR_PAGE_SIZE);
+        dir.putLong(DIR_NEXT, NO_OFFSET);
+        dir.putInt(DIR_COUNT, 0);
+        ChannelIo.writeFully(ch, dir, dirOffset);
+    }
+
+    private static void writeLong(FileChannel ch, long position, long value) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8);
+        buf.putLong(0, value);
+        ChannelIo.writeFully(ch, buf, position);
+    }
+
+    private static void writeInt(FileChannel ch, long position, int value) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        buf.putInt(0, value);
+        ChannelIo.writeFully(ch, buf, position);
+    }
+}
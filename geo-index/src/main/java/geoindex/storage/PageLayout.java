@@ -3,43 +3,109 @@ package geoindex.storage;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.zip.CRC32C;
+
+/**
+ * 페이지 헤더:
+ *   0-3   recordCount
+ *   4-7   freeSpaceStart
+ *   8-11  magic
+ *   12-15 overflowPageId
+ *   16-19 checksum (MAGIC_CHECKSUM 페이지만)
+ *
+ * magic이 헤더 버전을 겸함:
+ *   MAGIC_LEGACY   (0xCAFEBABE) → 16B 헤더, 체크섬 없음 — 기존 파일 그대로 읽기
+ *   MAGIC_CHECKSUM (0xCAFEBABF) → 20B 헤더, CRC32C — 새로 초기화하는 페이지
+ *   → 파일 전체를 변환하지 않아도 새 페이지부터 체크섬 보호
+ */
 public class PageLayout {
 
     public static final int OFFSET_RECORD_COUNT = 0;
     public static final int OFFSET_FREE_SPACE   = 4;
     public static final int OFFSET_MAGIC        = 8;
     public static final int OFFSET_OVERFLOW     = 12;
-    public static final int HEADER_SIZE         = 16;
+    public static final int OFFSET_CHECKSUM     = 16;
+    public static final int LEGACY_HEADER_SIZE  = 16;
+    public static final int HEADER_SIZE         = 20;
     public static final int SLOT_SIZE           = 8;
     public static final int NO_OVERFLOW         = -1;
 
+    public static final int MAGIC_LEGACY   = 0xCAFEBABE;
+    public static final int MAGIC_CHECKSUM = 0xCAFEBABF;
+
     private PageLayout() {}
 
     public static boolean isInitialized(Page page) {
-        return page.buffer().getInt(OFFSET_MAGIC) == 0xCAFEBABE;
+        int magic = page.buffer().getInt(OFFSET_MAGIC);
+        return magic == MAGIC_CHECKSUM || magic == MAGIC_LEGACY;
     }
 
     public static void initializePage(Page page) {
         setRecordCount(page, 0);
-        setFreeSpaceStart(page, Page.PAGE_SIZE);
+        setFreeSpaceStart(page, page.getPageSize());
         setOverflowPageId(page, NO_OVERFLOW);
-        page.buffer().putInt(OFFSET_MAGIC, 0xCAFEBABE);
+        page.buffer().putInt(OFFSET_MAGIC, MAGIC_CHECKSUM);
         page.markDirty();
     }
 
+    // -------------------------------------------------------------------------
+    // 체크섬 — DiskManager가 기록 직전 / 읽은 직후 원시 바이트에 대해 호출
+    // -------------------------------------------------------------------------
+
+    static boolean hasChecksum(byte[] data) {
+        return ByteBuffer.wrap(data).getInt(OFFSET_MAGIC) == MAGIC_CHECKSUM;
+    }
+
+    /**
+     * 체크섬 필드를 제외한 페이지 전체(4KB 페이지면 4092 bytes)의 CRC32C
+     */
+    static int computeChecksum(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, OFFSET_CHECKSUM);
+        crc.update(data, OFFSET_CHECKSUM + 4, data.length - OFFSET_CHECKSUM - 4);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 디스크에 쓸 이미지 — 페이지 복사본에 체크섬 기록
+     *
+     * Why 복사?
+     *   flush는 레코드 쓰기 락 밖에서 돌므로 계산 도중 페이지가 바뀔 수 있음
+     *   → 원본에 stamp하면 체크섬과 실제 기록 바이트가 어긋나 멀쩡한 페이지가 손상으로 판정
+     *   복사본은 체크섬과 내용이 항상 일치 (바뀐 내용은 dirty로 남아 다음 flush에서 기록)
+     */
+    static byte[] imageForWrite(Page page) {
+        byte[] image = page.copyData();
+        if (hasChecksum(image)) {
+            ByteBuffer.wrap(image).putInt(OFFSET_CHECKSUM, computeChecksum(image));
+        }
+        return image;
+    }
+
+    /**
+     * 체크섬 없는 페이지(레거시 / PageLayout 미사용 / 빈 페이지)는 항상 true
+     */
+    static boolean verifyChecksum(byte[] data) {
+        if (!hasChecksum(data)) return true;
+        return ByteBuffer.wrap(data).getInt(OFFSET_CHECKSUM) == computeChecksum(data);
+    }
+
+    private static int headerSize(Page page) {
+        return page.buffer().getInt(OFFSET_MAGIC) == MAGIC_LEGACY ? LEGACY_HEADER_SIZE : HEADER_SIZE;
+    }
+
     public static int writeRecord(Page page, byte[] value) {
         int recordCount    = getRecordCount(page);
         int freeSpaceStart = getFreeSpaceStart(page);
         int recordSize     = 4 + value.length;
         int newOffset      = freeSpaceStart - recordSize;
-        int slotDirEnd     = HEADER_SIZE + (recordCount + 1) * SLOT_SIZE;
+        int slotDirEnd     = headerSize(page) + (recordCount + 1) * SLOT_SIZE;
 
         if (newOffset < slotDirEnd) return -1;
 
         ByteBuffer buffer = page.buffer();
         buffer.putInt(newOffset, value.length);
-        System.arraycopy(value, 0, buffer.array(), newOffset + 4, value.length);
+        buffer.put(newOffset + 4, value);
 
         setSlot(page, recordCount, newOffset, recordSize);
         setRecordCount(page, recordCount + 1);
@@ -57,7 +123,7 @@ public class PageLayout {
         ByteBuffer buffer = page.buffer();
         int valueLength = buffer.getInt(offset);
         byte[] value = new byte[valueLength];
-        System.arraycopy(buffer.array(), offset + 4, value, 0, valueLength);
+        buffer.get(offset + 4, value);
         return value;
     }
 
@@ -98,12 +164,13 @@ public class PageLayout {
     }
 
     private static int getSlotOffset(Page page, int slotIndex) {
-        return page.buffer().getInt(HEADER_SIZE + slotIndex * SLOT_SIZE);
+        return page.buffer().getInt(headerSize(page) + slotIndex * SLOT_SIZE);
     }
 
     private static void setSlot(Page page, int slotIndex, int offset, int length) {
         ByteBuffer buffer = page.buffer();
-        buffer.putInt(HEADER_SIZE + slotIndex * SLOT_SIZE, offset);
-        buffer.putInt(HEADER_SIZE + slotIndex * SLOT_SIZE + 4, length);
+        int slotOffset = headerSize(page) + slotIndex * SLOT_SIZE;
+        buffer.putInt(slotOffset, offset);
+        buffer.putInt(slotOffset + 4, length);
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package geoindex.storage;
+
+import geoindex.metric.EngineMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 백그라운드 체크섬 검사기 — 파일 전체 페이지를 주기적으로 읽어 CRC32C 검증
+ *
+ * Why?
+ *   readPage 검증은 "읽히는 페이지"만 잡는다 → 거의 안 읽히는 페이지의 bit-rot은
+ *   그 페이지가 검색될 때까지 숨어 있음
+ *   → 노드를 빼지 않고 파일 전체를 훑어서 손상을 미리 찾고 rebuild 시점을 판단
+ *
+ * 부하 제한:
+ *   pageId 오름차순으로 순회 (sparse 파일에서도 결정적인 진행 순서)
+ *   maxPagesPerSecond > 0이면 초당 읽기 수 제한 → 서비스 읽기와 디스크 대역폭 경쟁 완화
+ *
+ * 결과:
+ *   getCorruptPageIds() — 마지막 한 바퀴에서 발견된 손상 페이지
+ *   EngineMetrics.scrubbedPages / checksumFailureCount
+ */
+public class PageScrubber {
+
+    private final DiskManager diskManager;
+    private final long maxPagesPerSecond;
+    private final EngineMetrics engineMetrics;
+    private final Set<Integer> corruptPageIds = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    public PageScrubber(DiskManager diskManager, long maxPagesPerSecond, EngineMetrics engineMetrics) {
+        if (maxPagesPerSecond < 0) {
+            throw new IllegalArgumentException("maxPagesPerSecond must be >= 0: " + maxPagesPerSecond);
+        }
+        this.diskManager = diskManager;
+        this.maxPagesPerSecond = maxPagesPerSecond;
+        this.engineMetrics = engineMetrics;
+    }
+
+    /**
+     * 한 바퀴 검사
+     * @return 이번 바퀴에서 손상으로 판정된 pageId (오름차순)
+     */
+    public List<Integer> scrubOnce() {
+        int[] pageIds = diskManager.getPageIds();
+        Arrays.sort(pageIds);
+
+        List<Integer> corrupt = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < pageIds.length; i++) {
+            if (Thread.currentThread().isInterrupted()) break;
+            if (!diskManager.verifyPage(pageIds[i])) corrupt.add(pageIds[i]);
+            engineMetrics.incrementScrubbedPages();
+            throttle(i + 1, start);
+        }
+
+        corruptPageIds.clear();
+        corruptPageIds.addAll(corrupt);
+        return corrupt;
+    }
+
+    /**
+     * 한 바퀴가 끝날 때마다 intervalMs 쉬고 다시 시작
+     */
+    public synchronized void start(long intervalMs) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "page-scrubber");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scrubQuietly, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    public Set<Integer> getCorruptPageIds() {
+        return Set.copyOf(corruptPageIds);
+    }
+
+    // -------------------------------------------------------------------------
+    // 내부
+    // -------------------------------------------------------------------------
+
+    /**
+     * 예외가 나가면 scheduleWithFixedDelay가 이후 실행을 멈춤 → 다음 주기에 다시 시도
+     * (rebuild 중 파일 교체, close 이후 등)
+     */
+    private void scrubQuietly() {
+        try {
+            scrubOnce();
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    private void throttle(int done, long startNanos) {
+        if (maxPagesPerSecond == 0) return;
+        long expectedNanos = done * 1_000_000_000L / maxPagesPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
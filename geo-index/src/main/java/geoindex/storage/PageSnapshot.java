@@ -0,0 +1,70 @@
+package geoindex.storage;
+
+import geoindex.metric.EngineMetrics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 저장소의 한 시점 읽기 전용 뷰 — 온라인 백업용 (PageStore.openSnapshot)
+ *
+ * Why copy-on-write?
+ *   파일을 통째로 복사하려면 쓰기를 멈춰야 함 (복사 도중 덮어쓴 페이지는 새 버전이 섞임)
+ *   → 스냅샷 시점의 디렉토리(pageId → extent)만 복사해 두고,
+ *     그 뒤 제자리 덮어쓰기가 일어나는 페이지만 덮어쓰기 직전에 옛 이미지를 보관
+ *   → 검색 / put / flush는 멈추지 않음, 보관 비용은 "스냅샷 이후 바뀐 페이지 수"만큼
+ *
+ * 사용:
+ *   try (PageSnapshot snapshot = store.openSnapshot()) {
+ *       snapshot.writeTo("backup.db", new EngineMetrics());   // 또는 copyTo(다른 PageStore)
+ *   }
+ *
+ * 스냅샷이 열려 있는 동안:
+ *   재배치로 버려진 extent는 재사용하지 않음 (스냅샷이 옛 자리를 계속 읽음) → close 후 다음 sync()부터 회수
+ *   rebuild는 IllegalStateException (파일 자체가 교체됨)
+ */
+public interface PageSnapshot extends AutoCloseable {
+
+    /** 스냅샷 시점에 디렉토리에 있던 pageId — 오름차순 */
+    int[] getPageIds();
+
+    int getPageSize();
+
+    /**
+     * 스냅샷 시점의 페이지 — 스냅샷에 없던 pageId는 IllegalArgumentException
+     * copyTo로 이미 내보낸 페이지는 보관본을 버렸으므로 IllegalStateException
+     */
+    Page readPage(int pageId);
+
+    /**
+     * 스냅샷 전체를 pageId 순서로 target에 기록 (writePages 배치)
+     * 내보낸 페이지는 더 이상 copy-on-write 대상이 아님 → 보관 메모리가 복사 진행에 따라 줄어듦
+     * 한 번만 호출 가능
+     */
+    void copyTo(PageStore target);
+
+    /**
+     * 스냅샷을 새 데이터 파일 하나로 기록 — 같은 페이지 크기의 DiskManager로 열 수 있는 백업
+     * 이미 있는 파일에는 쓰지 않음 (IllegalArgumentException)
+     */
+    default void writeTo(String backupPath, EngineMetrics engineMetrics) {
+        if (Files.exists(Path.of(backupPath))) {
+            throw new IllegalArgumentException("backup file already exists: " + backupPath);
+        }
+        StorageOptions options = StorageOptions.builder().pageSize(getPageSize()).build();
+        DiskManager backup = new DiskManager(backupPath, options, engineMetrics);
+        try {
+            copyTo(backup);
+            backup.sync();
+        } finally {
+            backup.close();
+        }
+    }
+
+    /** 보관 중인 옛 이미지 수 — 스냅샷 이후 제자리로 덮어썼고 아직 내보내지 않은 페이지 */
+    int getPreservedPageCount();
+
+    /** 보관한 옛 이미지를 버리고 빈 공간 재사용 / rebuild를 다시 허용 */
+    @Override
+    void close();
+}
@@ -0,0 +1,65 @@
+package geoindex.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 페이지 저장소 — CacheManager가 의존하는 디스크 계층 계약
+ *
+ * 구현:
+ *   DiskManager          → 파일 1개 (채널 1개, 디렉토리 1개)
+ *   SegmentedDiskManager → pageId 구간마다 세그먼트 파일 (세그먼트마다 DiskManager)
+ *
+ * Why 인터페이스?
+ *   CacheManager / SpatialRecordManager는 파일이 몇 개인지 알 필요 없음
+ *   → 단일 파일과 세그먼트 저장소를 생성자 주입만 바꿔서 교체
+ */
+public interface PageStore {
+
+    /** 없는 페이지는 0으로 채운 빈 페이지 */
+    Page readPage(int pageId);
+
+    /** [startPageId, endPageId] — pageId 오름차순, 구간 길이만큼 */
+    List<Page> readPages(int startPageId, int endPageId);
+
+    void writePage(Page page);
+
+    /** readPage의 비동기판 — 실패는 future의 예외로 전달 */
+    CompletableFuture<Page> readPageAsync(int pageId);
+
+    /** readPages의 비동기판 */
+    CompletableFuture<List<Page>> readPagesAsync(int startPageId, int endPageId);
+
+    /** writePage의 비동기판 — 완료 시점에 readPage가 새 내용을 봄 */
+    CompletableFuture<Void> writePageAsync(Page page);
+
+    /** 일괄 기록 — CacheManager.flush() */
+    void writePages(Collection<Page> pages);
+
+    /** 크래시가 나도 전부 옛 버전이거나 전부 새 버전 — delta rebuild */
+    void writePagesAtomically(Collection<Page> pages);
+
+    /** 지금까지 쓴 페이지와 디렉토리를 디스크에 강제 기록 */
+    void sync();
+
+    /** 임시 저장소에 loader로 전체를 다시 구축한 뒤 교체 */
+    void rebuild(PageStoreLoader loader);
+
+    int[] getPageIds();
+
+    int getUsedPageCount();
+
+    /** 현재 시점의 읽기 전용 뷰 — 이후 쓰기는 copy-on-write로 스냅샷에 보이지 않음 (온라인 백업) */
+    PageSnapshot openSnapshot();
+
+    /** 데이터 페이지 크기 — 파일(세그먼트) 헤더에 기록된 값, 이 크기가 아닌 Page를 쓰면 IllegalArgumentException */
+    int getPageSize();
+
+    void close();
+
+    @FunctionalInterface
+    interface PageStoreLoader {
+        void load(PageStore store);
+    }
+}
@@ -0,0 +1,245 @@
+package geoindex.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * pageId → long primitive open addressing 해시 테이블
+ *
+ * Why HashMap<Integer, Long>을 대체?
+ *   엔트리마다 Integer + Long + Node 객체 3개 → 수백만 페이지면 수백 MB + GC 부담
+ *   → int[] keys + long[] values 두 배열에 linear probing
+ *
+ * 동시성:
+ *   get   → StampedLock 낙관적 읽기 (락 없음), 검증 실패 시에만 읽기 락
+ *   put / remove → 쓰기 락 (디렉토리 변경은 드물다)
+ *   keys / values는 Table 하나로 묶어 volatile 필드 하나로 교체 (resize / clear)
+ *     → 낙관적 읽기가 새 keys와 옛 values를 짝지어 길이가 어긋난 배열을 읽는 일이 없음
+ *        (같은 Table 안의 제자리 수정은 값이 틀릴 수 있을 뿐 → validate에서 걸러짐)
+ *
+ * remove는 tombstone 대신 backward shift — 삭제가 잦아도 probe 길이가 늘지 않음
+ */
+class PageTable {
+
+    static final long NO_VALUE = -1L;
+
+    private static final int   EMPTY_KEY        = Integer.MIN_VALUE;
+    private static final int   MIN_CAPACITY     = 16;
+    private static final float MAX_LOAD_FACTOR  = 0.6f;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private int size;
+
+    /** 두 배열은 항상 같은 길이 — 통째로 교체해서 공개 */
+    private static final class Table {
+        final int[]  keys;
+        final long[] values;
+
+        Table(int capacity) {
+            this.keys = new int[capacity];
+            Arrays.fill(keys, EMPTY_KEY);
+            this.values = new long[capacity];
+        }
+    }
+
+    PageTable() {
+        this(MIN_CAPACITY);
+    }
+
+    PageTable(int expectedSize) {
+        this.table = new Table(tableSizeFor((int) Math.ceil(expectedSize / MAX_LOAD_FACTOR) + 1));
+    }
+
+    long get(int key) {
+        long stamp = lock.tryOptimisticRead();
+        long value = probe(table, key);
+        if (lock.validate(stamp)) return value;
+
+        stamp = lock.readLock();
+        try {
+            return probe(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * @return 이전 값, 없으면 NO_VALUE
+     */
+    long put(int key, long value) {
+        if (key == EMPTY_KEY) throw new IllegalArgumentException("reserved pageId: " + key);
+        long stamp = lock.writeLock();
+        try {
+            if (size + 1 > table.keys.length * MAX_LOAD_FACTOR) resize(table.keys.length << 1);
+
+            int[] keys = table.keys;
+            long[] values = table.values;
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (keys[index] != EMPTY_KEY) {
+                if (keys[index] == key) {
+                    long previous = values[index];
+                    values[index] = value;
+                    return previous;
+                }
+                index = (index + 1) & mask;
+            }
+            values[index] = value;
+            keys[index] = key;
+            size++;
+            return NO_VALUE;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return 삭제된 값, 없으면 NO_VALUE
+     */
+    long remove(int key) {
+        long stamp = lock.writeLock();
+        try {
+            int[] keys = table.keys;
+            long[] values = table.values;
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (keys[index] != key) {
+                if (keys[index] == EMPTY_KEY) return NO_VALUE;
+                index = (index + 1) & mask;
+            }
+            long removed = values[index];
+
+            // backward shift: 뒤따르는 클러스터를 빈 칸으로 당겨서 probe 체인 유지
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (keys[next] != EMPTY_KEY) {
+                int home = mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY_KEY;
+            size--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (lock.validate(stamp)) return current;
+
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(MIN_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 읽기 락을 잡은 채로 전체 순회 — 순서 보장 없음
+     */
+    void forEach(EntryConsumer consumer) {
+        long stamp = lock.readLock();
+        try {
+            int[] keys = table.keys;
+            long[] values = table.values;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY_KEY) consumer.accept(keys[i], values[i]);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 현재 키 스냅샷 — 순서 없음
+     */
+    int[] keys() {
+        long stamp = lock.readLock();
+        try {
+            int[] result = new int[size];
+            int n = 0;
+            for (int key : table.keys) {
+                if (key != EMPTY_KEY) result[n++] = key;
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(int key, long value);
+    }
+
+    // -------------------------------------------------------------------------
+    // 내부
+    // -------------------------------------------------------------------------
+
+    private static long probe(Table table, int key) {
+        int[] keys = table.keys;
+        long[] values = table.values;
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        // 낙관적 읽기 중 배열이 바뀌어도 무한 루프에 빠지지 않도록 길이로 제한
+        for (int i = 0; i < keys.length; i++) {
+            int k = keys[index];
+            if (k == key) return values[index];
+            if (k == EMPTY_KEY) return NO_VALUE;
+            index = (index + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = table.keys;
+        long[] oldValues = table.values;
+        Table resized = new Table(capacity);
+        int[] newKeys = resized.keys;
+        long[] newValues = resized.values;
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY_KEY) continue;
+            int index = mix(oldKeys[i]) & mask;
+            while (newKeys[index] != EMPTY_KEY) index = (index + 1) & mask;
+            newKeys[index] = oldKeys[i];
+            newValues[index] = oldValues[i];
+        }
+        // Table을 통째로 교체 → 낙관적 읽기는 옛 Table(같은 길이의 두 배열)을 끝까지 보고 validate에서 걸러짐
+        table = resized;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, n - 1)) << 1;
+        return Math.max(MIN_CAPACITY, capacity);
+    }
+}
@@ -0,0 +1,541 @@
+package geoindex.storage;
+
+import geoindex.metric.EngineMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * pageId 구간별 세그먼트 파일 저장소 — 세그먼트마다 DiskManager (채널 / 디렉토리 / 락 따로)
+ *
+ * Why?
+ *   DiskManager 1개 = 파일 디스크립터 1개 + directoryLock 1개
+ *     → 서로 다른 Hilbert 구간의 flush도 directoryLock 하나에 직렬화
+ *     → rebuild는 큰 파일 하나를 통째로 다시 만들고 rename (전부 아니면 전무)
+ *   세그먼트 = [k × segmentPages, (k + 1) × segmentPages) 구간의 페이지만 담는 파일
+ *     → 다른 세그먼트의 읽기 / 쓰기는 락을 공유하지 않음
+ *     → rebuildSegments()로 일부 세그먼트만 다시 만들고 세그먼트마다 atomic rename
+ *
+ * 파일 이름: basePath + ".seg00000" (세그먼트 번호 5자리)
+ *   생성자에서 이미 있는 세그먼트 파일을 모두 열고, 없는 세그먼트는 첫 쓰기 때 생성
+ *   없는 세그먼트의 페이지 읽기 → 빈 페이지 (DiskManager와 같은 동작)
+ *   페이지 크기는 모든 세그먼트가 같음 — 기존 세그먼트가 있으면 그 헤더 값, 없으면 options.pageSize
+ *
+ * 병렬 처리:
+ *   writePages / writePagesAtomically / sync → 세그먼트별로 나눠서 I/O 스레드 풀에서 동시에 진행
+ *   readPage / readPages                     → 호출 스레드에서 해당 세그먼트로 바로 위임
+ *                                              (세그먼트 사이에 공유하는 락이 없으므로 스레드끼리 병렬)
+ *   readPagesAsync / writePageAsync          → 세그먼트 DiskManager의 비동기 채널로 위임
+ *
+ * 원자성:
+ *   writePagesAtomically는 세그먼트 단위로 원자적 — 여러 세그먼트에 걸친 배치는 세그먼트마다 전환
+ *   (overflow 체인이 다른 세그먼트에 있으면 크래시 시 세그먼트 하나만 새 버전일 수 있음)
+ *
+ * 스냅샷:
+ *   openSnapshot은 쓰기 락으로 모든 쓰기를 잠깐 막고 세그먼트마다 DiskManager.openSnapshot
+ *   (디렉토리 사본만 만드는 짧은 구간) → 여러 세그먼트에 걸친 flush도 전부 전 / 전부 후로 보임
+ *   쓰기 경로는 읽기 락 — 쓰기끼리는 서로 막지 않음
+ *
+ * PageScrubber / PageCompactor는 getSegments()의 DiskManager마다 따로 붙임
+ */
+public class SegmentedDiskManager implements PageStore {
+
+    private static final int IO_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private final String basePath;
+    private final int segmentPages;
+    private final StorageOptions options;
+    private final int pageSize;                        // 모든 세그먼트 공통 (첫 세그먼트 헤더 또는 options)
+    private final EngineMetrics engineMetrics;
+    private final ConcurrentHashMap<Integer, DiskManager> segments = new ConcurrentHashMap<>();
+    private final IntFunction<DiskManager> opener;     // 세그먼트 번호 → 새 DiskManager
+    private final ExecutorService ioPool;
+    private final boolean ownsPool;
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock(); // 쓰기 = 읽기 락, openSnapshot = 쓰기 락
+
+    public SegmentedDiskManager(String basePath, int segmentPages, EngineMetrics engineMetrics) {
+        this(basePath, segmentPages, StorageOptions.DEFAULT, engineMetrics);
+    }
+
+    public SegmentedDiskManager(String basePath, int segmentPages, StorageOptions options, EngineMetrics engineMetrics) {
+        if (segmentPages <= 0) {
+            throw new IllegalArgumentException("segmentPages must be > 0: " + segmentPages);
+        }
+        this.basePath = basePath;
+        this.segmentPages = segmentPages;
+        this.engineMetrics = engineMetrics;
+        int[] existing = existingSegments(basePath);
+        try {
+            // 기존 세그먼트가 있으면 그 헤더의 페이지 크기로 새 세그먼트도 만듦
+            this.pageSize = existing.length == 0
+                    ? options.getPageSize()
+                    : PageDirectory.readPageSize(Path.of(segmentPath(basePath, existing[0])), options.getPageSize());
+        } catch (IOException e) {
+            throw new RuntimeException("SegmentedDiskManager init failed", e);
+        }
+        StorageOptions segmentOptions = options.getPageSize() == pageSize
+                ? options
+                : options.toBuilder().pageSize(pageSize).build();
+        this.options = segmentOptions;
+        this.opener = segment -> new DiskManager(segmentPath(basePath, segment), segmentOptions, engineMetrics);
+        AtomicInteger threadId = new AtomicInteger();
+        this.ioPool = Executors.newFixedThreadPool(IO_THREADS, r -> {
+            Thread thread = new Thread(r, "segment-io-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ownsPool = true;
+        // 중간 세그먼트가 실패하면 (크기 불일치, 헤더 손상, I/O 오류) 앞서 연 세그먼트와 풀을 닫고 전파
+        try {
+            for (int segment : existing) {
+                DiskManager dm = opener.apply(segment);
+                segments.put(segment, dm);
+                if (dm.getPageSize() != pageSize) {
+                    throw new IllegalStateException("segment " + segment + " page size " + dm.getPageSize()
+                            + " differs from " + pageSize);
+                }
+            }
+        } catch (RuntimeException e) {
+            try {
+                closeSegments();
+            } catch (RuntimeException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * rebuild용 임시 저장소 — 세그먼트를 처음 쓸 때 parent 세그먼트의 prepareRebuild()로 임시 파일을 엶
+     * targets 밖의 세그먼트에 쓰면 IllegalArgumentException
+     */
+    private SegmentedDiskManager(SegmentedDiskManager parent, Set<Integer> targets) {
+        this.basePath = parent.basePath + ".new";
+        this.segmentPages = parent.segmentPages;
+        this.options = parent.options;
+        this.pageSize = parent.pageSize;
+        this.engineMetrics = parent.engineMetrics;
+        this.opener = segment -> {
+            if (targets != null && !targets.contains(segment)) {
+                throw new IllegalArgumentException("segment " + segment + " is not being rebuilt");
+            }
+            return parent.segment(segment).prepareRebuild();
+        };
+        this.ioPool = parent.ioPool;
+        this.ownsPool = false;
+    }
+
+    // -------------------------------------------------------------------------
+    // 읽기
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Page readPage(int pageId) {
+        DiskManager segment = segments.get(segmentOf(pageId));
+        if (segment != null) return segment.readPage(pageId);
+        engineMetrics.incrementPageReadCount();
+        return new Page(pageId, pageSize);
+    }
+
+    /**
+     * 세그먼트 경계에서 구간을 나눠 세그먼트마다 readPages
+     */
+    @Override
+    public List<Page> readPages(int startPageId, int endPageId) {
+        if (endPageId < startPageId) {
+            throw new IllegalArgumentException("endPageId < startPageId: " + startPageId + " ~ " + endPageId);
+        }
+        List<Page> pages = new ArrayList<>(endPageId - startPageId + 1);
+        long from = startPageId;
+        while (from <= endPageId) {
+            int segmentId = segmentOf((int) from);
+            int to = (int) Math.min(endPageId, (long) (segmentId + 1) * segmentPages - 1);
+            DiskManager segment = segments.get(segmentId);
+            if (segment != null) {
+                pages.addAll(segment.readPages((int) from, to));
+            } else {
+                engineMetrics.addPageReadCount(to - (int) from + 1);
+                for (long pageId = from; pageId <= to; pageId++) pages.add(new Page((int) pageId, pageSize));
+            }
+            from = (long) to + 1;
+        }
+        return pages;
+    }
+
+    @Override
+    public CompletableFuture<Page> readPageAsync(int pageId) {
+        DiskManager segment = segments.get(segmentOf(pageId));
+        if (segment != null) return segment.readPageAsync(pageId);
+        engineMetrics.incrementPageReadCount();
+        return CompletableFuture.completedFuture(new Page(pageId, pageSize));
+    }
+
+    /**
+     * readPages와 같은 분할 — 세그먼트별 비동기 요청을 모두 낸 뒤 pageId 순서로 이어 붙임
+     */
+    @Override
+    public CompletableFuture<List<Page>> readPagesAsync(int startPageId, int endPageId) {
+        if (endPageId < startPageId) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "endPageId < startPageId: " + startPageId + " ~ " + endPageId));
+        }
+        List<CompletableFuture<List<Page>>> parts = new ArrayList<>();
+        long from = startPageId;
+        while (from <= endPageId) {
+            int segmentId = segmentOf((int) from);
+            int to = (int) Math.min(endPageId, (long) (segmentId + 1) * segmentPages - 1);
+            DiskManager segment = segments.get(segmentId);
+            if (segment != null) {
+                parts.add(segment.readPagesAsync((int) from, to));
+            } else {
+                engineMetrics.addPageReadCount(to - (int) from + 1);
+                List<Page> empty = new ArrayList<>(to - (int) from + 1);
+                for (long pageId = from; pageId <= to; pageId++) empty.add(new Page((int) pageId, pageSize));
+                parts.add(CompletableFuture.completedFuture(empty));
+            }
+            from = (long) to + 1;
+        }
+        if (parts.size() == 1) return parts.get(0);
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Page> pages = new ArrayList<>(endPageId - startPageId + 1);
+            for (CompletableFuture<List<Page>> part : parts) pages.addAll(part.join());
+            return pages;
+        });
+    }
+
+    // -------------------------------------------------------------------------
+    // 쓰기
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void writePage(Page page) {
+        snapshotLock.readLock().lock();
+        try {
+            segment(segmentOf(page.getPageId())).writePage(page);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 읽기 락은 요청을 내는 동안만 — 진행 중인 비동기 write는 세그먼트 openSnapshot이 기다림
+     */
+    @Override
+    public CompletableFuture<Void> writePageAsync(Page page) {
+        snapshotLock.readLock().lock();
+        try {
+            return segment(segmentOf(page.getPageId())).writePageAsync(page);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void writePages(Collection<Page> pages) {
+        Map<Integer, List<Page>> bySegment = groupBySegment(pages);
+        snapshotLock.readLock().lock();
+        try {
+            runPerSegment(bySegment.keySet(), segmentId -> segment(segmentId).writePages(bySegment.get(segmentId)));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 세그먼트마다 DiskManager.writePagesAtomically — 원자성은 세그먼트 단위 (클래스 주석)
+     */
+    @Override
+    public void writePagesAtomically(Collection<Page> pages) {
+        Map<Integer, List<Page>> bySegment = groupBySegment(pages);
+        snapshotLock.readLock().lock();
+        try {
+            runPerSegment(bySegment.keySet(),
+                    segmentId -> segment(segmentId).writePagesAtomically(bySegment.get(segmentId)));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // 스냅샷
+    // -------------------------------------------------------------------------
+
+    /**
+     * 모든 세그먼트의 같은 시점 — 여는 동안만 쓰기를 막음 (세그먼트마다 디렉토리 사본)
+     * 스냅샷 이후 새로 생긴 세그먼트는 스냅샷에 없음
+     */
+    @Override
+    public PageSnapshot openSnapshot() {
+        TreeMap<Integer, PageSnapshot> parts = new TreeMap<>();
+        snapshotLock.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, DiskManager> entry : new TreeMap<>(segments).entrySet()) {
+                parts.put(entry.getKey(), entry.getValue().openSnapshot());
+            }
+        } catch (RuntimeException e) {
+            parts.values().forEach(PageSnapshot::close);
+            throw e;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        return new SegmentedSnapshot(parts);
+    }
+
+    /**
+     * 세그먼트 스냅샷 묶음 — pageId 구간이 세그먼트 순서와 같으므로 이어 붙이면 전체 오름차순
+     */
+    private final class SegmentedSnapshot implements PageSnapshot {
+
+        private final TreeMap<Integer, PageSnapshot> parts;
+
+        SegmentedSnapshot(TreeMap<Integer, PageSnapshot> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int[] getPageIds() {
+            return parts.values().stream()
+                    .flatMapToInt(part -> Arrays.stream(part.getPageIds()))
+                    .toArray();
+        }
+
+        @Override
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        @Override
+        public Page readPage(int pageId) {
+            PageSnapshot part = parts.get(segmentOf(pageId));
+            if (part == null) throw new IllegalArgumentException("page not in snapshot: pageId=" + pageId);
+            return part.readPage(pageId);
+        }
+
+        @Override
+        public void copyTo(PageStore target) {
+            for (PageSnapshot part : parts.values()) part.copyTo(target);
+        }
+
+        @Override
+        public int getPreservedPageCount() {
+            int count = 0;
+            for (PageSnapshot part : parts.values()) count += part.getPreservedPageCount();
+            return count;
+        }
+
+        @Override
+        public void close() {
+            parts.values().forEach(PageSnapshot::close);
+        }
+    }
+
+    @Override
+    public void sync() {
+        runPerSegment(segments.keySet(), segmentId -> segments.get(segmentId).sync());
+    }
+
+    // -------------------------------------------------------------------------
+    // rebuild — 세그먼트마다 임시 파일 + atomic rename
+    // -------------------------------------------------------------------------
+
+    /**
+     * 전체 rebuild — loader가 쓰지 않은 기존 세그먼트는 빈 파일로 교체
+     * 교체는 세그먼트마다 원자적, 세그먼트 사이에는 순서대로 진행
+     */
+    @Override
+    public void rebuild(PageStoreLoader loader) {
+        rebuild(null, loader);
+    }
+
+    /**
+     * 지정한 세그먼트만 다시 구축 — 나머지 세그먼트는 읽기 / 쓰기 / 캐시 모두 그대로
+     * loader가 다른 세그먼트의 페이지를 쓰면 IllegalArgumentException (아무것도 교체하지 않음)
+     */
+    public void rebuildSegments(Set<Integer> segmentIds, PageStoreLoader loader) {
+        rebuild(new HashSet<>(segmentIds), loader);
+    }
+
+    private void rebuild(Set<Integer> targets, PageStoreLoader loader) {
+        SegmentedDiskManager staging = new SegmentedDiskManager(this, targets);
+        try {
+            loader.load(staging);
+            // 구축 중 아무 페이지도 쓰지 않은 대상 세그먼트 → 빈 임시 파일로 교체
+            Set<Integer> emptied = new HashSet<>(targets != null ? targets : segments.keySet());
+            for (int segmentId : emptied) {
+                if (segments.containsKey(segmentId)) staging.segment(segmentId);
+            }
+        } catch (RuntimeException e) {
+            staging.segments.forEach((segmentId, tempDm) -> segment(segmentId).abortRebuild(tempDm));
+            throw e;
+        }
+
+        Map<Integer, DiskManager> staged = new TreeMap<>(staging.segments);
+        runPerSegment(staged.keySet(), segmentId -> segment(segmentId).commitRebuild(staged.get(segmentId)));
+    }
+
+    // -------------------------------------------------------------------------
+    // 조회 / 종료
+    // -------------------------------------------------------------------------
+
+    @Override
+    public int[] getPageIds() {
+        List<int[]> parts = new ArrayList<>();
+        int total = 0;
+        for (DiskManager segment : segments.values()) {
+            int[] ids = segment.getPageIds();
+            parts.add(ids);
+            total += ids.length;
+        }
+        int[] all = new int[total];
+        int position = 0;
+        for (int[] ids : parts) {
+            System.arraycopy(ids, 0, all, position, ids.length);
+            position += ids.length;
+        }
+        return all;
+    }
+
+    @Override
+    public int getUsedPageCount() {
+        int count = 0;
+        for (DiskManager segment : segments.values()) count += segment.getUsedPageCount();
+        return count;
+    }
+
+    /**
+     * @return 세그먼트 번호 오름차순 — PageScrubber / PageCompactor를 세그먼트마다 붙일 때 사용
+     */
+    public List<DiskManager> getSegments() {
+        return new ArrayList<>(new TreeMap<>(segments).values());
+    }
+
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int segmentOf(int pageId) {
+        if (pageId < 0) throw new IllegalArgumentException("pageId must be >= 0: " + pageId);
+        return pageId / segmentPages;
+    }
+
+    @Override
+    public void close() {
+        closeSegments();
+    }
+
+    /**
+     * 세그먼트를 모두 닫고 (하나가 실패해도 나머지 계속) 소유한 풀 종료 — 첫 실패를 던짐
+     * 생성자에서도 호출 → 오버라이드 가능한 close() 대신 private
+     */
+    private void closeSegments() {
+        RuntimeException failure = null;
+        for (DiskManager segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (ownsPool) ioPool.shutdown();
+        if (failure != null) throw failure;
+    }
+
+    // -------------------------------------------------------------------------
+    // 내부
+    // -------------------------------------------------------------------------
+
+    /**
+     * 세그먼트 DiskManager — 없으면 생성 (쓰기 경로 전용, 읽기는 segments.get)
+     */
+    private DiskManager segment(int segmentId) {
+        return segments.computeIfAbsent(segmentId, opener::apply);
+    }
+
+    private Map<Integer, List<Page>> groupBySegment(Collection<Page> pages) {
+        Map<Integer, List<Page>> bySegment = new TreeMap<>();
+        for (Page page : pages) {
+            bySegment.computeIfAbsent(segmentOf(page.getPageId()), k -> new ArrayList<>()).add(page);
+        }
+        return bySegment;
+    }
+
+    /**
+     * 세그먼트마다 action — 세그먼트가 1개면 호출 스레드에서, 여러 개면 I/O 풀에서 동시에
+     * 모두 끝날 때까지 기다린 뒤 첫 실패를 다시 던짐 (실패한 세그먼트만 재시도하면 됨)
+     */
+    private void runPerSegment(Collection<Integer> segmentIds, SegmentAction action) {
+        List<Integer> ids = new ArrayList<>(segmentIds);
+        if (ids.size() == 1) {
+            action.run(ids.get(0));
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(ids.size());
+        for (int segmentId : ids) futures.add(ioPool.submit(() -> action.run(segmentId)));
+
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime
+                            ? runtime
+                            : new RuntimeException("segment I/O failed", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) failure = new RuntimeException("segment I/O interrupted", e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @FunctionalInterface
+    private interface SegmentAction {
+        void run(int segmentId);
+    }
+
+    static String segmentPath(String basePath, int segmentId) {
+        return String.format("%s.seg%05d", basePath, segmentId);
+    }
+
+    /**
+     * basePath.segNNNNN 파일의 세그먼트 번호 (rebuild 임시 파일 .segNNNNN.new는 제외)
+     */
+    private static int[] existingSegments(String basePath) {
+        File base = new File(basePath).getAbsoluteFile();
+        File dir = base.getParentFile();
+        String[] names = dir != null ? dir.list() : null;
+        if (names == null) return new int[0];
+
+        Pattern pattern = Pattern.compile(Pattern.quote(base.getName()) + "\\.seg(\\d{5,})");
+        return Arrays.stream(names)
+                .map(pattern::matcher)
+                .filter(Matcher::matches)
+                .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                .sorted()
+                .toArray();
+    }
+}
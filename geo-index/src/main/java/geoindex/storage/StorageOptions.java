@@ -0,0 +1,277 @@
+package geoindex.storage;
+
+/**
+ * DiskManager 저장 방식 옵션 — 생성 시점에 주입
+ *
+ * Why:
+ *   같은 파일 포맷이라도 "어떻게 읽을지"는 배포 환경마다 다르다.
+ *   (데이터셋이 RAM에 들어가는가, 컨테이너 메모리 제한이 있는가 등)
+ *   → 파일 포맷은 DiskManager가, I/O 방식은 옵션이 결정
+ *
+ * 사용 예:
+ *   StorageOptions options = StorageOptions.builder()
+ *       .ioMode(StorageOptions.IoMode.MMAP)
+ *       .build();
+ *   DiskManager dm = new DiskManager(filePath, options, metrics);
+ */
+public class StorageOptions {
+
+    public enum IoMode {
+        CHANNEL,  // FileChannel 위치 지정 read/write (기본값)
+        MMAP,     // 읽기는 메모리 매핑 복사, 쓰기는 FileChannel
+        DIRECT    // 데이터 페이지 O_DIRECT (Linux) — OS 페이지 캐시 우회
+    }
+
+    public enum Compression {
+        NONE,     // 페이지마다 pageSize 고정 (기본값)
+        DEFLATE   // 페이지를 Deflater로 압축해 가변 크기 extent로 저장
+    }
+
+    /**
+     * 데이터 파일 fsync(FileChannel.force) 시점 — 쓰기 처리량과 크래시 시 유실 범위의 교환
+     *
+     * 모드와 무관하게 항상 force하는 곳 (구조 일관성에 필요한 순서):
+     *   WAL checkpoint 전 sync(), writePagesAtomically, 빈 공간 재사용 전, 디렉토리 재작성
+     */
+    public enum Durability {
+        NONE,            // 위 경우 외에는 fsync 없음 — OS가 내려쓸 때까지 유실 가능
+        FLUSH_ON_CLOSE,  // close() / rebuild 교체 직전에만 fsync (기본값)
+        SYNC_ON_FLUSH,   // writePage / writePages 호출마다 fsync 1회 — 반환 시점에 디스크 반영
+        PERIODIC         // syncIntervalMillis마다 쓰기가 있었으면 fsync 1회 — 여러 flush가 fsync를 공유
+    }
+
+    public static final long DEFAULT_MAP_CHUNK_SIZE = 64L * 1024 * 1024; // 64MB
+    public static final int  DEFAULT_DIRECT_BUFFER_POOL_SIZE = 256;       // 256 × 4KB = 1MB
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 1_000;
+
+    public static final StorageOptions DEFAULT = StorageOptions.builder().build();
+
+    private final IoMode ioMode;
+    private final long mapChunkSize;
+    private final long groupCommitIntervalMicros;
+    private final boolean verifyChecksums;
+    private final int directBufferPoolSize;
+    private final Compression compression;
+    private final int pageSize;
+    private final Durability durability;
+    private final long syncIntervalMillis;
+    private final boolean doubleWrite;
+    private final boolean releaseFreeSpace;
+
+    private StorageOptions(Builder builder) {
+        this.ioMode = builder.ioMode;
+        this.mapChunkSize = builder.mapChunkSize;
+        this.groupCommitIntervalMicros = builder.groupCommitIntervalMicros;
+        this.verifyChecksums = builder.verifyChecksums;
+        this.directBufferPoolSize = builder.directBufferPoolSize;
+        this.compression = builder.compression;
+        this.pageSize = builder.pageSize;
+        this.durability = builder.durability;
+        this.syncIntervalMillis = builder.syncIntervalMillis;
+        this.doubleWrite = builder.doubleWrite;
+        this.releaseFreeSpace = builder.releaseFreeSpace;
+    }
+
+    public IoMode getIoMode() {
+        return ioMode;
+    }
+
+    public long getMapChunkSize() {
+        return mapChunkSize;
+    }
+
+    public long getGroupCommitIntervalMicros() {
+        return groupCommitIntervalMicros;
+    }
+
+    public boolean isVerifyChecksums() {
+        return verifyChecksums;
+    }
+
+    public int getDirectBufferPoolSize() {
+        return directBufferPoolSize;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    public boolean isDoubleWrite() {
+        return doubleWrite;
+    }
+
+    public boolean isReleaseFreeSpace() {
+        return releaseFreeSpace;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 이 옵션을 바탕으로 일부만 바꾼 옵션 — SegmentedDiskManager가 새 세그먼트의 페이지 크기를 맞출 때 사용
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .ioMode(ioMode)
+                .mapChunkSize(mapChunkSize)
+                .groupCommitIntervalMicros(groupCommitIntervalMicros)
+                .verifyChecksums(verifyChecksums)
+                .directBufferPoolSize(directBufferPoolSize)
+                .compression(compression)
+                .pageSize(pageSize)
+                .durability(durability)
+                .syncIntervalMillis(syncIntervalMillis)
+                .doubleWrite(doubleWrite)
+                .releaseFreeSpace(releaseFreeSpace);
+    }
+
+    public static class Builder {
+        private IoMode ioMode = IoMode.CHANNEL;
+        private long mapChunkSize = DEFAULT_MAP_CHUNK_SIZE;
+        private long groupCommitIntervalMicros = 0;
+        private boolean verifyChecksums = true;
+        private int directBufferPoolSize = DEFAULT_DIRECT_BUFFER_POOL_SIZE;
+        private Compression compression = Compression.NONE;
+        private int pageSize = Page.PAGE_SIZE;
+        private Durability durability = Durability.FLUSH_ON_CLOSE;
+        private long syncIntervalMillis = DEFAULT_SYNC_INTERVAL_MILLIS;
+        private boolean doubleWrite = false;
+        private boolean releaseFreeSpace = false;
+
+        public Builder ioMode(IoMode ioMode) {
+            this.ioMode = (ioMode == null) ? IoMode.CHANNEL : ioMode;
+            return this;
+        }
+
+        /**
+         * 매핑 단위 — 파일이 커지면 이 단위로 새 구간을 매핑
+         */
+        public Builder mapChunkSize(long mapChunkSize) {
+            if (mapChunkSize < Page.MAX_PAGE_SIZE || mapChunkSize > Integer.MAX_VALUE - Page.MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("mapChunkSize out of range: " + mapChunkSize);
+            }
+            this.mapChunkSize = mapChunkSize;
+            return this;
+        }
+
+        /**
+         * WAL group commit 리더가 fsync 전에 기다리는 시간
+         * 0 → 대기 없음 (fsync 진행 중에 쌓인 레코드끼리만 묶임)
+         * 늘리면 fsync 횟수는 줄고 put 지연은 그만큼 늘어남
+         */
+        public Builder groupCommitIntervalMicros(long micros) {
+            if (micros < 0) throw new IllegalArgumentException("groupCommitIntervalMicros must be >= 0: " + micros);
+            this.groupCommitIntervalMicros = micros;
+            return this;
+        }
+
+        /**
+         * readPage에서 CRC32C 검증 여부 — 끄면 읽기 경로 비용만 줄고 체크섬 기록은 계속됨
+         * (PageScrubber는 이 설정과 무관하게 검증)
+         */
+        public Builder verifyChecksums(boolean verifyChecksums) {
+            this.verifyChecksums = verifyChecksums;
+            return this;
+        }
+
+        /**
+         * DIRECT 모드에서 쓰는 정렬 버퍼 수 (페이지 단위) — I/O용 native 메모리 상한
+         * 동시 I/O가 이보다 많으면 버퍼가 반납될 때까지 대기
+         */
+        public Builder directBufferPoolSize(int pages) {
+            if (pages < 1) throw new IllegalArgumentException("directBufferPoolSize must be >= 1: " + pages);
+            this.directBufferPoolSize = pages;
+            return this;
+        }
+
+        /**
+         * 페이지 압축 — 파일 크기 / cold read 바이트를 줄이는 대신 읽기·쓰기마다 CPU 사용
+         * 압축 extent는 4KB 정렬이 아니므로 DIRECT 모드와 함께 쓸 수 없음
+         * (이미 압축된 파일을 NONE으로 열어도 읽기는 됨 — 다시 쓰는 페이지부터 비압축)
+         */
+        public Builder compression(Compression compression) {
+            this.compression = (compression == null) ? Compression.NONE : compression;
+            return this;
+        }
+
+        /**
+         * 데이터 페이지 크기 — 4KB / 8KB / 16KB / 32KB / 64KB
+         * 새 파일을 만들 때만 적용되고 파일 헤더에 기록됨 → 기존 파일은 헤더의 크기로 열림
+         * 크게 잡으면 밀집 지역의 overflow 체인이 짧아지는 대신 한산한 페이지의 빈 공간과 read 바이트가 늘어남
+         */
+        public Builder pageSize(int pageSize) {
+            if (!Page.isValidPageSize(pageSize)) {
+                throw new IllegalArgumentException("pageSize must be a power of two in [4KB, 64KB]: " + pageSize);
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public Builder durability(Durability durability) {
+            this.durability = (durability == null) ? Durability.FLUSH_ON_CLOSE : durability;
+            return this;
+        }
+
+        /**
+         * PERIODIC 모드의 fsync 간격 — 크래시 시 최대 이 시간만큼의 쓰기가 OS 캐시에만 있을 수 있음
+         */
+        public Builder syncIntervalMillis(long millis) {
+            if (millis < 1) throw new IllegalArgumentException("syncIntervalMillis must be >= 1: " + millis);
+            this.syncIntervalMillis = millis;
+            return this;
+        }
+
+        /**
+         * 찢어진 페이지 방지 — 제자리 쓰기 전에 같은 이미지를 scratch 파일(filePath + ".dwb")에 기록 + fsync
+         * 배치(writePages)마다 순차 write 1회 + fsync 1회 추가, 열 때 검증 실패 페이지를 복구
+         */
+        public Builder doubleWrite(boolean doubleWrite) {
+            this.doubleWrite = doubleWrite;
+            return this;
+        }
+
+        /**
+         * 빈 공간을 파일시스템에 돌려줌 — 빈 공간이 재사용 가능해질 때마다 (sync / compaction)
+         * 파일 끝 빈 공간은 truncate, 중간의 큰 빈 구간은 4KB block 단위로 0으로 채움
+         */
+        public Builder releaseFreeSpace(boolean releaseFreeSpace) {
+            this.releaseFreeSpace = releaseFreeSpace;
+            return this;
+        }
+
+        public StorageOptions build() {
+            if (ioMode == IoMode.DIRECT && compression != Compression.NONE) {
+                throw new IllegalArgumentException("compression " + compression + " is not supported with DIRECT io mode");
+            }
+            return new StorageOptions(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StorageOptions{ioMode=" + ioMode +
+                ", mapChunkSize=" + mapChunkSize +
+                ", groupCommitIntervalMicros=" + groupCommitIntervalMicros +
+                ", verifyChecksums=" + verifyChecksums +
+                ", directBufferPoolSize=" + directBufferPoolSize +
+                ", compression=" + compression +
+                ", pageSize=" + pageSize +
+                ", durability=" + durability +
+                ", syncIntervalMillis=" + syncIntervalMillis +
+                ", doubleWrite=" + doubleWrite +
+                ", releaseFreeSpace=" + releaseFreeSpace + '}';
+    }
+}
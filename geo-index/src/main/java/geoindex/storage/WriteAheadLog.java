@@ -0,0 +1,462 @@
+package geoindex.storage;
+
+import geoindex.metric.EngineMetrics;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Redo 전용 WAL (write-ahead log) — append-only + group commit
+ *
+ * Why?
+ *   put()은 CacheManager에 dirty 표시만 함 → flush() 전에 죽으면 그 사이 쓰기가 전부 유실
+ *   put마다 페이지 flush(4KB 랜덤 write + fsync)는 너무 비쌈
+ *   → 작은 redo 레코드를 순차 append + 여러 writer가 fsync 1회를 공유 (group commit)
+ *
+ * 레코드 (물리-논리 redo, 멱등):
+ *   INSERT(pageId, slotId, value) → 페이지 recordCount == slotId일 때만 적용, 이미 있으면 skip
+ *   LINK(pageId, overflowPageId)  → overflow 포인터 설정 (덮어써도 같은 값)
+ *   → 페이지 이미지에 pageLSN이 없어도 replay가 중복 레코드를 만들지 않음
+ *
+ * 파일 구조:
+ *   [header 16B] magic(4) + version(4) + checkpointLsn(8)
+ *   [record]     length(4) + crc32c(4) + body(lsn(8) type(1) pageId(4) arg(4) valueLen(4) value)
+ *   → crc 불일치 / 잘린 레코드 = 마지막 fsync 이후 찢어진 꼬리 → 열 때 잘라냄
+ *
+ * group commit:
+ *   append()       → appendLock 아래 메모리 버퍼에 직렬화 + LSN 발급 (I/O 없음)
+ *   awaitDurable() → 첫 대기자가 리더: commitInterval만큼 더 모은 뒤 버퍼 통째로 write + fsync 1회
+ *                    나머지는 리더가 끝날 때까지 대기 → 자기 LSN이 포함됐으면 반환
+ *
+ * checkpoint:
+ *   CacheManager.flush()가 데이터 파일 sync 후 호출 → checkpointLsn 이하 레코드는 replay 대상 아님
+ *   그 사이 새 레코드가 없으면 로그를 헤더만 남기고 truncate
+ *   있으면 (flush 도중 계속 put) checkpoint 앞부분이 꼬리보다 커졌을 때 꼬리만 새 파일로 옮겨 교체
+ *   → put이 멈추지 않아도 로그 크기가 마지막 flush 이후 레코드 수준으로 유지됨
+ *
+ * Why RandomAccessFile (FileChannel 아님)?
+ *   FileChannel은 I/O 중인 스레드가 interrupt되면 채널이 닫힘 → 로그 전체가 사용 불가
+ *   리더 한 스레드만 쓰므로 파일 포인터 공유 문제도 없음
+ */
+public class WriteAheadLog {
+
+    public static final byte TYPE_INSERT = 1;   // pageId의 slotId 위치에 value 기록
+    public static final byte TYPE_LINK   = 2;   // pageId → overflowPageId 연결
+
+    public static final long NO_LSN = 0L;
+
+    static final int FILE_MAGIC     = 0x4757414C; // "GWAL"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE    = 16;
+
+    private static final int RECORD_HEADER_SIZE = 8;              // length + crc
+    private static final int BODY_FIXED_SIZE    = 8 + 1 + 4 + 4 + 4;
+    private static final int INITIAL_BUFFER     = 64 * 1024;
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;     // 이보다 작은 앞부분은 그냥 둠
+
+    private final String filePath;
+    private RandomAccessFile file;                               // compact 후 새 파일로 교체 (syncLock 리더 + appendLock)
+    private final long commitIntervalNanos;
+    private final EngineMetrics engineMetrics;
+
+    // append 쪽 — appendLock
+    private final Object appendLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    private long nextLsn;
+
+    // sync 쪽 — syncLock (리더 한 명만 파일에 씀)
+    private final Object syncLock = new Object();
+    private boolean syncing = false;
+    private volatile long durableLsn;
+    private long writePosition;
+    private long checkpointLsn;
+
+    public WriteAheadLog(String filePath, EngineMetrics engineMetrics) {
+        this(filePath, StorageOptions.DEFAULT, engineMetrics);
+    }
+
+    public WriteAheadLog(String filePath, StorageOptions options, EngineMetrics engineMetrics) {
+        this.commitIntervalNanos = options.getGroupCommitIntervalMicros() * 1_000L;
+        this.engineMetrics = engineMetrics;
+        this.filePath = filePath;
+        try {
+            Files.deleteIfExists(compactPath());      // rename 전에 죽은 compact의 잔재 — 원본은 그대로
+            this.file = new RandomAccessFile(filePath, "rw");
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException("WriteAheadLog init failed", e);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // 열기 / 복구
+    // -------------------------------------------------------------------------
+
+    private void open() throws IOException {
+        if (file.length() < HEADER_SIZE) {
+            checkpointLsn = NO_LSN;
+            writeHeader();
+            file.setLength(HEADER_SIZE);
+            file.getFD().sync();
+        } else {
+            file.seek(0);
+            int magic = file.readInt();
+            int version = file.readInt();
+            if (magic != FILE_MAGIC || version != FORMAT_VERSION) {
+                throw new IOException("not a WAL file: magic=" + Integer.toHexString(magic)
+                        + ", version=" + version);
+            }
+            checkpointLsn = file.readLong();
+        }
+
+        // 유효한 레코드 끝까지 스캔 → 찢어진 꼬리 제거
+        long[] lastLsn = {checkpointLsn};
+        long end = scan((lsn, type, pageId, arg, value) -> lastLsn[0] = Math.max(lastLsn[0], lsn));
+        if (end < file.length()) {
+            file.setLength(end);
+            file.getFD().sync();
+        }
+
+        writePosition = end;
+        nextLsn = lastLsn[0] + 1;
+        durableLsn = lastLsn[0];
+    }
+
+    /**
+     * checkpointLsn 이후 레코드를 순서대로 전달 — 열 때 한 번 호출
+     */
+    public void replay(RecordConsumer consumer) {
+        synchronized (syncLock) {
+            try {
+                scan((lsn, type, pageId, arg, value) -> {
+                    if (lsn > checkpointLsn) consumer.accept(lsn, type, pageId, arg, value);
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("WAL replay failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return 마지막 유효 레코드 끝 위치
+     */
+    private long scan(RecordConsumer consumer) throws IOException {
+        long length = file.length();
+        long position = HEADER_SIZE;
+        byte[] header = new byte[RECORD_HEADER_SIZE];
+        CRC32C crc = new CRC32C();
+
+        while (position + RECORD_HEADER_SIZE <= length) {
+            file.seek(position);
+            file.readFully(header);
+            ByteBuffer hb = ByteBuffer.wrap(header);
+            int bodyLength = hb.getInt();
+            int expectedCrc = hb.getInt();
+            if (bodyLength < BODY_FIXED_SIZE || position + RECORD_HEADER_SIZE + bodyLength > length) break;
+
+            byte[] body = new byte[bodyLength];
+            file.readFully(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != expectedCrc) break;
+
+            ByteBuffer bb = ByteBuffer.wrap(body);
+            long lsn = bb.getLong();
+            byte type = bb.get();
+            int pageId = bb.getInt();
+            int arg = bb.getInt();
+            int valueLength = bb.getInt();
+            if (valueLength != bodyLength - BODY_FIXED_SIZE) break;
+            byte[] value = new byte[valueLength];
+            bb.get(value);
+
+            consumer.accept(lsn, type, pageId, arg, value);
+            position += RECORD_HEADER_SIZE + bodyLength;
+        }
+        return position;
+    }
+
+    // -------------------------------------------------------------------------
+    // append / group commit
+    // -------------------------------------------------------------------------
+
+    public long appendInsert(int pageId, int slotId, byte[] value) {
+        return append(TYPE_INSERT, pageId, slotId, value);
+    }
+
+    public long appendLink(int pageId, int overflowPageId) {
+        return append(TYPE_LINK, pageId, overflowPageId, new byte[0]);
+    }
+
+    /**
+     * 메모리 버퍼에 직렬화만 함 — 내구성은 awaitDurable(lsn)로 확인
+     */
+    private long append(byte type, int pageId, int arg, byte[] value) {
+        int bodyLength = BODY_FIXED_SIZE + value.length;
+        synchronized (appendLock) {
+            long lsn = nextLsn++;
+            ensureCapacity(RECORD_HEADER_SIZE + bodyLength);
+
+            int start = pending.position();
+            pending.putInt(bodyLength);
+            pending.putInt(0); // crc 자리
+            int bodyStart = pending.position();
+            pending.putLong(lsn).put(type).putInt(pageId).putInt(arg).putInt(value.length).put(value);
+
+            CRC32C crc = new CRC32C();
+            crc.update(pending.array(), bodyStart, bodyLength);
+            pending.putInt(start + 4, (int) crc.getValue());
+
+            engineMetrics.incrementWalAppendCount();
+            return lsn;
+        }
+    }
+
+    /**
+     * lsn까지 디스크에 남을 때까지 대기
+     * 진행 중인 fsync가 있으면 끝나기를 기다렸다가, 아직 부족하면 다음 리더가 됨
+     */
+    public void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) return;
+
+        long durable = acquireSync(lsn);
+        if (durable >= lsn) return;
+        try {
+            if (commitIntervalNanos > 0) {
+                // 리더만 잠깐 대기 → 그 사이 들어온 append까지 한 번에 fsync
+                Thread.sleep(commitIntervalNanos / 1_000_000, (int) (commitIntervalNanos % 1_000_000));
+            }
+            durable = writePending();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("WAL commit interrupted", e);
+        } catch (IOException e) {
+            throw new RuntimeException("WAL commit failed", e);
+        } finally {
+            releaseSync(durable);
+        }
+    }
+
+    /**
+     * 버퍼 교체 → write + fsync (리더만 호출)
+     * @return 이번에 내구성이 확보된 마지막 LSN
+     */
+    private long writePending() throws IOException {
+        ByteBuffer batch;
+        long upTo;
+        synchronized (appendLock) {
+            batch = pending;
+            upTo = nextLsn - 1;
+            pending = ByteBuffer.allocate(Math.max(INITIAL_BUFFER, batch.capacity()));
+        }
+        if (batch.position() > 0) {
+            file.seek(writePosition);
+            file.write(batch.array(), 0, batch.position());
+            file.getFD().sync();
+            writePosition += batch.position();
+            engineMetrics.incrementWalSyncCount();
+        }
+        return upTo;
+    }
+
+    /**
+     * 리더 역할 획득 — 대기 중에 lsn이 이미 내구화되면 역할 없이 반환
+     * @return 획득 시점의 durableLsn (>= lsn이면 리더 아님)
+     */
+    private long acquireSync(long lsn) {
+        synchronized (syncLock) {
+            while (syncing && durableLsn < lsn) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("WAL commit interrupted", e);
+                }
+            }
+            if (durableLsn >= lsn) return durableLsn;
+            syncing = true;
+            return durableLsn;
+        }
+    }
+
+    private void releaseSync(long durable) {
+        synchronized (syncLock) {
+            durableLsn = Math.max(durableLsn, durable);
+            syncing = false;
+            syncLock.notifyAll();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // checkpoint
+    // -------------------------------------------------------------------------
+
+    /**
+     * 지금까지 발급된 마지막 LSN — flush 시작 시점에 잡아 두고 checkpoint에 넘김
+     */
+    public long getAppendedLsn() {
+        synchronized (appendLock) {
+            return nextLsn - 1;
+        }
+    }
+
+    /**
+     * lsn 이하 레코드의 변경이 데이터 파일에 sync됐음을 기록
+     * 그 뒤로 append된 레코드가 없으면 로그를 헤더만 남기고 비움
+     * 있으면 checkpoint 앞부분(더 이상 replay 안 됨)이 COMPACT_MIN_BYTES 이상이고 꼬리보다 클 때 compact
+     *   → 매 checkpoint마다 꼬리를 복사하지 않고, 복사량은 버리는 양 이하 (상각 O(1))
+     */
+    public void checkpoint(long lsn) {
+        long durable = acquireSync(Long.MAX_VALUE);
+        try {
+            synchronized (appendLock) {
+                if (lsn <= checkpointLsn) return;
+                checkpointLsn = lsn;
+                writeHeader();
+                if (nextLsn - 1 <= lsn) {
+                    // checkpoint 이후 레코드 없음 → 버퍼 + 파일 꼬리 모두 불필요
+                    pending.clear();
+                    file.setLength(HEADER_SIZE);
+                    writePosition = HEADER_SIZE;
+                    durable = nextLsn - 1;
+                }
+                file.getFD().sync();
+
+                if (writePosition > HEADER_SIZE) {
+                    long tail = positionAfter(lsn);
+                    long dead = tail - HEADER_SIZE;
+                    if (dead >= COMPACT_MIN_BYTES && dead >= writePosition - tail) compact(tail);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("WAL checkpoint failed", e);
+        } finally {
+            releaseSync(durable);
+        }
+    }
+
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    public long size() {
+        synchronized (syncLock) {
+            return writePosition;
+        }
+    }
+
+    public void close() {
+        long durable = acquireSync(Long.MAX_VALUE);
+        try {
+            durable = writePending();
+            file.close();
+        } catch (IOException e) {
+            throw new RuntimeException("WAL close failed", e);
+        } finally {
+            releaseSync(durable);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // 내부
+    // -------------------------------------------------------------------------
+
+    /**
+     * lsn보다 큰 첫 레코드의 위치 — 파일의 레코드는 LSN 순 (리더가 버퍼 단위로 순서대로 씀)
+     * writePosition까지는 fsync를 마친 온전한 레코드 → 길이 + LSN만 읽고 건너뜀
+     */
+    private long positionAfter(long lsn) throws IOException {
+        long position = HEADER_SIZE;
+        while (position < writePosition) {
+            file.seek(position);
+            int bodyLength = file.readInt();
+            file.skipBytes(4);                          // crc
+            if (file.readLong() > lsn) break;
+            position += RECORD_HEADER_SIZE + bodyLength;
+        }
+        return position;
+    }
+
+    /**
+     * [from, writePosition) 레코드를 헤더 바로 뒤로 옮긴 새 파일로 교체
+     *
+     * Why 새 파일 + rename (제자리 앞당기기 아님)?
+     *   제자리 복사 도중 죽으면 옮긴 레코드 뒤가 찢어진 레코드 → 열 때 거기서 스캔이 멈춤
+     *   → 아직 옮기지 못한 (이미 내구화된) 레코드를 잃음
+     *   새 파일을 fsync한 뒤 rename → 어느 시점에 죽어도 옛 파일 또는 새 파일 하나가 온전히 남음
+     *   (DiskManager.rebuild의 .new → rename → 디렉토리 fsync와 같은 순서)
+     */
+    private void compact(long from) throws IOException {
+        Path temp = compactPath();
+        long tailLength = writePosition - from;
+        try (RandomAccessFile out = new RandomAccessFile(temp.toFile(), "rw")) {
+            out.setLength(0);
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(checkpointLsn);
+            byte[] chunk = new byte[INITIAL_BUFFER];
+            file.seek(from);
+            for (long copied = 0; copied < tailLength; ) {
+                int n = (int) Math.min(chunk.length, tailLength - copied);
+                file.readFully(chunk, 0, n);
+                out.write(chunk, 0, n);
+                copied += n;
+            }
+            out.getFD().sync();
+        }
+
+        file.close();
+        try {
+            Files.move(temp, Path.of(filePath), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            file = new RandomAccessFile(filePath, "rw");   // 실패하면 옛 파일을 다시 엶 (내용 그대로)
+        }
+        syncParentDirectory();
+        writePosition = HEADER_SIZE + tailLength;
+    }
+
+    /**
+     * rename을 디스크에 반영 — 디렉토리를 채널로 열 수 없는 플랫폼(Windows)은 건너뜀
+     */
+    private void syncParentDirectory() {
+        Path parent = Path.of(filePath).toAbsolutePath().getParent();
+        if (parent == null) return;
+        try (FileChannel dir = FileChannel.open(parent, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path compactPath() {
+        return Path.of(filePath + ".compact");
+    }
+
+    private void writeHeader() throws IOException {
+        file.seek(0);
+        file.writeInt(FILE_MAGIC);
+        file.writeInt(FORMAT_VERSION);
+        file.writeLong(checkpointLsn);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() >= bytes) return;
+        int capacity = pending.capacity();
+        while (capacity - pending.position() < bytes) capacity <<= 1;
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long lsn, byte type, int pageId, int arg, byte[] value);
+    }
+}
@@ -2,15 +2,28 @@ package geoindex.test;
 
 
 import geoindex.buffer.CacheManager;
+import geoindex.buffer.PageWriter;
 import geoindex.metric.EngineMetrics;
 import geoindex.storage.DiskManager;
 import geoindex.storage.Page;
+import geoindex.storage.PageLayout;
+import geoindex.storage.PageStore;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,10 +31,11 @@ class CacheManagerTest {
     static final String TEST_FILE = "test_cache.db";
     CacheManager cacheManager;
     DiskManager diskManager;
+    EngineMetrics metrics;
 
     @BeforeEach
     void setUp() {
-        EngineMetrics metrics = new EngineMetrics();
+        metrics = new EngineMetrics();
         diskManager = new DiskManager(TEST_FILE, metrics);
         cacheManager = new CacheManager(diskManager, metrics);
     }
@@ -114,5 +128,381 @@ class CacheManagerTest {
         assertSame(page3, cached3);
     }
 
+    @Test
+    void testFlushCoalescesAdjacentPages() {
+        // 해시 순서와 무관하게 pageId 0~99 → 연속 offset → gathering write 1회
+        for (int pageId = 99; pageId >= 0; pageId--) {
+            Page page = cacheManager.getPage(pageId);
+            page.getData()[0] = (byte) pageId;
+            cacheManager.putPage(page);
+        }
+        cacheManager.flush();
+        assertEquals(1, metrics.snapshot(0, 0, 0, 0).writeCallCount);
+        assertEquals(0, cacheManager.getDirtyPageCount());
+
+        // 떨어진 두 구간만 수정 → run 2개
+        for (int pageId : new int[]{10, 11, 12, 50, 51}) {
+            Page page = cacheManager.getPage(pageId);
+            page.getData()[1] = 1;
+            cacheManager.putPage(page);
+        }
+        cacheManager.flush();
+        assertEquals(3, metrics.snapshot(0, 0, 0, 0).writeCallCount);
+
+        cacheManager.close();
+        diskManager = new DiskManager(TEST_FILE, new EngineMetrics());
+        cacheManager = new CacheManager(diskManager, new EngineMetrics());
+        for (int pageId = 0; pageId < 100; pageId++) {
+            assertEquals((byte) pageId, cacheManager.getPage(pageId).getData()[0]);
+        }
+        assertEquals(1, cacheManager.getPage(50).getData()[1]);
+        assertEquals(0, cacheManager.getPage(49).getData()[1]);
+    }
+
+    @Test
+    void testGetPagesKeepsCachedInstancesAndLoadsGapsInBulk() {
+        for (int pageId = 0; pageId < 10; pageId++) {
+            Page page = cacheManager.getPage(pageId);
+            page.getData()[0] = (byte) (pageId + 1);
+            cacheManager.putPage(page);
+        }
+        cacheManager.flush();
+        cacheManager.clearCache();
+
+        Page dirty = cacheManager.getPage(5);
+        dirty.getData()[0] = 99;
+        cacheManager.putPage(dirty);
+
+        long callsBefore = metrics.snapshot(0, 0, 0, 0).readCallCount;
+        List<Page> pages = cacheManager.getPages(0, 9);
+        assertEquals(10, pages.size());
+        assertSame(dirty, pages.get(5));
+        assertEquals(99, pages.get(5).getData()[0]);
+        assertEquals(1, pages.get(0).getData()[0]);
+        assertEquals(10, pages.get(9).getData()[0]);
+        // 캐시된 5를 사이에 둔 두 구간 [0..4], [6..9] → read 2회
+        assertEquals(callsBefore + 2, metrics.snapshot(0, 0, 0, 0).readCallCount);
+        assertSame(pages.get(3), cacheManager.getPage(3));
+    }
+
+    @Test
+    void testBoundedPoolEvictsAndWritesBackDirtyVictims() {
+        cacheManager = new CacheManager(diskManager, null, metrics, 4);
+        for (int pageId = 0; pageId < 12; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            page.getData()[0] = (byte) (pageId + 1);
+            cacheManager.putPage(page);
+            cacheManager.unpinPage(page);
+            assertTrue(cacheManager.getResidentPageCount() <= 4);
+        }
+
+        // flush 전에 교체된 dirty 페이지는 write-back으로 기록됨 → 다시 읽어도 내용 그대로
+        for (int pageId = 0; pageId < 12; pageId++) {
+            assertEquals(pageId + 1, cacheManager.getPage(pageId).getData()[0]);
+        }
+        var snapshot = metrics.snapshot(0, 0, 0, 0);
+        assertTrue(snapshot.bufferEvictCount >= 8);
+        assertTrue(snapshot.bufferWriteBackCount >= 8);
+        assertTrue(cacheManager.getResidentPageCount() <= 4);
+    }
+
+    @Test
+    void testPinnedPagesAreNotEvicted() {
+        cacheManager = new CacheManager(diskManager, null, metrics, 4);
+        Page pinned = cacheManager.pinPage(0);
+        for (int pageId = 1; pageId < 20; pageId++) cacheManager.getPage(pageId);
+        assertSame(pinned, cacheManager.getPage(0));
+        cacheManager.unpinPage(pinned);
+
+        List<Page> held = new ArrayList<>();
+        for (int pageId = 100; pageId < 104; pageId++) held.add(cacheManager.pinPage(pageId));
+        assertThrows(IllegalStateException.class, () -> cacheManager.pinPage(200));
+        held.forEach(cacheManager::unpinPage);
+        assertNotNull(cacheManager.pinPage(200));
+        assertThrows(IllegalStateException.class, () -> cacheManager.unpinPage(held.get(0)));
+    }
+
+    @Test
+    void testOffHeapFramesKeepContentAcrossEvictionAndReplace() {
+        cacheManager = new CacheManager(diskManager, null, metrics, 4, CacheManager.FrameMemory.OFF_HEAP);
+        for (int pageId = 0; pageId < 10; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            assertFalse(page.hasArray());
+            PageLayout.initializePage(page);
+            PageLayout.writeRecord(page, ("v" + pageId).getBytes());
+            cacheManager.putPage(page);
+            cacheManager.unpinPage(page);
+        }
+        for (int pageId = 0; pageId < 10; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            assertArrayEquals(("v" + pageId).getBytes(), PageLayout.readRecord(page, 0));
+            cacheManager.unpinPage(page);
+        }
+
+        // 풀 밖의 힙 페이지로 교체 → 적재된 handle에 내용이 복사됨
+        Page pinned = cacheManager.pinPage(9);
+        Page image = new Page(9);
+        PageLayout.initializePage(image);
+        PageLayout.writeRecord(image, "replaced".getBytes());
+        cacheManager.replacePages(List.of(image));
+        assertArrayEquals("replaced".getBytes(), PageLayout.readRecord(pinned, 0));
+        cacheManager.unpinPage(pinned);
+
+        cacheManager.flush();
+        cacheManager.clearCache();
+        assertArrayEquals("replaced".getBytes(), PageLayout.readRecord(cacheManager.getPage(9), 0));
+    }
+
+    @Test
+    void testOffHeapUnpinnedPagesSurviveSlotReuse() {
+        cacheManager = new CacheManager(diskManager, null, metrics, 4, CacheManager.FrameMemory.OFF_HEAP);
+        for (int pageId = 0; pageId < 12; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            PageLayout.initializePage(page);
+            PageLayout.writeRecord(page, ("v" + pageId).getBytes());
+            cacheManager.putPage(page);
+            cacheManager.unpinPage(page);
+        }
+        cacheManager.flush();
+        cacheManager.clearCache();
+
+        // 적중 / 미스 / 구간 / 비동기 — 모두 pin 없이 받은 페이지
+        Page miss = cacheManager.getPage(0);
+        Page hit = cacheManager.getPage(0);
+        List<Page> range = cacheManager.getPages(1, 2);
+        Page async = cacheManager.getPageAsync(3).join();
+
+        // 풀(4개)을 다른 페이지로 채움 → 0~3의 slot이 교체 후 재사용됨
+        for (int pageId = 4; pageId < 12; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            assertArrayEquals(("v" + pageId).getBytes(), PageLayout.readRecord(page, 0));
+            cacheManager.unpinPage(page);
+        }
+
+        List<Page> unpinned = List.of(miss, hit, range.get(0), range.get(1), async);
+        int[] expected = {0, 0, 1, 2, 3};
+        for (int i = 0; i < expected.length; i++) {
+            Page page = unpinned.get(i);
+            assertTrue(page.hasArray());
+            assertEquals(expected[i], page.getPageId());
+            assertArrayEquals(("v" + expected[i]).getBytes(), PageLayout.readRecord(page, 0));
+        }
+    }
+
+    @Test
+    void testPageWriterDrainsDirtyPagesToLowWatermark() {
+        cacheManager = new CacheManager(diskManager, null, metrics, 8);
+        for (int pageId = 0; pageId < 8; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            page.getData()[0] = (byte) (pageId + 1);
+            cacheManager.putPage(page);
+            cacheManager.unpinPage(page);
+        }
+        assertEquals(8, cacheManager.getDirtyPageCount());
+
+        PageWriter writer = new PageWriter(cacheManager, 0.25, 0.5, 4, metrics);
+        assertEquals(6, writer.writeOnce());
+        assertEquals(2, cacheManager.getDirtyPageCount());
+        assertFalse(cacheManager.isWritesThrottled());
+        assertEquals(0, writer.writeOnce());
+
+        cacheManager.throttleWrites();      // 억제 중이 아니면 바로 반환
+        var snapshot = metrics.snapshot(0, 0, 0, 0);
+        assertEquals(6, snapshot.pageWriterPages);
+        assertEquals(1, snapshot.pageWriterRounds);
+        assertEquals(0, snapshot.throttledWrites);
+
+        // writer가 기록한 6개는 디스크에 있음 (clearCache는 남은 dirty 2개를 버림)
+        cacheManager.clearCache();
+        int persisted = 0;
+        for (int pageId = 0; pageId < 8; pageId++) {
+            if (cacheManager.getPage(pageId).getData()[0] == pageId + 1) persisted++;
+        }
+        assertEquals(6, persisted);
+        assertThrows(IllegalArgumentException.class, () -> new PageWriter(cacheManager, 0.5, 0.5, metrics));
+    }
+
+    @Test
+    void testPageWriterRecordsFailedRounds() throws Exception {
+        cacheManager = new CacheManager(diskManager, null, metrics, 8);
+        for (int pageId = 0; pageId < 8; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            page.getData()[0] = 1;
+            cacheManager.putPage(page);
+            cacheManager.unpinPage(page);
+        }
+        diskManager.close();                // 이후 기록은 모두 실패
+
+        PageWriter writer = new PageWriter(cacheManager, 0.25, 0.5, 4, metrics);
+        writer.start(10);
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (metrics.snapshot(0, 0, 0, 0).pageWriterFailures < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            writer.stop();
+        }
+        assertTrue(metrics.snapshot(0, 0, 0, 0).pageWriterFailures >= 2, "실패 후에도 다음 주기가 돌아야 함");
+        assertNotNull(writer.getLastFailure());
+        assertEquals(8, cacheManager.getDirtyPageCount(), "실패한 묶음은 다시 dirty");
+        cacheManager = null;                // 닫힌 DiskManager → close의 flush 생략
+    }
+
+    @Test
+    void testWriteThrottleFollowsDirtyCountWhileWriterRuns() throws Exception {
+        cacheManager = new CacheManager(diskManager, null, metrics, 8);
+        PageWriter writer = new PageWriter(cacheManager, 0.25, 0.5, 4, metrics);
+        writer.start(60_000);               // 주기는 테스트 중에 돌지 않음 — 주기 사이의 억제를 확인
+        try {
+            for (int pageId = 0; pageId < 8; pageId++) {
+                Page page = cacheManager.pinPage(pageId);
+                page.getData()[0] = 1;
+                cacheManager.putPage(page);
+                cacheManager.unpinPage(page);
+            }
+            assertTrue(cacheManager.isWritesThrottled(), "writer 주기 밖이어도 dirty ≥ high면 억제");
+
+            Thread drainer = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                writer.writeOnce();
+            });
+            drainer.start();
+            long start = System.nanoTime();
+            cacheManager.throttleWrites();      // writer가 high 아래로 내리면 깨어남
+            long waitedMs = (System.nanoTime() - start) / 1_000_000;
+            drainer.join();
+            assertTrue(waitedMs < 1_000, "최대 대기 전에 풀려야 함: " + waitedMs + "ms");
+            assertEquals(1, metrics.snapshot(0, 0, 0, 0).throttledWrites);
+            assertEquals(2, cacheManager.getDirtyPageCount());
+            assertFalse(cacheManager.isWritesThrottled());
+        } finally {
+            writer.stop();
+        }
 
+        // writer가 멈추면 내려줄 쪽이 없으므로 억제도 꺼짐
+        for (int pageId = 0; pageId < 8; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            cacheManager.putPage(page);
+            cacheManager.unpinPage(page);
+        }
+        assertFalse(cacheManager.isWritesThrottled());
+    }
+
+    @Test
+    void testDirtyPageCountTracksPutFlushAndClear() {
+        cacheManager = new CacheManager(diskManager, null, metrics, 64);
+        for (int pageId = 0; pageId < 40; pageId++) cacheManager.getPage(pageId);   // clean 페이지는 세지 않음
+        for (int pageId = 0; pageId < 3; pageId++) {
+            Page page = cacheManager.pinPage(pageId);
+            page.getData()[0] = 1;
+            cacheManager.putPage(page);
+            cacheManager.putPage(page);         // 같은 페이지를 다시 put해도 1개
+            cacheManager.unpinPage(page);
+        }
+        assertEquals(3, cacheManager.getDirtyPageCount());
+
+        long flushedBefore = metrics.snapshot(0, 0, 0, 0).flushedPages;
+        cacheManager.flush();
+        assertEquals(0, cacheManager.getDirtyPageCount());
+        assertEquals(flushedBefore + 3, metrics.snapshot(0, 0, 0, 0).flushedPages);
+
+        Page page = cacheManager.pinPage(10);
+        cacheManager.putPage(page);
+        cacheManager.unpinPage(page);
+        assertEquals(1, cacheManager.getDirtyPageCount());
+        cacheManager.clearCache();              // dirty 내용을 버리면 추적도 비움
+        assertEquals(0, cacheManager.getDirtyPageCount());
+    }
+
+    @Test
+    void testConcurrentMissesOnSamePageShareOneLoad() throws Exception {
+        cacheManager = new CacheManager(diskManager, null, metrics, 4);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Page>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cacheManager.pinPage(42);
+                }));
+            }
+            start.countDown();
+            Page first = futures.get(0).get();
+            for (Future<Page> future : futures) assertSame(first, future.get());
+            assertEquals(1, metrics.snapshot(0, 0, 0, 0).bufferMiss);
+            assertEquals(1, cacheManager.getResidentPageCount());
+
+            // 대기자들의 pin도 모두 풀려야 교체 가능
+            for (int i = 0; i < threads; i++) cacheManager.unpinPage(first);
+            for (int pageId = 0; pageId < 8; pageId++) cacheManager.getPage(pageId);
+            assertTrue(cacheManager.getResidentPageCount() <= 4);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReplacePagesDoesNotWaitOnLoadingPlaceholder() throws Exception {
+        // capacity 1 + dirty page 0 → pinPage(2)의 적재 스레드는 page 0을 write-back하려고 flushLock을 기다림
+        // replacePages가 flushLock을 쥔 채 그 placeholder를 기다리면 둘 다 멈춤
+        ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);             // 교착이면 두 스레드가 남음 → JVM 종료를 막지 않게
+            return thread;
+        });
+        Thread[] loader = new Thread[1];
+        List<Future<Page>> loads = new ArrayList<>();
+        PageStore gated = (PageStore) Proxy.newProxyInstance(PageStore.class.getClassLoader(),
+                new Class<?>[]{PageStore.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("writePagesAtomically")) {
+                        // flushLock 안 — 적재 스레드를 placeholder 등록 후 write-back 대기까지 진행시킴
+                        Future<Page> pinned = executor.submit(() -> {
+                            loader[0] = Thread.currentThread();
+                            return cacheManager.pinPage(2);
+                        });
+                        loads.add(pinned);
+                        while (loader[0] == null || loader[0].getState() != Thread.State.BLOCKED) {
+                            if (pinned.isDone()) break;
+                            Thread.sleep(1);
+                        }
+                    }
+                    try {
+                        return method.invoke(diskManager, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        cacheManager = new CacheManager(gated, null, metrics, 1);
+        try {
+            Page dirty = cacheManager.pinPage(0);
+            PageLayout.initializePage(dirty);
+            cacheManager.putPage(dirty);
+            cacheManager.unpinPage(dirty);
+
+            Page replacement = new Page(2);
+            PageLayout.initializePage(replacement);
+            PageLayout.writeRecord(replacement, "replaced".getBytes());
+            Future<?> replace = executor.submit(() -> cacheManager.replacePages(List.of(replacement)));
+            try {
+                replace.get(5, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                cacheManager = null;            // flushLock이 잡힌 채 → cleanup의 close도 멈춤
+                fail("replacePages waited on a loading placeholder while holding flushLock");
+            }
+            cacheManager.unpinPage(loads.get(0).get(5, TimeUnit.SECONDS));
+
+            Page page = cacheManager.pinPage(2);
+            assertArrayEquals("replaced".getBytes(), PageLayout.readRecord(page, 0));
+            cacheManager.unpinPage(page);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
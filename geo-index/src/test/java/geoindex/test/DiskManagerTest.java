@@ -1,13 +1,30 @@
 package geoindex.test;
 
 import geoindex.metric.EngineMetrics;
+import geoindex.metric.MetricsSnapshot;
 import geoindex.storage.DiskManager;
 import geoindex.storage.Page;
+import geoindex.storage.PageCompactor;
 import geoindex.storage.PageLayout;
+import geoindex.storage.PageScrubber;
+import geoindex.storage.PageSnapshot;
+import geoindex.storage.StorageOptions;
 import org.junit.jupiter.api.*;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,17 +90,110 @@ class DiskManagerTest {
         dm.close();
 
         long fileSize = Files.size(Path.of(TEST_FILE));
-        long dataOffset = 4 + (long) 100_000 * 12; // 1_200_004
-        long expectedMax = dataOffset + (long) pageIds.length * Page.PAGE_SIZE;
+        long fileHeader = Page.PAGE_SIZE;   // magic + version + 첫 디렉토리 offset
+        long directoryPage = Page.PAGE_SIZE; // 엔트리 340개까지 디렉토리 페이지 1개
+        long expectedMax = fileHeader + directoryPage + (long) pageIds.length * Page.PAGE_SIZE;
 
         System.out.println("파일 크기: " + fileSize + " bytes");
         System.out.println("예상 최대: " + expectedMax + " bytes");
 
-        // 매핑 테이블 적용: 3페이지 × 4KB = 12KB
+        // 매핑 테이블 적용: 헤더 4KB + 디렉토리 4KB + 3페이지 × 4KB = 20KB
         // 미적용: 60,712,200 × 4KB = 234GB
         assertEquals(expectedMax, fileSize);
     }
 
+    @Test
+    void testDirectoryGrowsBeyondOnePage() {
+        // 디렉토리 페이지 1개 = 340 엔트리 → 1,000 페이지면 디렉토리 체인 3개
+        int pageCount = 1_000;
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            for (int i = 0; i < pageCount; i++) {
+                Page page = new Page(i * 7_919);
+                page.buffer().putInt(0, i);
+                dm.writePage(page);
+            }
+        } finally {
+            dm.close();
+        }
+
+        DiskManager reopened = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            assertEquals(pageCount, reopened.getUsedPageCount());
+            for (int i = 0; i < pageCount; i++) {
+                assertEquals(i, reopened.readPage(i * 7_919).buffer().getInt(0));
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testDirectoryLoadReadsExtentsInBulk() {
+        // 5,000 페이지 → 디렉토리 15페이지 = extent 1 + 2 + 4 + 8
+        int pageCount = 5_000;
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            for (int pageId = 0; pageId < pageCount; pageId++) {
+                dm.writePage(new Page(pageId));
+            }
+        } finally {
+            dm.close();
+        }
+
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager reopened = new DiskManager(TEST_FILE, metrics);
+        try {
+            assertEquals(pageCount, reopened.getUsedPageCount());
+            // 디렉토리 페이지마다 read 1회가 아니라 extent마다 read 1회
+            assertEquals(4, metrics.snapshot(0, 0, 0, 0).directoryLoadReads);
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testLegacyFixedHeaderFileIsMigrated() throws Exception {
+        // 버전 1 포맷: [entryCount][pageId + offset] × 100,000 고정 헤더 뒤에 데이터
+        long legacyDataOffset = 4 + 100_000L * 12;
+        try (FileChannel ch = FileChannel.open(Path.of(TEST_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4 + 2 * 12);
+            header.putInt(2);
+            header.putInt(11).putLong(legacyDataOffset);
+            header.putInt(22).putLong(legacyDataOffset + Page.PAGE_SIZE);
+            header.flip();
+            ch.write(header, 0);
+
+            ByteBuffer data = ByteBuffer.allocate(2 * Page.PAGE_SIZE);
+            data.putInt(0, 111);
+            data.putInt(Page.PAGE_SIZE, 222);
+            ch.write(data, legacyDataOffset);
+        }
+
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            assertEquals(2, dm.getUsedPageCount());
+            assertEquals(111, dm.readPage(11).buffer().getInt(0));
+            assertEquals(222, dm.readPage(22).buffer().getInt(0));
+
+            Page page = new Page(33);
+            page.buffer().putInt(0, 333);
+            dm.writePage(page);
+        } finally {
+            dm.close();
+        }
+
+        DiskManager reopened = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            assertEquals(3, reopened.getUsedPageCount());
+            assertEquals(111, reopened.readPage(11).buffer().getInt(0));
+            assertEquals(333, reopened.readPage(33).buffer().getInt(0));
+        } finally {
+            reopened.close();
+        }
+    }
+
     @Test
     void testReadNonExistentPageReturnsEmpty() {
         DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
@@ -95,4 +205,839 @@ class DiskManagerTest {
             dm.close();
         }
     }
+
+    @Test
+    void testReadsDuringDirectoryTableResize() throws Exception {
+        // 새 페이지 등록마다 PageTable이 자람 (16 → 16,384) — 낙관적 읽기가 resize와 겹쳐도 예외 / 틀린 페이지 없음
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        int pageCount = 8_000;
+        int threadCount = 4;
+        AtomicInteger written = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(() -> {
+                    while (written.get() < pageCount) {
+                        int done = written.get();
+                        int pageId = ThreadLocalRandom.current().nextInt(done + 64);
+                        Page read = dm.readPage(pageId);
+                        if (pageId < done) assertEquals(pageId, read.buffer().getInt(0), "pageId=" + pageId);
+                    }
+                    return null;
+                }));
+            }
+            for (int pageId = 0; pageId < pageCount; pageId++) {
+                Page page = new Page(pageId);
+                page.buffer().putInt(0, pageId);
+                dm.writePage(page);
+                written.incrementAndGet();
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            written.set(pageCount);
+            executor.shutdown();
+            dm.close();
+        }
+    }
+
+    @Test
+    void testConcurrentReadsReturnOwnPage() throws Exception {
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            int pageCount = 500;
+            for (int pageId = 0; pageId < pageCount; pageId++) {
+                Page page = new Page(pageId);
+                page.buffer().putInt(0, pageId);
+                page.buffer().putInt(Page.PAGE_SIZE - 4, pageId);
+                dm.writePage(page);
+            }
+
+            // 락 없는 위치 지정 읽기 → 다른 스레드의 offset으로 읽히면 안 됨
+            int threadCount = 16;
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            CountDownLatch startLatch = new CountDownLatch(1);
+            AtomicInteger failCount = new AtomicInteger(0);
+            Future<?>[] futures = new Future<?>[threadCount];
+
+            for (int t = 0; t < threadCount; t++) {
+                futures[t] = executor.submit(() -> {
+                    startLatch.await();
+                    for (int i = 0; i < 2_000; i++) {
+                        int pageId = ThreadLocalRandom.current().nextInt(pageCount);
+                        Page read = dm.readPage(pageId);
+                        if (read.buffer().getInt(0) != pageId
+                                || read.buffer().getInt(Page.PAGE_SIZE - 4) != pageId) {
+                            failCount.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            startLatch.countDown();
+            for (Future<?> future : futures) future.get();
+            executor.shutdown();
+
+            assertEquals(0, failCount.get());
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testMmapModeReadsAcrossChunkGrowth() {
+        // chunk를 작게 잡아서 파일 성장 → chunk 추가 매핑 / 재매핑 경로를 모두 지나가게 함
+        StorageOptions options = StorageOptions.builder()
+                .ioMode(StorageOptions.IoMode.MMAP)
+                .mapChunkSize(64 * 1024)
+                .build();
+        int pageCount = 100;
+
+        DiskManager dm = new DiskManager(TEST_FILE, options, new EngineMetrics());
+        try {
+            for (int pageId = 0; pageId < pageCount; pageId++) {
+                Page page = new Page(pageId);
+                PageLayout.initializePage(page);
+                PageLayout.writeRecord(page, ("H" + pageId).getBytes());
+                dm.writePage(page);
+
+                // 쓰자마자 읽기 → 매핑 범위 밖이면 재매핑
+                assertEquals("H" + pageId, new String(PageLayout.readRecord(dm.readPage(pageId), 0)));
+            }
+        } finally {
+            dm.close();
+        }
+
+        DiskManager reopened = new DiskManager(TEST_FILE, options, new EngineMetrics());
+        try {
+            for (int pageId = pageCount - 1; pageId >= 0; pageId--) {
+                assertEquals("H" + pageId, new String(PageLayout.readRecord(reopened.readPage(pageId), 0)));
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testChecksumMismatchIsDetectedOnReadAndByScrubber() throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager dm = new DiskManager(TEST_FILE, metrics);
+        for (int pageId = 0; pageId < 3; pageId++) {
+            Page page = new Page(pageId);
+            PageLayout.initializePage(page);
+            PageLayout.writeRecord(page, ("병원" + pageId).getBytes());
+            dm.writePage(page);
+        }
+        dm.close();
+
+        // 헤더(4KB) + 디렉토리 페이지(4KB) 뒤 두 번째 데이터 페이지 = pageId 1 → 레코드 영역 1바이트 변조
+        try (FileChannel ch = FileChannel.open(Path.of(TEST_FILE), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{0x7F}), 4096 + 4096 + Page.PAGE_SIZE + Page.PAGE_SIZE - 3);
+        }
+
+        dm = new DiskManager(TEST_FILE, metrics);
+        try {
+            assertEquals("병원0", new String(PageLayout.readRecord(dm.readPage(0), 0)));
+            DiskManager finalDm = dm;
+            assertThrows(IllegalStateException.class, () -> finalDm.readPage(1));
+
+            PageScrubber scrubber = new PageScrubber(dm, 0, metrics);
+            assertEquals(List.of(1), scrubber.scrubOnce());
+            assertEquals(Set.of(1), scrubber.getCorruptPageIds());
+            assertEquals(3, metrics.snapshot(0, 0, 0, 0).scrubbedPages);
+            assertEquals(2, metrics.snapshot(0, 0, 0, 0).checksumFailureCount);
+        } finally {
+            dm.close();
+        }
+
+        // 검증을 끄면 손상 페이지도 그대로 반환
+        dm = new DiskManager(TEST_FILE, StorageOptions.builder().verifyChecksums(false).build(), metrics);
+        try {
+            assertNotNull(dm.readPage(1));
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testLegacyMagicPageKeepsSixteenByteHeader() {
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            // 체크섬 도입 전 포맷: magic 0xCAFEBABE, 슬롯 디렉토리가 16번째 바이트부터
+            Page page = new Page(7);
+            page.buffer().putInt(PageLayout.OFFSET_RECORD_COUNT, 1);
+            page.buffer().putInt(PageLayout.OFFSET_FREE_SPACE, Page.PAGE_SIZE - 8);
+            page.buffer().putInt(PageLayout.OFFSET_MAGIC, PageLayout.MAGIC_LEGACY);
+            page.buffer().putInt(PageLayout.OFFSET_OVERFLOW, PageLayout.NO_OVERFLOW);
+            page.buffer().putInt(16, Page.PAGE_SIZE - 8).putInt(20, 8);
+            page.buffer().putInt(Page.PAGE_SIZE - 8, 4).put(Page.PAGE_SIZE - 4, "abcd".getBytes(), 0, 4);
+            dm.writePage(page);
+
+            Page read = dm.readPage(7);
+            assertEquals("abcd", new String(PageLayout.readRecord(read, 0)));
+            assertEquals(1, PageLayout.writeRecord(read, "efgh".getBytes()));
+            assertEquals(Page.PAGE_SIZE - 16, read.buffer().getInt(24));
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testDirectModeRoundTripWithSmallBufferPool() throws Exception {
+        StorageOptions direct = StorageOptions.builder()
+                .ioMode(StorageOptions.IoMode.DIRECT)
+                .directBufferPoolSize(4)      // run(50 페이지)보다 작음 → 나눠서 기록
+                .build();
+        DiskManager dm;
+        try {
+            dm = new DiskManager(TEST_FILE, direct, new EngineMetrics());
+        } catch (RuntimeException e) {
+            Assumptions.abort("O_DIRECT 미지원 환경: " + e.getCause());
+            return;
+        }
+
+        try {
+            List<Page> pages = new ArrayList<>();
+            for (int pageId = 0; pageId < 50; pageId++) {
+                Page page = new Page(pageId);
+                PageLayout.initializePage(page);
+                PageLayout.writeRecord(page, ("병원" + pageId).getBytes());
+                pages.add(page);
+            }
+            dm.writePages(pages);
+
+            Page single = dm.readPage(7);
+            PageLayout.writeRecord(single, "추가".getBytes());
+            dm.writePage(single);
+
+            // 버퍼 2배 많은 스레드가 동시에 읽어도 풀 대기로 정상 완료
+            DiskManager finalDm = dm;
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        int pageId = ThreadLocalRandom.current().nextInt(50);
+                        byte[] record = PageLayout.readRecord(finalDm.readPage(pageId), 0);
+                        assertEquals("병원" + pageId, new String(record));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+            executor.shutdown();
+        } finally {
+            dm.close();
+        }
+
+        // 같은 파일을 buffered 모드로 열어도 동일한 내용
+        dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            assertEquals("병원49", new String(PageLayout.readRecord(dm.readPage(49), 0)));
+            assertEquals("추가", new String(PageLayout.readRecord(dm.readPage(7), 1)));
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testReadPagesCoalescesPhysicallyAdjacentPages() {
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        List<Page> pages = new ArrayList<>();
+        for (int pageId = 0; pageId < 64; pageId++) {
+            Page page = new Page(pageId);
+            page.buffer().putInt(0, pageId + 1000);
+            pages.add(page);
+        }
+        dm.writePages(pages);
+        Page far = new Page(100);
+        far.buffer().putInt(0, 1100);
+        dm.writePage(far);
+        dm.close();
+
+        EngineMetrics metrics = new EngineMetrics();
+        dm = new DiskManager(TEST_FILE, metrics);
+        try {
+            List<Page> run = dm.readPages(0, 63);
+            assertEquals(64, run.size());
+            for (int i = 0; i < 64; i++) {
+                assertEquals(i, run.get(i).getPageId());
+                assertEquals(i + 1000, run.get(i).buffer().getInt(0));
+            }
+            assertEquals(1, metrics.snapshot(0, 0, 0, 0).readCallCount);
+
+            // 60~63 인접 run 1회 + 64~99 / 101 디렉토리에 없음 (I/O 없음) + 100 단독 1회
+            List<Page> mixed = dm.readPages(60, 101);
+            assertEquals(42, mixed.size());
+            assertEquals(1063, mixed.get(3).buffer().getInt(0));
+            assertEquals(0, mixed.get(4).buffer().getInt(0));
+            assertEquals(1100, mixed.get(40).buffer().getInt(0));
+            assertEquals(3, metrics.snapshot(0, 0, 0, 0).readCallCount);
+            assertEquals(64 + 42, metrics.snapshot(0, 0, 0, 0).pageReadCount);
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testCompressedPagesRoundTripRelocateAndShrinkFile() throws Exception {
+        StorageOptions deflate = StorageOptions.builder()
+                .compression(StorageOptions.Compression.DEFLATE)
+                .build();
+        EngineMetrics metrics = new EngineMetrics();
+        byte[] noise = new byte[3000];
+        new Random(5).nextBytes(noise);
+        DiskManager dm = new DiskManager(TEST_FILE, deflate, metrics);
+        List<Page> pages = new ArrayList<>();
+        for (int pageId = 0; pageId < 20; pageId++) {
+            Page page = new Page(pageId);
+            PageLayout.initializePage(page);
+            for (int i = 0; i < 30; i++) {
+                PageLayout.writeRecord(page, String.format("H%05d", pageId * 100 + i).getBytes());
+            }
+            pages.add(page);
+        }
+        dm.writePages(pages);
+        dm.close();
+
+        // 헤더 + 디렉토리 + 20 × 4KB = 90KB → 압축 extent는 페이지당 수백 바이트
+        assertTrue(Files.size(Path.of(TEST_FILE)) < 2 * Page.PAGE_SIZE + 20 * 1024,
+                "파일 크기: " + Files.size(Path.of(TEST_FILE)));
+
+        dm = new DiskManager(TEST_FILE, deflate, metrics);
+        try {
+            // 연속 배치된 압축 extent → read 1회로 20페이지
+            long callsBefore = metrics.snapshot(0, 0, 0, 0).readCallCount;
+            List<Page> read = dm.readPages(0, 19);
+            assertEquals(callsBefore + 1, metrics.snapshot(0, 0, 0, 0).readCallCount);
+            assertEquals("H00729", new String(PageLayout.readRecord(read.get(7), 29)));
+
+            // 압축이 안 되는 내용으로 커짐 → 파일 끝으로 재배치, 원본 크기로 저장
+            Page grown = read.get(5);
+            PageLayout.writeRecord(grown, noise);
+            dm.writePage(grown);
+            assertArrayEquals(noise, PageLayout.readRecord(dm.readPage(5), 30));
+            assertEquals("H00600", new String(PageLayout.readRecord(dm.readPage(6), 0)));
+        } finally {
+            dm.close();
+        }
+
+        // 압축 없이 열어도 읽기 가능, 다시 쓴 압축 페이지는 비압축으로 재배치
+        dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            Page page = dm.readPage(3);
+            PageLayout.writeRecord(page, "추가".getBytes());
+            dm.writePage(page);
+            assertEquals("추가", new String(PageLayout.readRecord(dm.readPage(3), 30)));
+            assertEquals("H00400", new String(PageLayout.readRecord(dm.readPage(4), 0)));
+            assertArrayEquals(noise, PageLayout.readRecord(dm.readPage(5), 30));
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testCorruptCompressedExtentIsDetected() throws Exception {
+        StorageOptions deflate = StorageOptions.builder()
+                .compression(StorageOptions.Compression.DEFLATE)
+                .verifyChecksums(false)
+                .build();
+        DiskManager dm = new DiskManager(TEST_FILE, deflate, new EngineMetrics());
+        Page page = new Page(0);
+        PageLayout.initializePage(page);
+        PageLayout.writeRecord(page, "H00001".getBytes());
+        dm.writePage(page);
+        dm.close();
+
+        // 헤더(4KB) + 디렉토리(4KB) 뒤 첫 extent의 deflate 스트림 중간 변조
+        try (FileChannel ch = FileChannel.open(Path.of(TEST_FILE), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF}), 2L * Page.PAGE_SIZE + 4);
+        }
+
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager corrupted = new DiskManager(TEST_FILE, deflate, metrics);
+        try {
+            // 체크섬 검증을 꺼도 압축 해제 실패는 손상으로 처리
+            assertThrows(IllegalStateException.class, () -> corrupted.readPage(0));
+            assertFalse(corrupted.verifyPage(0));
+            assertEquals(2, metrics.snapshot(0, 0, 0, 0).checksumFailureCount);
+        } finally {
+            corrupted.close();
+        }
+    }
+
+    @Test
+    void testCompressionIsRejectedWithDirectIo() {
+        assertThrows(IllegalArgumentException.class, () -> StorageOptions.builder()
+                .ioMode(StorageOptions.IoMode.DIRECT)
+                .compression(StorageOptions.Compression.DEFLATE)
+                .build());
+    }
+
+    @Test
+    void testCompactorReclaimsFreedExtentsWhileReadsContinue() throws Exception {
+        StorageOptions deflate = StorageOptions.builder()
+                .compression(StorageOptions.Compression.DEFLATE)
+                .build();
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager dm = new DiskManager(TEST_FILE, deflate, metrics);
+        Random random = new Random(7);
+        byte[][] expected = new byte[40][];
+        List<Page> pages = new ArrayList<>();
+        for (int pageId = 0; pageId < 40; pageId++) {
+            expected[pageId] = String.format("H%05d", pageId).getBytes();
+            pages.add(pageWithRecord(pageId, expected[pageId]));
+        }
+        dm.writePages(pages);
+
+        // 앞쪽 20페이지가 커짐 → 파일 끝으로 재배치, 앞쪽에 작은 extent 20개 크기의 빈 공간
+        pages.clear();
+        for (int pageId = 0; pageId < 20; pageId++) {
+            expected[pageId] = new byte[600];
+            random.nextBytes(expected[pageId]);
+            pages.add(pageWithRecord(pageId, expected[pageId]));
+        }
+        dm.writePages(pages);
+        dm.sync();
+        long sizeBefore = Files.size(Path.of(TEST_FILE));
+        assertTrue(dm.getFreeSpaceBytes() > 0);
+
+        DiskManager finalDm = dm;
+        AtomicInteger readErrors = new AtomicInteger();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(readers.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    int pageId = ThreadLocalRandom.current().nextInt(40);
+                    if (!Arrays.equals(expected[pageId], PageLayout.readRecord(finalDm.readPage(pageId), 0))) {
+                        readErrors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        long reclaimed = new PageCompactor(dm, 0).compactOnce();
+        for (Future<?> future : futures) future.get();
+        readers.shutdown();
+
+        assertEquals(0, readErrors.get());
+        assertTrue(reclaimed > 0);
+        assertEquals(sizeBefore - reclaimed, Files.size(Path.of(TEST_FILE)));
+        MetricsSnapshot snapshot = metrics.snapshot(0, 0, 0, 0);
+        assertTrue(snapshot.compactedPages > 0);
+        assertEquals(reclaimed, snapshot.truncatedBytes);
+        long freeAfter = dm.getFreeSpaceBytes();
+        dm.close();
+
+        // 재작성한 디렉토리 + FREE 레코드 → 재시작 후에도 같은 내용, 같은 빈 공간
+        dm = new DiskManager(TEST_FILE, deflate, new EngineMetrics());
+        try {
+            for (int pageId = 0; pageId < 40; pageId++) {
+                assertArrayEquals(expected[pageId], PageLayout.readRecord(dm.readPage(pageId), 0));
+            }
+            assertEquals(freeAfter, dm.getFreeSpaceBytes());
+
+            // 빈 공간은 새 페이지가 재사용 → 파일이 커지지 않음
+            long size = Files.size(Path.of(TEST_FILE));
+            if (freeAfter >= 256) {
+                dm.writePage(pageWithRecord(100, "H00100".getBytes()));
+                assertEquals(size, Files.size(Path.of(TEST_FILE)));
+                assertEquals("H00100", new String(PageLayout.readRecord(dm.readPage(100), 0)));
+            }
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testTornAtomicBatchIsDiscardedOnReopen() throws Exception {
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        for (int pageId = 1; pageId <= 3; pageId++) dm.writePage(pageWithRecord(pageId, "OLD".getBytes()));
+        List<Page> batch = new ArrayList<>();
+        for (int pageId = 1; pageId <= 3; pageId++) batch.add(pageWithRecord(pageId, "NEW".getBytes()));
+        dm.writePagesAtomically(batch);
+        for (int pageId = 1; pageId <= 3; pageId++) {
+            assertEquals("NEW", new String(PageLayout.readRecord(dm.readPage(pageId), 0)));
+        }
+        dm.close();
+
+        // 배치 마지막 엔트리가 디스크에 반영되기 전에 크래시 난 상황 — 마지막 디렉토리 페이지 count - 1
+        try (FileChannel ch = FileChannel.open(Path.of(TEST_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(12);
+            ch.read(buffer, 8);
+            long dirOffset = buffer.getLong(0);
+            while (true) {
+                buffer.clear();
+                ch.read(buffer, dirOffset);
+                long next = buffer.getLong(0);
+                if (next == -1) break;
+                dirOffset = next;
+            }
+            ch.write(ByteBuffer.allocate(4).putInt(0, buffer.getInt(8) - 1), dirOffset + 8);
+        }
+
+        dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        for (int pageId = 1; pageId <= 3; pageId++) {
+            assertEquals("OLD", new String(PageLayout.readRecord(dm.readPage(pageId), 0)), "잘린 배치는 통째로 무시");
+        }
+        // 잘린 배치 뒤에 붙는 일반 엔트리가 배치 나머지로 오해되지 않음
+        dm.writePage(pageWithRecord(4, "AFTER".getBytes()));
+        dm.close();
+
+        dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            for (int pageId = 1; pageId <= 3; pageId++) {
+                assertEquals("OLD", new String(PageLayout.readRecord(dm.readPage(pageId), 0)));
+            }
+            assertEquals("AFTER", new String(PageLayout.readRecord(dm.readPage(4), 0)));
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testAsyncReadAndWriteRoundTrip() throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager dm = new DiskManager(TEST_FILE, metrics);
+        try {
+            List<Page> pages = new ArrayList<>();
+            for (int pageId = 0; pageId < 8; pageId++) pages.add(pageWithRecord(pageId, ("A" + pageId).getBytes()));
+            dm.writePages(pages);
+
+            // 새 페이지 (대체 경로) + 이미 있는 페이지 제자리 쓰기 (비동기 채널)를 한꺼번에
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            writes.add(dm.writePageAsync(pageWithRecord(20, "NEW".getBytes())));
+            for (int pageId = 0; pageId < 8; pageId += 2) {
+                writes.add(dm.writePageAsync(pageWithRecord(pageId, ("B" + pageId).getBytes())));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+            long callsBefore = metrics.snapshot(0, 0, 0, 0).readCallCount;
+            List<Page> read = dm.readPagesAsync(0, 9).get(10, TimeUnit.SECONDS);
+            assertEquals(10, read.size());
+            assertEquals(callsBefore + 1, metrics.snapshot(0, 0, 0, 0).readCallCount, "인접 run은 비동기 read 1회");
+            for (int pageId = 0; pageId < 8; pageId++) {
+                String expected = (pageId % 2 == 0 ? "B" : "A") + pageId;
+                assertEquals(expected, new String(PageLayout.readRecord(read.get(pageId), 0)));
+            }
+            assertFalse(PageLayout.isInitialized(read.get(9)), "없는 페이지 → 빈 페이지");
+            assertEquals("NEW", new String(PageLayout.readRecord(dm.readPageAsync(20).get(10, TimeUnit.SECONDS), 0)));
+        } finally {
+            dm.close();
+        }
+
+        // MMAP 모드는 비동기 채널 없이 같은 결과
+        StorageOptions mmap = StorageOptions.builder().ioMode(StorageOptions.IoMode.MMAP).build();
+        dm = new DiskManager(TEST_FILE, mmap, new EngineMetrics());
+        try {
+            dm.writePageAsync(pageWithRecord(3, "C3".getBytes())).get(10, TimeUnit.SECONDS);
+            assertEquals("C3", new String(PageLayout.readRecord(dm.readPageAsync(3).get(10, TimeUnit.SECONDS), 0)));
+            assertEquals("B2", new String(PageLayout.readRecord(dm.readPagesAsync(2, 3).get(10, TimeUnit.SECONDS).get(0), 0)));
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testPageSizeIsRecordedInHeaderAndUsedOnReopen() throws Exception {
+        StorageOptions large = StorageOptions.builder().pageSize(16 * 1024).build();
+        DiskManager dm = new DiskManager(TEST_FILE, large, new EngineMetrics());
+        List<Page> pages = new ArrayList<>();
+        for (int pageId = 0; pageId < 4; pageId++) {
+            Page page = new Page(pageId, 16 * 1024);
+            PageLayout.initializePage(page);
+            // 800 × (6 + 4 + 슬롯 8) ≈ 14KB — 4KB 페이지면 overflow 4개가 필요한 양
+            for (int i = 0; i < 800; i++) {
+                assertNotEquals(-1, PageLayout.writeRecord(page, String.format("L%05d", pageId * 1000 + i).getBytes()));
+            }
+            pages.add(page);
+        }
+        dm.writePages(pages);
+        assertThrows(IllegalArgumentException.class, () -> dm.writePage(new Page(9)), "파일과 다른 크기의 페이지");
+        dm.close();
+
+        // 헤더 4KB + 디렉토리 4KB + 16KB × 4
+        assertEquals(2 * Page.PAGE_SIZE + 4 * 16 * 1024, Files.size(Path.of(TEST_FILE)));
+
+        // 옵션 없이 열어도 헤더의 페이지 크기로 열림
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager reopened = new DiskManager(TEST_FILE, metrics);
+        try {
+            assertEquals(16 * 1024, reopened.getPageSize());
+            List<Page> read = reopened.readPages(0, 4);
+            assertEquals(16 * 1024, read.get(0).getPageSize());
+            assertEquals("L03799", new String(PageLayout.readRecord(read.get(3), 799)));
+            assertFalse(PageLayout.isInitialized(read.get(4)));
+            assertEquals(1, metrics.snapshot(0, 0, 0, 0).readCallCount, "16KB 페이지도 인접 run은 read 1회");
+
+            // rebuild 임시 파일도 같은 페이지 크기
+            reopened.rebuild(temp -> temp.writePage(read.get(2)));
+            assertEquals(16 * 1024, reopened.getPageSize());
+            assertEquals("L02000", new String(PageLayout.readRecord(reopened.readPage(2), 0)));
+        } finally {
+            reopened.close();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> StorageOptions.builder().pageSize(12 * 1024));
+        assertThrows(IllegalArgumentException.class, () -> StorageOptions.builder().pageSize(128 * 1024));
+    }
+
+    @Test
+    void testDurabilityModesControlFsync() throws Exception {
+        // NONE → 쓰기 / close 어디서도 fsync 없음
+        assertEquals(0, fsyncsFor(StorageOptions.Durability.NONE, 3, true));
+        // FLUSH_ON_CLOSE → close 때 1회
+        assertEquals(1, fsyncsFor(StorageOptions.Durability.FLUSH_ON_CLOSE, 3, true));
+        assertEquals(0, fsyncsFor(StorageOptions.Durability.FLUSH_ON_CLOSE, 3, false));
+        // SYNC_ON_FLUSH → writePages마다 1회 (close는 쓸 게 없음)
+        assertEquals(3, fsyncsFor(StorageOptions.Durability.SYNC_ON_FLUSH, 3, true));
+
+        // PERIODIC → 여러 flush가 주기마다 fsync 1회를 공유, 쓰기가 없으면 fsync 없음
+        EngineMetrics metrics = new EngineMetrics();
+        StorageOptions periodic = StorageOptions.builder()
+                .durability(StorageOptions.Durability.PERIODIC)
+                .syncIntervalMillis(20)
+                .build();
+        DiskManager dm = new DiskManager(TEST_FILE, periodic, metrics);
+        try {
+            for (int i = 0; i < 10; i++) dm.writePages(List.of(pageWithRecord(i, "P".getBytes())));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (metrics.snapshot(0, 0, 0, 0).fsyncCount == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            long synced = metrics.snapshot(0, 0, 0, 0).fsyncCount;
+            assertTrue(synced >= 1 && synced < 10, "fsync 수: " + synced);
+            Thread.sleep(100);
+            assertEquals(synced, metrics.snapshot(0, 0, 0, 0).fsyncCount, "쓰기가 없으면 주기 fsync도 없음");
+
+            // rebuild → 임시 파일 close 때 fsync (+ 상위 디렉토리 fsync) 후 교체
+            dm.rebuild(temp -> temp.writePage(pageWithRecord(0, "R".getBytes())));
+            MetricsSnapshot after = metrics.snapshot(0, 0, 0, 0);
+            assertTrue(after.fsyncCount > synced);
+            assertTrue(after.maxFsyncMicros >= after.avgFsyncMicros);
+            assertEquals("R", new String(PageLayout.readRecord(dm.readPage(0), 0)));
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testSnapshotKeepsPointInTimeViewWhileWritesContinue() throws Exception {
+        String backupFile = TEST_FILE + ".backup";
+        DiskManager dm = new DiskManager(TEST_FILE, new EngineMetrics());
+        try {
+            List<Page> pages = new ArrayList<>();
+            for (int pageId = 0; pageId < 300; pageId++) pages.add(pageWithRecord(pageId, ("v1-" + pageId).getBytes()));
+            dm.writePages(pages);
+
+            PageSnapshot snapshot = dm.openSnapshot();
+            assertThrows(IllegalStateException.class, dm::openSnapshot, "스냅샷은 한 번에 하나");
+
+            // 스냅샷 이후 제자리 덮어쓰기 (writePage / writePages) + 새 페이지
+            dm.writePage(pageWithRecord(0, "v2-0".getBytes()));
+            dm.writePages(List.of(pageWithRecord(1, "v2-1".getBytes()), pageWithRecord(2, "v2-2".getBytes())));
+            dm.writePage(pageWithRecord(500, "new".getBytes()));
+            assertEquals(3, snapshot.getPreservedPageCount());
+            assertEquals("v1-0", new String(PageLayout.readRecord(snapshot.readPage(0), 0)));
+            assertEquals("v2-0", new String(PageLayout.readRecord(dm.readPage(0), 0)));
+            assertEquals(300, snapshot.getPageIds().length);
+            assertThrows(IllegalArgumentException.class, () -> snapshot.readPage(500));
+            assertThrows(IllegalStateException.class, () -> dm.rebuild(temp -> {}), "스냅샷 중 rebuild 불가");
+
+            // 백업 도중에도 쓰기 계속 — 백업에는 스냅샷 시점 내용만
+            // interrupt로 멈추면 FileChannel이 닫힘 → 플래그로 멈추고, 쓰기 스레드의 예외는 모아서 확인
+            AtomicInteger round = new AtomicInteger();
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicReference<Throwable> writerFailure = new AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        int r = round.incrementAndGet();
+                        List<Page> batch = new ArrayList<>();
+                        for (int pageId = 0; pageId < 300; pageId += 7) {
+                            batch.add(pageWithRecord(pageId, ("w" + r).getBytes()));
+                        }
+                        dm.writePages(batch);
+                    }
+                } catch (Throwable t) {
+                    writerFailure.set(t);
+                }
+            });
+            writer.start();
+            try {
+                snapshot.writeTo(backupFile, new EngineMetrics());
+            } finally {
+                stop.set(true);
+                writer.join();
+            }
+            assertNull(writerFailure.get(), () -> "writer failed: " + writerFailure.get());
+            assertTrue(round.get() > 0);
+            assertEquals(0, snapshot.getPreservedPageCount(), "내보낸 페이지의 보관본은 해제");
+            snapshot.close();
+
+            DiskManager backup = new DiskManager(backupFile, new EngineMetrics());
+            try {
+                assertEquals(300, backup.getUsedPageCount());
+                for (int pageId = 0; pageId < 300; pageId++) {
+                    assertEquals("v1-" + pageId, new String(PageLayout.readRecord(backup.readPage(pageId), 0)));
+                }
+            } finally {
+                backup.close();
+            }
+
+            // 닫은 뒤에는 rebuild 가능
+            dm.rebuild(temp -> temp.writePage(pageWithRecord(0, "r".getBytes())));
+            assertEquals("r", new String(PageLayout.readRecord(dm.readPage(0), 0)));
+        } finally {
+            dm.close();
+            Files.deleteIfExists(Path.of(backupFile));
+        }
+    }
+
+    @Test
+    void testDoubleWriteRepairsTornPageOnOpen() throws Exception {
+        String crashFile = TEST_FILE + ".crash";
+        StorageOptions guarded = StorageOptions.builder().doubleWrite(true).build();
+        DiskManager dm = new DiskManager(TEST_FILE, guarded, new EngineMetrics());
+        try {
+            List<Page> v1 = new ArrayList<>();
+            for (int pageId = 0; pageId < 4; pageId++) v1.add(pageWithRecord(pageId, ("v1-" + pageId).getBytes()));
+            dm.writePages(v1);
+            dm.sync();
+            assertEquals(0, Files.size(Path.of(TEST_FILE + ".dwb")), "데이터 파일 force 후 scratch 비움");
+
+            List<Page> v2 = new ArrayList<>();
+            for (int pageId = 0; pageId < 4; pageId++) v2.add(pageWithRecord(pageId, ("v2-" + pageId).getBytes()));
+            dm.writePages(v2);
+            assertTrue(Files.size(Path.of(TEST_FILE + ".dwb")) > 4 * Page.PAGE_SIZE, "배치 1개가 scratch에 남음");
+
+            // 크래시 시점 이미지: 데이터 파일 + scratch 복사 후, page 1 (헤더 + 디렉토리 다음 두 번째 페이지)의 뒷부분을 찢음
+            Files.copy(Path.of(TEST_FILE), Path.of(crashFile));
+            Files.copy(Path.of(TEST_FILE + ".dwb"), Path.of(crashFile + ".dwb"));
+        } finally {
+            dm.close();
+        }
+        assertFalse(Files.exists(Path.of(TEST_FILE + ".dwb")), "정상 종료면 scratch 삭제");
+
+        try (FileChannel ch = FileChannel.open(Path.of(crashFile), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[Page.PAGE_SIZE / 2]), 3L * Page.PAGE_SIZE + Page.PAGE_SIZE / 2);
+        }
+
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager recovered = new DiskManager(crashFile, guarded, metrics);
+        try {
+            assertEquals(1, metrics.snapshot(0, 0, 0, 0).tornPagesRepaired);
+            for (int pageId = 0; pageId < 4; pageId++) {
+                assertEquals("v2-" + pageId, new String(PageLayout.readRecord(recovered.readPage(pageId), 0)));
+            }
+        } finally {
+            recovered.close();
+            Files.deleteIfExists(Path.of(crashFile));
+            Files.deleteIfExists(Path.of(crashFile + ".dwb"));
+        }
+    }
+
+    @Test
+    void testDoubleWriteScratchSurvivesRebuildDirectorySync() throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        StorageOptions guarded = StorageOptions.builder().doubleWrite(true).build();
+        DiskManager dm = new DiskManager(TEST_FILE, guarded, metrics);
+        try {
+            // rebuild 마지막 단계 = 상위 디렉토리 fsync (rename 반영)
+            long fsyncBefore = metrics.snapshot(0, 0, 0, 0).fsyncCount;
+            dm.rebuild(temp -> {
+                for (int pageId = 0; pageId < 4; pageId++) temp.writePage(pageWithRecord(pageId, ("r-" + pageId).getBytes()));
+            });
+            assertTrue(metrics.snapshot(0, 0, 0, 0).fsyncCount > fsyncBefore);
+
+            // 제자리 덮어쓰기 → 데이터 파일 force 전까지는 scratch에만 온전한 이미지
+            List<Page> v2 = new ArrayList<>();
+            for (int pageId = 0; pageId < 4; pageId++) v2.add(pageWithRecord(pageId, ("v2-" + pageId).getBytes()));
+            dm.writePages(v2);
+            assertTrue(Files.size(Path.of(TEST_FILE + ".dwb")) > 4 * Page.PAGE_SIZE, "배치 1개가 scratch에 남음");
+
+            dm.sync();
+            assertEquals(0, Files.size(Path.of(TEST_FILE + ".dwb")), "데이터 파일 force 후 비움");
+            for (int pageId = 0; pageId < 4; pageId++) {
+                assertEquals("v2-" + pageId, new String(PageLayout.readRecord(dm.readPage(pageId), 0)));
+            }
+        } finally {
+            dm.close();
+        }
+    }
+
+    @Test
+    void testReleaseFreeSpaceZeroesFreedRangesAndTruncatesTail() throws Exception {
+        int pages = 32;
+        long freedBytes = (long) pages * Page.PAGE_SIZE;
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager dm = new DiskManager(TEST_FILE,
+                StorageOptions.builder().releaseFreeSpace(true).build(), metrics);
+        try {
+            List<Page> v1 = new ArrayList<>();
+            for (int pageId = 0; pageId < pages; pageId++) v1.add(pageWithRecord(pageId, ("v1-" + pageId).getBytes()));
+            dm.writePages(v1);
+            assertEquals(Files.size(Path.of(TEST_FILE)), metrics.snapshot(0, 0, 0, 0).dataFileBytes);
+
+            // 새 extent는 파일 끝에 → v1 자리(page 0 = 헤더 + 디렉토리 다음)는 파일 중간의 128KB 빈 구간
+            List<Page> v2 = new ArrayList<>();
+            for (int pageId = 0; pageId < pages; pageId++) v2.add(pageWithRecord(pageId, ("v2-" + pageId).getBytes()));
+            dm.writePagesAtomically(v2);
+            dm.sync();
+
+            MetricsSnapshot zeroed = metrics.snapshot(0, 0, 0, 0);
+            assertEquals(freedBytes, zeroed.zeroedBytes);
+            assertEquals(freedBytes, zeroed.releasedFreeBytes);
+            assertEquals(zeroed.dataFileBytes - freedBytes, zeroed.physicalFileBytes);
+            try (FileChannel ch = FileChannel.open(Path.of(TEST_FILE), StandardOpenOption.READ)) {
+                ByteBuffer old = ByteBuffer.allocate(Page.PAGE_SIZE);
+                ch.read(old, 2L * Page.PAGE_SIZE);
+                assertArrayEquals(new byte[Page.PAGE_SIZE], old.array(), "빈 구간은 0으로 채워짐");
+            }
+            dm.sync();
+            assertEquals(freedBytes, metrics.snapshot(0, 0, 0, 0).zeroedBytes, "한 번 채운 구간은 다시 채우지 않음");
+
+            // v3는 앞쪽 빈 구간을 재사용 → 파일 끝의 v2 자리가 빈 공간 → truncate
+            long sizeBefore = Files.size(Path.of(TEST_FILE));
+            List<Page> v3 = new ArrayList<>();
+            for (int pageId = 0; pageId < pages; pageId++) v3.add(pageWithRecord(pageId, ("v3-" + pageId).getBytes()));
+            dm.writePagesAtomically(v3);
+            dm.sync();
+
+            MetricsSnapshot truncated = metrics.snapshot(0, 0, 0, 0);
+            assertEquals(0, truncated.releasedFreeBytes, "재사용된 자리는 돌려준 공간에서 빠짐");
+            assertTrue(truncated.truncatedBytes >= freedBytes);
+            assertEquals(sizeBefore - truncated.truncatedBytes, Files.size(Path.of(TEST_FILE)));
+            for (int pageId = 0; pageId < pages; pageId++) {
+                assertEquals("v3-" + pageId, new String(PageLayout.readRecord(dm.readPage(pageId), 0)));
+            }
+        } finally {
+            dm.close();
+        }
+        assertEquals(0, metrics.snapshot(0, 0, 0, 0).dataFileBytes, "닫힌 파일은 gauge에서 빠짐");
+    }
+
+    /**
+     * writes번 writePages 후 (선택적으로 close) 기록된 fsync 수
+     */
+    private static long fsyncsFor(StorageOptions.Durability durability, int writes, boolean close) throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager dm = new DiskManager(TEST_FILE,
+                StorageOptions.builder().durability(durability).build(), metrics);
+        try {
+            for (int i = 0; i < writes; i++) dm.writePages(List.of(pageWithRecord(i, "D".getBytes())));
+            if (!close) return metrics.snapshot(0, 0, 0, 0).fsyncCount;
+        } finally {
+            dm.close();
+            Files.deleteIfExists(Path.of(TEST_FILE));
+        }
+        return metrics.snapshot(0, 0, 0, 0).fsyncCount;
+    }
+
+    private static Page pageWithRecord(int pageId, byte[] record) {
+        Page page = new Page(pageId);
+        PageLayout.initializePage(page);
+        PageLayout.writeRecord(page, record);
+        return page;
+    }
 }
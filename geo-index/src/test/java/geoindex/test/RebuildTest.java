@@ -1,6 +1,7 @@
 package geoindex.test;
 
 import geoindex.api.PageResult;
+import geoindex.api.RecordChange;
 import geoindex.api.SpatialCacheEngine;
 import geoindex.api.SpatialRecordManager;
 import geoindex.buffer.CacheManager;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -178,4 +180,130 @@ class RebuildTest {
 
         cm.close();
     }
-}
\ No newline at end of file
+
+    @Test
+    void CacheManager_rebuild_후_pageId순_물리배치_overflow는_primary뒤() {
+        EngineMetrics metrics = new EngineMetrics();
+        DiskManager dm = new DiskManager(TEST_FILE, metrics);
+        CacheManager cm = new CacheManager(dm, metrics);
+
+        // 처음 쓴 순서 = 역순 → 연속 pageId가 파일에서는 거꾸로 배치
+        for (int pageId = 10; pageId >= 1; pageId--) {
+            geoindex.storage.Page page = new geoindex.storage.Page(pageId);
+            geoindex.storage.PageLayout.initializePage(page);
+            dm.writePage(page);
+        }
+        int[] range = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertTrue(dm.physicalSeekDistance(range) > 0);
+
+        cm.rebuild(tempCm -> {
+            for (int pageId = 10; pageId >= 1; pageId--) {
+                geoindex.storage.Page page = tempCm.getPage(pageId);
+                geoindex.storage.PageLayout.initializePage(page);
+                if (pageId == 3) geoindex.storage.PageLayout.setOverflowPageId(page, 40_000);
+                tempCm.putPage(page);
+            }
+            geoindex.storage.Page overflow = tempCm.getPage(40_000);
+            geoindex.storage.PageLayout.initializePage(overflow);
+            tempCm.putPage(overflow);
+        });
+
+        assertEquals(0, dm.physicalSeekDistance(new int[]{1, 2, 3, 40_000, 4, 5, 6, 7, 8, 9, 10}));
+        assertEquals(1, dm.physicalSeekDistance(range), "3 → 4 사이에 overflow 한 페이지");
+
+        long before = metrics.snapshot(0, 0, 0, 0).physicalSeekDistance;
+        assertEquals(10, dm.readPages(1, 10).size());
+        assertEquals(before + 1, metrics.snapshot(0, 0, 0, 0).physicalSeekDistance);
+
+        cm.close();
+    }
+
+    // -------------------------------------------------------------------------
+    // rebuildDelta() — 바뀐 체인만 교체
+    // -------------------------------------------------------------------------
+
+    @Test
+    void rebuildDelta_바뀐_페이지만_교체하고_캐시도_그_페이지만_무효화() {
+        EngineMetrics metrics = new EngineMetrics();
+        CacheManager cm = new CacheManager(new DiskManager(TEST_FILE, metrics), metrics);
+        SpatialRecordManager srm = new SpatialRecordManager(cm, new GeoHashIndex(), metrics);
+        SpatialCacheEngine<String> engine = new SpatialCacheEngine<>(srm, metrics);
+
+        // 강남 페이지는 overflow 체인까지 (레코드 600건), 부산 페이지는 1건
+        for (int i = 0; i < 600; i++) {
+            srm.put(37.4979, 127.0276, String.format("G%04d", i).getBytes());
+        }
+        srm.put(35.1796, 129.0756, "BUSAN_1".getBytes());
+        cm.flush();
+        int overflowBefore = srm.getUsedOverflowPageCount();
+        assertTrue(overflowBefore > 0);
+
+        List<PageResult<String>> gangnam = engine.search(37.4979, 127.0276, 0.1);
+        List<PageResult<String>> busan = engine.search(35.1796, 129.0756, 0.1);
+        int gangnamPageId = gangnam.get(0).getPageId();
+        int busanPageId = busan.get(0).getPageId();
+        engine.putCache(gangnamPageId, List.of("cached"));
+        engine.putCache(busanPageId, List.of("cached"));
+
+        List<RecordChange> changes = new java.util.ArrayList<>();
+        for (int i = 0; i < 590; i++) {
+            changes.add(RecordChange.delete(String.format("G%04d", i).getBytes(), 37.4979, 127.0276));
+        }
+        changes.add(RecordChange.move("G0599".getBytes(), 37.4979, 127.0276, 35.1796, 129.0756));
+        changes.add(RecordChange.insert("NEW_1".getBytes(), 37.4979, 127.0276));
+        Set<Integer> affected = engine.rebuildDelta(changes);
+
+        assertEquals(Set.of(gangnamPageId, busanPageId), affected);
+        assertFalse(engine.isCached(gangnamPageId));
+        assertFalse(engine.isCached(busanPageId));
+
+        List<String> gangnamCodes = srm.getAllCodesByPageId(gangnamPageId);
+        assertEquals(10, gangnamCodes.size(), "590건 삭제 + 1건 이동 + 1건 추가");
+        assertTrue(gangnamCodes.contains("NEW_1"));
+        assertFalse(gangnamCodes.contains("G0599"));
+        assertEquals(List.of("BUSAN_1", "G0599"), srm.getAllCodesByPageId(busanPageId));
+        assertEquals(0, srm.getUsedOverflowPageCount(), "줄어든 체인의 overflow는 반납");
+        assertEquals(1, metrics.snapshot(0, 0, 0, 0).deltaRebuildCount);
+
+        // 같은 변경을 다시 적용해도 내용 그대로 (멱등), 기록하는 페이지 없음
+        long pagesBefore = metrics.snapshot(0, 0, 0, 0).deltaRebuildPages;
+        engine.rebuildDelta(changes);
+        assertEquals(pagesBefore, metrics.snapshot(0, 0, 0, 0).deltaRebuildPages);
+        assertEquals(10, srm.getAllCodesByPageId(gangnamPageId).size());
+
+        // 반납한 overflow 페이지를 다시 할당해도 옛 레코드가 섞이지 않음
+        for (int i = 0; i < 600; i++) {
+            srm.put(37.4979, 127.0276, String.format("R%04d", i).getBytes());
+        }
+        assertEquals(610, srm.getAllCodesByPageId(gangnamPageId).size());
+        cm.close();
+
+        // 재시작 후에도 교체된 내용
+        EngineMetrics reopened = new EngineMetrics();
+        CacheManager cm2 = new CacheManager(new DiskManager(TEST_FILE, reopened), reopened);
+        SpatialRecordManager srm2 = new SpatialRecordManager(cm2, new GeoHashIndex(), reopened);
+        assertEquals(List.of("BUSAN_1", "G0599"), srm2.getAllCodesByPageId(busanPageId));
+        assertEquals(610, srm2.getAllCodesByPageId(gangnamPageId).size());
+        cm2.close();
+    }
+
+    @Test
+    void rebuildDelta_update는_파일을_그대로_두고_캐시만_무효화() {
+        EngineMetrics metrics = new EngineMetrics();
+        CacheManager cm = new CacheManager(new DiskManager(TEST_FILE, metrics), metrics);
+        SpatialRecordManager srm = new SpatialRecordManager(cm, new GeoHashIndex(), metrics);
+        SpatialCacheEngine<String> engine = new SpatialCacheEngine<>(srm, metrics);
+
+        srm.put(37.4979, 127.0276, "B0001".getBytes());
+        cm.flush();
+        int pageId = engine.search(37.4979, 127.0276, 0.1).get(0).getPageId();
+        engine.putCache(pageId, List.of("stale"));
+
+        engine.rebuildDelta(List.of(RecordChange.update("B0001".getBytes(), 37.4979, 127.0276)));
+
+        assertFalse(engine.isCached(pageId));
+        assertEquals(List.of("B0001"), srm.getAllCodesByPageId(pageId));
+        assertEquals(0, metrics.snapshot(0, 0, 0, 0).deltaRebuildPages);
+        cm.close();
+    }
+}
@@ -0,0 +1,162 @@
+package geoindex.test;
+
+import geoindex.api.SpatialRecordManager;
+import geoindex.buffer.CacheManager;
+import geoindex.index.GeoHashIndex;
+import geoindex.metric.EngineMetrics;
+import geoindex.storage.DiskManager;
+import geoindex.storage.Page;
+import geoindex.storage.PageLayout;
+import geoindex.storage.PageSnapshot;
+import geoindex.storage.SegmentedDiskManager;
+import geoindex.storage.StorageOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedDiskManagerTest {
+
+    static final String TEST_FILE = "test_segmented.db";
+
+    @AfterEach
+    void cleanup() throws Exception {
+        File[] files = new File(".").listFiles((dir, name) -> name.startsWith(TEST_FILE));
+        if (files == null) return;
+        for (File file : files) Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    void testPagesAreRoutedToSegmentFilesAndSurviveReopen() {
+        SegmentedDiskManager store = new SegmentedDiskManager(TEST_FILE, 100, new EngineMetrics());
+        List<Page> pages = new ArrayList<>();
+        for (int pageId = 95; pageId < 105; pageId++) pages.add(pageWithRecord(pageId, "P" + pageId));
+        pages.add(pageWithRecord(250, "P250"));
+        store.writePages(pages);
+
+        assertTrue(Files.exists(Path.of(TEST_FILE + ".seg00000")));
+        assertTrue(Files.exists(Path.of(TEST_FILE + ".seg00001")));
+        assertTrue(Files.exists(Path.of(TEST_FILE + ".seg00002")));
+        assertEquals(11, store.getUsedPageCount());
+        store.close();
+
+        store = new SegmentedDiskManager(TEST_FILE, 100, new EngineMetrics());
+        try {
+            assertEquals(3, store.getSegments().size());
+            List<Page> range = store.readPages(90, 110);
+            assertEquals(21, range.size(), "세그먼트 경계를 넘는 구간도 길이 그대로");
+            for (Page page : range) {
+                int pageId = page.getPageId();
+                if (pageId >= 95 && pageId < 105) {
+                    assertEquals("P" + pageId, new String(PageLayout.readRecord(page, 0)));
+                } else {
+                    assertFalse(PageLayout.isInitialized(page));
+                }
+            }
+            assertEquals("P250", new String(PageLayout.readRecord(store.readPage(250), 0)));
+            assertFalse(PageLayout.isInitialized(store.readPage(999)), "없는 세그먼트 → 빈 페이지");
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void testFailedOpenClosesSegmentsAlreadyOpened() throws Exception {
+        // 세그먼트 0은 정상, 1은 헤더가 깨진 파일 → 1을 여는 DiskManager 생성자가 실패
+        new DiskManager(TEST_FILE + ".seg00000", new EngineMetrics()).close();
+        Files.write(Path.of(TEST_FILE + ".seg00001"), new byte[2 * Page.PAGE_SIZE]);
+        Files.write(Path.of(TEST_FILE + ".seg00001"), "not a page file".getBytes(), StandardOpenOption.WRITE);
+
+        StorageOptions guarded = StorageOptions.builder().doubleWrite(true).build();
+        assertThrows(RuntimeException.class, () -> new SegmentedDiskManager(TEST_FILE, 100, guarded, new EngineMetrics()));
+        // double-write scratch는 열려 있는 동안만 존재 → 남아 있으면 그 세그먼트가 닫히지 않은 것
+        assertFalse(Files.exists(Path.of(TEST_FILE + ".seg00000.dwb")));
+    }
+
+    @Test
+    void testRebuildSegmentsSwapsOnlyTargetSegments() {
+        SegmentedDiskManager store = new SegmentedDiskManager(TEST_FILE, 100, new EngineMetrics());
+        try {
+            store.writePages(List.of(pageWithRecord(1, "OLD_A"), pageWithRecord(2, "OLD_A2"), pageWithRecord(101, "OLD_B")));
+
+            store.rebuildSegments(Set.of(0), temp -> temp.writePage(pageWithRecord(1, "NEW_A")));
+
+            assertEquals("NEW_A", new String(PageLayout.readRecord(store.readPage(1), 0)));
+            assertFalse(PageLayout.isInitialized(store.readPage(2)), "대상 세그먼트는 통째로 교체");
+            assertEquals("OLD_B", new String(PageLayout.readRecord(store.readPage(101), 0)), "다른 세그먼트는 그대로");
+
+            // 대상 밖 세그먼트에 쓰면 아무것도 교체하지 않음
+            assertThrows(IllegalArgumentException.class, () -> store.rebuildSegments(Set.of(0), temp -> {
+                temp.writePage(pageWithRecord(1, "BAD_A"));
+                temp.writePage(pageWithRecord(101, "BAD_B"));
+            }));
+            assertEquals("NEW_A", new String(PageLayout.readRecord(store.readPage(1), 0)));
+            assertFalse(Files.exists(Path.of(TEST_FILE + ".seg00000.new")), "실패한 임시 파일은 삭제");
+
+            // 전체 rebuild → loader가 쓰지 않은 세그먼트는 비워짐
+            store.rebuild(temp -> temp.writePage(pageWithRecord(205, "NEW_C")));
+            assertFalse(PageLayout.isInitialized(store.readPage(1)));
+            assertFalse(PageLayout.isInitialized(store.readPage(101)));
+            assertEquals("NEW_C", new String(PageLayout.readRecord(store.readPage(205), 0)));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void testSnapshotSpansAllSegments() {
+        SegmentedDiskManager store = new SegmentedDiskManager(TEST_FILE, 100, new EngineMetrics());
+        try {
+            store.writePages(List.of(pageWithRecord(5, "a"), pageWithRecord(150, "b")));
+            try (PageSnapshot snapshot = store.openSnapshot()) {
+                // 두 세그먼트에 걸친 flush 1회 + 새 세그먼트 → 스냅샷에는 보이지 않음
+                store.writePages(List.of(pageWithRecord(5, "a2"), pageWithRecord(150, "b2"), pageWithRecord(420, "c")));
+
+                assertArrayEquals(new int[]{5, 150}, snapshot.getPageIds());
+                assertEquals("a", new String(PageLayout.readRecord(snapshot.readPage(5), 0)));
+                assertEquals("b", new String(PageLayout.readRecord(snapshot.readPage(150), 0)));
+                assertThrows(IllegalArgumentException.class, () -> snapshot.readPage(420));
+                assertEquals(2, snapshot.getPreservedPageCount());
+            }
+            assertEquals("b2", new String(PageLayout.readRecord(store.readPage(150), 0)));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void testSpatialRecordManagerOnSegmentedStore() {
+        EngineMetrics metrics = new EngineMetrics();
+        // primary(0 ~ 32,767)와 overflow(32,768 ~)가 서로 다른 세그먼트
+        CacheManager cm = new CacheManager(new SegmentedDiskManager(TEST_FILE, 8_192, metrics), metrics);
+        SpatialRecordManager srm = new SpatialRecordManager(cm, new GeoHashIndex(), metrics);
+        for (int i = 0; i < 500; i++) srm.put(37.4979, 127.0276, String.format("G%04d", i).getBytes());
+        srm.put(35.1796, 129.0756, "BUSAN_1".getBytes());
+        cm.close();
+
+        EngineMetrics reopened = new EngineMetrics();
+        CacheManager cm2 = new CacheManager(new SegmentedDiskManager(TEST_FILE, 8_192, reopened), reopened);
+        SpatialRecordManager srm2 = new SpatialRecordManager(cm2, new GeoHashIndex(), reopened);
+        try {
+            assertEquals(500, srm2.searchRadiusCodes(37.4979, 127.0276, 0.1).size());
+            assertEquals(List.of("BUSAN_1"), srm2.searchRadiusCodes(35.1796, 129.0756, 0.1));
+        } finally {
+            cm2.close();
+        }
+    }
+
+    private static Page pageWithRecord(int pageId, String record) {
+        Page page = new Page(pageId);
+        PageLayout.initializePage(page);
+        PageLayout.writeRecord(page, record.getBytes());
+        return page;
+    }
+}
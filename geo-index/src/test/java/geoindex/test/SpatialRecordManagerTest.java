@@ -5,6 +5,7 @@ import geoindex.buffer.CacheManager;
 import geoindex.index.GeoHashIndex;
 import geoindex.metric.EngineMetrics;
 import geoindex.storage.DiskManager;
+import geoindex.storage.StorageOptions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -129,4 +130,32 @@ class SpatialRecordManagerTest {
         assertTrue(allCodes.contains("B0001"));
         assertFalse(allCodes.contains("B9999"));
     }
+
+    @Test
+    void testLargerPagesShortenOverflowChains() throws Exception {
+        String largeFile = "test_spatial_16k.db";
+        EngineMetrics metrics = new EngineMetrics();
+        StorageOptions options = StorageOptions.builder().pageSize(16 * 1024).build();
+        CacheManager largeCache = new CacheManager(new DiskManager(largeFile, options, metrics), metrics);
+        SpatialRecordManager large = new SpatialRecordManager(largeCache, new GeoHashIndex(), metrics);
+        try {
+            for (int i = 0; i < 500; i++) {
+                byte[] code = String.format("G%04d", i).getBytes();
+                manager.put(37.4979, 127.0276, code);
+                large.put(37.4979, 127.0276, code);
+            }
+            cacheManager.flush();
+            largeCache.flush();
+
+            // 같은 primaryPage에 500건 → 4KB는 overflow 체인, 16KB는 체인이 1/4 길이
+            int smallPages = diskManager.getUsedPageCount();
+            int largePages = largeCache.getUsedPageCount();
+            assertTrue(largePages * 3 <= smallPages, "4KB=" + smallPages + ", 16KB=" + largePages);
+            largeCache.clearCache();
+            assertEquals(500, large.searchRadiusCodes(37.4979, 127.0276, 0.1).size());
+        } finally {
+            largeCache.close();
+            Files.deleteIfExists(Path.of(largeFile));
+        }
+    }
 }
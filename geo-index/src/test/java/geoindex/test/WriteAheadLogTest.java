@@ -0,0 +1,195 @@
+package geoindex.test;
+
+import geoindex.api.SpatialRecordManager;
+import geoindex.buffer.CacheManager;
+import geoindex.index.GeoHashIndex;
+import geoindex.metric.EngineMetrics;
+import geoindex.metric.MetricsSnapshot;
+import geoindex.storage.DiskManager;
+import geoindex.storage.StorageOptions;
+import geoindex.storage.WriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    static final String TEST_FILE = "test_wal.db";
+    static final String WAL_FILE  = "test_wal.db.wal";
+
+    EngineMetrics metrics;
+    DiskManager diskManager;
+    WriteAheadLog wal;
+    CacheManager cacheManager;
+    SpatialRecordManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.deleteIfExists(Path.of(TEST_FILE));
+        Files.deleteIfExists(Path.of(WAL_FILE));
+        open(StorageOptions.DEFAULT);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        cacheManager.close();
+        Files.deleteIfExists(Path.of(TEST_FILE));
+        Files.deleteIfExists(Path.of(WAL_FILE));
+    }
+
+    private void open(StorageOptions options) {
+        metrics = new EngineMetrics();
+        diskManager = new DiskManager(TEST_FILE, options, metrics);
+        wal = new WriteAheadLog(WAL_FILE, options, metrics);
+        cacheManager = new CacheManager(diskManager, wal, metrics);
+        manager = new SpatialRecordManager(cacheManager, new GeoHashIndex(), metrics);
+    }
+
+    /**
+     * flush 없이 프로세스가 죽은 상황 — dirty 페이지는 버리고 파일만 닫음
+     */
+    private void crashAndReopen() {
+        diskManager.close();
+        wal.close();
+        open(StorageOptions.DEFAULT);
+    }
+
+    private void putAll(int from, int to) {
+        for (int i = from; i < to; i++) {
+            manager.put(37.4979 + i * 0.00001, 127.0276, ("병원" + i).getBytes());
+        }
+    }
+
+    private int countAll() {
+        return manager.searchRadius(37.4979, 127.0276, 5.0).size();
+    }
+
+    @Test
+    void testUnflushedPutsSurviveCrash() {
+        putAll(0, 300);  // overflow 체인까지 생기는 양
+        crashAndReopen();
+        assertEquals(300, countAll());
+    }
+
+    @Test
+    void testReplayAfterCheckpointDoesNotDuplicate() {
+        putAll(0, 100);
+        cacheManager.flush();          // checkpoint → 로그 비움
+        assertEquals(16, wal.size());
+
+        putAll(100, 150);
+        crashAndReopen();
+        assertEquals(150, countAll());
+    }
+
+    @Test
+    void testReplayIsIdempotentForPagesAlreadyOnDisk() {
+        putAll(0, 50);
+        // 페이지는 디스크에 썼지만 checkpoint 전에 죽음 → 로그에도 같은 레코드가 남아 있음
+        int pageId = new GeoHashIndex().toPageId(37.4979, 127.0276);
+        diskManager.writePages(List.of(cacheManager.getPage(pageId)));
+
+        crashAndReopen();
+        assertEquals(50, countAll());
+    }
+
+    @Test
+    void testTornTailIsDiscarded() throws Exception {
+        putAll(0, 10);
+        diskManager.close();
+        wal.close();
+
+        // 마지막 fsync 이후 절반만 기록된 레코드 흉내
+        try (RandomAccessFile raf = new RandomAccessFile(WAL_FILE, "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(64);
+            raf.writeInt(0xDEADBEEF);
+            raf.write(new byte[10]);
+        }
+
+        open(StorageOptions.DEFAULT);
+        assertEquals(10, countAll());
+        putAll(10, 20);
+        crashAndReopen();
+        assertEquals(20, countAll());
+    }
+
+    @Test
+    void testCheckpointCompactsWhenRecordsFollow() throws Exception {
+        String walFile = "test_wal_compact.wal";
+        Files.deleteIfExists(Path.of(walFile));
+        WriteAheadLog log = new WriteAheadLog(walFile, new EngineMetrics());
+        try {
+            byte[] value = new byte[100];
+            long last = WriteAheadLog.NO_LSN;
+            for (int i = 0; i < 2_000; i++) last = log.appendInsert(i, 0, value);
+            log.awaitDurable(last);
+            long checkpointLsn = log.getAppendedLsn();
+
+            // flush 도중 계속 들어온 put — checkpoint 뒤에 레코드가 남아 truncate 불가
+            List<Long> tail = new ArrayList<>();
+            for (int i = 0; i < 10; i++) tail.add(log.appendInsert(5_000 + i, 0, ("tail" + i).getBytes()));
+            log.awaitDurable(tail.get(4));              // 앞 5개는 파일, 뒤 5개는 아직 버퍼
+            long before = log.size();
+
+            log.checkpoint(checkpointLsn);
+            assertTrue(log.size() < before / 10, "앞부분 제거: " + before + " → " + log.size());
+
+            log.awaitDurable(tail.get(9));
+            List<Long> replayed = new ArrayList<>();
+            log.replay((lsn, type, pageId, arg, v) -> replayed.add(lsn));
+            assertEquals(tail, replayed);
+            long next = log.appendInsert(9_999, 0, value);
+            assertEquals(tail.get(9) + 1, next);
+            log.awaitDurable(next);
+            log.close();
+
+            // 다시 열어도 checkpoint 이후 레코드만, LSN은 이어서
+            log = new WriteAheadLog(walFile, new EngineMetrics());
+            replayed.clear();
+            log.replay((lsn, type, pageId, arg, v) -> replayed.add(lsn));
+            assertEquals(11, replayed.size());
+            assertEquals(tail.get(0), replayed.get(0));
+            assertEquals(next + 1, log.appendInsert(1, 0, value));
+        } finally {
+            log.close();
+            Files.deleteIfExists(Path.of(walFile));
+        }
+    }
+
+    @Test
+    void testConcurrentPutsShareFsync() throws Exception {
+        cacheManager.close();
+        open(StorageOptions.builder().groupCommitIntervalMicros(2_000).build());
+
+        int threads = 8;
+        int perThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            futures.add(executor.submit(() -> putAll(base, base + perThread)));
+        }
+        for (Future<?> future : futures) future.get();
+        executor.shutdown();
+
+        MetricsSnapshot snapshot = metrics.snapshot(0, 0, 0, 0);
+        assertTrue(snapshot.walAppendCount >= threads * perThread);
+        assertTrue(snapshot.walSyncCount < snapshot.walAppendCount,
+                "group commit 미동작: syncs=" + snapshot.walSyncCount);
+
+        crashAndReopen();
+        assertEquals(threads * perThread, countAll());
+    }
+}